@@ -0,0 +1,94 @@
+/*
+ * The source code contained herein is licensed under the IBM Public License
+ * Version 1.0, which has been approved by the Open Source Initiative.
+ * Copyright (C) 2001, International Business Machines Corporation
+ * All Rights Reserved.
+ *
+ */
+
+import java.io.File;
+import java.util.Properties;
+
+import org.uddi4j.client.RegistryCrawler;
+import org.uddi4j.client.UDDIProxy;
+import org.uddi4j.request.FindBusiness;
+import org.uddi4j.request.FindTModel;
+import org.uddi4j.util.CategoryBag;
+import org.uddi4j.util.KeyedReference;
+
+/**
+ * Writes a snapshot of a registry to a file.
+ *
+ * <OL>
+ * <LI>Sets up a UDDIProxy object
+ * <LI>Crawls the registry, or the businesses in a category, with a RegistryCrawler
+ * <LI>Prints the number of entities and requests
+ * </OL>
+ *
+ * The first argument is the snapshot file. To read only the businesses in
+ * a category, and the tModels they refer to, pass the tModelKey and
+ * keyValue of the category as the second and third arguments. The number
+ * of requests sent at once is set with -Dorg.uddi4j.crawl.parallelism.
+ */
+
+public class RegistryCrawlerExample
+{
+	Properties config = null;
+
+	public static void main (String args[])
+	{
+		RegistryCrawlerExample app = new RegistryCrawlerExample();
+		System.out.println("\n*********** Running RegistryCrawlerExample ***********");
+		if (args.length != 1 && args.length != 3)
+		{
+			System.out.println("Usage: RegistryCrawlerExample file [tModelKey keyValue]");
+			System.exit(1);
+		}
+		app.run(args);
+		System.exit(0);
+	}
+
+	public void run(String args[])
+	{
+		// Load samples configuration
+		config = Configurator.load();
+
+		Properties props = new Properties(System.getProperties());
+		props.setProperty(UDDIProxy.INQUIRY_URL_PROPERTY, config.getProperty("inquiryURL"));
+
+		try
+		{
+			UDDIProxy proxy = new UDDIProxy(props);
+			RegistryCrawler crawler = proxy.newRegistryCrawler();
+
+			FindBusiness businesses = new FindBusiness();
+			FindTModel tModels = new FindTModel();
+			if (args.length == 3)
+			{
+				// Only businesses in the category, and the tModels they use
+				CategoryBag category = new CategoryBag();
+				category.add(new KeyedReference("", args[2], args[1]));
+				businesses.setCategoryBag(category);
+				tModels = null;
+			}
+
+			long start = System.currentTimeMillis();
+			crawler.crawl(businesses, tModels, new File(args[0]));
+			long elapsed = System.currentTimeMillis() - start;
+
+			System.out.println(crawler.getBusinessCount() + " businesses, "
+							   + crawler.getTModelCount() + " tModels, "
+							   + crawler.getRequestCount() + " detail requests in "
+							   + elapsed + " ms");
+			if (!crawler.isComplete())
+			{
+				System.out.println("Some find results were truncated and could not be read completely.");
+			}
+		}
+		// Catch any exception that may occur
+		catch( Exception e )
+		{
+			e.printStackTrace();
+		}
+	}
+}
@@ -0,0 +1,110 @@
+/*
+ * The source code contained herein is licensed under the IBM Public License
+ * Version 1.0, which has been approved by the Open Source Initiative.
+ * Copyright (C) 2001, International Business Machines Corporation
+ * Copyright (C) 2001, Hewlett-Packard Company
+ * All Rights Reserved.
+ *
+ */
+
+import java.lang.management.ManagementFactory;
+import java.util.Properties;
+
+import org.uddi4j.client.UDDIProxy;
+
+/**
+ * Measures the cost of an inquiry call through the Apache Axis transport,
+ * the one org.uddi4j.axis.domPassThrough applies to. Issues the same
+ * find_business request repeatedly and prints the average time and the
+ * average number of bytes allocated by the calling thread per call.
+ *
+ * <OL>
+ * <LI>Sets up a UDDIProxy object using ApacheAxisTransport with
+ * org.uddi4j.axis.domPassThrough=false
+ * <LI>Measures find_business calls
+ * <LI>Repeats with org.uddi4j.axis.domPassThrough=true
+ * </OL>
+ *
+ * The number of calls can be given as the first argument. Allocation is
+ * measured with com.sun.management.ThreadMXBean and is reported as -1
+ * if the JVM does not support it.
+ */
+
+public class TransportBenchmark
+{
+	Properties config = null;
+
+	public static void main (String args[])
+	{
+		TransportBenchmark app = new TransportBenchmark();
+		System.out.println("\n*********** Running TransportBenchmark ***********");
+		int calls = 200;
+		if (args.length > 0)
+		{
+			calls = Integer.parseInt(args[0]);
+		}
+		app.run(calls);
+		System.exit(0);
+	}
+
+	public void run(int calls)
+	{
+		// Load samples configuration
+		config = Configurator.load();
+
+		try
+		{
+			measure("string round trip", "false", calls);
+			measure("DOM pass through", "true", calls);
+		}
+		// Catch any exception that may occur
+		catch( Exception e )
+		{
+			e.printStackTrace();
+		}
+	}
+
+	void measure(String label, String passThrough, int calls) throws Exception
+	{
+		Properties props = new Properties();
+		props.setProperty(UDDIProxy.INQUIRY_URL_PROPERTY, config.getProperty("inquiryURL"));
+		// The pass through setting only applies to the Axis transport
+		props.setProperty(UDDIProxy.TRANSPORT_CLASSNAME_PROPERTY, "org.uddi4j.transport.ApacheAxisTransport");
+		props.setProperty(UDDIProxy.AXIS_DOM_PASSTHROUGH_PROPERTY, passThrough);
+		UDDIProxy proxy = new UDDIProxy(props);
+		String name = config.getProperty("sampleEntityName");
+
+		// Warm up so class loading and JIT compilation are not measured
+		for( int i = 0; i < Math.max(10, calls / 10); i++ )
+		{
+			proxy.find_business(name, null, 10);
+		}
+
+		long startBytes = allocatedBytes();
+		long startTime = System.currentTimeMillis();
+		for( int i = 0; i < calls; i++ )
+		{
+			proxy.find_business(name, null, 10);
+		}
+		long elapsed = System.currentTimeMillis() - startTime;
+		long allocated = allocatedBytes() - startBytes;
+
+		System.out.println(label + ": " + calls + " calls, "
+						   + ((double)elapsed / calls) + " ms/call, "
+						   + (startBytes < 0 ? -1 : allocated / calls) + " bytes allocated/call");
+	}
+
+	long allocatedBytes()
+	{
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if( bean instanceof com.sun.management.ThreadMXBean )
+		{
+			com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean)bean;
+			if( sunBean.isThreadAllocatedMemorySupported() )
+			{
+				return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+		return -1;
+	}
+}
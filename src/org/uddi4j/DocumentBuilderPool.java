@@ -0,0 +1,187 @@
+/*
+ * The source code contained herein is licensed under the IBM Public License
+ * Version 1.0, which has been approved by the Open Source Initiative.
+ * Copyright (C) 2001, International Business Machines Corporation
+ * All Rights Reserved.
+ *
+ */
+
+package org.uddi4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
+
+/**
+ * Bounded pool of namespace aware DocumentBuilder instances shared by the
+ * transports and the classes reading and writing UDDI elements as DOM trees.
+ * <p>
+ * Looking up a DocumentBuilderFactory scans the classpath, and creating a
+ * DocumentBuilder is not cheap either, so doing both for every message
+ * is wasteful. The factory is looked up once; builders are borrowed from
+ * the pool, reset and returned after use. When the pool is empty a new
+ * builder is created (a miss); when it is full a returned builder is
+ * dropped (a discard).
+ * <p>
+ * The pool size is read from the org.uddi4j.parserPoolSize system
+ * property when the class is loaded and defaults to 32.
+ */
+public class DocumentBuilderPool {
+
+    public static final String SIZE_PROPERTY = "org.uddi4j.parserPoolSize";
+    public static final int DEFAULT_SIZE = 32;
+
+    private static final DocumentBuilderPool instance = new DocumentBuilderPool(getConfiguredSize());
+
+    private final DocumentBuilderFactory factory;
+    private final ArrayBlockingQueue<DocumentBuilder> idle;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong discards = new AtomicLong();
+
+    /**
+     * Construct a pool holding at most size idle builders.
+     *
+     * @param size Maximum number of idle builders kept.
+     */
+    public DocumentBuilderPool(int size) {
+        factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        idle = new ArrayBlockingQueue<DocumentBuilder>(Math.max(1, size));
+    }
+
+    /**
+     * Returns the pool shared by all transports.
+     *
+     * @return DocumentBuilderPool
+     */
+    public static DocumentBuilderPool getInstance() {
+        return instance;
+    }
+
+    /**
+     * Borrows a builder. The builder must be given back with
+     * {@link #release(DocumentBuilder)} when no longer in use.
+     *
+     * @return DocumentBuilder
+     * @exception ParserConfigurationException
+     *                   Thrown if a new builder cannot be created.
+     */
+    public DocumentBuilder borrow() throws ParserConfigurationException {
+        DocumentBuilder builder = idle.poll();
+        if (builder != null) {
+            hits.incrementAndGet();
+            return builder;
+        }
+        misses.incrementAndGet();
+        // DocumentBuilderFactory is not thread safe.
+        synchronized (factory) {
+            return factory.newDocumentBuilder();
+        }
+    }
+
+    /**
+     * Resets a builder and returns it to the pool.
+     *
+     * @param builder Builder obtained from {@link #borrow()}.
+     */
+    public void release(DocumentBuilder builder) {
+        if (builder == null) {
+            return;
+        }
+        try {
+            builder.reset();
+        } catch (UnsupportedOperationException e) {
+            // Builder cannot be reset, so it cannot be reused either.
+            discards.incrementAndGet();
+            return;
+        }
+        if (!idle.offer(builder)) {
+            discards.incrementAndGet();
+        }
+    }
+
+    /**
+     * Creates a new, empty DOM document using a pooled builder.
+     *
+     * @return Document
+     * @exception ParserConfigurationException
+     */
+    public Document newDocument() throws ParserConfigurationException {
+        DocumentBuilder builder = borrow();
+        try {
+            return builder.newDocument();
+        } finally {
+            release(builder);
+        }
+    }
+
+    /**
+     * Parses a stream into a DOM document using a pooled builder.
+     *
+     * @param in     Stream containing the XML document.
+     * @return Document
+     * @exception ParserConfigurationException
+     * @exception SAXException
+     * @exception IOException
+     */
+    public Document parse(InputStream in) throws ParserConfigurationException, SAXException, IOException {
+        DocumentBuilder builder = borrow();
+        try {
+            return builder.parse(in);
+        } finally {
+            release(builder);
+        }
+    }
+
+    /**
+     * Number of times a pooled builder was reused.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Number of times a new builder had to be created.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Number of builders dropped because the pool was full or the builder
+     * could not be reset.
+     */
+    public long getDiscards() {
+        return discards.get();
+    }
+
+    /**
+     * Number of builders currently idle in the pool.
+     */
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    public String toString() {
+        return "DocumentBuilderPool[hits=" + getHits() + ", misses=" + getMisses()
+            + ", discards=" + getDiscards() + ", idle=" + getIdleCount() + "]";
+    }
+
+    private static int getConfiguredSize() {
+        try {
+            return Integer.parseInt(System.getProperty(SIZE_PROPERTY));
+        } catch (Exception e) {
+            //prop is null, empty or not an int - use the default.
+            return DEFAULT_SIZE;
+        }
+    }
+}
@@ -12,7 +12,14 @@ package org.uddi4j;
 import java.io.Serializable;
 import java.util.Vector;
 
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
 import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
@@ -43,6 +50,129 @@ public abstract class UDDIElement implements Serializable {
 
    abstract public void saveToXML(Element base);
 
+   /**
+    * Save an object to a stream writer. Used to serialize an object
+    * without building a DOM tree, usually to send a UDDI message.
+    *
+    * <BR>This implementation builds a DOM tree with saveToXML(Element)
+    * and copies it to the writer. Classes that make up large messages
+    * override it to write their elements directly.
+    *
+    * @param writer Object will be written as the next element of the writer.
+    * @exception XMLStreamException
+    */
+   public void saveToXML(XMLStreamWriter writer) throws XMLStreamException {
+      Element parent = null;
+      try {
+         Document doc = DocumentBuilderPool.getInstance().newDocument();
+         parent = doc.createElementNS(XMLNS, XMLNS_PREFIX + "parent");
+         doc.appendChild(parent);
+      } catch (Exception e) {
+         throw new XMLStreamException(e);
+      }
+      saveToXML(parent);
+      for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+         writeNode(writer, node);
+      }
+   }
+
+   /**
+    * Writes the start tag of a UDDI element, declaring the UDDI namespace
+    * unless an enclosing element already did.
+    */
+   protected static void writeStartElement(XMLStreamWriter writer, String tag) throws XMLStreamException {
+      String prefix = XMLNS_PREFIX.substring(0, XMLNS_PREFIX.length() - 1);
+      boolean declared = prefix.equals(writer.getPrefix(XMLNS));
+      writer.writeStartElement(prefix, tag, XMLNS);
+      if (!declared) {
+         writer.writeNamespace(prefix, XMLNS);
+         writer.setPrefix(prefix, XMLNS);
+      }
+   }
+
+   /**
+    * Writes an attribute unless its value is null.
+    */
+   protected static void writeAttribute(XMLStreamWriter writer, String name, String value) throws XMLStreamException {
+      if (value != null) {
+         writer.writeAttribute(name, value);
+      }
+   }
+
+   /**
+    * Writes the xml:lang attribute unless the language is null or empty.
+    */
+   protected static void writeLang(XMLStreamWriter writer, String lang) throws XMLStreamException {
+      if (lang != null && !lang.equals("")) {
+         writer.writeAttribute(XMLConstants.XML_NS_PREFIX, XMLConstants.XML_NS_URI, "lang", lang);
+      }
+   }
+
+   /**
+    * Writes element content unless it is null.
+    */
+   protected static void writeText(XMLStreamWriter writer, String text) throws XMLStreamException {
+      if (text != null) {
+         writer.writeCharacters(text);
+      }
+   }
+
+   /**
+    * Copies a DOM node and its children to a stream writer.
+    */
+   protected static void writeNode(XMLStreamWriter writer, Node node) throws XMLStreamException {
+      switch (node.getNodeType()) {
+         case Node.ELEMENT_NODE:
+            Element el = (Element)node;
+            String ns = el.getNamespaceURI();
+            String prefix = el.getPrefix() == null ? "" : el.getPrefix();
+            String local = el.getLocalName() == null ? el.getNodeName() : el.getLocalName();
+            if (ns == null) {
+               writer.writeStartElement(local);
+            } else {
+               boolean declared = prefix.equals(writer.getPrefix(ns));
+               writer.writeStartElement(prefix, local, ns);
+               if (!declared) {
+                  if (prefix.length() == 0) {
+                     writer.writeDefaultNamespace(ns);
+                  } else {
+                     writer.writeNamespace(prefix, ns);
+                  }
+                  writer.setPrefix(prefix, ns);
+               }
+            }
+            NamedNodeMap attrs = el.getAttributes();
+            for (int i = 0; i < attrs.getLength(); i++) {
+               Attr attr = (Attr)attrs.item(i);
+               String name = attr.getName();
+               if (name.equals("xmlns") || name.startsWith("xmlns:")) {
+                  // Namespaces are declared as elements are written.
+                  continue;
+               }
+               if (name.equals("xml:lang")) {
+                  writeLang(writer, attr.getValue());
+               } else if (attr.getNamespaceURI() != null && attr.getPrefix() != null) {
+                  writer.writeAttribute(attr.getPrefix(), attr.getNamespaceURI(), attr.getLocalName(), attr.getValue());
+               } else {
+                  writer.writeAttribute(name, attr.getValue());
+               }
+            }
+            for (Node child = el.getFirstChild(); child != null; child = child.getNextSibling()) {
+               writeNode(writer, child);
+            }
+            writer.writeEndElement();
+            break;
+         case Node.TEXT_NODE:
+            writer.writeCharacters(node.getNodeValue());
+            break;
+         case Node.CDATA_SECTION_NODE:
+            writer.writeCData(node.getNodeValue());
+            break;
+         default:
+            break;
+      }
+   }
+
    /**
     * Performs a utility function.
     * Returns text contained in child elements of the
@@ -88,6 +88,9 @@ public class UDDIException extends Exception {
             if (createDispositionReport) {
                try {
                   nl = el.getElementsByTagName(DispositionReport.UDDI_TAG);
+                  if (nl.getLength()==0) {       // Handle possible DOM level 2 response
+                     nl = el.getElementsByTagNameNS(UDDIElement.XMLNS, DispositionReport.UDDI_TAG);
+                  }
                   if (nl!=null && nl.getLength()>0) {
                      tmp = (Element)nl.item(0);
                      dispositionReport = new DispositionReport(tmp);
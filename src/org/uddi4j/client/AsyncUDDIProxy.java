@@ -0,0 +1,777 @@
+/*
+ * The source code contained herein is licensed under the IBM Public License
+ * Version 1.0, which has been approved by the Open Source Initiative.
+ * Copyright (C) 2001, International Business Machines Corporation
+ * Copyright (C) 2001, Hewlett-Packard Company
+ * All Rights Reserved.
+ *
+ */
+package org.uddi4j.client;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.uddi4j.UDDIElement;
+import org.uddi4j.UDDIException;
+import org.uddi4j.datatype.Name;
+import org.uddi4j.datatype.assertion.PublisherAssertion;
+import org.uddi4j.request.AddPublisherAssertions;
+import org.uddi4j.request.DeleteBinding;
+import org.uddi4j.request.DeleteBusiness;
+import org.uddi4j.request.DeletePublisherAssertions;
+import org.uddi4j.request.DeleteService;
+import org.uddi4j.request.DeleteTModel;
+import org.uddi4j.request.DiscardAuthToken;
+import org.uddi4j.request.FindBinding;
+import org.uddi4j.request.FindBusiness;
+import org.uddi4j.request.FindRelatedBusinesses;
+import org.uddi4j.request.FindService;
+import org.uddi4j.request.FindTModel;
+import org.uddi4j.request.GetAssertionStatusReport;
+import org.uddi4j.request.GetAuthToken;
+import org.uddi4j.request.GetBindingDetail;
+import org.uddi4j.request.GetBusinessDetail;
+import org.uddi4j.request.GetBusinessDetailExt;
+import org.uddi4j.request.GetPublisherAssertions;
+import org.uddi4j.request.GetRegisteredInfo;
+import org.uddi4j.request.GetServiceDetail;
+import org.uddi4j.request.GetTModelDetail;
+import org.uddi4j.request.SaveBinding;
+import org.uddi4j.request.SaveBusiness;
+import org.uddi4j.request.SaveService;
+import org.uddi4j.request.SaveTModel;
+import org.uddi4j.request.SetPublisherAssertions;
+import org.uddi4j.request.ValidateValues;
+import org.uddi4j.response.AssertionStatusReport;
+import org.uddi4j.response.AuthToken;
+import org.uddi4j.response.BindingDetail;
+import org.uddi4j.response.BusinessDetail;
+import org.uddi4j.response.BusinessDetailExt;
+import org.uddi4j.response.BusinessList;
+import org.uddi4j.response.CompletionStatus;
+import org.uddi4j.response.DispositionReport;
+import org.uddi4j.response.PublisherAssertions;
+import org.uddi4j.response.RegisteredInfo;
+import org.uddi4j.response.RelatedBusinessesList;
+import org.uddi4j.response.ServiceDetail;
+import org.uddi4j.response.ServiceList;
+import org.uddi4j.response.TModelDetail;
+import org.uddi4j.response.TModelList;
+import org.uddi4j.util.AuthInfo;
+import org.uddi4j.util.CategoryBag;
+import org.uddi4j.util.DiscoveryURLs;
+import org.uddi4j.util.FindQualifiers;
+import org.uddi4j.util.IdentifierBag;
+import org.uddi4j.util.KeyedReference;
+import org.uddi4j.util.TModelBag;
+import org.uddi4j.util.UploadRegister;
+import org.w3c.dom.Element;
+
+/**
+ * Non-blocking companion to UDDIProxy.<P>
+ *
+ * Every inquiry and publish operation of UDDIProxy has an asynchronous
+ * counterpart with the same arguments and the suffix <I>Async</I>, for
+ * example find_businessAsync and get_serviceDetailAsync. Each returns a
+ * CompletableFuture of the same response type as the blocking method.
+ * The future completes exceptionally with a UDDIException if the registry
+ * returns a fault, or with a TransportException if a problem occurs during
+ * transmission.<P>
+ *
+ * Transports that implement AsyncTransport send without holding a thread.
+ * Other transports are run on the executor of the proxy, see
+ * {@link UDDIProxy#setExecutor(java.util.concurrent.Executor)}.<P>
+ *
+ * Asynchronous calls are sent once, through {@link UDDIProxy#sendAsync(UDDIElement, boolean)}.
+ * They are bounded by the call deadline, spread over the configured
+ * inquiry endpoints and bring the caches up to date after publish calls,
+ * but they are not retried or hedged, are not answered from the response,
+ * entity or negative key caches, and are neither coalesced nor split into
+ * chunks. The blocking methods do all of this; where it matters, run
+ * them on an executor instead.<P>
+ *
+ * The blocking methods inherited from UDDIProxy remain available.
+ */
+public class AsyncUDDIProxy extends UDDIProxy
+{
+    /**
+     * Constructs a response object from the DOM tree of a response.
+     */
+    interface ResponseFactory<T>
+    {
+        T newResponse(Element el) throws UDDIException;
+    }
+
+    /**
+     * Default constructor.
+     */
+    public AsyncUDDIProxy()
+    {
+        super();
+    }
+
+    /**
+     * Construct an AsyncUDDIProxy object.
+     *
+     * @param inquiryURL URL to be used for inquiry requests.
+     * @param publishURL URL to be used for publish requests.
+     */
+    public AsyncUDDIProxy(URL inquiryURL, URL publishURL)
+    {
+        super(inquiryURL, publishURL);
+    }
+
+    /**
+     * Construct an AsyncUDDIProxy object.
+     *
+     * @param p      Properties object which contains configuration information for
+     *               UDDI4J. See {@link UDDIProxy#UDDIProxy(Properties)} for details.
+     * @exception java.net.MalformedURLException In case the publish or
+     *            inquiry URLs are malformed.
+     */
+    public AsyncUDDIProxy(Properties p) throws MalformedURLException
+    {
+        super(p);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#find_binding(FindQualifiers, String, TModelBag, int)}.
+     */
+    public CompletableFuture<BindingDetail> find_bindingAsync(FindQualifiers findQualifiers, String serviceKey, TModelBag tModelBag, int maxRows)
+    {
+        FindBinding request = new FindBinding();
+        request.setFindQualifiers(findQualifiers);
+        request.setServiceKey(serviceKey);
+        request.setTModelBag(tModelBag);
+        if (maxRows > 0)
+            request.setMaxRows(maxRows);
+        return bind(sendAsync(request, true), BindingDetail::new);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#find_business(String, FindQualifiers, int)}.
+     */
+    public CompletableFuture<BusinessList> find_businessAsync(String name, FindQualifiers findQualifiers, int maxRows)
+    {
+        Vector names = new Vector();
+        names.addElement(new Name(name));
+        return find_businessAsync(names, null, null, null, null, findQualifiers, maxRows);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#find_business(IdentifierBag, FindQualifiers, int)}.
+     */
+    public CompletableFuture<BusinessList> find_businessAsync(IdentifierBag identifierBag, FindQualifiers findQualifiers, int maxRows)
+    {
+        return find_businessAsync(new Vector(), null, identifierBag, null, null, findQualifiers, maxRows);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#find_business(CategoryBag, FindQualifiers, int)}.
+     */
+    public CompletableFuture<BusinessList> find_businessAsync(CategoryBag categoryBag, FindQualifiers findQualifiers, int maxRows)
+    {
+        return find_businessAsync(new Vector(), null, null, categoryBag, null, findQualifiers, maxRows);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#find_business(TModelBag, FindQualifiers, int)}.
+     */
+    public CompletableFuture<BusinessList> find_businessAsync(TModelBag tModelBag, FindQualifiers findQualifiers, int maxRows)
+    {
+        return find_businessAsync(new Vector(), null, null, null, tModelBag, findQualifiers, maxRows);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#find_business(DiscoveryURLs, FindQualifiers, int)}.
+     */
+    public CompletableFuture<BusinessList> find_businessAsync(DiscoveryURLs discoveryURLs, FindQualifiers findQualifiers, int maxRows)
+    {
+        return find_businessAsync(new Vector(), discoveryURLs, null, null, null, findQualifiers, maxRows);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#find_business(Vector, DiscoveryURLs, IdentifierBag, CategoryBag, TModelBag, FindQualifiers, int)}.
+     */
+    public CompletableFuture<BusinessList> find_businessAsync(Vector names, DiscoveryURLs discoveryURLs, IdentifierBag identifierBag, CategoryBag categoryBag, TModelBag tModelBag, FindQualifiers findQualifiers, int maxRows)
+    {
+        FindBusiness request = new FindBusiness();
+        request.setNameVector(names);
+        request.setDiscoveryURLs(discoveryURLs);
+        request.setIdentifierBag(identifierBag);
+        request.setCategoryBag(categoryBag);
+        request.setTModelBag(tModelBag);
+        request.setFindQualifiers(findQualifiers);
+        if (maxRows > 0)
+            request.setMaxRows(maxRows);
+        return bind(sendAsync(request, true), BusinessList::new);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#find_relatedBusinesses(String, KeyedReference, FindQualifiers)}.
+     */
+    public CompletableFuture<RelatedBusinessesList> find_relatedBusinessesAsync(String businessKey, KeyedReference keyedReference, FindQualifiers findQualifiers)
+    {
+        FindRelatedBusinesses request = new FindRelatedBusinesses();
+        request.setBusinessKey(businessKey);
+        request.setKeyedReference(keyedReference);
+        request.setFindQualifiers(findQualifiers);
+        return bind(sendAsync(request, true), RelatedBusinessesList::new);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#find_relatedBusinesses(String, KeyedReference, FindQualifiers, int)}.
+     */
+    public CompletableFuture<RelatedBusinessesList> find_relatedBusinessesAsync(String businessKey, KeyedReference keyedReference, FindQualifiers findQualifiers, int maxRows)
+    {
+        FindRelatedBusinesses request = new FindRelatedBusinesses();
+        request.setBusinessKey(businessKey);
+        request.setKeyedReference(keyedReference);
+        request.setFindQualifiers(findQualifiers);
+        if (maxRows > 0)
+            request.setMaxRows(maxRows);
+        return bind(sendAsync(request, true), RelatedBusinessesList::new);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#find_service(String, String, FindQualifiers, int)}.
+     */
+    public CompletableFuture<ServiceList> find_serviceAsync(String businessKey, String name, FindQualifiers findQualifiers, int maxRows)
+    {
+        Vector names = new Vector();
+        names.addElement(new Name(name));
+        return find_serviceAsync(businessKey, names, null, null, findQualifiers, maxRows);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#find_service(String, CategoryBag, FindQualifiers, int)}.
+     */
+    public CompletableFuture<ServiceList> find_serviceAsync(String businessKey, CategoryBag categoryBag, FindQualifiers findQualifiers, int maxRows)
+    {
+        return find_serviceAsync(businessKey, new Vector(), categoryBag, null, findQualifiers, maxRows);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#find_service(String, TModelBag, FindQualifiers, int)}.
+     */
+    public CompletableFuture<ServiceList> find_serviceAsync(String businessKey, TModelBag tModelBag, FindQualifiers findQualifiers, int maxRows)
+    {
+        return find_serviceAsync(businessKey, new Vector(), null, tModelBag, findQualifiers, maxRows);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#find_service(String, Vector, CategoryBag, TModelBag, FindQualifiers, int)}.
+     */
+    public CompletableFuture<ServiceList> find_serviceAsync(String businessKey, Vector names, CategoryBag categoryBag, TModelBag tModelBag, FindQualifiers findQualifiers, int maxRows)
+    {
+        FindService request = new FindService();
+        request.setBusinessKey(businessKey);
+        request.setNameVector(names);
+        request.setCategoryBag(categoryBag);
+        request.setTModelBag(tModelBag);
+        request.setFindQualifiers(findQualifiers);
+        if (maxRows > 0)
+            request.setMaxRows(maxRows);
+        return bind(sendAsync(request, true), ServiceList::new);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#find_tModel(String, FindQualifiers, int)}.
+     */
+    public CompletableFuture<TModelList> find_tModelAsync(String name, FindQualifiers findQualifiers, int maxRows)
+    {
+        return find_tModelAsync(name, null, null, findQualifiers, maxRows);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#find_tModel(CategoryBag, FindQualifiers, int)}.
+     */
+    public CompletableFuture<TModelList> find_tModelAsync(CategoryBag categoryBag, FindQualifiers findQualifiers, int maxRows)
+    {
+        return find_tModelAsync(null, categoryBag, null, findQualifiers, maxRows);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#find_tModel(IdentifierBag, FindQualifiers, int)}.
+     */
+    public CompletableFuture<TModelList> find_tModelAsync(IdentifierBag identifierBag, FindQualifiers findQualifiers, int maxRows)
+    {
+        return find_tModelAsync(null, null, identifierBag, findQualifiers, maxRows);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#find_tModel(String, CategoryBag, IdentifierBag, FindQualifiers, int)}.
+     */
+    public CompletableFuture<TModelList> find_tModelAsync(String name, CategoryBag categoryBag, IdentifierBag identifierBag, FindQualifiers findQualifiers, int maxRows)
+    {
+        FindTModel request = new FindTModel();
+        request.setName(name);
+        request.setCategoryBag(categoryBag);
+        request.setIdentifierBag(identifierBag);
+        request.setFindQualifiers(findQualifiers);
+        if (maxRows > 0)
+            request.setMaxRows(maxRows);
+        return bind(sendAsync(request, true), TModelList::new);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#get_bindingDetail(String)}.
+     */
+    public CompletableFuture<BindingDetail> get_bindingDetailAsync(String bindingKey)
+    {
+        GetBindingDetail request = new GetBindingDetail();
+        Vector keys = new Vector();
+        keys.addElement(bindingKey);
+        request.setBindingKeyStrings(keys);
+        return bind(sendAsync(request, true), BindingDetail::new);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#get_bindingDetail(Vector)}.
+     */
+    public CompletableFuture<BindingDetail> get_bindingDetailAsync(Vector bindingKeyStrings)
+    {
+        GetBindingDetail request = new GetBindingDetail();
+        request.setBindingKeyStrings(bindingKeyStrings);
+        return bind(sendAsync(request, true), BindingDetail::new);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#get_businessDetail(String)}.
+     */
+    public CompletableFuture<BusinessDetail> get_businessDetailAsync(String businessKey)
+    {
+        GetBusinessDetail request = new GetBusinessDetail();
+        Vector keys = new Vector();
+        keys.addElement(businessKey);
+        request.setBusinessKeyStrings(keys);
+        return bind(sendAsync(request, true), BusinessDetail::new);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#get_businessDetail(Vector)}.
+     */
+    public CompletableFuture<BusinessDetail> get_businessDetailAsync(Vector businessKeyStrings)
+    {
+        GetBusinessDetail request = new GetBusinessDetail();
+        request.setBusinessKeyStrings(businessKeyStrings);
+        return bind(sendAsync(request, true), BusinessDetail::new);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#get_businessDetailExt(String)}.
+     */
+    public CompletableFuture<BusinessDetailExt> get_businessDetailExtAsync(String businessKey)
+    {
+        GetBusinessDetailExt request = new GetBusinessDetailExt();
+        Vector keys = new Vector();
+        keys.addElement(businessKey);
+        request.setBusinessKeyStrings(keys);
+        return bind(sendAsync(request, true), BusinessDetailExt::new);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#get_businessDetailExt(Vector)}.
+     */
+    public CompletableFuture<BusinessDetailExt> get_businessDetailExtAsync(Vector businessKeyStrings)
+    {
+        GetBusinessDetailExt request = new GetBusinessDetailExt();
+        request.setBusinessKeyStrings(businessKeyStrings);
+        return bind(sendAsync(request, true), BusinessDetailExt::new);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#get_serviceDetail(String)}.
+     */
+    public CompletableFuture<ServiceDetail> get_serviceDetailAsync(String serviceKey)
+    {
+        GetServiceDetail request = new GetServiceDetail();
+        Vector keys = new Vector();
+        keys.addElement(serviceKey);
+        request.setServiceKeyStrings(keys);
+        return bind(sendAsync(request, true), ServiceDetail::new);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#get_serviceDetail(Vector)}.
+     */
+    public CompletableFuture<ServiceDetail> get_serviceDetailAsync(Vector serviceKeyStrings)
+    {
+        GetServiceDetail request = new GetServiceDetail();
+        request.setServiceKeyStrings(serviceKeyStrings);
+        return bind(sendAsync(request, true), ServiceDetail::new);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#get_tModelDetail(String)}.
+     */
+    public CompletableFuture<TModelDetail> get_tModelDetailAsync(String tModelKey)
+    {
+        GetTModelDetail request = new GetTModelDetail();
+        Vector keys = new Vector();
+        keys.addElement(tModelKey);
+        request.setTModelKeyStrings(keys);
+        return bind(sendAsync(request, true), TModelDetail::new);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#get_tModelDetail(Vector)}.
+     */
+    public CompletableFuture<TModelDetail> get_tModelDetailAsync(Vector tModelKeyStrings)
+    {
+        GetTModelDetail request = new GetTModelDetail();
+        request.setTModelKeyStrings(tModelKeyStrings);
+        return bind(sendAsync(request, true), TModelDetail::new);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#add_publisherAssertions(String, PublisherAssertion)}.
+     */
+    public CompletableFuture<DispositionReport> add_publisherAssertionsAsync(String authInfo, PublisherAssertion publisherAssertion)
+    {
+        Vector pubVector = new Vector();
+        pubVector.addElement(publisherAssertion);
+        return add_publisherAssertionsAsync(authInfo, pubVector);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#add_publisherAssertions(String, Vector)}.
+     */
+    public CompletableFuture<DispositionReport> add_publisherAssertionsAsync(String authInfo, Vector publisherAssertion)
+    {
+        AddPublisherAssertions request = new AddPublisherAssertions();
+        request.setAuthInfo(authInfo);
+        request.setPublisherAssertionVector(publisherAssertion);
+        return bind(sendAsync(request, false), DispositionReport::new);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#get_assertionStatusReport(String, String)}.
+     */
+    public CompletableFuture<AssertionStatusReport> get_assertionStatusReportAsync(String authInfo, String completionStatus)
+    {
+        return get_assertionStatusReportAsync(authInfo, new CompletionStatus(completionStatus));
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#get_assertionStatusReport(String, CompletionStatus)}.
+     */
+    public CompletableFuture<AssertionStatusReport> get_assertionStatusReportAsync(String authInfo, CompletionStatus completionStatus)
+    {
+        GetAssertionStatusReport request = new GetAssertionStatusReport();
+        request.setAuthInfo(authInfo);
+        request.setCompletionStatus(completionStatus);
+        return bind(sendAsync(request, false), AssertionStatusReport::new);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#get_publisherAssertions(String)}.
+     */
+    public CompletableFuture<PublisherAssertions> get_publisherAssertionsAsync(String authInfo)
+    {
+        GetPublisherAssertions request = new GetPublisherAssertions();
+        request.setAuthInfo(authInfo);
+        return bind(sendAsync(request, false), PublisherAssertions::new);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#delete_binding(String, String)}.
+     */
+    public CompletableFuture<DispositionReport> delete_bindingAsync(String authInfo, String bindingKey)
+    {
+        DeleteBinding request = new DeleteBinding();
+        request.setAuthInfo(authInfo);
+        Vector keys = new Vector();
+        keys.addElement(bindingKey);
+        request.setBindingKeyStrings(keys);
+        return bind(sendAsync(request, false), DispositionReport::new);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#delete_binding(String, Vector)}.
+     */
+    public CompletableFuture<DispositionReport> delete_bindingAsync(String authInfo, Vector bindingKeyStrings)
+    {
+        DeleteBinding request = new DeleteBinding();
+        request.setAuthInfo(authInfo);
+        request.setBindingKeyStrings(bindingKeyStrings);
+        return bind(sendAsync(request, false), DispositionReport::new);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#delete_business(String, String)}.
+     */
+    public CompletableFuture<DispositionReport> delete_businessAsync(String authInfo, String businessKey)
+    {
+        DeleteBusiness request = new DeleteBusiness();
+        request.setAuthInfo(authInfo);
+        Vector keys = new Vector();
+        keys.addElement(businessKey);
+        request.setBusinessKeyStrings(keys);
+        return bind(sendAsync(request, false), DispositionReport::new);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#delete_business(String, Vector)}.
+     */
+    public CompletableFuture<DispositionReport> delete_businessAsync(String authInfo, Vector businessKeyStrings)
+    {
+        DeleteBusiness request = new DeleteBusiness();
+        request.setAuthInfo(authInfo);
+        request.setBusinessKeyStrings(businessKeyStrings);
+        return bind(sendAsync(request, false), DispositionReport::new);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#delete_service(String, String)}.
+     */
+    public CompletableFuture<DispositionReport> delete_serviceAsync(String authInfo, String serviceKey)
+    {
+        DeleteService request = new DeleteService();
+        request.setAuthInfo(authInfo);
+        Vector keys = new Vector();
+        keys.addElement(serviceKey);
+        request.setServiceKeyStrings(keys);
+        return bind(sendAsync(request, false), DispositionReport::new);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#delete_service(String, Vector)}.
+     */
+    public CompletableFuture<DispositionReport> delete_serviceAsync(String authInfo, Vector serviceKeyStrings)
+    {
+        DeleteService request = new DeleteService();
+        request.setAuthInfo(authInfo);
+        request.setServiceKeyStrings(serviceKeyStrings);
+        return bind(sendAsync(request, false), DispositionReport::new);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#delete_tModel(String, String)}.
+     */
+    public CompletableFuture<DispositionReport> delete_tModelAsync(String authInfo, String tModelKey)
+    {
+        DeleteTModel request = new DeleteTModel();
+        request.setAuthInfo(authInfo);
+        Vector keys = new Vector();
+        keys.addElement(tModelKey);
+        request.setTModelKeyStrings(keys);
+        return bind(sendAsync(request, false), DispositionReport::new);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#delete_tModel(String, Vector)}.
+     */
+    public CompletableFuture<DispositionReport> delete_tModelAsync(String authInfo, Vector tModelKeyStrings)
+    {
+        DeleteTModel request = new DeleteTModel();
+        request.setAuthInfo(authInfo);
+        request.setTModelKeyStrings(tModelKeyStrings);
+        return bind(sendAsync(request, false), DispositionReport::new);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#delete_publisherAssertions(String, PublisherAssertion)}.
+     */
+    public CompletableFuture<DispositionReport> delete_publisherAssertionsAsync(String authInfo, PublisherAssertion publisherAssertion)
+    {
+        Vector pubVector = new Vector();
+        pubVector.addElement(publisherAssertion);
+        return delete_publisherAssertionsAsync(authInfo, pubVector);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#delete_publisherAssertions(String, Vector)}.
+     */
+    public CompletableFuture<DispositionReport> delete_publisherAssertionsAsync(String authInfo, Vector publisherAssertion)
+    {
+        DeletePublisherAssertions request = new DeletePublisherAssertions();
+        request.setAuthInfo(authInfo);
+        request.setPublisherAssertionVector(publisherAssertion);
+        return bind(sendAsync(request, false), DispositionReport::new);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#discard_authToken(String)}.
+     */
+    public CompletableFuture<DispositionReport> discard_authTokenAsync(String authInfo)
+    {
+        DiscardAuthToken request = new DiscardAuthToken();
+        request.setAuthInfo(authInfo);
+        return bind(sendAsync(request, false), DispositionReport::new);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#discard_authToken(AuthInfo)}.
+     */
+    public CompletableFuture<DispositionReport> discard_authTokenAsync(AuthInfo authInfo)
+    {
+        DiscardAuthToken request = new DiscardAuthToken();
+        request.setAuthInfo(authInfo);
+        return bind(sendAsync(request, false), DispositionReport::new);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#get_authToken(String, String)}.
+     */
+    public CompletableFuture<AuthToken> get_authTokenAsync(String userid, String cred)
+    {
+        GetAuthToken request = new GetAuthToken();
+        request.setUserID(userid);
+        request.setCred(cred);
+        return bind(sendAsync(request, false), AuthToken::new);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#get_registeredInfo(String)}.
+     */
+    public CompletableFuture<RegisteredInfo> get_registeredInfoAsync(String authInfo)
+    {
+        GetRegisteredInfo request = new GetRegisteredInfo();
+        request.setAuthInfo(authInfo);
+        return bind(sendAsync(request, false), RegisteredInfo::new);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#save_binding(String, Vector)}.
+     */
+    public CompletableFuture<BindingDetail> save_bindingAsync(String authInfo, Vector bindingTemplates)
+    {
+        SaveBinding request = new SaveBinding();
+        request.setAuthInfo(authInfo);
+        request.setBindingTemplateVector(bindingTemplates);
+        return bind(sendAsync(request, false), BindingDetail::new);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#save_business(String, Vector)}.
+     */
+    public CompletableFuture<BusinessDetail> save_businessAsync(String authInfo, Vector businessEntities)
+    {
+        SaveBusiness request = new SaveBusiness();
+        request.setAuthInfo(authInfo);
+        request.setBusinessEntityVector(businessEntities);
+        return bind(sendAsync(request, false), BusinessDetail::new);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#save_business(String, UploadRegister[])}.
+     */
+    public CompletableFuture<BusinessDetail> save_businessAsync(String authInfo, UploadRegister[] uploadRegisters)
+    {
+        SaveBusiness request = new SaveBusiness();
+        Vector keys = new Vector(Arrays.asList(uploadRegisters));
+        request.setAuthInfo(authInfo);
+        request.setUploadRegisterVector(keys);
+        return bind(sendAsync(request, false), BusinessDetail::new);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#save_service(String, Vector)}.
+     */
+    public CompletableFuture<ServiceDetail> save_serviceAsync(String authInfo, Vector businessServices)
+    {
+        SaveService request = new SaveService();
+        request.setAuthInfo(authInfo);
+        request.setBusinessServiceVector(businessServices);
+        return bind(sendAsync(request, false), ServiceDetail::new);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#save_tModel(String, Vector)}.
+     */
+    public CompletableFuture<TModelDetail> save_tModelAsync(String authInfo, Vector tModels)
+    {
+        SaveTModel request = new SaveTModel();
+        request.setAuthInfo(authInfo);
+        request.setTModelVector(tModels);
+        return bind(sendAsync(request, false), TModelDetail::new);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#save_tModel(String, UploadRegister[])}.
+     */
+    public CompletableFuture<TModelDetail> save_tModelAsync(String authInfo, UploadRegister[] uploadRegisters)
+    {
+        SaveTModel request = new SaveTModel();
+        request.setAuthInfo(authInfo);
+        Vector keys = new Vector(Arrays.asList(uploadRegisters));
+        request.setUploadRegisterVector(keys);
+        return bind(sendAsync(request, false), TModelDetail::new);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#set_publisherAssertions(String, PublisherAssertion)}.
+     */
+    public CompletableFuture<PublisherAssertions> set_publisherAssertionsAsync(String authInfo, PublisherAssertion pub)
+    {
+        Vector pubVector = new Vector();
+        pubVector.addElement(pub);
+        return set_publisherAssertionsAsync(authInfo, pubVector);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#set_publisherAssertions(String, Vector)}.
+     */
+    public CompletableFuture<PublisherAssertions> set_publisherAssertionsAsync(String authInfo, Vector publisherAssertion)
+    {
+        SetPublisherAssertions request = new SetPublisherAssertions();
+        request.setAuthInfo(authInfo);
+        request.setPublisherAssertionVector(publisherAssertion);
+        return bind(sendAsync(request, false), PublisherAssertions::new);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#validate_values_businessEntity(Vector)}.
+     */
+    public CompletableFuture<DispositionReport> validate_values_businessEntityAsync(Vector businessEntity)
+    {
+        ValidateValues request = new ValidateValues();
+        request.setBusinessEntityVector(businessEntity);
+        return bind(sendAsync(request, true), DispositionReport::new);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#validate_values_businessService(Vector)}.
+     */
+    public CompletableFuture<DispositionReport> validate_values_businessServiceAsync(Vector businessService)
+    {
+        ValidateValues request = new ValidateValues();
+        request.setBusinessServiceVector(businessService);
+        return bind(sendAsync(request, true), DispositionReport::new);
+    }
+
+    /**
+     * Asynchronous version of {@link UDDIProxy#validate_values_tModel(Vector)}.
+     */
+    public CompletableFuture<DispositionReport> validate_values_tModelAsync(Vector tModel)
+    {
+        ValidateValues request = new ValidateValues();
+        request.setTModelVector(tModel);
+        return bind(sendAsync(request, true), DispositionReport::new);
+    }
+
+    /**
+     * Constructs the response object once the response arrives, as the
+     * blocking methods do. A UDDIException thrown by the constructor is
+     * passed on in a CompletionException.
+     */
+    static <T> CompletableFuture<T> bind(CompletableFuture<Element> response, final ResponseFactory<T> factory)
+    {
+        return response.thenApply(el -> {
+            try
+            {
+                return factory.newResponse(el);
+            }
+            catch (UDDIException e)
+            {
+                throw new CompletionException(e);
+            }
+        });
+    }
+}
@@ -0,0 +1,368 @@
+/*
+ * The source code contained herein is licensed under the IBM Public License
+ * Version 1.0, which has been approved by the Open Source Initiative.
+ * Copyright (C) 2001, International Business Machines Corporation
+ * All Rights Reserved.
+ *
+ */
+package org.uddi4j.client;
+
+import java.util.Vector;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.uddi4j.UDDIElement;
+import org.uddi4j.UDDIException;
+import org.uddi4j.response.DispositionReport;
+import org.uddi4j.transport.TransportException;
+
+/**
+ * Publishes a stream of businessEntity, businessService, bindingTemplate or
+ * tModel structures with save_xx requests holding batches of entities,
+ * several batches at a time.<P>
+ *
+ * Entities passed to {@link #publish(Object)} are collected into a batch,
+ * which is sent on the executor of the proxy once it is full. At most
+ * org.uddi4j.bulk.workers batches are sent at once; publish blocks while
+ * that many are outstanding, so that memory use stays bounded however many
+ * entities are published. {@link #flush()} sends the last batch and waits
+ * for all of them.<P>
+ *
+ * The batch size adapts to the registry: it starts at
+ * org.uddi4j.bulk.batchSize and grows by one entity with every batch saved,
+ * up to org.uddi4j.bulk.maxBatchSize. When the registry rejects a batch
+ * with E_messageTooLarge or E_accountLimitExceeded, the batch size is
+ * halved and the batch is sent again in halves.<P>
+ *
+ * A save_xx request is applied completely or not at all, so one invalid
+ * entity fails its whole batch. A batch failing with a fault about its
+ * content, such as E_invalidKeyPassed or E_invalidValue, is therefore
+ * split until the entities at fault are found, and the others saved.<P>
+ *
+ * The outcome of every entity is passed to a {@link Listener}, from the
+ * threads sending the batches: the entity returned by the registry, in the
+ * order of the request, or the fault for the request that failed.
+ * Requests are made through a {@link PublishingSession}, which renews the
+ * authentication token as needed.
+ */
+public class BulkPublisher
+{
+    public static final int DEFAULT_BATCH_SIZE = 20;
+    public static final int DEFAULT_MAX_BATCH_SIZE = 200;
+    public static final int DEFAULT_WORKERS = 4;
+
+    /**
+     * Receives the outcome of each published entity. Called from the
+     * threads sending the batches, possibly concurrently.
+     */
+    public interface Listener
+    {
+        /**
+         * Called when an entity was saved.
+         *
+         * @param entity The entity passed to publish.
+         * @param saved  The entity as returned by the registry, with its assigned key.
+         */
+        void saved(Object entity, Object saved);
+
+        /**
+         * Called when an entity could not be saved.
+         *
+         * @param entity The entity passed to publish.
+         * @param e      The UDDIException or TransportException of the request
+         *               holding the entity; if the request held only this
+         *               entity, the fault is about it.
+         */
+        void failed(Object entity, Exception e);
+    }
+
+    private final UDDIProxy proxy;
+    private final PublishingSession session;
+    private final DetailKind kind;
+    private final Listener listener;
+    private final int maxBatchSize;
+    private final int workers;
+    private final Semaphore outstanding;
+
+    // Guarded by this.
+    private int batchSize;
+    private Vector batch = new Vector();
+
+    private final AtomicReference<RuntimeException> listenerFailure = new AtomicReference<RuntimeException>();
+    private final AtomicLong saved = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+
+    /**
+     * Construct a publisher using the org.uddi4j.bulk properties of the proxy.
+     *
+     * @param proxy    Proxy used to publish.
+     * @param session  Session providing the authentication token.
+     * @param kind     Kind of the entities published.
+     * @param listener Receives the outcome of each entity.
+     */
+    public BulkPublisher(UDDIProxy proxy, PublishingSession session, DetailKind kind, Listener listener)
+    {
+        this.proxy = proxy;
+        this.session = session;
+        this.kind = kind;
+        this.listener = listener;
+        this.maxBatchSize = Math.max(1, proxy.getIntProperty(UDDIProxy.BULK_MAX_BATCH_SIZE_PROPERTY, DEFAULT_MAX_BATCH_SIZE));
+        this.batchSize = Math.min(maxBatchSize, Math.max(1, proxy.getIntProperty(UDDIProxy.BULK_BATCH_SIZE_PROPERTY, DEFAULT_BATCH_SIZE)));
+        this.workers = Math.max(1, proxy.getIntProperty(UDDIProxy.BULK_WORKERS_PROPERTY, DEFAULT_WORKERS));
+        this.outstanding = new Semaphore(workers);
+    }
+
+    /**
+     * Number of entities saved.
+     */
+    public long getSavedCount()
+    {
+        return saved.get();
+    }
+
+    /**
+     * Number of entities that could not be saved.
+     */
+    public long getFailedCount()
+    {
+        return failed.get();
+    }
+
+    /**
+     * Number of save_xx requests sent, including requests that failed.
+     */
+    public long getRequestCount()
+    {
+        return requests.get();
+    }
+
+    /**
+     * Current number of entities per batch.
+     */
+    public synchronized int getBatchSize()
+    {
+        return batchSize;
+    }
+
+    /**
+     * Adds an entity to the current batch, sending the batch if it is full.
+     * Blocks while the maximum number of batches are being sent.
+     *
+     * @param entity A BusinessEntity, BusinessService, BindingTemplate or
+     *               TModel, according to the kind of the publisher.
+     * @exception TransportException
+     *                   Thrown if the thread is interrupted while waiting.
+     */
+    public void publish(Object entity) throws TransportException
+    {
+        Vector full = null;
+        synchronized (this)
+        {
+            batch.addElement(entity);
+            if (batch.size() >= batchSize)
+            {
+                full = batch;
+                batch = new Vector();
+            }
+        }
+        if (full != null)
+        {
+            dispatch(full);
+        }
+    }
+
+    /**
+     * Sends the current batch and waits until all batches have been sent
+     * and their outcomes passed to the listener.
+     *
+     * @exception TransportException
+     *                   Thrown if the thread is interrupted while waiting.
+     */
+    public void flush() throws TransportException
+    {
+        Vector last;
+        synchronized (this)
+        {
+            last = batch;
+            batch = new Vector();
+        }
+        if (!last.isEmpty())
+        {
+            dispatch(last);
+        }
+        try
+        {
+            outstanding.acquire(workers);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new TransportException(e);
+        }
+        outstanding.release(workers);
+        RuntimeException e = listenerFailure.getAndSet(null);
+        if (e != null)
+        {
+            throw e;
+        }
+    }
+
+    private void dispatch(final Vector entities) throws TransportException
+    {
+        try
+        {
+            outstanding.acquire();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new TransportException(e);
+        }
+        try
+        {
+            proxy.getExecutor().execute(new Runnable()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        send(entities);
+                    }
+                    catch (RuntimeException e)
+                    {
+                        listenerFailure.compareAndSet(null, e);
+                    }
+                    finally
+                    {
+                        outstanding.release();
+                    }
+                }
+            });
+        }
+        catch (RuntimeException e)
+        {
+            outstanding.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Saves a batch, splitting it if it is too large or holds entities the
+     * registry rejects.
+     */
+    private void send(Vector entities)
+    {
+        UDDIElement detail;
+        try
+        {
+            requests.incrementAndGet();
+            detail = save(entities);
+        }
+        catch (UDDIException e)
+        {
+            boolean tooLarge = isTooLarge(e);
+            if (tooLarge)
+            {
+                shrink(entities.size());
+            }
+            if (entities.size() > 1 && (tooLarge || isEntityFault(e)))
+            {
+                int half = entities.size() / 2;
+                send(new Vector(entities.subList(0, half)));
+                send(new Vector(entities.subList(half, entities.size())));
+            }
+            else
+            {
+                fail(entities, e);
+            }
+            return;
+        }
+        catch (TransportException e)
+        {
+            fail(entities, e);
+            return;
+        }
+        grow();
+        Vector returned = kind.getEntities(detail);
+        for (int i = 0; i < entities.size(); i++)
+        {
+            Object result = returned != null && returned.size() == entities.size() ? returned.elementAt(i) : null;
+            saved.incrementAndGet();
+            listener.saved(entities.elementAt(i), result);
+        }
+    }
+
+    private void fail(Vector entities, Exception e)
+    {
+        for (int i = 0; i < entities.size(); i++)
+        {
+            failed.incrementAndGet();
+            listener.failed(entities.elementAt(i), e);
+        }
+    }
+
+    private UDDIElement save(final Vector entities) throws UDDIException, TransportException
+    {
+        return (UDDIElement) session.execute(new PublishingSession.Call()
+        {
+            public Object call(String authInfo) throws UDDIException, TransportException
+            {
+                if (kind == DetailKind.BUSINESS)
+                {
+                    return proxy.save_business(authInfo, entities);
+                }
+                if (kind == DetailKind.SERVICE)
+                {
+                    return proxy.save_service(authInfo, entities);
+                }
+                if (kind == DetailKind.BINDING)
+                {
+                    return proxy.save_binding(authInfo, entities);
+                }
+                return proxy.save_tModel(authInfo, entities);
+            }
+        });
+    }
+
+    /**
+     * Additive increase after a batch was saved.
+     */
+    private synchronized void grow()
+    {
+        if (batchSize < maxBatchSize)
+        {
+            batchSize++;
+        }
+    }
+
+    /**
+     * Multiplicative decrease after a batch was too large. Batches of the
+     * old size still being sent do not decrease it further.
+     */
+    private synchronized void shrink(int failedSize)
+    {
+        batchSize = Math.max(1, Math.min(batchSize, failedSize / 2));
+    }
+
+    private static boolean isTooLarge(UDDIException e)
+    {
+        String errCode = RetryPolicy.getErrCode(e);
+        return DispositionReport.E_messageTooLarge.equals(errCode) || DispositionReport.E_accountLimitExceeded.equals(errCode);
+    }
+
+    /**
+     * Tests whether a fault is about the content of one of the saved entities.
+     */
+    private static boolean isEntityFault(UDDIException e)
+    {
+        String errCode = RetryPolicy.getErrCode(e);
+        return DispositionReport.E_invalidKeyPassed.equals(errCode) || DispositionReport.E_keyRetired.equals(errCode)
+                || DispositionReport.E_userMismatch.equals(errCode) || DispositionReport.E_invalidValue.equals(errCode)
+                || DispositionReport.E_valueNotAllowed.equals(errCode) || DispositionReport.E_invalidCategory.equals(errCode)
+                || DispositionReport.E_categorizationNotAllowed.equals(errCode) || DispositionReport.E_invalidURLPassed.equals(errCode)
+                || DispositionReport.E_languageError.equals(errCode) || DispositionReport.E_nameTooLong.equals(errCode)
+                || DispositionReport.E_unvalidatable.equals(errCode);
+    }
+}
@@ -0,0 +1,286 @@
+/*
+ * The source code contained herein is licensed under the IBM Public License
+ * Version 1.0, which has been approved by the Open Source Initiative.
+ * Copyright (C) 2001, International Business Machines Corporation
+ * All Rights Reserved.
+ *
+ */
+package org.uddi4j.client;
+
+import java.util.Vector;
+
+import org.uddi4j.UDDIElement;
+import org.uddi4j.UDDIException;
+import org.uddi4j.datatype.binding.BindingTemplate;
+import org.uddi4j.datatype.business.BusinessEntity;
+import org.uddi4j.datatype.service.BusinessService;
+import org.uddi4j.datatype.tmodel.TModel;
+import org.uddi4j.request.GetBindingDetail;
+import org.uddi4j.request.GetBusinessDetail;
+import org.uddi4j.request.GetServiceDetail;
+import org.uddi4j.request.GetTModelDetail;
+import org.uddi4j.response.BindingDetail;
+import org.uddi4j.response.BusinessDetail;
+import org.uddi4j.response.ServiceDetail;
+import org.uddi4j.response.TModelDetail;
+import org.uddi4j.transport.TransportException;
+
+/**
+ * Describes one of the four keyed UDDI entity types (businessEntity,
+ * businessService, bindingTemplate and tModel) and the get_xxDetail
+ * message used to fetch it.<P>
+ *
+ * Gives the client helpers (request coalescing, caching, chunking) a
+ * single way to build the request for a set of keys, to take the entities
+ * out of the returned detail, to find the key of an entity and to build
+ * a detail from a set of entities.
+ */
+public abstract class DetailKind
+{
+    public static final DetailKind BUSINESS = new DetailKind("business")
+    {
+        public UDDIElement newRequest(Vector keys)
+        {
+            GetBusinessDetail request = new GetBusinessDetail();
+            request.setBusinessKeyStrings(keys);
+            return request;
+        }
+
+        public Vector getEntities(UDDIElement detail)
+        {
+            return ((BusinessDetail) detail).getBusinessEntityVector();
+        }
+
+        public String getKey(Object entity)
+        {
+            return ((BusinessEntity) entity).getBusinessKey();
+        }
+
+        public UDDIElement newDetail(String operator, Vector entities)
+        {
+            BusinessDetail detail = new BusinessDetail(operator);
+            detail.setBusinessEntityVector(entities);
+            return detail;
+        }
+
+        public String getOperator(UDDIElement detail)
+        {
+            return ((BusinessDetail) detail).getOperator();
+        }
+
+        public Class getDetailClass()
+        {
+            return BusinessDetail.class;
+        }
+
+        public UDDIElement newEntity(org.w3c.dom.Element el) throws UDDIException
+        {
+            return new BusinessEntity(el);
+        }
+    };
+
+    public static final DetailKind SERVICE = new DetailKind("service")
+    {
+        public UDDIElement newRequest(Vector keys)
+        {
+            GetServiceDetail request = new GetServiceDetail();
+            request.setServiceKeyStrings(keys);
+            return request;
+        }
+
+        public Vector getEntities(UDDIElement detail)
+        {
+            return ((ServiceDetail) detail).getBusinessServiceVector();
+        }
+
+        public String getKey(Object entity)
+        {
+            return ((BusinessService) entity).getServiceKey();
+        }
+
+        public UDDIElement newDetail(String operator, Vector entities)
+        {
+            ServiceDetail detail = new ServiceDetail(operator);
+            detail.setBusinessServiceVector(entities);
+            return detail;
+        }
+
+        public String getOperator(UDDIElement detail)
+        {
+            return ((ServiceDetail) detail).getOperator();
+        }
+
+        public Class getDetailClass()
+        {
+            return ServiceDetail.class;
+        }
+
+        public UDDIElement newEntity(org.w3c.dom.Element el) throws UDDIException
+        {
+            return new BusinessService(el);
+        }
+    };
+
+    public static final DetailKind BINDING = new DetailKind("binding")
+    {
+        public UDDIElement newRequest(Vector keys)
+        {
+            GetBindingDetail request = new GetBindingDetail();
+            request.setBindingKeyStrings(keys);
+            return request;
+        }
+
+        public Vector getEntities(UDDIElement detail)
+        {
+            return ((BindingDetail) detail).getBindingTemplateVector();
+        }
+
+        public String getKey(Object entity)
+        {
+            return ((BindingTemplate) entity).getBindingKey();
+        }
+
+        public UDDIElement newDetail(String operator, Vector entities)
+        {
+            BindingDetail detail = new BindingDetail(operator);
+            detail.setBindingTemplateVector(entities);
+            return detail;
+        }
+
+        public String getOperator(UDDIElement detail)
+        {
+            return ((BindingDetail) detail).getOperator();
+        }
+
+        public Class getDetailClass()
+        {
+            return BindingDetail.class;
+        }
+
+        public UDDIElement newEntity(org.w3c.dom.Element el) throws UDDIException
+        {
+            return new BindingTemplate(el);
+        }
+    };
+
+    public static final DetailKind TMODEL = new DetailKind("tModel")
+    {
+        public UDDIElement newRequest(Vector keys)
+        {
+            GetTModelDetail request = new GetTModelDetail();
+            request.setTModelKeyStrings(keys);
+            return request;
+        }
+
+        public Vector getEntities(UDDIElement detail)
+        {
+            return ((TModelDetail) detail).getTModelVector();
+        }
+
+        public String getKey(Object entity)
+        {
+            return ((TModel) entity).getTModelKey();
+        }
+
+        public UDDIElement newDetail(String operator, Vector entities)
+        {
+            return new TModelDetail(operator, entities);
+        }
+
+        public String getOperator(UDDIElement detail)
+        {
+            return ((TModelDetail) detail).getOperator();
+        }
+
+        public Class getDetailClass()
+        {
+            return TModelDetail.class;
+        }
+
+        public UDDIElement newEntity(org.w3c.dom.Element el) throws UDDIException
+        {
+            return new TModel(el);
+        }
+    };
+
+    private final String name;
+
+    private DetailKind(String name)
+    {
+        this.name = name;
+    }
+
+    /**
+     * Sends a get_xxDetail request for the given keys, bypassing the
+     * request coalescing and the entity cache of UDDIProxy. The response
+     * is taken from the response cache if it is enabled and holds it.
+     *
+     * @param proxy  Proxy used to send the request.
+     * @param keys   Vector of key Strings.
+     * @return The xxDetail response.
+     * @exception UDDIException
+     * @exception TransportException
+     */
+    public UDDIElement fetch(UDDIProxy proxy, Vector keys) throws UDDIException, TransportException
+    {
+        return proxy.send(newRequest(keys), true, getDetailClass());
+    }
+
+    /**
+     * Sends a get_xxDetail request for the given keys to the registry,
+     * bypassing the response cache as well.
+     */
+    UDDIElement fetchUncached(UDDIProxy proxy, Vector keys) throws UDDIException, TransportException
+    {
+        return proxy.sendUncached(newRequest(keys), true, getDetailClass());
+    }
+
+    /**
+     * Builds the get_xxDetail request for the given keys.
+     */
+    public abstract UDDIElement newRequest(Vector keys);
+
+    /**
+     * Returns the entities contained in a detail of this kind.
+     */
+    public abstract Vector getEntities(UDDIElement detail);
+
+    /**
+     * Returns the key of an entity of this kind.
+     */
+    public abstract String getKey(Object entity);
+
+    /**
+     * Builds a detail of this kind holding the given entities.
+     */
+    public abstract UDDIElement newDetail(String operator, Vector entities);
+
+    /**
+     * Returns the operator attribute of a detail of this kind.
+     */
+    public abstract String getOperator(UDDIElement detail);
+
+    /**
+     * Returns the class of a detail of this kind, for example BusinessDetail.class.
+     */
+    public abstract Class getDetailClass();
+
+    /**
+     * Constructs an entity of this kind from a DOM tree.
+     */
+    public abstract UDDIElement newEntity(org.w3c.dom.Element el) throws UDDIException;
+
+    /**
+     * Returns a form of the key suitable for comparing keys.
+     * UDDI keys are not case sensitive.
+     */
+    public static String normalize(String key)
+    {
+        return key == null ? null : key.trim().toUpperCase();
+    }
+
+    public String toString()
+    {
+        return name;
+    }
+}
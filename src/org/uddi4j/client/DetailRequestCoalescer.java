@@ -0,0 +1,408 @@
+/*
+ * The source code contained herein is licensed under the IBM Public License
+ * Version 1.0, which has been approved by the Open Source Initiative.
+ * Copyright (C) 2001, International Business Machines Corporation
+ * All Rights Reserved.
+ *
+ */
+package org.uddi4j.client;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.uddi4j.UDDIElement;
+import org.uddi4j.UDDIException;
+import org.uddi4j.transport.Deadline;
+import org.uddi4j.transport.TransportException;
+
+/**
+ * Merges concurrent single key get_xxDetail lookups into multi key requests.<P>
+ *
+ * Keys requested by different threads are collected for a short window, or
+ * until a maximum batch size is reached, and then fetched with a single
+ * get_xxDetail request. The returned entities are split back to the waiting
+ * callers by key. Callers asking for a key that is already part of the
+ * pending batch share its result, and therefore also share the returned
+ * detail object.<P>
+ *
+ * If the merged request fails with a UDDIException, for example because one
+ * of the keys is invalid, each key is fetched again on its own so that every
+ * caller gets exactly the result or fault it would have got without
+ * coalescing.<P>
+ *
+ * The requests for a batch are sent under the earliest deadline of the
+ * callers waiting for it, so that they do not outlive the calls that
+ * asked for them.
+ */
+class DetailRequestCoalescer
+{
+    private static ScheduledExecutorService timer = null;
+
+    private final UDDIProxy proxy;
+    private final DetailKind kind;
+    private final long windowMillis;
+    private final int maxBatchSize;
+
+    // Batch currently collecting keys. Guarded by this.
+    private Batch pending = null;
+
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+
+    /**
+     * Construct a coalescer.
+     *
+     * @param proxy         Proxy used to send the merged requests.
+     * @param kind          Kind of entity looked up.
+     * @param windowMillis  Time to wait for more keys after the first key of a batch.
+     * @param maxBatchSize  Number of distinct keys that causes a batch to be sent at once.
+     */
+    DetailRequestCoalescer(UDDIProxy proxy, DetailKind kind, long windowMillis, int maxBatchSize)
+    {
+        this.proxy = proxy;
+        this.kind = kind;
+        this.windowMillis = windowMillis;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+    }
+
+    /**
+     * Looks up one key, waiting for the batch it joins to be answered, but
+     * no longer than the deadline of the call.
+     *
+     * @param key    Key of the entity to look up.
+     * @return A detail of this coalescer's kind holding the entity.
+     * @exception UDDIException
+     * @exception TransportException
+     */
+    UDDIElement get(String key) throws UDDIException, TransportException
+    {
+        Deadline deadline = proxy.newDeadline();
+        if (deadline != null)
+        {
+            deadline.check();
+        }
+        lookups.incrementAndGet();
+        CompletableFuture<UDDIElement> result;
+        Batch full = null;
+        synchronized (this)
+        {
+            if (pending == null)
+            {
+                final Batch batch = new Batch();
+                pending = batch;
+                getTimer().schedule(new Runnable()
+                {
+                    public void run()
+                    {
+                        expire(batch);
+                    }
+                }, windowMillis, TimeUnit.MILLISECONDS);
+            }
+            result = pending.add(key, deadline);
+            if (pending.size() >= maxBatchSize)
+            {
+                full = pending;
+                pending = null;
+            }
+        }
+        if (full != null)
+        {
+            // This caller has to wait for the answer anyway, so it sends the batch itself.
+            flush(full);
+        }
+        return await(result, deadline);
+    }
+
+    /**
+     * Number of single key lookups made through this coalescer.
+     */
+    long getLookupCount()
+    {
+        return lookups.get();
+    }
+
+    /**
+     * Number of requests sent to the registry on behalf of those lookups.
+     */
+    long getRequestCount()
+    {
+        return requests.get();
+    }
+
+    /**
+     * Called when the window of a batch closes. Sends the batch unless it
+     * was already sent because it became full.
+     */
+    private void expire(final Batch batch)
+    {
+        synchronized (this)
+        {
+            if (pending != batch)
+            {
+                return;
+            }
+            pending = null;
+        }
+        proxy.getExecutor().execute(new Runnable()
+        {
+            public void run()
+            {
+                flush(batch);
+            }
+        });
+    }
+
+    /**
+     * Sends one request for all keys of a batch and completes the waiting callers.
+     */
+    void flush(Batch batch)
+    {
+        Deadline previous = Deadline.setCurrent(batch.deadline);
+        try
+        {
+            send(batch);
+        }
+        finally
+        {
+            Deadline.setCurrent(previous);
+        }
+    }
+
+    private void send(Batch batch)
+    {
+        UDDIElement detail;
+        try
+        {
+            requests.incrementAndGet();
+            detail = kind.fetch(proxy, batch.getKeys());
+        }
+        catch (UDDIException e)
+        {
+            if (batch.size() == 1)
+            {
+                batch.completeAll(e);
+            }
+            else
+            {
+                fetchEach(batch);
+            }
+            return;
+        }
+        catch (TransportException e)
+        {
+            batch.completeAll(e);
+            return;
+        }
+        catch (RuntimeException e)
+        {
+            batch.completeAll(e);
+            throw e;
+        }
+
+        HashMap<String, Object> entities = new HashMap<String, Object>();
+        Vector returned = kind.getEntities(detail);
+        for (int i = 0; returned != null && i < returned.size(); i++)
+        {
+            String key = DetailKind.normalize(kind.getKey(returned.elementAt(i)));
+            if (key != null && !entities.containsKey(key))
+            {
+                entities.put(key, returned.elementAt(i));
+            }
+        }
+
+        String operator = kind.getOperator(detail);
+        Batch missing = new Batch();
+        missing.deadline = batch.deadline;
+        for (Iterator<Map.Entry<String, CompletableFuture<UDDIElement>>> it = batch.futures.entrySet().iterator(); it.hasNext();)
+        {
+            Map.Entry<String, CompletableFuture<UDDIElement>> entry = it.next();
+            Object entity = entities.get(entry.getKey());
+            CompletableFuture<UDDIElement> future = entry.getValue();
+            if (entity != null)
+            {
+                Vector single = new Vector();
+                single.addElement(entity);
+                future.complete(kind.newDetail(operator, single));
+            }
+            else
+            {
+                missing.futures.put(entry.getKey(), future);
+                missing.keys.put(entry.getKey(), batch.keys.get(entry.getKey()));
+            }
+        }
+        if (missing.size() > 0)
+        {
+            // The registry did not answer for these keys. Ask for them individually
+            // so each caller gets the registry's own answer for its key.
+            fetchEach(missing);
+        }
+    }
+
+    /**
+     * Fetches every key of a batch with its own request, in parallel, under
+     * the deadline of the batch.
+     */
+    private void fetchEach(Batch batch)
+    {
+        final Deadline deadline = batch.deadline;
+        for (Iterator<Map.Entry<String, CompletableFuture<UDDIElement>>> it = batch.futures.entrySet().iterator(); it.hasNext();)
+        {
+            Map.Entry<String, CompletableFuture<UDDIElement>> entry = it.next();
+            final String key = batch.keys.get(entry.getKey());
+            final CompletableFuture<UDDIElement> future = entry.getValue();
+            proxy.getExecutor().execute(new Runnable()
+            {
+                public void run()
+                {
+                    Vector keys = new Vector();
+                    keys.addElement(key);
+                    Deadline previous = Deadline.setCurrent(deadline);
+                    try
+                    {
+                        requests.incrementAndGet();
+                        future.complete(kind.fetch(proxy, keys));
+                    }
+                    catch (Throwable t)
+                    {
+                        future.completeExceptionally(t);
+                    }
+                    finally
+                    {
+                        Deadline.setCurrent(previous);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Keys collected for one request and the futures of the callers waiting
+     * for them. Both are keyed by the normalized key; the key itself is sent
+     * as given by the first caller that asked for it.
+     */
+    static class Batch
+    {
+        final LinkedHashMap<String, CompletableFuture<UDDIElement>> futures = new LinkedHashMap<String, CompletableFuture<UDDIElement>>();
+        final HashMap<String, String> keys = new HashMap<String, String>();
+
+        // Earliest deadline of the callers, or null if none has one.
+        Deadline deadline = null;
+
+        CompletableFuture<UDDIElement> add(String key, Deadline deadline)
+        {
+            this.deadline = Deadline.earliest(this.deadline, deadline);
+            String normalized = DetailKind.normalize(key);
+            CompletableFuture<UDDIElement> future = futures.get(normalized);
+            if (future == null)
+            {
+                future = new CompletableFuture<UDDIElement>();
+                futures.put(normalized, future);
+                keys.put(normalized, key);
+            }
+            return future;
+        }
+
+        int size()
+        {
+            return futures.size();
+        }
+
+        Vector getKeys()
+        {
+            Vector result = new Vector();
+            for (Iterator<String> it = futures.keySet().iterator(); it.hasNext();)
+            {
+                result.addElement(keys.get(it.next()));
+            }
+            return result;
+        }
+
+        void completeAll(Throwable t)
+        {
+            for (Iterator<CompletableFuture<UDDIElement>> it = futures.values().iterator(); it.hasNext();)
+            {
+                it.next().completeExceptionally(t);
+            }
+        }
+    }
+
+    /**
+     * Waits for a result, rethrowing the UDDI and transport exceptions
+     * as the blocking UDDIProxy methods do.
+     *
+     * @param deadline Time by which the result is needed, or null to wait
+     *                 as long as it takes.
+     */
+    static UDDIElement await(CompletableFuture<UDDIElement> result, Deadline deadline) throws UDDIException, TransportException
+    {
+        try
+        {
+            if (deadline == null)
+            {
+                return result.get();
+            }
+            return result.get(Math.max(0, deadline.remainingNanos()), TimeUnit.NANOSECONDS);
+        }
+        catch (TimeoutException e)
+        {
+            // The batch is still answered for the other callers.
+            throw new TransportException("Deadline expired");
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new TransportException(e);
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof UDDIException)
+            {
+                throw (UDDIException) cause;
+            }
+            if (cause instanceof TransportException)
+            {
+                throw (TransportException) cause;
+            }
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error)
+            {
+                throw (Error) cause;
+            }
+            throw new TransportException((Exception) cause);
+        }
+    }
+
+    private static synchronized ScheduledExecutorService getTimer()
+    {
+        if (timer == null)
+        {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory()
+            {
+                public Thread newThread(Runnable r)
+                {
+                    Thread thread = new Thread(r, "UDDI4J coalescing timer");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            executor.setRemoveOnCancelPolicy(true);
+            timer = executor;
+        }
+        return timer;
+    }
+}
@@ -0,0 +1,482 @@
+/*
+ * The source code contained herein is licensed under the IBM Public License
+ * Version 1.0, which has been approved by the Open Source Initiative.
+ * Copyright (C) 2001, International Business Machines Corporation
+ * All Rights Reserved.
+ *
+ */
+package org.uddi4j.client;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.uddi4j.UDDIException;
+import org.uddi4j.datatype.binding.AccessPoint;
+import org.uddi4j.datatype.binding.BindingTemplate;
+import org.uddi4j.datatype.binding.HostingRedirector;
+import org.uddi4j.request.FindBinding;
+import org.uddi4j.response.BindingDetail;
+import org.uddi4j.response.DispositionReport;
+import org.uddi4j.transport.TransportException;
+import org.uddi4j.util.TModelBag;
+
+/**
+ * Resolves a bindingKey, or a serviceKey and the tModels a binding must
+ * implement, to the accessPoint a service is called at, following
+ * hostingRedirector references.<P>
+ *
+ * Resolved endpoints are cached. Looking up a cached endpoint takes no lock
+ * and sends no request. Once an endpoint is older than
+ * org.uddi4j.resolver.refreshMillis it is still returned, but a lookup on
+ * the executor of the proxy replaces it; only if it is older than that
+ * plus org.uddi4j.resolver.maxStaleMillis does the caller wait for a new
+ * lookup. Concurrent lookups of the same endpoint are merged. Lookups
+ * bypass the caches of the proxy, so that they see the current content of
+ * the registry. At most org.uddi4j.resolver.maxEntries endpoints are
+ * cached; beyond that, stale endpoints and then arbitrary ones are
+ * forgotten.<P>
+ *
+ * Callers follow the UDDI invocation pattern: when a call to the endpoint
+ * fails, they report it with reportFailure, which looks the binding up
+ * again at once. If the registry now gives another accessPoint, the call
+ * can be retried there; if not, the failure is not one a different
+ * endpoint would fix.
+ * <PRE>
+ *   AccessPoint endpoint = resolver.resolve(bindingKey);
+ *   try
+ *   {
+ *       invoke(endpoint);
+ *   }
+ *   catch (IOException e)
+ *   {
+ *       endpoint = resolver.reportFailure(bindingKey, endpoint);
+ *       if (endpoint == null)
+ *       {
+ *           throw e;
+ *       }
+ *       invoke(endpoint);
+ *   }
+ * </PRE>
+ */
+public class EndpointResolver
+{
+    public static final long DEFAULT_REFRESH_MILLIS = 60000;
+    public static final int DEFAULT_MAX_REDIRECTS = 5;
+    public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+    /** Time before a background lookup that failed is tried again. */
+    private static final long FAILED_REFRESH_DELAY_NANOS = 5000L * 1000000L;
+
+    private final UDDIProxy proxy;
+    private final long refreshNanos;
+    private final long maxStaleNanos;
+    private final int maxRedirects;
+    private final int maxEntries;
+
+    private final ConcurrentHashMap<String, Endpoint> endpoints = new ConcurrentHashMap<String, Endpoint>();
+    private final ConcurrentHashMap<String, CompletableFuture<Endpoint>> lookups = new ConcurrentHashMap<String, CompletableFuture<Endpoint>>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong lookupCount = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    /**
+     * Construct a resolver using the org.uddi4j.resolver properties of the proxy.
+     *
+     * @param proxy  Proxy used for lookups.
+     */
+    public EndpointResolver(UDDIProxy proxy)
+    {
+        this.proxy = proxy;
+        this.refreshNanos = Math.max(0, proxy.getLongProperty(UDDIProxy.RESOLVER_REFRESH_PROPERTY, DEFAULT_REFRESH_MILLIS)) * 1000000L;
+        this.maxStaleNanos = Math.max(0, proxy.getLongProperty(UDDIProxy.RESOLVER_MAX_STALE_PROPERTY, 0)) * 1000000L;
+        this.maxRedirects = Math.max(0, proxy.getIntProperty(UDDIProxy.RESOLVER_MAX_REDIRECTS_PROPERTY, DEFAULT_MAX_REDIRECTS));
+        this.maxEntries = Math.max(1, proxy.getIntProperty(UDDIProxy.RESOLVER_MAX_ENTRIES_PROPERTY, DEFAULT_MAX_ENTRIES));
+    }
+
+    /**
+     * Number of resolutions answered from the cache.
+     */
+    public long getHitCount()
+    {
+        return hits.get();
+    }
+
+    /**
+     * Number of lookups sent to the registry, in the background or not.
+     */
+    public long getLookupCount()
+    {
+        return lookupCount.get();
+    }
+
+    /**
+     * Number of failures reported by callers.
+     */
+    public long getFailureCount()
+    {
+        return failures.get();
+    }
+
+    /**
+     * Number of endpoints cached.
+     */
+    public int getSize()
+    {
+        return endpoints.size();
+    }
+
+    /**
+     * Forgets all resolved endpoints.
+     */
+    public void clear()
+    {
+        endpoints.clear();
+    }
+
+    /**
+     * Resolves a bindingTemplate to its accessPoint.
+     *
+     * @param bindingKey Key of the bindingTemplate.
+     * @return A copy of the accessPoint, or null if the binding has neither an
+     *         accessPoint nor a hostingRedirector.
+     * @exception UDDIException
+     *                   E_invalidKeyPassed if the binding does not exist.
+     * @exception TransportException
+     *                   Also thrown if hostingRedirector references form a loop or
+     *                   are nested too deeply.
+     */
+    public AccessPoint resolve(String bindingKey) throws UDDIException, TransportException
+    {
+        return resolve(new Target(bindingKey, null, null));
+    }
+
+    /**
+     * Resolves a service to the accessPoint of its first bindingTemplate
+     * implementing all the given tModels.
+     *
+     * @param serviceKey Key of the businessService.
+     * @param tModelBag  tModels the binding must implement, or null for any binding.
+     * @return A copy of the accessPoint, or null if the service has no such binding.
+     * @exception UDDIException
+     * @exception TransportException
+     */
+    public AccessPoint resolve(String serviceKey, TModelBag tModelBag) throws UDDIException, TransportException
+    {
+        return resolve(new Target(null, serviceKey, tModelBag));
+    }
+
+    /**
+     * Reports that calling an endpoint returned by {@link #resolve(String)}
+     * failed, and looks the binding up again.
+     *
+     * @param bindingKey Key of the bindingTemplate.
+     * @param failed     The endpoint that failed.
+     * @return A copy of the new accessPoint if the registry now gives a
+     *         different one, otherwise null.
+     * @exception UDDIException
+     * @exception TransportException
+     */
+    public AccessPoint reportFailure(String bindingKey, AccessPoint failed) throws UDDIException, TransportException
+    {
+        return reportFailure(new Target(bindingKey, null, null), failed);
+    }
+
+    /**
+     * Reports that calling an endpoint returned by
+     * {@link #resolve(String, TModelBag)} failed, and looks the service up again.
+     *
+     * @param serviceKey Key of the businessService.
+     * @param tModelBag  tModels the binding must implement, or null.
+     * @param failed     The endpoint that failed.
+     * @return A copy of the new accessPoint if the registry now gives a
+     *         different one, otherwise null.
+     * @exception UDDIException
+     * @exception TransportException
+     */
+    public AccessPoint reportFailure(String serviceKey, TModelBag tModelBag, AccessPoint failed) throws UDDIException, TransportException
+    {
+        return reportFailure(new Target(null, serviceKey, tModelBag), failed);
+    }
+
+    private AccessPoint resolve(Target target) throws UDDIException, TransportException
+    {
+        Endpoint endpoint = endpoints.get(target.id);
+        if (endpoint != null)
+        {
+            long now = System.nanoTime();
+            if (maxStaleNanos == 0 || now - endpoint.fetched < refreshNanos + maxStaleNanos)
+            {
+                hits.incrementAndGet();
+                if (now - endpoint.refreshAt >= 0)
+                {
+                    refresh(target, endpoint);
+                }
+                return copy(endpoint.accessPoint);
+            }
+        }
+        return copy(load(target).accessPoint);
+    }
+
+    private AccessPoint reportFailure(Target target, AccessPoint failed) throws UDDIException, TransportException
+    {
+        failures.incrementAndGet();
+        Endpoint endpoint = load(target);
+        if (endpoint.accessPoint == null || (failed != null && endpoint.accessPoint.getText() != null && endpoint.accessPoint.getText().equals(failed.getText())))
+        {
+            return null;
+        }
+        return copy(endpoint.accessPoint);
+    }
+
+    /**
+     * Looks an endpoint up and caches it, or waits for a lookup of the same
+     * endpoint already in progress.
+     */
+    private Endpoint load(Target target) throws UDDIException, TransportException
+    {
+        CompletableFuture<Endpoint> future = new CompletableFuture<Endpoint>();
+        CompletableFuture<Endpoint> running = lookups.putIfAbsent(target.id, future);
+        if (running != null)
+        {
+            return await(running);
+        }
+        try
+        {
+            Endpoint endpoint = lookup(target);
+            endpoints.put(target.id, endpoint);
+            if (endpoints.size() > maxEntries)
+            {
+                evict();
+            }
+            future.complete(endpoint);
+            return endpoint;
+        }
+        catch (UDDIException e)
+        {
+            if (DispositionReport.E_invalidKeyPassed.equals(RetryPolicy.getErrCode(e)))
+            {
+                endpoints.remove(target.id);
+            }
+            future.completeExceptionally(e);
+            throw e;
+        }
+        catch (TransportException e)
+        {
+            future.completeExceptionally(e);
+            throw e;
+        }
+        catch (RuntimeException e)
+        {
+            future.completeExceptionally(e);
+            throw e;
+        }
+        finally
+        {
+            lookups.remove(target.id, future);
+        }
+    }
+
+    /**
+     * Brings the number of cached endpoints back to the limit, forgetting
+     * stale endpoints first.
+     */
+    private void evict()
+    {
+        long now = System.nanoTime();
+        for (Iterator<Endpoint> it = endpoints.values().iterator(); it.hasNext() && endpoints.size() > maxEntries;)
+        {
+            if (now - it.next().refreshAt >= 0)
+            {
+                it.remove();
+            }
+        }
+        for (Iterator<Endpoint> it = endpoints.values().iterator(); it.hasNext() && endpoints.size() > maxEntries;)
+        {
+            it.next();
+            it.remove();
+        }
+    }
+
+    /**
+     * Replaces a stale endpoint in the background. If the lookup fails the
+     * stale endpoint is kept and the lookup tried again later.
+     */
+    private void refresh(final Target target, final Endpoint stale)
+    {
+        if (!stale.refreshing.compareAndSet(false, true))
+        {
+            return;
+        }
+        proxy.getExecutor().execute(new Runnable()
+        {
+            public void run()
+            {
+                try
+                {
+                    load(target);
+                }
+                catch (Exception e)
+                {
+                    endpoints.replace(target.id, stale, new Endpoint(stale.accessPoint, stale.fetched, System.nanoTime() + FAILED_REFRESH_DELAY_NANOS));
+                }
+            }
+        });
+    }
+
+    /**
+     * Asks the registry for the binding of a target and follows its
+     * hostingRedirector references. The caches of the proxy are bypassed,
+     * since they may still hold the accessPoint that just failed.
+     */
+    private Endpoint lookup(Target target) throws UDDIException, TransportException
+    {
+        lookupCount.incrementAndGet();
+        long now = System.nanoTime();
+        BindingTemplate template;
+        if (target.bindingKey != null)
+        {
+            template = getBinding(target.bindingKey);
+        }
+        else
+        {
+            FindBinding request = new FindBinding();
+            request.setServiceKey(target.serviceKey);
+            request.setTModelBag(target.tModelBag);
+            template = first((BindingDetail) proxy.sendUncached(request, true, BindingDetail.class));
+        }
+        Set<String> seen = new HashSet<String>();
+        while (template != null && template.getAccessPoint() == null)
+        {
+            HostingRedirector redirector = template.getHostingRedirector();
+            if (redirector == null || redirector.getBindingKey() == null)
+            {
+                template = null;
+                break;
+            }
+            String next = redirector.getBindingKey();
+            if (!seen.add(DetailKind.normalize(next)) || seen.size() > maxRedirects)
+            {
+                throw new TransportException("Cannot follow hostingRedirector of binding " + template.getBindingKey() + " to " + next);
+            }
+            template = getBinding(next);
+        }
+        return new Endpoint(template == null ? null : copy(template.getAccessPoint()), now, now + refreshNanos);
+    }
+
+    private BindingTemplate getBinding(String bindingKey) throws UDDIException, TransportException
+    {
+        Vector keys = new Vector();
+        keys.addElement(bindingKey);
+        return first((BindingDetail) DetailKind.BINDING.fetchUncached(proxy, keys));
+    }
+
+    private static BindingTemplate first(BindingDetail detail)
+    {
+        Vector templates = detail.getBindingTemplateVector();
+        return templates == null || templates.isEmpty() ? null : (BindingTemplate) templates.elementAt(0);
+    }
+
+    private static AccessPoint copy(AccessPoint accessPoint)
+    {
+        return accessPoint == null ? null : new AccessPoint(accessPoint.getText(), accessPoint.getURLType());
+    }
+
+    private static Endpoint await(CompletableFuture<Endpoint> future) throws UDDIException, TransportException
+    {
+        try
+        {
+            return future.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new TransportException(e);
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof UDDIException)
+            {
+                throw (UDDIException) cause;
+            }
+            if (cause instanceof TransportException)
+            {
+                throw (TransportException) cause;
+            }
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+            throw new TransportException(e);
+        }
+    }
+
+    /**
+     * What is being resolved, and the key it is cached under.
+     */
+    private static class Target
+    {
+        final String bindingKey;
+        final String serviceKey;
+        final TModelBag tModelBag;
+        final String id;
+
+        Target(String bindingKey, String serviceKey, TModelBag tModelBag)
+        {
+            this.bindingKey = bindingKey;
+            this.serviceKey = serviceKey;
+            this.tModelBag = tModelBag;
+            if (bindingKey != null)
+            {
+                id = "binding:" + DetailKind.normalize(bindingKey);
+            }
+            else
+            {
+                StringBuffer buffer = new StringBuffer("service:").append(DetailKind.normalize(serviceKey));
+                Vector keys = tModelBag != null ? tModelBag.getTModelKeyStrings() : null;
+                if (keys != null)
+                {
+                    String[] sorted = new String[keys.size()];
+                    for (int i = 0; i < sorted.length; i++)
+                    {
+                        sorted[i] = DetailKind.normalize((String) keys.elementAt(i));
+                    }
+                    Arrays.sort(sorted);
+                    for (int i = 0; i < sorted.length; i++)
+                    {
+                        buffer.append(' ').append(sorted[i]);
+                    }
+                }
+                id = buffer.toString();
+            }
+        }
+    }
+
+    /**
+     * A resolved endpoint. Immutable except for the flag that keeps more
+     * than one refresh from starting.
+     */
+    private static class Endpoint
+    {
+        final AccessPoint accessPoint;
+        final long fetched;
+        final long refreshAt;
+        final AtomicBoolean refreshing = new AtomicBoolean();
+
+        Endpoint(AccessPoint accessPoint, long fetched, long refreshAt)
+        {
+            this.accessPoint = accessPoint;
+            this.fetched = fetched;
+            this.refreshAt = refreshAt;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * The source code contained herein is licensed under the IBM Public License
+ * Version 1.0, which has been approved by the Open Source Initiative.
+ * Copyright (C) 2001, International Business Machines Corporation
+ * All Rights Reserved.
+ *
+ */
+package org.uddi4j.client;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Chooses the inquiry endpoint a request is sent to.<P>
+ *
+ * The selector is configured with the org.uddi4j.inquiry.selector property.
+ * Its value is one of the names below, or the name of a subclass with a
+ * public no argument constructor:
+ * <DL>
+ * <DT>roundRobin
+ * <DD>Uses the endpoints in turn. This is the default.
+ * <DT>leastOutstanding
+ * <DD>Uses the endpoint with the fewest requests in progress.
+ * <DT>ewma
+ * <DD>Uses the endpoint with the lowest average response time, weighted by
+ * the number of requests in progress. Endpoints without a measured response
+ * time are tried first.
+ * </DL>
+ * Endpoints that are ejected are not passed to the selector.
+ */
+public abstract class EndpointSelector
+{
+    public static final String ROUND_ROBIN = "roundRobin";
+    public static final String LEAST_OUTSTANDING = "leastOutstanding";
+    public static final String EWMA = "ewma";
+
+    /**
+     * Rotating start position, so that ties are not always resolved in
+     * favour of the first endpoint.
+     */
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * Chooses an endpoint.
+     *
+     * @param candidates Endpoints to choose from. Never empty.
+     * @return One of the candidates.
+     */
+    public abstract InquiryEndpoint select(InquiryEndpoint[] candidates);
+
+    /**
+     * Returns the next start position for a list of the given length.
+     */
+    protected int nextIndex(int length)
+    {
+        return (next.getAndIncrement() & Integer.MAX_VALUE) % length;
+    }
+
+    /**
+     * Creates the selector with the given name or class name.
+     *
+     * @param name   Name of the selector, or null for the default.
+     * @return EndpointSelector
+     * @exception IllegalArgumentException
+     *                   If the name is neither a known selector nor a selector class.
+     */
+    public static EndpointSelector newInstance(String name)
+    {
+        if (name == null || name.trim().length() == 0 || ROUND_ROBIN.equalsIgnoreCase(name.trim()))
+        {
+            return new RoundRobin();
+        }
+        if (LEAST_OUTSTANDING.equalsIgnoreCase(name.trim()))
+        {
+            return new LeastOutstanding();
+        }
+        if (EWMA.equalsIgnoreCase(name.trim()))
+        {
+            return new EwmaLatency();
+        }
+        try
+        {
+            return (EndpointSelector) Class.forName(name.trim()).getDeclaredConstructor().newInstance();
+        }
+        catch (Exception e)
+        {
+            throw new IllegalArgumentException("Unknown endpoint selector " + name + ": " + e);
+        }
+    }
+
+    /**
+     * Uses the endpoints in turn.
+     */
+    public static class RoundRobin extends EndpointSelector
+    {
+        public InquiryEndpoint select(InquiryEndpoint[] candidates)
+        {
+            return candidates[nextIndex(candidates.length)];
+        }
+    }
+
+    /**
+     * Uses the endpoint with the fewest requests in progress.
+     */
+    public static class LeastOutstanding extends EndpointSelector
+    {
+        public InquiryEndpoint select(InquiryEndpoint[] candidates)
+        {
+            int start = nextIndex(candidates.length);
+            InquiryEndpoint best = null;
+            for (int i = 0; i < candidates.length; i++)
+            {
+                InquiryEndpoint candidate = candidates[(start + i) % candidates.length];
+                if (best == null || candidate.getOutstanding() < best.getOutstanding())
+                {
+                    best = candidate;
+                }
+            }
+            return best;
+        }
+    }
+
+    /**
+     * Uses the endpoint with the lowest average response time multiplied by
+     * the number of requests in progress plus one, so that a fast endpoint
+     * does not attract all requests until it slows down.
+     */
+    public static class EwmaLatency extends EndpointSelector
+    {
+        public InquiryEndpoint select(InquiryEndpoint[] candidates)
+        {
+            int start = nextIndex(candidates.length);
+            InquiryEndpoint best = null;
+            double bestScore = 0;
+            for (int i = 0; i < candidates.length; i++)
+            {
+                InquiryEndpoint candidate = candidates[(start + i) % candidates.length];
+                double latency = candidate.getLatencyMillis();
+                if (latency < 0)
+                {
+                    // Not measured yet, try it.
+                    return candidate;
+                }
+                double score = latency * (candidate.getOutstanding() + 1);
+                if (best == null || score < bestScore)
+                {
+                    best = candidate;
+                    bestScore = score;
+                }
+            }
+            return best;
+        }
+    }
+}
@@ -0,0 +1,738 @@
+/*
+ * The source code contained herein is licensed under the IBM Public License
+ * Version 1.0, which has been approved by the Open Source Initiative.
+ * Copyright (C) 2001, International Business Machines Corporation
+ * All Rights Reserved.
+ *
+ */
+package org.uddi4j.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.uddi4j.UDDIElement;
+import org.uddi4j.UDDIException;
+import org.uddi4j.datatype.binding.BindingTemplate;
+import org.uddi4j.datatype.business.BusinessEntity;
+import org.uddi4j.datatype.service.BusinessService;
+import org.uddi4j.request.DeleteBinding;
+import org.uddi4j.request.DeleteBusiness;
+import org.uddi4j.request.DeleteService;
+import org.uddi4j.request.DeleteTModel;
+import org.uddi4j.request.SaveBinding;
+import org.uddi4j.request.SaveBusiness;
+import org.uddi4j.request.SaveService;
+import org.uddi4j.request.SaveTModel;
+import org.uddi4j.transport.TransportException;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * A cache of businessEntity, businessService, bindingTemplate and tModel
+ * structures by key, used by UDDIProxy when the
+ * org.uddi4j.entityCache.maxEntries property is set.<P>
+ *
+ * get_businessDetail, get_serviceDetail, get_bindingDetail and
+ * get_tModelDetail take the entities they find in the cache from there and
+ * only ask the registry for the others. Every entity returned by these calls
+ * is stored, together with the services and binding templates contained in
+ * it. Entities are stored in serialized form and read back into new objects
+ * on every hit, so callers may modify what they get.<P>
+ *
+ * save_xx and delete_xx requests sent through the same UDDIProxy keep the
+ * cache up to date: the entities returned by a save replace the cached
+ * ones, and deleted entities are removed. Since a businessEntity contains
+ * its services and a service its binding templates, removing or replacing
+ * an entity also removes the entities it contains and the entities that
+ * contain it. If a save or delete fails, the entities it names are removed,
+ * as the registry may have applied it anyway.<P>
+ *
+ * Entities expire after a time to live. When the cache is full the least
+ * recently used entity is removed.<P>
+ *
+ * The tModels, services and binding templates in the cache can be saved to
+ * a snapshot file with {@link #saveSnapshot(File)}, and loaded by another
+ * process with {@link #loadSnapshot(File, long)}; UDDIProxy loads the file
+ * named by the org.uddi4j.entityCache.snapshotFile property when it is
+ * configured. A loaded entity is used like a fetched one, but the first
+ * time it is used UDDIProxy also fetches it again in the background, so
+ * that a process starting from a snapshot only asks the registry for the
+ * entities it actually uses, and not all at once.
+ */
+public class EntityCache
+{
+    public static final long DEFAULT_TTL_MILLIS = 60000;
+    public static final long DEFAULT_SNAPSHOT_MAX_AGE_MILLIS = 24L * 60 * 60 * 1000;
+
+    /** Kinds of entities saved in snapshots. */
+    private static final DetailKind[] SNAPSHOT_KINDS = { DetailKind.TMODEL, DetailKind.SERVICE, DetailKind.BINDING };
+
+    private final int maxEntries;
+    private final long ttlNanos;
+
+    // Guarded by this. Keyed by entity id, see id(DetailKind, String).
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+    private long generation = 0;
+
+    // Guarded by this. Ids of the cached entities naming an id as their
+    // parent, and of those listing it among their children; kept with
+    // entries so that invalidating an entity does not scan the whole cache.
+    private final HashMap<String, Set<String>> byParent = new HashMap<String, Set<String>>();
+    private final HashMap<String, Set<String>> byChild = new HashMap<String, Set<String>>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong revalidations = new AtomicLong();
+
+    /**
+     * Construct a cache.
+     *
+     * @param maxEntries Maximum number of entities.
+     * @param ttlMillis  Time an entity is used for.
+     */
+    EntityCache(int maxEntries, long ttlMillis)
+    {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttlNanos = Math.max(0, ttlMillis) * 1000000L;
+    }
+
+    /**
+     * Number of keys answered from the cache.
+     */
+    public long getHitCount()
+    {
+        return hits.get();
+    }
+
+    /**
+     * Number of keys that were requested from the registry.
+     */
+    public long getMissCount()
+    {
+        return misses.get();
+    }
+
+    /**
+     * Number of entities removed to make room for others.
+     */
+    public long getEvictionCount()
+    {
+        return evictions.get();
+    }
+
+    /**
+     * Number of entities loaded from a snapshot that were fetched again.
+     */
+    public long getRevalidationCount()
+    {
+        return revalidations.get();
+    }
+
+    /**
+     * Number of entities in the cache, including expired entities not
+     * removed yet.
+     */
+    public synchronized int getSize()
+    {
+        return entries.size();
+    }
+
+    /**
+     * Tests whether an entity is in the cache and has not expired.
+     *
+     * @param kind   Kind of the entity.
+     * @param key    Key of the entity.
+     */
+    public synchronized boolean contains(DetailKind kind, String key)
+    {
+        Entry entry = entries.get(id(kind, key));
+        return entry != null && System.nanoTime() - entry.expires < 0;
+    }
+
+    /**
+     * Removes all entities.
+     */
+    public synchronized void clear()
+    {
+        entries.clear();
+        byParent.clear();
+        byChild.clear();
+        generation++;
+    }
+
+    /**
+     * Writes the tModels, services and binding templates in the cache to a
+     * snapshot file, replacing it. Expired entities are included, with the
+     * time they were fetched.
+     *
+     * @param file   The snapshot file.
+     * @return The number of entities written.
+     * @exception IOException
+     */
+    public int saveSnapshot(File file) throws IOException
+    {
+        Vector records = new Vector();
+        synchronized (this)
+        {
+            for (Iterator<Entry> i = entries.values().iterator(); i.hasNext();)
+            {
+                Entry entry = i.next();
+                if (isSnapshotKind(entry.id))
+                {
+                    records.addElement(new EntitySnapshot.Record(entry.id, entry.parent, entry.fetched, entry.value));
+                }
+            }
+        }
+        EntitySnapshot.write(file, records);
+        return records.size();
+    }
+
+    /**
+     * Adds the entities of a snapshot file to the cache. Entities already
+     * in the cache are kept. The loaded entities expire like fetched ones,
+     * and are marked to be fetched again when first used.
+     *
+     * @param file         The snapshot file.
+     * @param maxAgeMillis Entities fetched longer ago than this are skipped.
+     * @return The number of entities loaded.
+     * @exception IOException
+     *                   Thrown if the file cannot be read or is not a valid snapshot.
+     */
+    public int loadSnapshot(File file, long maxAgeMillis) throws IOException
+    {
+        Vector records = EntitySnapshot.read(file, System.currentTimeMillis() - Math.max(0, maxAgeMillis));
+        LinkedHashMap<String, Entry> loaded = new LinkedHashMap<String, Entry>();
+        synchronized (this)
+        {
+            for (int i = 0; i < records.size() && loaded.size() < maxEntries; i++)
+            {
+                EntitySnapshot.Record record = (EntitySnapshot.Record) records.elementAt(i);
+                if (isSnapshotKind(record.id) && !entries.containsKey(record.id))
+                {
+                    Entry entry = new Entry(record.id, record.parent);
+                    entry.value = record.value;
+                    entry.fetched = record.fetched;
+                    entry.revalidate = true;
+                    loaded.put(entry.id, entry);
+                }
+            }
+            for (Iterator<Entry> i = loaded.values().iterator(); i.hasNext();)
+            {
+                Entry entry = i.next();
+                Entry parent = entry.parent != null ? loaded.get(entry.parent) : null;
+                if (parent != null)
+                {
+                    parent.children.add(entry.id);
+                }
+            }
+            long expires = System.nanoTime() + ttlNanos;
+            for (Iterator<Entry> i = loaded.values().iterator(); i.hasNext();)
+            {
+                Entry entry = i.next();
+                entry.expires = expires;
+                add(entry);
+            }
+            evict();
+        }
+        return loaded.size();
+    }
+
+    /**
+     * Returns true, once, if a cached entity was loaded from a snapshot and
+     * has not been fetched again since.
+     *
+     * @param kind   Kind of the entity.
+     * @param key    Key of the entity.
+     */
+    synchronized boolean claimRevalidation(DetailKind kind, String key)
+    {
+        Entry entry = entries.get(id(kind, key));
+        if (entry == null || !entry.revalidate)
+        {
+            return false;
+        }
+        entry.revalidate = false;
+        revalidations.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Removes an entity the registry no longer knows, along with the
+     * entities containing it and those it contains.
+     *
+     * @param kind   Kind of the entity.
+     * @param key    Key of the entity.
+     */
+    synchronized void remove(DetailKind kind, String key)
+    {
+        generation++;
+        invalidate(id(kind, key), true, true);
+    }
+
+    /**
+     * Returns a number that changes whenever the registry is changed
+     * through the proxy. Entities are only stored if the number has not
+     * changed since they were requested.
+     */
+    synchronized long getGeneration()
+    {
+        return generation;
+    }
+
+    /**
+     * Returns a detail holding a new copy of a cached entity, or null if the
+     * entity is not cached or has expired.
+     *
+     * @param kind   Kind of the entity.
+     * @param key    Key of the entity.
+     */
+    UDDIElement get(DetailKind kind, String key)
+    {
+        String id = id(kind, key);
+        Entry entry;
+        synchronized (this)
+        {
+            entry = entries.get(id);
+            if (entry != null && System.nanoTime() - entry.expires >= 0)
+            {
+                removeEntry(id);
+                entry = null;
+            }
+        }
+        if (entry != null)
+        {
+            try
+            {
+                UDDIElement result = (UDDIElement) new StAXBinder(kind.getDetailClass()).read(new ByteArrayInputStream(entry.value));
+                if (kind.getEntities(result).size() == 1)
+                {
+                    hits.incrementAndGet();
+                    return result;
+                }
+            }
+            catch (UDDIException e)
+            {
+                // Not readable; fetch it again.
+            }
+            catch (TransportException e)
+            {
+                // Not readable; fetch it again.
+            }
+            synchronized (this)
+            {
+                if (entries.get(id) == entry)
+                {
+                    removeEntry(id);
+                }
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Stores the entities of a detail returned by the registry.
+     *
+     * @param kind       Kind of the detail.
+     * @param detail     Detail returned by get_xxDetail.
+     * @param generation Value of {@link #getGeneration()} before the detail was requested.
+     */
+    void put(DetailKind kind, UDDIElement detail, long generation)
+    {
+        Vector stored = new Vector();
+        String operator = kind.getOperator(detail);
+        Vector entities = kind.getEntities(detail);
+        for (int i = 0; entities != null && i < entities.size(); i++)
+        {
+            newEntries(kind, entities.elementAt(i), operator, stored);
+        }
+        synchronized (this)
+        {
+            if (generation == this.generation)
+            {
+                store(stored);
+            }
+        }
+    }
+
+    /**
+     * Brings the cache up to date after a publish request was sent.
+     *
+     * @param request  The request, a UDDIElement or a DOM tree.
+     * @param response The response, a UDDIElement or a DOM tree, or null if the request failed.
+     */
+    void published(Object request, Object response)
+    {
+        if (request instanceof SaveBusiness)
+        {
+            saved(DetailKind.BUSINESS, ((SaveBusiness) request).getBusinessEntityVector(), response);
+        }
+        else if (request instanceof SaveService)
+        {
+            saved(DetailKind.SERVICE, ((SaveService) request).getBusinessServiceVector(), response);
+        }
+        else if (request instanceof SaveBinding)
+        {
+            saved(DetailKind.BINDING, ((SaveBinding) request).getBindingTemplateVector(), response);
+        }
+        else if (request instanceof SaveTModel)
+        {
+            saved(DetailKind.TMODEL, ((SaveTModel) request).getTModelVector(), response);
+        }
+        else if (request instanceof DeleteBusiness)
+        {
+            deleted(DetailKind.BUSINESS, ((DeleteBusiness) request).getBusinessKeyStrings());
+        }
+        else if (request instanceof DeleteService)
+        {
+            deleted(DetailKind.SERVICE, ((DeleteService) request).getServiceKeyStrings());
+        }
+        else if (request instanceof DeleteBinding)
+        {
+            deleted(DetailKind.BINDING, ((DeleteBinding) request).getBindingKeyStrings());
+        }
+        else if (request instanceof DeleteTModel)
+        {
+            deleted(DetailKind.TMODEL, ((DeleteTModel) request).getTModelKeyStrings());
+        }
+        else if (request instanceof Element)
+        {
+            // A hand built message; there is no telling which entities it changes.
+            String operation = InquiryHedger.getOperationName(request);
+            if (operation.startsWith("save_") || operation.startsWith("delete_"))
+            {
+                clear();
+            }
+        }
+    }
+
+    private void saved(DetailKind kind, Vector requested, Object response)
+    {
+        String operator = null;
+        Vector entities = null;
+        if (response instanceof UDDIElement && kind.getDetailClass().isInstance(response))
+        {
+            operator = kind.getOperator((UDDIElement) response);
+            entities = kind.getEntities((UDDIElement) response);
+        }
+        else if (response instanceof Element && isDetail(kind, (Element) response))
+        {
+            operator = ((Element) response).getAttribute("operator");
+            entities = new Vector();
+            try
+            {
+                for (Node node = ((Element) response).getFirstChild(); node != null; node = node.getNextSibling())
+                {
+                    if (node.getNodeType() == Node.ELEMENT_NODE)
+                    {
+                        entities.addElement(kind.newEntity((Element) node));
+                    }
+                }
+            }
+            catch (UDDIException e)
+            {
+                entities = null;
+            }
+        }
+
+        Vector stored = new Vector();
+        for (int i = 0; entities != null && i < entities.size(); i++)
+        {
+            newEntries(kind, entities.elementAt(i), operator, stored);
+        }
+        synchronized (this)
+        {
+            generation++;
+            if (entities == null && (requested == null || requested.isEmpty()))
+            {
+                // Failed, and saved from upload registers; the keys are unknown.
+                clear();
+                return;
+            }
+            for (int i = 0; requested != null && i < requested.size(); i++)
+            {
+                invalidate(kind, requested.elementAt(i));
+            }
+            for (int i = 0; entities != null && i < entities.size(); i++)
+            {
+                invalidate(kind, entities.elementAt(i));
+            }
+            store(stored);
+        }
+    }
+
+    private synchronized void deleted(DetailKind kind, Vector keys)
+    {
+        generation++;
+        for (int i = 0; keys != null && i < keys.size(); i++)
+        {
+            invalidate(id(kind, (String) keys.elementAt(i)), true, true);
+        }
+    }
+
+    /**
+     * Removes an entity that is being saved, the entities it contains and
+     * the entities containing it, including its parent as named by the
+     * entity itself.
+     */
+    private void invalidate(DetailKind kind, Object entity)
+    {
+        String key = kind.getKey(entity);
+        if (key != null && key.trim().length() > 0)
+        {
+            invalidate(id(kind, key), true, true);
+        }
+        String parent = parentId(kind, entity);
+        if (parent != null)
+        {
+            invalidate(parent, true, false);
+        }
+    }
+
+    /**
+     * Removes an entity, and either or both of the entities containing it
+     * and the entities it contains.
+     */
+    private void invalidate(String id, boolean up, boolean down)
+    {
+        Entry entry = removeEntry(id);
+        Vector containers = new Vector();
+        Vector contained = new Vector();
+        if (entry != null)
+        {
+            if (entry.parent != null)
+            {
+                containers.addElement(entry.parent);
+            }
+            contained.addAll(entry.children);
+        }
+        if (up && byChild.containsKey(id))
+        {
+            containers.addAll(byChild.get(id));
+        }
+        if (down && byParent.containsKey(id))
+        {
+            contained.addAll(byParent.get(id));
+        }
+        for (int i = 0; up && i < containers.size(); i++)
+        {
+            invalidate((String) containers.elementAt(i), true, false);
+        }
+        for (int i = 0; down && i < contained.size(); i++)
+        {
+            invalidate((String) contained.elementAt(i), false, true);
+        }
+    }
+
+    private void store(Vector stored)
+    {
+        long expires = System.nanoTime() + ttlNanos;
+        long fetched = System.currentTimeMillis();
+        for (int i = 0; i < stored.size(); i++)
+        {
+            Entry entry = (Entry) stored.elementAt(i);
+            entry.expires = expires;
+            entry.fetched = fetched;
+            add(entry);
+        }
+        evict();
+    }
+
+    private void evict()
+    {
+        for (Iterator<Entry> i = entries.values().iterator(); entries.size() > maxEntries && i.hasNext();)
+        {
+            Entry entry = i.next();
+            i.remove();
+            unindex(entry);
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Stores an entry, replacing any entry with the same id.
+     */
+    private void add(Entry entry)
+    {
+        Entry old = entries.put(entry.id, entry);
+        if (old != null)
+        {
+            unindex(old);
+        }
+        if (entry.parent != null)
+        {
+            link(byParent, entry.parent, entry.id);
+        }
+        for (Iterator<String> i = entry.children.iterator(); i.hasNext();)
+        {
+            link(byChild, i.next(), entry.id);
+        }
+    }
+
+    /**
+     * Removes an entry by id.
+     *
+     * @return The entry removed, or null if there was none.
+     */
+    private Entry removeEntry(String id)
+    {
+        Entry entry = entries.remove(id);
+        if (entry != null)
+        {
+            unindex(entry);
+        }
+        return entry;
+    }
+
+    private void unindex(Entry entry)
+    {
+        if (entry.parent != null)
+        {
+            unlink(byParent, entry.parent, entry.id);
+        }
+        for (Iterator<String> i = entry.children.iterator(); i.hasNext();)
+        {
+            unlink(byChild, i.next(), entry.id);
+        }
+    }
+
+    private static void link(HashMap<String, Set<String>> index, String key, String id)
+    {
+        Set<String> ids = index.get(key);
+        if (ids == null)
+        {
+            ids = new HashSet<String>();
+            index.put(key, ids);
+        }
+        ids.add(id);
+    }
+
+    private static void unlink(HashMap<String, Set<String>> index, String key, String id)
+    {
+        Set<String> ids = index.get(key);
+        if (ids != null && ids.remove(id) && ids.isEmpty())
+        {
+            index.remove(key);
+        }
+    }
+
+    /**
+     * Adds entries for an entity and the entities it contains to a Vector.
+     *
+     * @return The ids of the entity and all entities it contains.
+     */
+    private Set<String> newEntries(DetailKind kind, Object entity, String operator, Vector result)
+    {
+        Set<String> ids = new HashSet<String>();
+        String key = kind.getKey(entity);
+        if (key == null || key.trim().length() == 0)
+        {
+            return ids;
+        }
+        Entry entry = new Entry(id(kind, key), parentId(kind, entity));
+        Vector single = new Vector();
+        single.addElement(entity);
+        try
+        {
+            entry.value = ResponseCache.serialize(kind.newDetail(operator, single));
+        }
+        catch (XMLStreamException e)
+        {
+            return ids;
+        }
+        Vector children = null;
+        DetailKind childKind = null;
+        if (entity instanceof BusinessEntity && ((BusinessEntity) entity).getBusinessServices() != null)
+        {
+            children = ((BusinessEntity) entity).getBusinessServices().getBusinessServiceVector();
+            childKind = DetailKind.SERVICE;
+        }
+        else if (entity instanceof BusinessService && ((BusinessService) entity).getBindingTemplates() != null)
+        {
+            children = ((BusinessService) entity).getBindingTemplates().getBindingTemplateVector();
+            childKind = DetailKind.BINDING;
+        }
+        for (int i = 0; children != null && i < children.size(); i++)
+        {
+            entry.children.addAll(newEntries(childKind, children.elementAt(i), operator, result));
+        }
+        result.addElement(entry);
+        ids.add(entry.id);
+        ids.addAll(entry.children);
+        return ids;
+    }
+
+    /**
+     * Returns the id of the entity an entity belongs to: the business of a
+     * service, the service of a binding template.
+     */
+    private static String parentId(DetailKind kind, Object entity)
+    {
+        String key = null;
+        DetailKind parentKind = null;
+        if (entity instanceof BusinessService)
+        {
+            key = ((BusinessService) entity).getBusinessKey();
+            parentKind = DetailKind.BUSINESS;
+        }
+        else if (entity instanceof BindingTemplate)
+        {
+            key = ((BindingTemplate) entity).getServiceKey();
+            parentKind = DetailKind.SERVICE;
+        }
+        return key == null || key.trim().length() == 0 ? null : id(parentKind, key);
+    }
+
+    private static boolean isSnapshotKind(String id)
+    {
+        for (int i = 0; i < SNAPSHOT_KINDS.length; i++)
+        {
+            if (id.startsWith(SNAPSHOT_KINDS[i] + ":"))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isDetail(DetailKind kind, Element el)
+    {
+        String name = el.getLocalName() != null ? el.getLocalName() : el.getNodeName();
+        String expected = kind.getDetailClass().getName();
+        expected = expected.substring(expected.lastIndexOf('.') + 1);
+        return name.equalsIgnoreCase(expected);
+    }
+
+    private static String id(DetailKind kind, String key)
+    {
+        return kind + ":" + DetailKind.normalize(key);
+    }
+
+    private static class Entry
+    {
+        final String id;
+        final String parent;
+        final Set<String> children = new HashSet<String>();
+        byte[] value;
+        long expires;
+        long fetched;
+        boolean revalidate;
+
+        Entry(String id, String parent)
+        {
+            this.id = id;
+            this.parent = parent;
+        }
+    }
+}
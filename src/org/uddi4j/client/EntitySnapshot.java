@@ -0,0 +1,233 @@
+/*
+ * The source code contained herein is licensed under the IBM Public License
+ * Version 1.0, which has been approved by the Open Source Initiative.
+ * Copyright (C) 2001, International Business Machines Corporation
+ * All Rights Reserved.
+ *
+ */
+package org.uddi4j.client;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Vector;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+/**
+ * Reads and writes the snapshot file of an {@link EntityCache}.<P>
+ *
+ * The file starts with a header holding a magic number, the format
+ * version, the time the file was written, the number of records and a
+ * CRC-32 checksum of the header fields before it and of the records. Each
+ * record holds the id of a cached entity, the id of the entity containing
+ * it, the time the entity was fetched from the registry and the serialized
+ * detail the cache keeps for it. All numbers are big endian and all
+ * strings UTF-8.<P>
+ *
+ * Files are read in one buffered pass that computes the checksum as the
+ * records are read, and written to a temporary file that then replaces
+ * the snapshot, so that a reader never sees a partly written file.
+ */
+final class EntitySnapshot
+{
+    static final int MAGIC = 0x55344a53; // "U4JS"
+    static final short VERSION = 2;
+    static final int HEADER_LENGTH = 4 + 2 + 2 + 8 + 4 + 8;
+    /** Length of the header fields covered by the checksum. */
+    static final int CHECKED_HEADER_LENGTH = HEADER_LENGTH - 8;
+    /** Length of a record with empty strings and value. */
+    static final int MIN_RECORD_LENGTH = 8 + 2 + 2 + 4;
+
+    private EntitySnapshot()
+    {
+    }
+
+    /**
+     * Reads the records of a snapshot file.
+     *
+     * @param file         The file.
+     * @param oldestMillis Records for entities fetched before this time are skipped.
+     * @return Vector of {@link Record}s.
+     * @exception IOException
+     *                   Thrown if the file cannot be read, or is not a
+     *                   snapshot of this version, or its checksum does not match.
+     */
+    static Vector read(File file, long oldestMillis) throws IOException
+    {
+        long size = file.length();
+        if (size < HEADER_LENGTH)
+        {
+            throw new IOException("Not an entity snapshot: " + file);
+        }
+        InputStream stream = new BufferedInputStream(new FileInputStream(file), 64 * 1024);
+        try
+        {
+            byte[] header = new byte[HEADER_LENGTH];
+            new DataInputStream(stream).readFully(header);
+            ByteBuffer fields = ByteBuffer.wrap(header);
+            if (fields.getInt() != MAGIC)
+            {
+                throw new IOException("Not an entity snapshot: " + file);
+            }
+            short version = fields.getShort();
+            if (version != VERSION)
+            {
+                throw new IOException("Unsupported entity snapshot version " + version + ": " + file);
+            }
+            fields.getShort();
+            fields.getLong();
+            int count = fields.getInt();
+            long checksum = fields.getLong();
+            long remaining = size - HEADER_LENGTH;
+            if (count < 0 || count > remaining / MIN_RECORD_LENGTH)
+            {
+                throw new IOException("Corrupt entity snapshot: " + file);
+            }
+
+            // The records are checked as they are read, and used only if
+            // the checksum over the whole file matches.
+            CRC32 crc = new CRC32();
+            crc.update(header, 0, CHECKED_HEADER_LENGTH);
+            DataInputStream in = new DataInputStream(new CheckedInputStream(stream, crc));
+            Vector records = new Vector(count);
+            try
+            {
+                for (int i = 0; i < count; i++)
+                {
+                    long fetched = in.readLong();
+                    String id = getString(in);
+                    String parent = getString(in);
+                    int length = in.readInt();
+                    if (length < 0 || length > remaining)
+                    {
+                        throw new IOException("Corrupt entity snapshot: " + file);
+                    }
+                    byte[] value = new byte[length];
+                    in.readFully(value);
+                    if (fetched >= oldestMillis)
+                    {
+                        records.addElement(new Record(id, parent.length() == 0 ? null : parent, fetched, value));
+                    }
+                }
+                byte[] rest = new byte[4096];
+                while (in.read(rest) >= 0)
+                {
+                    // Trailing bytes count towards the checksum.
+                }
+            }
+            catch (EOFException e)
+            {
+                // Truncated in a way the header did not show.
+                throw new IOException("Corrupt entity snapshot: " + file);
+            }
+            if (crc.getValue() != checksum)
+            {
+                throw new IOException("Entity snapshot checksum mismatch: " + file);
+            }
+            return records;
+        }
+        finally
+        {
+            stream.close();
+        }
+    }
+
+    /**
+     * Writes records to a snapshot file, replacing it.
+     *
+     * @param file    The file.
+     * @param records Vector of {@link Record}s.
+     * @exception IOException
+     */
+    static void write(File file, Vector records) throws IOException
+    {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(64 * 1024);
+        DataOutputStream out = new DataOutputStream(body);
+        for (int i = 0; i < records.size(); i++)
+        {
+            Record record = (Record) records.elementAt(i);
+            out.writeLong(record.fetched);
+            putString(out, record.id);
+            putString(out, record.parent != null ? record.parent : "");
+            out.writeInt(record.value.length);
+            out.write(record.value);
+        }
+        out.flush();
+        byte[] bytes = body.toByteArray();
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+        header.putInt(MAGIC).putShort(VERSION).putShort((short) 0).putLong(System.currentTimeMillis());
+        header.putInt(records.size());
+        CRC32 crc = new CRC32();
+        crc.update(header.array(), 0, CHECKED_HEADER_LENGTH);
+        crc.update(bytes);
+        header.putLong(crc.getValue());
+
+        File dir = file.getAbsoluteFile().getParentFile();
+        File temp = File.createTempFile(file.getName(), ".tmp", dir);
+        try
+        {
+            OutputStream stream = new BufferedOutputStream(new FileOutputStream(temp));
+            try
+            {
+                stream.write(header.array());
+                stream.write(bytes);
+            }
+            finally
+            {
+                stream.close();
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally
+        {
+            temp.delete();
+        }
+    }
+
+    private static String getString(DataInputStream in) throws IOException
+    {
+        byte[] bytes = new byte[in.readUnsignedShort()];
+        in.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+
+    private static void putString(DataOutputStream out, String s) throws IOException
+    {
+        byte[] bytes = s.getBytes("UTF-8");
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * One cached entity.
+     */
+    static class Record
+    {
+        final String id;
+        final String parent;
+        final long fetched;
+        final byte[] value;
+
+        Record(String id, String parent, long fetched, byte[] value)
+        {
+            this.id = id;
+            this.parent = parent;
+            this.fetched = fetched;
+            this.value = value;
+        }
+    }
+}
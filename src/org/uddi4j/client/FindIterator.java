@@ -0,0 +1,645 @@
+/*
+ * The source code contained herein is licensed under the IBM Public License
+ * Version 1.0, which has been approved by the Open Source Initiative.
+ * Copyright (C) 2001, International Business Machines Corporation
+ * All Rights Reserved.
+ *
+ */
+package org.uddi4j.client;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.uddi4j.DocumentBuilderPool;
+import org.uddi4j.UDDIElement;
+import org.uddi4j.UDDIException;
+import org.uddi4j.datatype.Name;
+import org.uddi4j.request.FindBusiness;
+import org.uddi4j.request.FindService;
+import org.uddi4j.request.FindTModel;
+import org.uddi4j.response.BusinessInfo;
+import org.uddi4j.response.BusinessList;
+import org.uddi4j.response.ServiceInfo;
+import org.uddi4j.response.ServiceList;
+import org.uddi4j.response.TModelInfo;
+import org.uddi4j.response.TModelList;
+import org.uddi4j.transport.TransportException;
+import org.uddi4j.util.FindQualifier;
+import org.uddi4j.util.FindQualifiers;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Iterates over all results of a find_business, find_service or find_tModel
+ * request, including those a registry leaves out of a truncated result.<P>
+ *
+ * UDDI version 2 has no way to ask for the rest of a truncated result.
+ * When a result is truncated, the query is therefore partitioned by name:
+ * a query for names starting with "ab" is replaced by queries for names
+ * starting with "aba", "abb" and so on, each with the other criteria of the
+ * original request, such as its categoryBag, until no result is truncated.
+ * The characters a name is extended with are those of the
+ * org.uddi4j.find.partitionChars property, by default lower case letters,
+ * digits and common punctuation; names continuing with other characters
+ * are only found if they fit in the truncated result. Names equal to a
+ * prefix are queried with exactNameMatch. Results found by more than one
+ * query are returned once.<P>
+ *
+ * Requests are sent with the sortByNameAsc qualifier unless the request
+ * has another sort qualifier. For find_tModel, whose results have a single
+ * name, the names up to the last one of a truncated result sorted this
+ * way are known to be complete, and the queries for them are skipped.<P>
+ *
+ * Results are read one query at a time: while the results of one query
+ * are being consumed, the next query is sent on the executor of the
+ * proxy. Only the keys of returned results are kept for the whole walk.
+ * If a query fails, hasNext and next throw a {@link FindFailedException}.
+ * A FindIterator is not thread safe.
+ */
+public class FindIterator<T> implements Iterator<T>
+{
+    public static final String DEFAULT_PARTITION_CHARS = "abcdefghijklmnopqrstuvwxyz0123456789 -_.,&'()@+/";
+    public static final int MAX_PREFIX_LENGTH = 32;
+
+    /**
+     * Thrown by hasNext and next when a query fails.
+     */
+    public static class FindFailedException extends RuntimeException
+    {
+        private static final long serialVersionUID = 1L;
+
+        FindFailedException(Exception cause)
+        {
+            super(cause.getMessage(), cause);
+        }
+    }
+
+    private final UDDIProxy proxy;
+    private final UDDIElement request;
+    private final Class listClass;
+    private final boolean cached;
+    private final String partitionChars;
+    private final boolean exact;
+    private final boolean defaultSort;
+    private final boolean sortedByName;
+
+    private final LinkedList<Partition> pending = new LinkedList<Partition>();
+    private final HashSet<String> seen = new HashSet<String>();
+    private Vector page = null;
+    private int index = 0;
+    private T next = null;
+    private Partition prefetched = null;
+    private CompletableFuture<UDDIElement> prefetch = null;
+    private boolean complete = true;
+
+    private final AtomicLong requests = new AtomicLong();
+
+    /**
+     * Construct an iterator. No request is sent until the first call of hasNext or next.
+     *
+     * @param proxy     Proxy used to send the queries.
+     * @param request   A FindBusiness, FindService or FindTModel request.
+     * @param listClass BusinessList, ServiceList or TModelList, according to the request.
+     */
+    FindIterator(UDDIProxy proxy, UDDIElement request, Class listClass)
+    {
+        this(proxy, request, listClass, true);
+    }
+
+    /**
+     * Construct an iterator whose queries may bypass the response cache.
+     *
+     * @param cached False to send every query to the registry.
+     */
+    FindIterator(UDDIProxy proxy, UDDIElement request, Class listClass, boolean cached)
+    {
+        this.proxy = proxy;
+        this.request = request;
+        this.listClass = listClass;
+        this.cached = cached;
+
+        boolean exact = false;
+        boolean caseSensitive = false;
+        boolean sorted = false;
+        boolean byName = true;
+        FindQualifiers qualifiers = getQualifiers(request);
+        for (int i = 0; qualifiers != null && qualifiers.getFindQualifierVector() != null && i < qualifiers.size(); i++)
+        {
+            String qualifier = qualifiers.get(i).getText();
+            exact |= FindQualifier.exactNameMatch.equals(qualifier);
+            caseSensitive |= FindQualifier.caseSensitiveMatch.equals(qualifier);
+            if (FindQualifier.sortByNameDesc.equals(qualifier) || FindQualifier.sortByDateAsc.equals(qualifier)
+                    || FindQualifier.sortByDateDesc.equals(qualifier))
+            {
+                sorted = true;
+                byName = false;
+            }
+            sorted |= FindQualifier.sortByNameAsc.equals(qualifier);
+        }
+        this.exact = exact;
+        this.defaultSort = !sorted;
+        this.sortedByName = byName;
+
+        String chars = proxy.getConfiguration() != null ? proxy.getConfiguration().getProperty(UDDIProxy.FIND_PARTITION_CHARS_PROPERTY) : null;
+        chars = chars != null && chars.length() > 0 ? chars : DEFAULT_PARTITION_CHARS;
+        this.partitionChars = caseSensitive ? chars + chars.toUpperCase() : chars.toLowerCase();
+
+        Vector names = getNames(request);
+        if (names.isEmpty())
+        {
+            pending.add(new Partition(null, null));
+        }
+        for (int i = 0; i < names.size(); i++)
+        {
+            Name name = (Name) names.elementAt(i);
+            pending.add(new Partition(name.getText(), name.getLang()));
+        }
+    }
+
+    /**
+     * Number of queries sent so far.
+     */
+    public long getRequestCount()
+    {
+        return requests.get();
+    }
+
+    /**
+     * Tells whether all results were returned. False if a truncated
+     * result could not be partitioned further, because the request uses
+     * exactNameMatch, more results than fit in one result have the same
+     * name, the names became too long, or names continue with characters
+     * that are not partition characters.
+     */
+    public boolean isComplete()
+    {
+        return complete;
+    }
+
+    /**
+     * Returns a sequential stream of the remaining results.
+     */
+    public Stream<T> stream()
+    {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+    }
+
+    public boolean hasNext()
+    {
+        while (next == null)
+        {
+            if (page != null && index < page.size())
+            {
+                Object info = page.elementAt(index++);
+                if (seen.add(DetailKind.normalize(getKey(info))))
+                {
+                    next = (T) info;
+                }
+            }
+            else if (pending.isEmpty())
+            {
+                return false;
+            }
+            else
+            {
+                page = load();
+                index = 0;
+            }
+        }
+        return true;
+    }
+
+    public T next()
+    {
+        if (!hasNext())
+        {
+            throw new NoSuchElementException();
+        }
+        T result = next;
+        next = null;
+        return result;
+    }
+
+    /**
+     * Sends, or takes the prefetched result of, the next query, adds the
+     * queries partitioning it if it is truncated and starts the query
+     * after it.
+     */
+    private Vector load()
+    {
+        Partition partition = pending.removeFirst();
+        UDDIElement list;
+        try
+        {
+            list = prefetched == partition ? await(prefetch) : fetch(partition);
+        }
+        catch (UDDIException e)
+        {
+            throw new FindFailedException(e);
+        }
+        catch (TransportException e)
+        {
+            throw new FindFailedException(e);
+        }
+        finally
+        {
+            prefetch = null;
+            prefetched = null;
+        }
+        Vector infos = getInfos(list);
+        if (isTruncated(list))
+        {
+            partition(partition, infos);
+        }
+        if (!pending.isEmpty())
+        {
+            startPrefetch(pending.getFirst());
+        }
+        return infos;
+    }
+
+    private void partition(Partition partition, Vector infos)
+    {
+        String base = partition.prefix != null ? partition.prefix : "";
+        if (exact || partition.exact || base.length() >= MAX_PREFIX_LENGTH)
+        {
+            complete = false;
+            return;
+        }
+        char boundary = 0;
+        boolean equalsComplete = false;
+        if (sortedByName && request instanceof FindTModel && base.indexOf('%') < 0 && !infos.isEmpty())
+        {
+            String last = getName(infos.lastElement());
+            if (last != null && last.trim().length() > base.length())
+            {
+                boundary = Character.toLowerCase(last.charAt(base.length()));
+                equalsComplete = true;
+            }
+        }
+        if (base.indexOf('%') < 0)
+        {
+            for (int i = 0; i < infos.size() && complete; i++)
+            {
+                Vector names = getInfoNames(infos.elementAt(i));
+                for (int j = 0; j < names.size(); j++)
+                {
+                    // Names continuing with such a character beyond this result are not found.
+                    String name = (String) names.elementAt(j);
+                    char c = name.regionMatches(true, 0, base, 0, base.length()) ? nextChar(name, base.length()) : 0;
+                    if (c != 0 && Character.toLowerCase(c) >= boundary && !isPartitionChar(c))
+                    {
+                        complete = false;
+                    }
+                }
+            }
+        }
+        Vector children = new Vector();
+        if (base.length() > 0 && base.indexOf('%') < 0 && !equalsComplete)
+        {
+            // Names equal to the prefix match none of the longer prefixes.
+            children.addElement(new Partition(base, partition.lang, true));
+        }
+        for (int i = 0; i < partitionChars.length(); i++)
+        {
+            char c = partitionChars.charAt(i);
+            if (!Character.isWhitespace(c))
+            {
+                if (Character.toLowerCase(c) >= boundary)
+                {
+                    children.addElement(new Partition(base + c, partition.lang));
+                }
+            }
+            else if (base.length() > 0 && boundary <= c && base.length() + 1 < MAX_PREFIX_LENGTH)
+            {
+                // Registries trim names, so a space is followed by another character.
+                for (int j = 0; j < partitionChars.length(); j++)
+                {
+                    char d = partitionChars.charAt(j);
+                    if (!Character.isWhitespace(d))
+                    {
+                        children.addElement(new Partition(base + c + d, partition.lang));
+                    }
+                }
+            }
+        }
+        for (int i = children.size() - 1; i >= 0; i--)
+        {
+            pending.addFirst((Partition) children.elementAt(i));
+        }
+    }
+
+    /**
+     * Returns the character of a name that follows a prefix of the given
+     * length, skipping a space as partitioning does, or 0 if there is none.
+     */
+    private char nextChar(String name, int length)
+    {
+        name = name != null ? name.trim() : null;
+        if (name == null || name.length() <= length)
+        {
+            return 0;
+        }
+        char c = name.charAt(length);
+        if (Character.isWhitespace(c) && isPartitionChar(c) && length > 0)
+        {
+            c = name.charAt(length + 1);
+        }
+        return c;
+    }
+
+    private boolean isPartitionChar(char c)
+    {
+        return partitionChars.indexOf(c) >= 0 || partitionChars.indexOf(Character.toLowerCase(c)) >= 0;
+    }
+
+    private void startPrefetch(final Partition partition)
+    {
+        final CompletableFuture<UDDIElement> future = new CompletableFuture<UDDIElement>();
+        try
+        {
+            proxy.getExecutor().execute(new Runnable()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        future.complete(fetch(partition));
+                    }
+                    catch (Exception e)
+                    {
+                        future.completeExceptionally(e);
+                    }
+                }
+            });
+        }
+        catch (RuntimeException e)
+        {
+            // Executor unavailable; the query is sent when needed.
+            return;
+        }
+        prefetch = future;
+        prefetched = partition;
+    }
+
+    private UDDIElement fetch(Partition partition) throws UDDIException, TransportException
+    {
+        requests.incrementAndGet();
+        UDDIElement query = query(partition);
+        return cached ? proxy.send(query, true, listClass) : proxy.sendUncached(query, true, listClass);
+    }
+
+    /**
+     * Builds the query of a partition: a copy of the request with the
+     * partition's name and, unless the request is sorted, sortByNameAsc.
+     */
+    private UDDIElement query(Partition partition) throws UDDIException, TransportException
+    {
+        UDDIElement query;
+        try
+        {
+            Document doc = DocumentBuilderPool.getInstance().newDocument();
+            Element parent = doc.createElementNS(UDDIElement.XMLNS, "parent");
+            doc.appendChild(parent);
+            request.saveToXML(parent);
+            Element el = (Element) parent.getFirstChild();
+            if (request instanceof FindBusiness)
+            {
+                query = new FindBusiness(el);
+            }
+            else if (request instanceof FindService)
+            {
+                query = new FindService(el);
+            }
+            else
+            {
+                query = new FindTModel(el);
+            }
+        }
+        catch (ParserConfigurationException e)
+        {
+            throw new TransportException(e);
+        }
+
+        Name name = partition.prefix != null ? new Name(partition.prefix, partition.lang) : null;
+        Vector names = new Vector();
+        if (name != null)
+        {
+            names.addElement(name);
+        }
+        FindQualifiers qualifiers = getQualifiers(query);
+        if (defaultSort || partition.exact)
+        {
+            qualifiers = qualifiers != null ? qualifiers : new FindQualifiers();
+        }
+        if (defaultSort)
+        {
+            qualifiers.add(new FindQualifier(FindQualifier.sortByNameAsc));
+        }
+        if (partition.exact)
+        {
+            qualifiers.add(new FindQualifier(FindQualifier.exactNameMatch));
+        }
+        if (query instanceof FindBusiness)
+        {
+            ((FindBusiness) query).setNameVector(names);
+            ((FindBusiness) query).setFindQualifiers(qualifiers);
+        }
+        else if (query instanceof FindService)
+        {
+            ((FindService) query).setNameVector(names);
+            ((FindService) query).setFindQualifiers(qualifiers);
+        }
+        else
+        {
+            ((FindTModel) query).setName(name);
+            ((FindTModel) query).setFindQualifiers(qualifiers);
+        }
+        return query;
+    }
+
+    private static UDDIElement await(CompletableFuture<UDDIElement> future) throws UDDIException, TransportException
+    {
+        try
+        {
+            return future.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new TransportException(e);
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof UDDIException)
+            {
+                throw (UDDIException) cause;
+            }
+            if (cause instanceof TransportException)
+            {
+                throw (TransportException) cause;
+            }
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+            throw new TransportException(e);
+        }
+    }
+
+    private static FindQualifiers getQualifiers(UDDIElement request)
+    {
+        if (request instanceof FindBusiness)
+        {
+            return ((FindBusiness) request).getFindQualifiers();
+        }
+        if (request instanceof FindService)
+        {
+            return ((FindService) request).getFindQualifiers();
+        }
+        return ((FindTModel) request).getFindQualifiers();
+    }
+
+    private static Vector getNames(UDDIElement request)
+    {
+        Vector names = new Vector();
+        Vector given = null;
+        if (request instanceof FindBusiness)
+        {
+            given = ((FindBusiness) request).getNameVector();
+        }
+        else if (request instanceof FindService)
+        {
+            given = ((FindService) request).getNameVector();
+        }
+        else if (((FindTModel) request).getName() != null)
+        {
+            given = new Vector();
+            given.addElement(((FindTModel) request).getName());
+        }
+        for (int i = 0; given != null && i < given.size(); i++)
+        {
+            Name name = (Name) given.elementAt(i);
+            if (name != null && name.getText() != null)
+            {
+                names.addElement(name);
+            }
+        }
+        return names;
+    }
+
+    private static Vector getInfos(UDDIElement list)
+    {
+        Vector infos = null;
+        if (list instanceof BusinessList && ((BusinessList) list).getBusinessInfos() != null)
+        {
+            infos = ((BusinessList) list).getBusinessInfos().getBusinessInfoVector();
+        }
+        else if (list instanceof ServiceList && ((ServiceList) list).getServiceInfos() != null)
+        {
+            infos = ((ServiceList) list).getServiceInfos().getServiceInfoVector();
+        }
+        else if (list instanceof TModelList && ((TModelList) list).getTModelInfos() != null)
+        {
+            infos = ((TModelList) list).getTModelInfos().getTModelInfoVector();
+        }
+        return infos != null ? infos : new Vector();
+    }
+
+    private static boolean isTruncated(UDDIElement list)
+    {
+        if (list instanceof BusinessList)
+        {
+            return ((BusinessList) list).getTruncatedBoolean();
+        }
+        if (list instanceof ServiceList)
+        {
+            return ((ServiceList) list).getTruncatedBoolean();
+        }
+        return list instanceof TModelList && ((TModelList) list).getTruncatedBoolean();
+    }
+
+    private static String getKey(Object info)
+    {
+        if (info instanceof BusinessInfo)
+        {
+            return ((BusinessInfo) info).getBusinessKey();
+        }
+        if (info instanceof ServiceInfo)
+        {
+            return ((ServiceInfo) info).getServiceKey();
+        }
+        return ((TModelInfo) info).getTModelKey();
+    }
+
+    private static String getName(Object info)
+    {
+        return info instanceof TModelInfo ? ((TModelInfo) info).getNameString() : null;
+    }
+
+    /**
+     * Returns the name Strings of a businessInfo, serviceInfo or tModelInfo.
+     */
+    private static Vector getInfoNames(Object info)
+    {
+        Vector result = new Vector();
+        Vector names = null;
+        if (info instanceof BusinessInfo)
+        {
+            names = ((BusinessInfo) info).getNameVector();
+        }
+        else if (info instanceof ServiceInfo)
+        {
+            names = ((ServiceInfo) info).getNameVector();
+        }
+        else if (info instanceof TModelInfo && ((TModelInfo) info).getName() != null)
+        {
+            names = new Vector();
+            names.addElement(((TModelInfo) info).getName());
+        }
+        for (int i = 0; names != null && i < names.size(); i++)
+        {
+            String text = ((Name) names.elementAt(i)).getText();
+            if (text != null)
+            {
+                result.addElement(text.trim());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * One query: names starting with a prefix, names equal to it, or any name.
+     */
+    private static class Partition
+    {
+        final String prefix;
+        final String lang;
+        final boolean exact;
+
+        Partition(String prefix, String lang)
+        {
+            this(prefix, lang, false);
+        }
+
+        Partition(String prefix, String lang, boolean exact)
+        {
+            this.prefix = prefix;
+            this.lang = lang;
+            this.exact = exact;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * The source code contained herein is licensed under the IBM Public License
+ * Version 1.0, which has been approved by the Open Source Initiative.
+ * Copyright (C) 2001, International Business Machines Corporation
+ * All Rights Reserved.
+ *
+ */
+package org.uddi4j.client;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hedging state and counters of one inquiry operation, for example
+ * find_binding.<P>
+ *
+ * Keeps the response times of the most recent requests, from which the
+ * hedge delay is taken, and the hedge budget. Every request adds the
+ * budget fraction to the balance, and every hedge takes one from it, so
+ * that at most that fraction of the requests is sent twice in the long
+ * run.
+ *
+ * @see UDDIProxy#getHedgeStatistics()
+ */
+public class HedgeStatistics
+{
+    /** Number of response times the delay is computed from. */
+    public static final int SAMPLE_SIZE = 128;
+
+    /** Number of response times needed before requests are hedged. */
+    public static final int MIN_SAMPLES = 20;
+
+    private static final int UPDATE_INTERVAL = 8;
+    private static final double MAX_BALANCE = 10;
+
+    private final String operation;
+    private final double budget;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong wins = new AtomicLong();
+
+    // Guarded by this.
+    private final long[] samples = new long[SAMPLE_SIZE];
+    private int count = 0;
+    private int next = 0;
+    private int sinceUpdate = 0;
+    private long delayNanos = -1;
+    private double balance = 1;
+
+    /**
+     * Construct the statistics of an operation.
+     *
+     * @param operation Name of the operation.
+     * @param budget    Fraction of the requests that may be hedged, between 0 and 1.
+     */
+    HedgeStatistics(String operation, double budget)
+    {
+        this.operation = operation;
+        this.budget = Math.max(0, Math.min(1, budget));
+    }
+
+    public String getOperation()
+    {
+        return operation;
+    }
+
+    /**
+     * Fraction of the requests that may be hedged.
+     */
+    public double getBudget()
+    {
+        return budget;
+    }
+
+    /**
+     * Number of requests of this operation.
+     */
+    public long getRequestCount()
+    {
+        return requests.get();
+    }
+
+    /**
+     * Number of requests for which a second copy was sent.
+     */
+    public long getHedgeCount()
+    {
+        return hedges.get();
+    }
+
+    /**
+     * Number of requests answered by the second copy.
+     */
+    public long getWinCount()
+    {
+        return wins.get();
+    }
+
+    /**
+     * Time after which a second copy of a request is sent, in milliseconds,
+     * or -1 while too few response times are known.
+     */
+    public synchronized double getDelayMillis()
+    {
+        return delayNanos < 0 ? -1 : delayNanos / 1000000.0;
+    }
+
+    /**
+     * Records a request and returns the current hedge delay in nanoseconds,
+     * or -1 if the request should not be hedged.
+     */
+    synchronized long started()
+    {
+        requests.incrementAndGet();
+        if (budget == 0)
+        {
+            return -1;
+        }
+        balance = Math.min(MAX_BALANCE, balance + budget);
+        return delayNanos;
+    }
+
+    /**
+     * Takes one hedge from the budget.
+     *
+     * @return false if the budget is used up.
+     */
+    synchronized boolean tryHedge()
+    {
+        if (balance < 1)
+        {
+            return false;
+        }
+        balance -= 1;
+        hedges.incrementAndGet();
+        return true;
+    }
+
+    void won()
+    {
+        wins.incrementAndGet();
+    }
+
+    /**
+     * Records the response time of a request and updates the delay from
+     * time to time.
+     *
+     * @param nanos        Response time.
+     * @param percentile   Percentile of the response times used as delay.
+     * @param minDelayNanos Lower bound of the delay.
+     */
+    synchronized void sample(long nanos, double percentile, long minDelayNanos)
+    {
+        samples[next] = nanos;
+        next = (next + 1) % SAMPLE_SIZE;
+        if (count < SAMPLE_SIZE)
+        {
+            count++;
+        }
+        if (count >= MIN_SAMPLES && (++sinceUpdate >= UPDATE_INTERVAL || delayNanos < 0))
+        {
+            sinceUpdate = 0;
+            long[] sorted = new long[count];
+            System.arraycopy(samples, 0, sorted, 0, count);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile / 100 * count) - 1;
+            delayNanos = Math.max(minDelayNanos, sorted[Math.max(0, Math.min(count - 1, index))]);
+        }
+    }
+
+    public String toString()
+    {
+        return operation + ": " + getRequestCount() + " requests, " + getHedgeCount() + " hedged, " + getWinCount() + " won by the hedge";
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * The source code contained herein is licensed under the IBM Public License
+ * Version 1.0, which has been approved by the Open Source Initiative.
+ * Copyright (C) 2001, International Business Machines Corporation
+ * All Rights Reserved.
+ *
+ */
+package org.uddi4j.client;
+
+import java.net.URL;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.uddi4j.UDDIException;
+import org.uddi4j.transport.Deadline;
+import org.uddi4j.transport.TransportException;
+import org.w3c.dom.Element;
+
+/**
+ * One attempt at an inquiry request: the endpoint it goes to and the
+ * bookkeeping of the outcome in the endpoint statistics.<P>
+ *
+ * The endpoint is chosen when the attempt is created, so that a second
+ * attempt for the same request can be sent to a different endpoint. An
+ * attempt may run on the calling thread ({@link #run()}) or on an
+ * executor ({@link #call()}), and may be abandoned when another attempt
+ * for the same request has answered.
+ */
+class InquiryAttempt implements Callable<Object>
+{
+    /**
+     * Sends a request to a given URL and returns the response object.
+     */
+    interface Call
+    {
+        Object send(URL url) throws UDDIException, TransportException;
+    }
+
+    private final Call call;
+    private final InquiryEndpointPool pool;
+    private final InquiryEndpoint endpoint;
+    private final URL url;
+    private final long start;
+    private final Deadline deadline;
+    private final AtomicBoolean started = new AtomicBoolean();
+    private volatile boolean abandoned = false;
+
+    /**
+     * Construct an attempt.
+     *
+     * @param call     Sends the request.
+     * @param pool     Inquiry endpoints, or null to use the given URL.
+     * @param url      Inquiry URL used if there is no pool.
+     * @param excluded Endpoint to avoid if possible, or null.
+     */
+    InquiryAttempt(Call call, InquiryEndpointPool pool, URL url, InquiryEndpoint excluded)
+    {
+        this.call = call;
+        this.pool = pool;
+        if (pool != null)
+        {
+            endpoint = pool.acquire(excluded);
+            this.url = endpoint.getURL();
+        }
+        else
+        {
+            endpoint = null;
+            this.url = url;
+        }
+        start = System.nanoTime();
+        deadline = Deadline.current();
+    }
+
+    InquiryEndpoint getEndpoint()
+    {
+        return endpoint;
+    }
+
+    /**
+     * System.nanoTime() when the attempt was created.
+     */
+    long getStart()
+    {
+        return start;
+    }
+
+    /**
+     * Marks the attempt as no longer needed. A failure caused by cancelling
+     * it is then not held against its endpoint.
+     */
+    void abandon()
+    {
+        abandoned = true;
+        if (started.compareAndSet(false, true) && endpoint != null)
+        {
+            // Will never run.
+            endpoint.ended();
+        }
+    }
+
+    public Object call() throws Exception
+    {
+        return run();
+    }
+
+    /**
+     * Sends the request and records the outcome.
+     *
+     * @return The response object.
+     * @exception UDDIException
+     * @exception TransportException
+     */
+    Object run() throws UDDIException, TransportException
+    {
+        if (!started.compareAndSet(false, true))
+        {
+            // Abandoned before it was started.
+            throw new TransportException("Inquiry request abandoned");
+        }
+        // The attempt may run on another thread than the call it belongs to.
+        Deadline previous = Deadline.setCurrent(deadline);
+        try
+        {
+            return send();
+        }
+        finally
+        {
+            Deadline.setCurrent(previous);
+        }
+    }
+
+    private Object send() throws UDDIException, TransportException
+    {
+        if (endpoint == null)
+        {
+            return call.send(url);
+        }
+        Object result;
+        try
+        {
+            result = call.send(url);
+        }
+        catch (UDDIException e)
+        {
+            failed(e);
+            throw e;
+        }
+        catch (TransportException e)
+        {
+            failed(e);
+            throw e;
+        }
+        catch (RuntimeException e)
+        {
+            failed(e);
+            throw e;
+        }
+        if (result instanceof Element)
+        {
+            pool.completed(endpoint, start, (Element) result);
+        }
+        else
+        {
+            pool.completed(endpoint, start, (Throwable) null);
+        }
+        return result;
+    }
+
+    private void failed(Exception e)
+    {
+        if (abandoned)
+        {
+            endpoint.ended();
+        }
+        else
+        {
+            pool.completed(endpoint, start, e);
+        }
+    }
+}
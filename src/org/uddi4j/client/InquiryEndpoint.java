@@ -0,0 +1,186 @@
+/*
+ * The source code contained herein is licensed under the IBM Public License
+ * Version 1.0, which has been approved by the Open Source Initiative.
+ * Copyright (C) 2001, International Business Machines Corporation
+ * All Rights Reserved.
+ *
+ */
+package org.uddi4j.client;
+
+import java.net.URL;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One of the inquiry URLs UDDIProxy spreads inquiry requests over, with the
+ * statistics used to choose between them.<P>
+ *
+ * An endpoint keeps the number of requests currently outstanding, an
+ * exponentially weighted moving average (EWMA) of its response time and
+ * its health. After a configured number of consecutive failures, that is
+ * transport errors or E_busy faults, the endpoint is ejected: it is not
+ * chosen again until the ejection time has passed. Each further ejection
+ * without a success in between lasts longer.
+ *
+ * @see EndpointSelector
+ */
+public class InquiryEndpoint
+{
+    /** Weight of the latest sample in the latency average. */
+    public static final double EWMA_WEIGHT = 0.2;
+
+    private static final int MAX_EJECTION_MULTIPLIER = 10;
+
+    private final URL url;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong ejections = new AtomicLong();
+
+    // Guarded by this.
+    private double latencyNanos = -1;
+    private int consecutiveFailures = 0;
+    private int consecutiveEjections = 0;
+    private long ejectedUntil = 0;
+    private boolean ejected = false;
+
+    /**
+     * Construct an endpoint.
+     *
+     * @param url    Inquiry URL.
+     */
+    public InquiryEndpoint(URL url)
+    {
+        this.url = url;
+    }
+
+    public URL getURL()
+    {
+        return url;
+    }
+
+    /**
+     * Number of requests sent to this endpoint that have not completed yet.
+     */
+    public int getOutstanding()
+    {
+        return outstanding.get();
+    }
+
+    /**
+     * Average response time in milliseconds, or -1 if no request to this
+     * endpoint has completed successfully yet.
+     */
+    public synchronized double getLatencyMillis()
+    {
+        return latencyNanos < 0 ? -1 : latencyNanos / 1000000.0;
+    }
+
+    /**
+     * Number of requests sent to this endpoint.
+     */
+    public long getRequestCount()
+    {
+        return requests.get();
+    }
+
+    /**
+     * Number of requests to this endpoint that failed with a transport
+     * error or an E_busy fault.
+     */
+    public long getFailureCount()
+    {
+        return failures.get();
+    }
+
+    /**
+     * Number of times this endpoint was ejected.
+     */
+    public long getEjectionCount()
+    {
+        return ejections.get();
+    }
+
+    /**
+     * Tests whether this endpoint is currently ejected.
+     */
+    public synchronized boolean isEjected()
+    {
+        return isEjected(System.nanoTime());
+    }
+
+    synchronized boolean isEjected(long now)
+    {
+        if (ejected && now - ejectedUntil >= 0)
+        {
+            // The ejection has run out. The endpoint gets requests again,
+            // but one more failure ejects it for longer.
+            ejected = false;
+        }
+        return ejected;
+    }
+
+    /**
+     * Records that a request is being sent to this endpoint.
+     */
+    void start()
+    {
+        outstanding.incrementAndGet();
+        requests.incrementAndGet();
+    }
+
+    /**
+     * Records the successful completion of a request.
+     *
+     * @param nanos  Time the request took.
+     */
+    void succeeded(long nanos)
+    {
+        outstanding.decrementAndGet();
+        synchronized (this)
+        {
+            latencyNanos = latencyNanos < 0 ? nanos : latencyNanos + EWMA_WEIGHT * (nanos - latencyNanos);
+            consecutiveFailures = 0;
+            consecutiveEjections = 0;
+        }
+    }
+
+    /**
+     * Records a failed request, and ejects the endpoint if it has failed
+     * too often in a row.
+     *
+     * @param ejectAfterFailures Number of consecutive failures that eject the endpoint, or 0 to never eject it.
+     * @param ejectNanos         Time the endpoint is ejected for the first time.
+     */
+    void failed(int ejectAfterFailures, long ejectNanos)
+    {
+        outstanding.decrementAndGet();
+        failures.incrementAndGet();
+        synchronized (this)
+        {
+            consecutiveFailures++;
+            if (ejectAfterFailures > 0 && consecutiveFailures >= ejectAfterFailures && !isEjected(System.nanoTime()))
+            {
+                consecutiveFailures = 0;
+                consecutiveEjections = Math.min(consecutiveEjections + 1, MAX_EJECTION_MULTIPLIER);
+                ejectedUntil = System.nanoTime() + ejectNanos * consecutiveEjections;
+                ejected = true;
+                ejections.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Records a request that completed without telling anything about the
+     * health of the endpoint, for example one that was cancelled.
+     */
+    void ended()
+    {
+        outstanding.decrementAndGet();
+    }
+
+    public String toString()
+    {
+        return url.toString();
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * The source code contained herein is licensed under the IBM Public License
+ * Version 1.0, which has been approved by the Open Source Initiative.
+ * Copyright (C) 2001, International Business Machines Corporation
+ * All Rights Reserved.
+ *
+ */
+package org.uddi4j.client;
+
+import java.net.URL;
+import java.util.concurrent.CompletionException;
+
+import org.uddi4j.UDDIElement;
+import org.uddi4j.UDDIException;
+import org.uddi4j.response.DispositionReport;
+import org.uddi4j.transport.TransportException;
+import org.w3c.dom.Element;
+
+/**
+ * The inquiry endpoints of a UDDIProxy together with the selector that
+ * chooses between them.<P>
+ *
+ * Every request sent through the pool is bracketed by {@link #acquire()}
+ * and one of {@link #completed(InquiryEndpoint, long, Throwable)} or
+ * {@link #completed(InquiryEndpoint, long, Element)}, which keep the
+ * statistics of the endpoints up to date and eject failing endpoints.
+ * Ejected endpoints are skipped as long as at least one endpoint is not
+ * ejected; when all are ejected, all are used again.
+ */
+class InquiryEndpointPool
+{
+    static final int DEFAULT_EJECT_AFTER_FAILURES = 3;
+    static final long DEFAULT_EJECT_MILLIS = 30000;
+
+    private final InquiryEndpoint[] endpoints;
+    private final EndpointSelector selector;
+    private final int ejectAfterFailures;
+    private final long ejectNanos;
+
+    /**
+     * Construct a pool.
+     *
+     * @param urls               Inquiry URLs.
+     * @param selector           Selector choosing between them.
+     * @param ejectAfterFailures Number of consecutive failures that eject an endpoint, or 0 to never eject.
+     * @param ejectMillis        Time an endpoint is ejected for the first time.
+     */
+    InquiryEndpointPool(URL[] urls, EndpointSelector selector, int ejectAfterFailures, long ejectMillis)
+    {
+        endpoints = new InquiryEndpoint[urls.length];
+        for (int i = 0; i < urls.length; i++)
+        {
+            endpoints[i] = new InquiryEndpoint(urls[i]);
+        }
+        this.selector = selector;
+        this.ejectAfterFailures = Math.max(0, ejectAfterFailures);
+        this.ejectNanos = Math.max(0, ejectMillis) * 1000000L;
+    }
+
+    InquiryEndpoint[] getEndpoints()
+    {
+        return endpoints.clone();
+    }
+
+    /**
+     * Chooses an endpoint for a request and records that the request
+     * is in progress.
+     */
+    InquiryEndpoint acquire()
+    {
+        return acquire(null);
+    }
+
+    /**
+     * Chooses an endpoint other than the given one, if there is another
+     * endpoint that is not ejected, and records that the request is in progress.
+     *
+     * @param excluded Endpoint to avoid, or null.
+     */
+    InquiryEndpoint acquire(InquiryEndpoint excluded)
+    {
+        InquiryEndpoint[] candidates = available(excluded);
+        if (candidates.length == 0)
+        {
+            candidates = available(null);
+        }
+        if (candidates.length == 0)
+        {
+            // Everything is ejected. Rather than fail, spread the load over all endpoints.
+            candidates = endpoints;
+        }
+        InquiryEndpoint endpoint = candidates.length == 1 ? candidates[0] : selector.select(candidates);
+        endpoint.start();
+        return endpoint;
+    }
+
+    /**
+     * Tells whether there is an endpoint other than the given one that is
+     * not ejected.
+     */
+    boolean hasAlternative(InquiryEndpoint excluded)
+    {
+        return available(excluded).length > 0;
+    }
+
+    private InquiryEndpoint[] available(InquiryEndpoint excluded)
+    {
+        long now = System.nanoTime();
+        int count = 0;
+        InquiryEndpoint[] result = new InquiryEndpoint[endpoints.length];
+        for (int i = 0; i < endpoints.length; i++)
+        {
+            if (endpoints[i] != excluded && !endpoints[i].isEjected(now))
+            {
+                result[count++] = endpoints[i];
+            }
+        }
+        if (count == result.length)
+        {
+            return result;
+        }
+        InquiryEndpoint[] trimmed = new InquiryEndpoint[count];
+        System.arraycopy(result, 0, trimmed, 0, count);
+        return trimmed;
+    }
+
+    /**
+     * Records the outcome of a request that produced a response object or
+     * failed with an exception.
+     *
+     * @param endpoint Endpoint the request was sent to.
+     * @param start    System.nanoTime() when the request was sent.
+     * @param failure  Exception the request failed with, or null.
+     */
+    void completed(InquiryEndpoint endpoint, long start, Throwable failure)
+    {
+        if (failure instanceof CompletionException && failure.getCause() != null)
+        {
+            failure = failure.getCause();
+        }
+        if (failure instanceof TransportException || (failure instanceof UDDIException && isBusy((UDDIException) failure)))
+        {
+            endpoint.failed(ejectAfterFailures, ejectNanos);
+        }
+        else if (failure == null || failure instanceof UDDIException)
+        {
+            // A UDDI fault other than E_busy is still an answer from a healthy registry.
+            endpoint.succeeded(System.nanoTime() - start);
+        }
+        else
+        {
+            // Cancelled or failed in the client; says nothing about the endpoint.
+            endpoint.ended();
+        }
+    }
+
+    /**
+     * Records the outcome of a request that returned a DOM tree, which may
+     * hold a SOAP fault.
+     *
+     * @param endpoint Endpoint the request was sent to.
+     * @param start    System.nanoTime() when the request was sent.
+     * @param response Content of the SOAP body of the response.
+     */
+    void completed(InquiryEndpoint endpoint, long start, Element response)
+    {
+        if (response != null && UDDIElement.SOAPNS.equals(response.getNamespaceURI()) && "Fault".equals(response.getLocalName()))
+        {
+            completed(endpoint, start, new UDDIException(response, true));
+        }
+        else
+        {
+            completed(endpoint, start, (Throwable) null);
+        }
+    }
+
+    /**
+     * Tests whether a fault is E_busy, the error a registry returns when it
+     * cannot process a request at the moment.
+     */
+    static boolean isBusy(UDDIException e)
+    {
+        return DispositionReport.E_busy.equals(RetryPolicy.getErrCode(e));
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * The source code contained herein is licensed under the IBM Public License
+ * Version 1.0, which has been approved by the Open Source Initiative.
+ * Copyright (C) 2001, International Business Machines Corporation
+ * All Rights Reserved.
+ *
+ */
+package org.uddi4j.client;
+
+import java.net.URL;
+import java.util.Collection;
+import java.util.Hashtable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.uddi4j.UDDIException;
+import org.uddi4j.transport.Deadline;
+import org.uddi4j.transport.TransportException;
+import org.w3c.dom.Element;
+
+/**
+ * Sends hedged inquiry requests.<P>
+ *
+ * A request is sent to one inquiry endpoint. If it has not been answered
+ * after a delay, taken as a percentile of the recent response times of the
+ * same operation, a second copy is sent to another endpoint. The first
+ * answer is used and the other attempt is cancelled. A request is not
+ * hedged if no other endpoint is available, as with a single inquiry URL
+ * or when the others are ejected, since a copy sent to the same endpoint
+ * would only add to the load of a registry that is already slow. A
+ * failed attempt is only reported once the other attempt has failed too.
+ * Each operation has a budget limiting the fraction of its requests that
+ * are hedged, so that a slow registry does not receive twice the load.<P>
+ *
+ * Inquiry requests have no side effects, which is what makes sending them
+ * twice safe. Publish requests are never hedged.
+ */
+class InquiryHedger
+{
+    static final double DEFAULT_BUDGET_PERCENT = 5;
+    static final long DEFAULT_MIN_DELAY_MILLIS = 5;
+
+    private static final ConcurrentHashMap<Class<?>, String> operationNames = new ConcurrentHashMap<Class<?>, String>();
+
+    private final double percentile;
+    private final long minDelayNanos;
+    private final double budget;
+    private final Hashtable budgets;
+    private final ConcurrentHashMap<String, HedgeStatistics> statistics = new ConcurrentHashMap<String, HedgeStatistics>();
+
+    /**
+     * Construct a hedger.
+     *
+     * @param percentile     Percentile of the response times after which a request is hedged.
+     * @param minDelayMillis Lower bound of the hedge delay.
+     * @param budgetPercent  Percentage of the requests of an operation that may be hedged.
+     * @param budgets        Budgets of single operations, as "operation=percent" pairs separated
+     *                       by commas or white space, or null.
+     */
+    InquiryHedger(double percentile, long minDelayMillis, double budgetPercent, String budgets)
+    {
+        this.percentile = Math.max(0, Math.min(100, percentile));
+        this.minDelayNanos = Math.max(0, minDelayMillis) * 1000000L;
+        this.budget = budgetPercent / 100;
+        this.budgets = new Hashtable();
+        if (budgets != null && budgets.trim().length() > 0)
+        {
+            String[] pairs = budgets.trim().split("[,\\s]+");
+            for (int i = 0; i < pairs.length; i++)
+            {
+                int eq = pairs[i].indexOf('=');
+                if (eq > 0)
+                {
+                    try
+                    {
+                        this.budgets.put(pairs[i].substring(0, eq), Double.valueOf(Double.parseDouble(pairs[i].substring(eq + 1)) / 100));
+                    }
+                    catch (NumberFormatException e)
+                    {
+                        // Ignore the entry; the default budget applies.
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the statistics of all operations sent so far.
+     */
+    HedgeStatistics[] getStatistics()
+    {
+        Collection values = statistics.values();
+        return (HedgeStatistics[]) values.toArray(new HedgeStatistics[values.size()]);
+    }
+
+    private HedgeStatistics getStatistics(String operation)
+    {
+        HedgeStatistics result = statistics.get(operation);
+        if (result == null)
+        {
+            Double operationBudget = (Double) budgets.get(operation);
+            HedgeStatistics created = new HedgeStatistics(operation, operationBudget != null ? operationBudget.doubleValue() : budget);
+            result = statistics.putIfAbsent(operation, created);
+            if (result == null)
+            {
+                result = created;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Sends an inquiry request, hedging it if it is slow.
+     *
+     * @param request  UDDIElement or DOM element of the request, used to find the operation name.
+     * @param call     Sends the request.
+     * @param pool     Inquiry endpoints, or null to use the given URL.
+     * @param url      Inquiry URL used if there is no pool.
+     * @param executor Executor the attempts run on.
+     * @return The response object of the first attempt that answered.
+     * @exception UDDIException
+     * @exception TransportException
+     */
+    Object send(Object request, InquiryAttempt.Call call, InquiryEndpointPool pool, URL url, Executor executor)
+        throws UDDIException, TransportException
+    {
+        HedgeStatistics stats = getStatistics(getOperationName(request));
+        long delay = stats.started();
+        InquiryAttempt first = new InquiryAttempt(call, pool, url, null);
+        if (delay < 0 || pool == null || !pool.hasAlternative(first.getEndpoint()))
+        {
+            // Nothing to hedge with yet, or nowhere to send a copy; send it on this thread.
+            Object result = first.run();
+            stats.sample(System.nanoTime() - first.getStart(), percentile, minDelayNanos);
+            return result;
+        }
+
+        ExecutorCompletionService<Object> service = new ExecutorCompletionService<Object>(executor);
+        Future<Object> firstFuture = service.submit(first);
+        InquiryAttempt second = null;
+        Future<Object> secondFuture = null;
+        Deadline deadline = Deadline.current();
+        try
+        {
+            Future<Object> done = service.poll(deadline != null ? Math.min(delay, deadline.remainingNanos()) : delay, TimeUnit.NANOSECONDS);
+            if (done == null && (deadline == null || !deadline.isExpired()) && pool.hasAlternative(first.getEndpoint()) && stats.tryHedge())
+            {
+                second = new InquiryAttempt(call, pool, url, first.getEndpoint());
+                secondFuture = service.submit(second);
+            }
+            int pending = secondFuture == null ? 1 : 2;
+            if (done == null)
+            {
+                done = take(service, deadline);
+            }
+            while (true)
+            {
+                pending--;
+                try
+                {
+                    Object result = done.get();
+                    if (done == secondFuture)
+                    {
+                        stats.won();
+                    }
+                    stats.sample(System.nanoTime() - first.getStart(), percentile, minDelayNanos);
+                    return result;
+                }
+                catch (ExecutionException e)
+                {
+                    if (pending == 0)
+                    {
+                        throw unwrap(e.getCause());
+                    }
+                }
+                done = take(service, deadline);
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new TransportException(e);
+        }
+        finally
+        {
+            cancel(first, firstFuture);
+            cancel(second, secondFuture);
+        }
+    }
+
+    /**
+     * Waits for the next attempt to complete, until the deadline if there is one.
+     */
+    private static Future<Object> take(ExecutorCompletionService<Object> service, Deadline deadline)
+        throws InterruptedException, TransportException
+    {
+        if (deadline == null)
+        {
+            return service.take();
+        }
+        Future<Object> done = service.poll(deadline.remainingNanos(), TimeUnit.NANOSECONDS);
+        if (done == null)
+        {
+            // The attempts still running are cancelled by the caller.
+            throw new TransportException("Deadline expired");
+        }
+        return done;
+    }
+
+    private static void cancel(InquiryAttempt attempt, Future<Object> future)
+    {
+        if (future != null && !future.isDone())
+        {
+            attempt.abandon();
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * Rethrows the exception an attempt failed with, or returns it wrapped
+     * in a TransportException if it is not one the caller can throw.
+     */
+    private static TransportException unwrap(Throwable failure) throws UDDIException, TransportException
+    {
+        if (failure instanceof UDDIException)
+        {
+            throw (UDDIException) failure;
+        }
+        if (failure instanceof TransportException)
+        {
+            throw (TransportException) failure;
+        }
+        if (failure instanceof RuntimeException)
+        {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error)
+        {
+            throw (Error) failure;
+        }
+        return new TransportException((Exception) failure);
+    }
+
+    /**
+     * Returns the UDDI operation name of a request, for example find_binding.
+     *
+     * @param request UDDIElement or DOM element of the request.
+     */
+    static String getOperationName(Object request)
+    {
+        if (request instanceof Element)
+        {
+            Element el = (Element) request;
+            return el.getLocalName() != null ? el.getLocalName() : el.getNodeName();
+        }
+        Class<?> type = request.getClass();
+        String result = operationNames.get(type);
+        if (result == null)
+        {
+            try
+            {
+                result = (String) type.getField("UDDI_TAG").get(null);
+            }
+            catch (Exception e)
+            {
+                result = type.getName();
+            }
+            operationNames.put(type, result);
+        }
+        return result;
+    }
+}
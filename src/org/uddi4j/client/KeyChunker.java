@@ -0,0 +1,456 @@
+/*
+ * The source code contained herein is licensed under the IBM Public License
+ * Version 1.0, which has been approved by the Open Source Initiative.
+ * Copyright (C) 2001, International Business Machines Corporation
+ * All Rights Reserved.
+ *
+ */
+package org.uddi4j.client;
+
+import java.util.Hashtable;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.uddi4j.UDDIElement;
+import org.uddi4j.UDDIException;
+import org.uddi4j.request.DeleteBinding;
+import org.uddi4j.request.DeleteBusiness;
+import org.uddi4j.request.DeleteService;
+import org.uddi4j.request.DeleteTModel;
+import org.uddi4j.response.DispositionReport;
+import org.uddi4j.response.ErrInfo;
+import org.uddi4j.response.Result;
+import org.uddi4j.transport.Deadline;
+import org.uddi4j.transport.TransportException;
+
+/**
+ * Splits the keys of multi key get_xxDetail and delete_xx calls into
+ * several requests. Used by UDDIProxy when the org.uddi4j.chunk.maxKeys
+ * property is set or org.uddi4j.chunk.adaptive is true.<P>
+ *
+ * Keys are sent at most org.uddi4j.chunk.maxKeys at a time. If adaptive
+ * chunking is enabled and the registry rejects a request with
+ * E_tooManyOptions or E_messageTooLarge, the request is split in halves
+ * and sent again, and the smaller size is used for later calls of the
+ * same operation. With org.uddi4j.chunk.parallelism above 1, that many
+ * chunks are sent at once, the calling thread sending one and the
+ * executor of the proxy the others. All chunks of a call share the
+ * deadline of the call, on whichever thread they are sent.<P>
+ *
+ * The entities returned for the chunks of a get_xxDetail call are merged
+ * into one detail, in the order of the keys. If a chunk fails the call
+ * fails, as it would have without chunking.<P>
+ *
+ * The registry applies a delete_xx request completely or not at all, but
+ * once it is split, some chunks may succeed while others fail. A chunk
+ * failing with E_invalidKeyPassed, E_keyRetired or E_userMismatch is
+ * therefore split until the keys at fault are found, and the others
+ * deleted. Other faults fail the call, as does a call in which no key
+ * could be deleted; otherwise it returns a dispositionReport with a
+ * success result followed by the results of the faults for the rejected
+ * keys, for which {@link DispositionReport#success()} returns false.
+ */
+public class KeyChunker
+{
+    public static final int DEFAULT_PARALLELISM = 1;
+
+    private final UDDIProxy proxy;
+    private final int maxKeys;
+    private final int parallelism;
+    private final boolean adaptive;
+
+    // Sizes learned per operation name.
+    private final ConcurrentHashMap<String, Integer> limits = new ConcurrentHashMap<String, Integer>();
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong splits = new AtomicLong();
+
+    /**
+     * Construct a chunker.
+     *
+     * @param proxy       Proxy used to send the requests.
+     * @param maxKeys     Maximum number of keys per request, or 0 for no fixed limit.
+     * @param parallelism Maximum number of requests sent at once for one call.
+     * @param adaptive    Whether requests the registry finds too large are split.
+     */
+    KeyChunker(UDDIProxy proxy, int maxKeys, int parallelism, boolean adaptive)
+    {
+        this.proxy = proxy;
+        this.maxKeys = Math.max(0, maxKeys);
+        this.parallelism = Math.max(1, parallelism);
+        this.adaptive = adaptive;
+    }
+
+    /**
+     * Number of requests sent, including requests that failed and were split.
+     */
+    public long getRequestCount()
+    {
+        return requests.get();
+    }
+
+    /**
+     * Number of requests split because the registry found them too large.
+     */
+    public long getSplitCount()
+    {
+        return splits.get();
+    }
+
+    /**
+     * Returns the number of keys currently sent per request for an operation.
+     *
+     * @param operation Name of the operation, for example "get_businessDetail" or "delete_tModel".
+     * @return The number of keys, or 0 if there is no limit.
+     */
+    public int getLimit(String operation)
+    {
+        Integer limit = limits.get(operation);
+        return limit != null ? limit.intValue() : maxKeys;
+    }
+
+    /**
+     * Tests whether a fault says that a request has too many keys or is too large.
+     */
+    static boolean isTooLarge(UDDIException e)
+    {
+        String errCode = RetryPolicy.getErrCode(e);
+        return DispositionReport.E_tooManyOptions.equals(errCode) || DispositionReport.E_messageTooLarge.equals(errCode);
+    }
+
+    /**
+     * Sends a get_xxDetail call in chunks.
+     *
+     * @param kind   Kind of the entities.
+     * @param keys   Vector of key Strings.
+     * @return A detail of the given kind holding the entities of all chunks.
+     * @exception UDDIException
+     * @exception TransportException
+     */
+    UDDIElement get(final DetailKind kind, Vector keys) throws UDDIException, TransportException
+    {
+        final Vector details = new Vector();
+        run("get_" + kind + "Detail", keys, new Chunk()
+        {
+            public void send(Vector chunk) throws UDDIException, TransportException
+            {
+                details.addElement(kind.fetch(proxy, chunk));
+            }
+        });
+        if (details.size() == 1)
+        {
+            return (UDDIElement) details.elementAt(0);
+        }
+        String operator = null;
+        Hashtable byKey = new Hashtable();
+        for (int d = 0; d < details.size(); d++)
+        {
+            UDDIElement detail = (UDDIElement) details.elementAt(d);
+            Vector entities = kind.getEntities(detail);
+            for (int i = 0; entities != null && i < entities.size(); i++)
+            {
+                byKey.put(DetailKind.normalize(kind.getKey(entities.elementAt(i))), entities.elementAt(i));
+            }
+            operator = operator != null ? operator : kind.getOperator(detail);
+        }
+        //Keep the order of the keys, as the registry does.
+        Vector result = new Vector();
+        for (int i = 0; keys != null && i < keys.size(); i++)
+        {
+            Object entity = byKey.remove(DetailKind.normalize((String) keys.elementAt(i)));
+            if (entity != null)
+            {
+                result.addElement(entity);
+            }
+        }
+        return kind.newDetail(operator, result);
+    }
+
+    /**
+     * Sends a delete_xx call in chunks.
+     *
+     * @param kind     Kind of the entities.
+     * @param authInfo Authentication token.
+     * @param keys     Vector of key Strings.
+     * @return The dispositionReport of the registry, or one merged from
+     *         the results of all chunks.
+     * @exception UDDIException
+     *                   Thrown if no key could be deleted.
+     * @exception TransportException
+     */
+    DispositionReport delete(final DetailKind kind, final String authInfo, Vector keys) throws UDDIException, TransportException
+    {
+        final String operation = "delete_" + kind;
+        final Vector reports = new Vector();
+        final Vector faults = new Vector();
+        run(operation, keys, new Chunk()
+        {
+            public void send(Vector chunk) throws UDDIException, TransportException
+            {
+                try
+                {
+                    reports.addElement(new DispositionReport(proxy.send(newDelete(kind, authInfo, chunk), false)));
+                }
+                catch (UDDIException e)
+                {
+                    if (!isKeyFault(e))
+                    {
+                        // Too large chunks are split by sendChunk; other faults fail the call.
+                        throw e;
+                    }
+                    if (chunk.size() == 1)
+                    {
+                        faults.addElement(e);
+                        return;
+                    }
+                    int half = chunk.size() / 2;
+                    sendChunk(operation, new Vector(chunk.subList(0, half)), this);
+                    sendChunk(operation, new Vector(chunk.subList(half, chunk.size())), this);
+                }
+            }
+        });
+        if (reports.isEmpty() && !faults.isEmpty())
+        {
+            throw (UDDIException) faults.elementAt(0);
+        }
+        if (reports.size() == 1 && faults.isEmpty())
+        {
+            return (DispositionReport) reports.elementAt(0);
+        }
+        DispositionReport first = (DispositionReport) reports.elementAt(0);
+        DispositionReport merged = new DispositionReport();
+        merged.setGeneric(first.getGeneric());
+        merged.setOperator(first.getOperator());
+        Vector results = new Vector();
+        Result success = new Result("0");
+        success.setErrInfo(new ErrInfo("", DispositionReport.E_success));
+        results.addElement(success);
+        for (int i = 0; i < faults.size(); i++)
+        {
+            UDDIException e = (UDDIException) faults.elementAt(i);
+            DispositionReport report = e.getDispositionReport();
+            if (report != null && report.getResultVector() != null && !report.getResultVector().isEmpty())
+            {
+                results.addAll(report.getResultVector());
+            }
+            else
+            {
+                Result result = new Result("10500");
+                result.setErrInfo(new ErrInfo(e.getFaultString(), DispositionReport.E_fatalError));
+                results.addElement(result);
+            }
+        }
+        merged.setResultVector(results);
+        return merged;
+    }
+
+    /**
+     * Sends the chunks of a call under the deadline of the call, so that
+     * the chunks together take no longer than the call could.
+     */
+    private void run(String operation, Vector keys, Chunk chunk) throws UDDIException, TransportException
+    {
+        Deadline deadline = proxy.newDeadline();
+        Deadline previous = Deadline.setCurrent(deadline);
+        try
+        {
+            run(operation, split(keys, getLimit(operation)), chunk, deadline);
+        }
+        finally
+        {
+            Deadline.setCurrent(previous);
+        }
+    }
+
+    /**
+     * Sends the chunks of a call, one after the other or in parallel.
+     *
+     * @param deadline Deadline of the call, or null. Installed in the
+     *                 threads of the executor sending chunks.
+     */
+    private void run(final String operation, final Vector chunks, final Chunk chunk, final Deadline deadline)
+            throws UDDIException, TransportException
+    {
+        if (parallelism == 1 || chunks.size() == 1)
+        {
+            for (int i = 0; i < chunks.size(); i++)
+            {
+                sendChunk(operation, (Vector) chunks.elementAt(i), chunk);
+            }
+            return;
+        }
+
+        final AtomicInteger next = new AtomicInteger();
+        final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+        int workers = Math.min(parallelism, chunks.size());
+        final CountDownLatch done = new CountDownLatch(workers - 1);
+        Runnable worker = new Runnable()
+        {
+            public void run()
+            {
+                for (int i = next.getAndIncrement(); i < chunks.size() && failure.get() == null; i = next.getAndIncrement())
+                {
+                    try
+                    {
+                        sendChunk(operation, (Vector) chunks.elementAt(i), chunk);
+                    }
+                    catch (Exception e)
+                    {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            }
+        };
+        for (int i = 1; i < workers; i++)
+        {
+            final Runnable task = worker;
+            proxy.getExecutor().execute(new Runnable()
+            {
+                public void run()
+                {
+                    Deadline previous = Deadline.setCurrent(deadline);
+                    try
+                    {
+                        task.run();
+                    }
+                    finally
+                    {
+                        Deadline.setCurrent(previous);
+                        done.countDown();
+                    }
+                }
+            });
+        }
+        worker.run();
+        try
+        {
+            if (deadline == null)
+            {
+                done.await();
+            }
+            else if (!done.await(deadline.remainingNanos(), TimeUnit.NANOSECONDS))
+            {
+                // Chunks still being sent fail on their own; no new ones are started.
+                failure.compareAndSet(null, new TransportException("Deadline expired"));
+                throw new TransportException("Deadline expired");
+            }
+        }
+        catch (InterruptedException e)
+        {
+            failure.compareAndSet(null, e);
+            Thread.currentThread().interrupt();
+            throw new TransportException(e);
+        }
+        Exception e = failure.get();
+        if (e instanceof UDDIException)
+        {
+            throw (UDDIException) e;
+        }
+        if (e instanceof TransportException)
+        {
+            throw (TransportException) e;
+        }
+        if (e instanceof RuntimeException)
+        {
+            throw (RuntimeException) e;
+        }
+    }
+
+    /**
+     * Sends one chunk, splitting it in halves if the registry finds it too
+     * large and adaptive chunking is enabled.
+     */
+    private void sendChunk(String operation, Vector keys, Chunk chunk) throws UDDIException, TransportException
+    {
+        requests.incrementAndGet();
+        try
+        {
+            chunk.send(keys);
+        }
+        catch (UDDIException e)
+        {
+            if (!adaptive || keys.size() == 1 || !isTooLarge(e))
+            {
+                throw e;
+            }
+            splits.incrementAndGet();
+            int half = keys.size() / 2;
+            shrink(operation, half);
+            sendChunk(operation, new Vector(keys.subList(0, half)), chunk);
+            sendChunk(operation, new Vector(keys.subList(half, keys.size())), chunk);
+        }
+    }
+
+    private synchronized void shrink(String operation, int size)
+    {
+        int current = getLimit(operation);
+        if (current == 0 || size < current)
+        {
+            limits.put(operation, Integer.valueOf(size));
+        }
+    }
+
+    private static Vector split(Vector keys, int size)
+    {
+        Vector chunks = new Vector();
+        if (keys == null || size <= 0 || keys.size() <= size)
+        {
+            chunks.addElement(keys);
+            return chunks;
+        }
+        for (int i = 0; i < keys.size(); i += size)
+        {
+            chunks.addElement(new Vector(keys.subList(i, Math.min(keys.size(), i + size))));
+        }
+        return chunks;
+    }
+
+    private static boolean isKeyFault(UDDIException e)
+    {
+        String errCode = RetryPolicy.getErrCode(e);
+        return DispositionReport.E_invalidKeyPassed.equals(errCode) || DispositionReport.E_keyRetired.equals(errCode)
+                || DispositionReport.E_userMismatch.equals(errCode);
+    }
+
+    private static UDDIElement newDelete(DetailKind kind, String authInfo, Vector keys)
+    {
+        if (kind == DetailKind.BUSINESS)
+        {
+            DeleteBusiness request = new DeleteBusiness();
+            request.setAuthInfo(authInfo);
+            request.setBusinessKeyStrings(keys);
+            return request;
+        }
+        if (kind == DetailKind.SERVICE)
+        {
+            DeleteService request = new DeleteService();
+            request.setAuthInfo(authInfo);
+            request.setServiceKeyStrings(keys);
+            return request;
+        }
+        if (kind == DetailKind.BINDING)
+        {
+            DeleteBinding request = new DeleteBinding();
+            request.setAuthInfo(authInfo);
+            request.setBindingKeyStrings(keys);
+            return request;
+        }
+        DeleteTModel request = new DeleteTModel();
+        request.setAuthInfo(authInfo);
+        request.setTModelKeyStrings(keys);
+        return request;
+    }
+
+    /**
+     * Sends the request for one chunk of keys.
+     */
+    private interface Chunk
+    {
+        void send(Vector keys) throws UDDIException, TransportException;
+    }
+}
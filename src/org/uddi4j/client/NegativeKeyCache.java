@@ -0,0 +1,204 @@
+/*
+ * The source code contained herein is licensed under the IBM Public License
+ * Version 1.0, which has been approved by the Open Source Initiative.
+ * Copyright (C) 2001, International Business Machines Corporation
+ * All Rights Reserved.
+ *
+ */
+package org.uddi4j.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.uddi4j.DocumentBuilderPool;
+import org.uddi4j.UDDIException;
+import org.uddi4j.response.DispositionReport;
+import org.w3c.dom.Node;
+
+/**
+ * Remembers keys the registry reported as invalid or retired, so that
+ * further get_businessDetail, get_serviceDetail, get_bindingDetail and
+ * get_tModelDetail calls for them fail without a request. Used by UDDIProxy
+ * when the org.uddi4j.negativeCache.ttlMillis property is set.<P>
+ *
+ * A key is remembered when a request for it alone fails with
+ * E_invalidKeyPassed or E_keyRetired. The fault the registry sent is kept
+ * and thrown again, as a new UDDIException, by later calls until the time
+ * to live has passed.<P>
+ *
+ * Since one unknown key fails a whole multi key get_xxDetail request, UDDIProxy
+ * splits a request failing this way in halves and sends them separately
+ * until the bad keys are isolated. The call then returns the entities
+ * for the good keys, and fails only if none of its keys are good.
+ * Any save_xx request sent through the same UDDIProxy empties the cache.
+ */
+public class NegativeKeyCache
+{
+    public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+    private static final TransformerFactory transformerFactory = TransformerFactory.newInstance();
+
+    private final long ttlNanos;
+    private final int maxEntries;
+
+    // Guarded by this. Values are serialized SOAP faults.
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+
+    private final AtomicLong hits = new AtomicLong();
+
+    /**
+     * Construct a cache.
+     *
+     * @param ttlMillis  Time a key is remembered for.
+     * @param maxEntries Maximum number of keys remembered.
+     */
+    NegativeKeyCache(long ttlMillis, int maxEntries)
+    {
+        this.ttlNanos = Math.max(0, ttlMillis) * 1000000L;
+        this.maxEntries = Math.max(1, maxEntries);
+    }
+
+    /**
+     * Number of lookups that failed without a request.
+     */
+    public long getHitCount()
+    {
+        return hits.get();
+    }
+
+    /**
+     * Number of keys remembered, including expired keys not removed yet.
+     */
+    public synchronized int getSize()
+    {
+        return entries.size();
+    }
+
+    /**
+     * Tests whether a key is remembered as invalid or retired.
+     *
+     * @param kind   Kind of the entity.
+     * @param key    Key of the entity.
+     */
+    public synchronized boolean contains(DetailKind kind, String key)
+    {
+        Entry entry = entries.get(id(kind, key));
+        return entry != null && System.nanoTime() - entry.expires < 0;
+    }
+
+    /**
+     * Forgets all keys.
+     */
+    public synchronized void clear()
+    {
+        entries.clear();
+    }
+
+    /**
+     * Tests whether a fault says that a key is invalid or retired.
+     */
+    static boolean isNegative(UDDIException e)
+    {
+        String errCode = RetryPolicy.getErrCode(e);
+        return DispositionReport.E_invalidKeyPassed.equals(errCode) || DispositionReport.E_keyRetired.equals(errCode);
+    }
+
+    /**
+     * Returns a new copy of the fault remembered for a key, or null if the
+     * key is not remembered.
+     *
+     * @param kind   Kind of the entity.
+     * @param key    Key of the entity.
+     */
+    UDDIException get(DetailKind kind, String key)
+    {
+        String id = id(kind, key);
+        Entry entry;
+        synchronized (this)
+        {
+            entry = entries.get(id);
+            if (entry != null && System.nanoTime() - entry.expires >= 0)
+            {
+                entries.remove(id);
+                entry = null;
+            }
+        }
+        if (entry == null)
+        {
+            return null;
+        }
+        try
+        {
+            UDDIException result = new UDDIException(DocumentBuilderPool.getInstance().parse(new ByteArrayInputStream(entry.fault)).getDocumentElement(), true);
+            hits.incrementAndGet();
+            return result;
+        }
+        catch (Exception e)
+        {
+            // Not readable; ask the registry again.
+            return null;
+        }
+    }
+
+    /**
+     * Remembers a key the registry reported as invalid or retired.
+     *
+     * @param kind   Kind of the entity.
+     * @param key    Key of the entity.
+     * @param e      The fault returned for a request for this key alone.
+     */
+    void put(DetailKind kind, String key, UDDIException e)
+    {
+        Node fault = e.getDetailElement() != null ? e.getDetailElement().getParentNode() : null;
+        if (fault == null || ttlNanos == 0)
+        {
+            return;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(512);
+        try
+        {
+            Transformer transformer = transformerFactory.newTransformer();
+            transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+            transformer.transform(new DOMSource(fault), new StreamResult(out));
+        }
+        catch (Exception ex)
+        {
+            return;
+        }
+        synchronized (this)
+        {
+            entries.put(id(kind, key), new Entry(out.toByteArray(), System.nanoTime() + ttlNanos));
+            for (Iterator<Entry> i = entries.values().iterator(); entries.size() > maxEntries && i.hasNext();)
+            {
+                i.next();
+                i.remove();
+            }
+        }
+    }
+
+    private static String id(DetailKind kind, String key)
+    {
+        return kind + ":" + DetailKind.normalize(key);
+    }
+
+    private static class Entry
+    {
+        final byte[] fault;
+        final long expires;
+
+        Entry(byte[] fault, long expires)
+        {
+            this.fault = fault;
+            this.expires = expires;
+        }
+    }
+}
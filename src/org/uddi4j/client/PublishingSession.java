@@ -0,0 +1,442 @@
+/*
+ * The source code contained herein is licensed under the IBM Public License
+ * Version 1.0, which has been approved by the Open Source Initiative.
+ * Copyright (C) 2001, International Business Machines Corporation
+ * All Rights Reserved.
+ *
+ */
+package org.uddi4j.client;
+
+import java.util.Vector;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.uddi4j.UDDIException;
+import org.uddi4j.response.AssertionStatusReport;
+import org.uddi4j.response.AuthToken;
+import org.uddi4j.response.BindingDetail;
+import org.uddi4j.response.BusinessDetail;
+import org.uddi4j.response.DispositionReport;
+import org.uddi4j.response.PublisherAssertions;
+import org.uddi4j.response.RegisteredInfo;
+import org.uddi4j.response.ServiceDetail;
+import org.uddi4j.response.TModelDetail;
+import org.uddi4j.transport.TransportException;
+
+/**
+ * Publishes through a UDDIProxy with one authentication token that is
+ * obtained when first needed and shared by all threads using the session.<P>
+ *
+ * The publish methods of this class are those of UDDIProxy without the
+ * authInfo parameter; other publish calls can be made with
+ * {@link #execute(Call)}. If a call fails with E_authTokenExpired or
+ * E_authTokenRequired, the session obtains a new token and makes the call
+ * once more. Only one thread asks for a new token at a time; the others
+ * wait for it and use it.<P>
+ *
+ * If the org.uddi4j.auth.tokenLifetimeMillis property of the proxy is set,
+ * the session also replaces its token before the registry expires it: a
+ * call made when most of the lifetime has passed still uses the current
+ * token, but starts obtaining a new one on the executor of the proxy. A
+ * call made after the lifetime has passed waits for a new token. Replaced
+ * tokens are left to expire, since other threads may still be using them;
+ * {@link #close()} discards the current token.<P>
+ *
+ * For example:
+ * <PRE>
+ *   PublishingSession session = proxy.newPublishingSession(userid, cred);
+ *   try
+ *   {
+ *       session.save_business(businessEntities);
+ *   }
+ *   finally
+ *   {
+ *       session.close();
+ *   }
+ * </PRE>
+ */
+public class PublishingSession
+{
+    /** Part of the token lifetime after which a new token is obtained in the background. */
+    public static final double REFRESH_FRACTION = 0.8;
+
+    /**
+     * A publish call made with the token of a session.
+     */
+    public interface Call
+    {
+        /**
+         * Makes the call.
+         *
+         * @param authInfo Authentication token of the session.
+         * @return The result of the call.
+         * @exception UDDIException
+         * @exception TransportException
+         */
+        Object call(String authInfo) throws UDDIException, TransportException;
+    }
+
+    private final UDDIProxy proxy;
+    private final String userid;
+    private final String cred;
+    private final long lifetimeNanos;
+
+    /**
+     * A token and the time it was obtained.
+     */
+    private static final class Token
+    {
+        final String authInfo;
+        final long obtained;
+
+        Token(String authInfo, long obtained)
+        {
+            this.authInfo = authInfo;
+            this.obtained = obtained;
+        }
+    }
+
+    // Read without locking; replaced only while holding renewLock.
+    private volatile Token token = null;
+    private volatile boolean closed = false;
+
+    // Held while a new token is obtained, so that only one thread asks for it.
+    private final Object renewLock = new Object();
+
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private final AtomicLong authentications = new AtomicLong();
+    private final AtomicLong replays = new AtomicLong();
+
+    /**
+     * Construct a session. No token is obtained until the first call.
+     *
+     * @param proxy  Proxy used to publish.
+     * @param userid User ID passed to get_authToken.
+     * @param cred   Credentials passed to get_authToken.
+     */
+    public PublishingSession(UDDIProxy proxy, String userid, String cred)
+    {
+        this.proxy = proxy;
+        this.userid = userid;
+        this.cred = cred;
+        this.lifetimeNanos = Math.max(0, proxy.getLongProperty(UDDIProxy.AUTH_TOKEN_LIFETIME_PROPERTY, 0)) * 1000000L;
+    }
+
+    /**
+     * Number of tokens obtained, including refreshed tokens.
+     */
+    public long getAuthenticationCount()
+    {
+        return authentications.get();
+    }
+
+    /**
+     * Number of calls made again after their token was rejected.
+     */
+    public long getReplayCount()
+    {
+        return replays.get();
+    }
+
+    /**
+     * Returns the token of the session, obtaining one if there is none or
+     * it has expired.
+     *
+     * @return The authInfo string of the token.
+     * @exception UDDIException
+     * @exception TransportException
+     */
+    public String getAuthInfo() throws UDDIException, TransportException
+    {
+        return getToken().authInfo;
+    }
+
+    private Token getToken() throws UDDIException, TransportException
+    {
+        if (closed)
+        {
+            throw new IllegalStateException("Publishing session closed");
+        }
+        Token current = token;
+        if (current == null)
+        {
+            return renew(null);
+        }
+        long age = System.nanoTime() - current.obtained;
+        if (lifetimeNanos > 0 && age >= lifetimeNanos)
+        {
+            return renew(current);
+        }
+        if (lifetimeNanos > 0 && age >= lifetimeNanos * REFRESH_FRACTION)
+        {
+            refresh(current);
+        }
+        return current;
+    }
+
+    /**
+     * Makes a publish call with the token of the session. If the registry
+     * rejects the token, a new token is obtained and the call is made once more.
+     *
+     * @param call   The call.
+     * @return The result of the call.
+     * @exception UDDIException
+     * @exception TransportException
+     */
+    public Object execute(Call call) throws UDDIException, TransportException
+    {
+        Token used = getToken();
+        try
+        {
+            return call.call(used.authInfo);
+        }
+        catch (UDDIException e)
+        {
+            String errCode = RetryPolicy.getErrCode(e);
+            if (!DispositionReport.E_authTokenExpired.equals(errCode) && !DispositionReport.E_authTokenRequired.equals(errCode))
+            {
+                throw e;
+            }
+            replays.incrementAndGet();
+            return call.call(renew(used).authInfo);
+        }
+    }
+
+    /**
+     * Discards the token of the session. The session cannot be used afterwards.
+     *
+     * @exception UDDIException
+     * @exception TransportException
+     */
+    public void close() throws UDDIException, TransportException
+    {
+        Token current;
+        synchronized (renewLock)
+        {
+            if (closed)
+            {
+                return;
+            }
+            closed = true;
+            current = token;
+            token = null;
+        }
+        if (current != null)
+        {
+            proxy.discard_authToken(current.authInfo);
+        }
+    }
+
+    /**
+     * Obtains a new token unless another thread already replaced the stale
+     * one. Threads still using the current token are not held up. Tokens
+     * are compared as objects, so that a registry handing out the same
+     * authInfo again still counts as a new token.
+     *
+     * @param stale  Token found to be expired or rejected, or null if there was none.
+     */
+    private Token renew(Token stale) throws UDDIException, TransportException
+    {
+        synchronized (renewLock)
+        {
+            if (closed)
+            {
+                throw new IllegalStateException("Publishing session closed");
+            }
+            Token current = token;
+            if (current != null && current != stale
+                    && (lifetimeNanos == 0 || System.nanoTime() - current.obtained < lifetimeNanos))
+            {
+                return current;
+            }
+            AuthToken obtained = proxy.get_authToken(userid, cred);
+            authentications.incrementAndGet();
+            token = new Token(obtained.getAuthInfoString(), System.nanoTime());
+            return token;
+        }
+    }
+
+    /**
+     * Obtains a new token on the executor of the proxy, unless that is
+     * already being done.
+     */
+    private void refresh(final Token stale)
+    {
+        if (!refreshing.compareAndSet(false, true))
+        {
+            return;
+        }
+        proxy.getExecutor().execute(new Runnable()
+        {
+            public void run()
+            {
+                try
+                {
+                    renew(stale);
+                }
+                catch (Exception e)
+                {
+                    // Keep the current token; a later call tries again.
+                }
+                finally
+                {
+                    refreshing.set(false);
+                }
+            }
+        });
+    }
+
+    public DispositionReport add_publisherAssertions(final Vector publisherAssertion) throws UDDIException, TransportException
+    {
+        return (DispositionReport) execute(new Call()
+        {
+            public Object call(String authInfo) throws UDDIException, TransportException
+            {
+                return proxy.add_publisherAssertions(authInfo, publisherAssertion);
+            }
+        });
+    }
+
+    public AssertionStatusReport get_assertionStatusReport(final String completionStatus) throws UDDIException, TransportException
+    {
+        return (AssertionStatusReport) execute(new Call()
+        {
+            public Object call(String authInfo) throws UDDIException, TransportException
+            {
+                return proxy.get_assertionStatusReport(authInfo, completionStatus);
+            }
+        });
+    }
+
+    public PublisherAssertions get_publisherAssertions() throws UDDIException, TransportException
+    {
+        return (PublisherAssertions) execute(new Call()
+        {
+            public Object call(String authInfo) throws UDDIException, TransportException
+            {
+                return proxy.get_publisherAssertions(authInfo);
+            }
+        });
+    }
+
+    public DispositionReport delete_binding(final Vector bindingKeyStrings) throws UDDIException, TransportException
+    {
+        return (DispositionReport) execute(new Call()
+        {
+            public Object call(String authInfo) throws UDDIException, TransportException
+            {
+                return proxy.delete_binding(authInfo, bindingKeyStrings);
+            }
+        });
+    }
+
+    public DispositionReport delete_business(final Vector businessKeyStrings) throws UDDIException, TransportException
+    {
+        return (DispositionReport) execute(new Call()
+        {
+            public Object call(String authInfo) throws UDDIException, TransportException
+            {
+                return proxy.delete_business(authInfo, businessKeyStrings);
+            }
+        });
+    }
+
+    public DispositionReport delete_service(final Vector serviceKeyStrings) throws UDDIException, TransportException
+    {
+        return (DispositionReport) execute(new Call()
+        {
+            public Object call(String authInfo) throws UDDIException, TransportException
+            {
+                return proxy.delete_service(authInfo, serviceKeyStrings);
+            }
+        });
+    }
+
+    public DispositionReport delete_tModel(final Vector tModelKeyStrings) throws UDDIException, TransportException
+    {
+        return (DispositionReport) execute(new Call()
+        {
+            public Object call(String authInfo) throws UDDIException, TransportException
+            {
+                return proxy.delete_tModel(authInfo, tModelKeyStrings);
+            }
+        });
+    }
+
+    public DispositionReport delete_publisherAssertions(final Vector publisherAssertion) throws UDDIException, TransportException
+    {
+        return (DispositionReport) execute(new Call()
+        {
+            public Object call(String authInfo) throws UDDIException, TransportException
+            {
+                return proxy.delete_publisherAssertions(authInfo, publisherAssertion);
+            }
+        });
+    }
+
+    public RegisteredInfo get_registeredInfo() throws UDDIException, TransportException
+    {
+        return (RegisteredInfo) execute(new Call()
+        {
+            public Object call(String authInfo) throws UDDIException, TransportException
+            {
+                return proxy.get_registeredInfo(authInfo);
+            }
+        });
+    }
+
+    public BindingDetail save_binding(final Vector bindingTemplates) throws UDDIException, TransportException
+    {
+        return (BindingDetail) execute(new Call()
+        {
+            public Object call(String authInfo) throws UDDIException, TransportException
+            {
+                return proxy.save_binding(authInfo, bindingTemplates);
+            }
+        });
+    }
+
+    public BusinessDetail save_business(final Vector businessEntities) throws UDDIException, TransportException
+    {
+        return (BusinessDetail) execute(new Call()
+        {
+            public Object call(String authInfo) throws UDDIException, TransportException
+            {
+                return proxy.save_business(authInfo, businessEntities);
+            }
+        });
+    }
+
+    public ServiceDetail save_service(final Vector businessServices) throws UDDIException, TransportException
+    {
+        return (ServiceDetail) execute(new Call()
+        {
+            public Object call(String authInfo) throws UDDIException, TransportException
+            {
+                return proxy.save_service(authInfo, businessServices);
+            }
+        });
+    }
+
+    public TModelDetail save_tModel(final Vector tModels) throws UDDIException, TransportException
+    {
+        return (TModelDetail) execute(new Call()
+        {
+            public Object call(String authInfo) throws UDDIException, TransportException
+            {
+                return proxy.save_tModel(authInfo, tModels);
+            }
+        });
+    }
+
+    public PublisherAssertions set_publisherAssertions(final Vector publisherAssertion) throws UDDIException, TransportException
+    {
+        return (PublisherAssertions) execute(new Call()
+        {
+            public Object call(String authInfo) throws UDDIException, TransportException
+            {
+                return proxy.set_publisherAssertions(authInfo, publisherAssertion);
+            }
+        });
+    }
+}
@@ -0,0 +1,692 @@
+/*
+ * The source code contained herein is licensed under the IBM Public License
+ * Version 1.0, which has been approved by the Open Source Initiative.
+ * Copyright (C) 2001, International Business Machines Corporation
+ * All Rights Reserved.
+ *
+ */
+package org.uddi4j.client;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.uddi4j.UDDIElement;
+import org.uddi4j.UDDIException;
+import org.uddi4j.datatype.binding.BindingTemplate;
+import org.uddi4j.datatype.binding.TModelInstanceInfo;
+import org.uddi4j.datatype.business.BusinessEntity;
+import org.uddi4j.datatype.service.BusinessService;
+import org.uddi4j.datatype.tmodel.TModel;
+import org.uddi4j.request.FindBusiness;
+import org.uddi4j.request.FindTModel;
+import org.uddi4j.response.BusinessInfo;
+import org.uddi4j.response.BusinessList;
+import org.uddi4j.response.DispositionReport;
+import org.uddi4j.response.TModelInfo;
+import org.uddi4j.response.TModelList;
+import org.uddi4j.transport.TransportException;
+import org.uddi4j.util.CategoryBag;
+import org.uddi4j.util.IdentifierBag;
+import org.uddi4j.util.KeyedReference;
+
+/**
+ * Reads the businessEntity and tModel structures of a registry, or of the
+ * businesses and tModels selected by find requests, and passes them to a
+ * {@link Listener} or writes them to a snapshot file.<P>
+ *
+ * The keys found by a find_business request are collected into batches of
+ * org.uddi4j.crawl.batchSize keys, and each batch is read with one
+ * get_businessDetail request. A businessEntity holds its businessServices
+ * and their bindingTemplates in full, so no get_serviceDetail or
+ * get_bindingDetail requests are needed. The tModels referenced by the
+ * businesses, by their services and bindings, and by the tModels read so
+ * far, are read once each with get_tModelDetail requests batched the same
+ * way, together with those found by an optional find_tModel request.<P>
+ *
+ * Detail requests are sent on the executor of the proxy, at most
+ * org.uddi4j.crawl.parallelism at a time, while the find results are
+ * still being read. Find results are read with a {@link FindIterator}, so
+ * results a registry truncates are still found. All requests go to the
+ * registry; the response and entity caches of the proxy are neither used
+ * nor filled. Keys of entities deleted during the crawl are skipped; any
+ * other failure ends the crawl.<P>
+ *
+ * A snapshot file is a gzip compressed XML document: a registrySnapshot
+ * element holding the businessEntity and tModel elements as they appear in
+ * UDDI messages, in the order they were read. It is written as entities
+ * arrive, to a temporary file that replaces the snapshot only once the
+ * crawl has succeeded, and can be read back one entity at a time with
+ * {@link #readSnapshot(File, Listener)}.<P>
+ *
+ * A RegistryCrawler runs one crawl at a time.
+ */
+public class RegistryCrawler
+{
+    public static final int DEFAULT_BATCH_SIZE = 20;
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    static final String SNAPSHOT_TAG = "registrySnapshot";
+
+    /**
+     * Receives the entities read. Calls are made one at a time, from the
+     * threads reading the entities.
+     */
+    public interface Listener
+    {
+        /**
+         * Called for each businessEntity read, with its businessServices
+         * and bindingTemplates.
+         *
+         * @param entity The businessEntity.
+         * @exception IOException Ends the crawl or the reading of the snapshot.
+         */
+        void businessEntity(BusinessEntity entity) throws IOException;
+
+        /**
+         * Called once for each tModel read.
+         *
+         * @param tModel The tModel.
+         * @exception IOException Ends the crawl or the reading of the snapshot.
+         */
+        void tModel(TModel tModel) throws IOException;
+    }
+
+    private final UDDIProxy proxy;
+    private final int batchSize;
+    private final int parallelism;
+    private final Semaphore outstanding;
+    private volatile boolean readReferences = true;
+
+    private final Object listenerLock = new Object();
+    private Listener listener = null;
+    private boolean complete = true;
+    private final Set<String> tModelKeys = ConcurrentHashMap.newKeySet();
+    private final ConcurrentLinkedQueue<String> tModelQueue = new ConcurrentLinkedQueue<String>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+
+    private final AtomicLong businesses = new AtomicLong();
+    private final AtomicLong tModels = new AtomicLong();
+    private final AtomicLong missing = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+
+    /**
+     * Construct a crawler using the org.uddi4j.crawl properties of the proxy.
+     *
+     * @param proxy Proxy used to read the registry.
+     */
+    public RegistryCrawler(UDDIProxy proxy)
+    {
+        this.proxy = proxy;
+        this.batchSize = Math.max(1, proxy.getIntProperty(UDDIProxy.CRAWL_BATCH_SIZE_PROPERTY, DEFAULT_BATCH_SIZE));
+        this.parallelism = Math.max(1, proxy.getIntProperty(UDDIProxy.CRAWL_PARALLELISM_PROPERTY, DEFAULT_PARALLELISM));
+        this.outstanding = new Semaphore(parallelism);
+    }
+
+    /**
+     * Sets whether the tModels referenced by the entities read are read
+     * as well. True by default.
+     */
+    public void setReadReferencedTModels(boolean readReferences)
+    {
+        this.readReferences = readReferences;
+    }
+
+    /**
+     * Number of businessEntity structures read by the last crawl.
+     */
+    public long getBusinessCount()
+    {
+        return businesses.get();
+    }
+
+    /**
+     * Number of tModel structures read by the last crawl.
+     */
+    public long getTModelCount()
+    {
+        return tModels.get();
+    }
+
+    /**
+     * Number of keys skipped by the last crawl because the registry no
+     * longer knew them.
+     */
+    public long getMissingCount()
+    {
+        return missing.get();
+    }
+
+    /**
+     * Number of get_xxDetail requests sent by the last crawl, including
+     * requests that failed. Find requests are not counted.
+     */
+    public long getRequestCount()
+    {
+        return requests.get();
+    }
+
+    /**
+     * Tells whether the last crawl read all selected entities. False if a
+     * find result could not be read completely; see {@link FindIterator#isComplete()}.
+     */
+    public synchronized boolean isComplete()
+    {
+        return complete;
+    }
+
+    /**
+     * Reads the whole registry into a snapshot file.
+     *
+     * @param file The snapshot file, replaced if the crawl succeeds.
+     * @exception UDDIException
+     * @exception TransportException
+     */
+    public void crawl(File file) throws UDDIException, TransportException
+    {
+        crawl(new FindBusiness(), new FindTModel(), file);
+    }
+
+    /**
+     * Reads the selected businesses and tModels into a snapshot file.
+     *
+     * @param businessQuery Selects the businesses read, for example by
+     *                      categoryBag or identifierBag. Its maxRows applies
+     *                      to each find request, not to the crawl.
+     * @param tModelQuery   Selects tModels read in addition to those the
+     *                      businesses refer to. May be null.
+     * @param file          The snapshot file, replaced if the crawl succeeds.
+     * @exception UDDIException
+     * @exception TransportException
+     *                   Also thrown if the file cannot be written.
+     */
+    public void crawl(FindBusiness businessQuery, FindTModel tModelQuery, File file) throws UDDIException, TransportException
+    {
+        try
+        {
+            File dir = file.getAbsoluteFile().getParentFile();
+            File temp = File.createTempFile(file.getName(), ".tmp", dir);
+            try
+            {
+                SnapshotWriter writer = new SnapshotWriter(new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(temp)), 64 * 1024));
+                try
+                {
+                    crawl(businessQuery, tModelQuery, writer);
+                    writer.finish();
+                }
+                finally
+                {
+                    writer.close();
+                }
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            finally
+            {
+                temp.delete();
+            }
+        }
+        catch (IOException e)
+        {
+            throw new TransportException(e);
+        }
+    }
+
+    /**
+     * Reads the selected businesses and tModels, passing them to a listener.
+     * Returns once all of them have been passed.
+     *
+     * @param businessQuery Selects the businesses read. May be null to read
+     *                      only the tModels selected by tModelQuery.
+     * @param tModelQuery   Selects tModels read in addition to those the
+     *                      businesses refer to. May be null.
+     * @param listener      Receives the entities.
+     * @exception UDDIException
+     * @exception TransportException
+     *                   Also thrown, wrapping it, if the listener throws an IOException.
+     */
+    public synchronized void crawl(FindBusiness businessQuery, FindTModel tModelQuery, Listener listener) throws UDDIException, TransportException
+    {
+        this.listener = listener;
+        complete = true;
+        tModelKeys.clear();
+        tModelQueue.clear();
+        queued.set(0);
+        failure.set(null);
+        businesses.set(0);
+        tModels.set(0);
+        missing.set(0);
+        requests.set(0);
+        try
+        {
+            if (businessQuery != null)
+            {
+                FindIterator<BusinessInfo> found = new FindIterator<BusinessInfo>(proxy, businessQuery, BusinessList.class, false);
+                Vector batch = new Vector();
+                while (failure.get() == null && found.hasNext())
+                {
+                    batch.addElement(found.next().getBusinessKey());
+                    if (batch.size() >= batchSize)
+                    {
+                        dispatch(DetailKind.BUSINESS, batch);
+                        batch = new Vector();
+                    }
+                    dispatchTModels(false);
+                }
+                if (!batch.isEmpty())
+                {
+                    dispatch(DetailKind.BUSINESS, batch);
+                }
+                complete &= found.isComplete();
+            }
+            if (tModelQuery != null)
+            {
+                FindIterator<TModelInfo> found = new FindIterator<TModelInfo>(proxy, tModelQuery, TModelList.class, false);
+                while (failure.get() == null && found.hasNext())
+                {
+                    queueTModel(found.next().getTModelKey());
+                    dispatchTModels(false);
+                }
+                complete &= found.isComplete();
+            }
+            // tModels read may refer to further tModels.
+            while (true)
+            {
+                awaitIdle();
+                if (failure.get() != null || queued.get() == 0)
+                {
+                    break;
+                }
+                dispatchTModels(true);
+            }
+        }
+        catch (FindIterator.FindFailedException e)
+        {
+            failure.compareAndSet(null, (Exception) e.getCause());
+        }
+        finally
+        {
+            awaitIdle();
+            this.listener = null;
+        }
+
+        Exception e = failure.get();
+        if (e instanceof UDDIException)
+        {
+            throw (UDDIException) e;
+        }
+        if (e instanceof TransportException)
+        {
+            throw (TransportException) e;
+        }
+        if (e instanceof RuntimeException)
+        {
+            throw (RuntimeException) e;
+        }
+        if (e != null)
+        {
+            throw new TransportException(e);
+        }
+    }
+
+    /**
+     * Reads a snapshot file, passing its entities to a listener in the
+     * order they were written.
+     *
+     * @param file     The snapshot file.
+     * @param listener Receives the entities.
+     * @exception IOException
+     *                   Thrown if the file cannot be read or is not a
+     *                   complete snapshot.
+     */
+    public static void readSnapshot(File file, Listener listener) throws IOException
+    {
+        InputStream in = new GZIPInputStream(new BufferedInputStream(new FileInputStream(file)), 64 * 1024);
+        try
+        {
+            XMLStreamReader r = StAXBinder.createReader(in);
+            try
+            {
+                if (r.nextTag() != XMLStreamReader.START_ELEMENT || !SNAPSHOT_TAG.equals(r.getLocalName()))
+                {
+                    throw new IOException("Not a registry snapshot: " + file);
+                }
+                while (StAXBinder.nextChild(r))
+                {
+                    if (StAXBinder.is(r, BusinessEntity.UDDI_TAG))
+                    {
+                        listener.businessEntity(StAXBinder.readBusinessEntity(r));
+                    }
+                    else if (StAXBinder.is(r, TModel.UDDI_TAG))
+                    {
+                        listener.tModel(StAXBinder.readTModel(r));
+                    }
+                    else
+                    {
+                        StAXBinder.skip(r);
+                    }
+                }
+            }
+            finally
+            {
+                r.close();
+            }
+        }
+        catch (XMLStreamException e)
+        {
+            throw new IOException("Corrupt registry snapshot: " + file, e);
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    /**
+     * Sends the tModel keys queued so far in batches; unless all is true,
+     * only full batches are sent.
+     */
+    private void dispatchTModels(boolean all) throws TransportException
+    {
+        while (all ? queued.get() > 0 : queued.get() >= batchSize)
+        {
+            Vector batch = new Vector();
+            String key;
+            while (batch.size() < batchSize && (key = tModelQueue.poll()) != null)
+            {
+                queued.decrementAndGet();
+                batch.addElement(key);
+            }
+            if (batch.isEmpty())
+            {
+                return;
+            }
+            dispatch(DetailKind.TMODEL, batch);
+        }
+    }
+
+    /**
+     * Sends a detail request on the executor, waiting while the maximum
+     * number of requests are outstanding.
+     */
+    private void dispatch(final DetailKind kind, final Vector keys) throws TransportException
+    {
+        try
+        {
+            outstanding.acquire();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new TransportException(e);
+        }
+        try
+        {
+            proxy.getExecutor().execute(new Runnable()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        fetch(kind, keys);
+                    }
+                    catch (Exception e)
+                    {
+                        failure.compareAndSet(null, e);
+                    }
+                    finally
+                    {
+                        outstanding.release();
+                    }
+                }
+            });
+        }
+        catch (RuntimeException e)
+        {
+            outstanding.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Waits until no request is outstanding.
+     */
+    private void awaitIdle() throws TransportException
+    {
+        try
+        {
+            outstanding.acquire(parallelism);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new TransportException(e);
+        }
+        outstanding.release(parallelism);
+    }
+
+    /**
+     * Reads the entities for some keys and passes them on, splitting the
+     * keys when the registry rejects some of them as unknown.
+     */
+    private void fetch(DetailKind kind, Vector keys) throws UDDIException, TransportException, IOException
+    {
+        UDDIElement detail;
+        try
+        {
+            requests.incrementAndGet();
+            detail = kind.fetchUncached(proxy, keys);
+        }
+        catch (UDDIException e)
+        {
+            String errCode = RetryPolicy.getErrCode(e);
+            if (!DispositionReport.E_invalidKeyPassed.equals(errCode) && !DispositionReport.E_keyRetired.equals(errCode))
+            {
+                throw e;
+            }
+            if (keys.size() == 1)
+            {
+                missing.incrementAndGet();
+                return;
+            }
+            int half = keys.size() / 2;
+            fetch(kind, new Vector(keys.subList(0, half)));
+            fetch(kind, new Vector(keys.subList(half, keys.size())));
+            return;
+        }
+        Vector entities = kind.getEntities(detail);
+        for (int i = 0; entities != null && i < entities.size(); i++)
+        {
+            if (kind == DetailKind.BUSINESS)
+            {
+                BusinessEntity entity = (BusinessEntity) entities.elementAt(i);
+                if (readReferences)
+                {
+                    queueReferences(entity);
+                }
+                synchronized (listenerLock)
+                {
+                    businesses.incrementAndGet();
+                    listener.businessEntity(entity);
+                }
+            }
+            else
+            {
+                TModel tModel = (TModel) entities.elementAt(i);
+                queueTModel(tModel.getTModelKey());
+                if (readReferences)
+                {
+                    queueReferences(tModel.getCategoryBag());
+                    queueReferences(tModel.getIdentifierBag());
+                }
+                synchronized (listenerLock)
+                {
+                    tModels.incrementAndGet();
+                    listener.tModel(tModel);
+                }
+            }
+        }
+    }
+
+    /**
+     * Queues the tModels a businessEntity, its services and their bindings refer to.
+     */
+    private void queueReferences(BusinessEntity entity)
+    {
+        queueReferences(entity.getCategoryBag());
+        queueReferences(entity.getIdentifierBag());
+        Vector services = entity.getBusinessServices() != null ? entity.getBusinessServices().getBusinessServiceVector() : null;
+        for (int i = 0; services != null && i < services.size(); i++)
+        {
+            BusinessService service = (BusinessService) services.elementAt(i);
+            queueReferences(service.getCategoryBag());
+            Vector bindings = service.getBindingTemplates() != null ? service.getBindingTemplates().getBindingTemplateVector() : null;
+            for (int j = 0; bindings != null && j < bindings.size(); j++)
+            {
+                BindingTemplate binding = (BindingTemplate) bindings.elementAt(j);
+                Vector infos = binding.getTModelInstanceDetails() != null ? binding.getTModelInstanceDetails().getTModelInstanceInfoVector() : null;
+                for (int k = 0; infos != null && k < infos.size(); k++)
+                {
+                    queueTModel(((TModelInstanceInfo) infos.elementAt(k)).getTModelKey());
+                }
+            }
+        }
+    }
+
+    private void queueReferences(CategoryBag bag)
+    {
+        queueKeyedReferences(bag != null ? bag.getKeyedReferenceVector() : null);
+    }
+
+    private void queueReferences(IdentifierBag bag)
+    {
+        queueKeyedReferences(bag != null ? bag.getKeyedReferenceVector() : null);
+    }
+
+    private void queueKeyedReferences(Vector references)
+    {
+        for (int i = 0; references != null && i < references.size(); i++)
+        {
+            queueTModel(((KeyedReference) references.elementAt(i)).getTModelKey());
+        }
+    }
+
+    /**
+     * Queues a tModel key unless it was queued before.
+     */
+    private void queueTModel(String key)
+    {
+        if (key != null && key.length() > 0 && tModelKeys.add(DetailKind.normalize(key)))
+        {
+            tModelQueue.add(key);
+            queued.incrementAndGet();
+        }
+    }
+
+    /**
+     * Writes entities to a snapshot stream.
+     */
+    static class SnapshotWriter implements Listener
+    {
+        private final OutputStream out;
+        private final XMLStreamWriter writer;
+
+        SnapshotWriter(OutputStream out) throws IOException
+        {
+            this.out = out;
+            try
+            {
+                writer = XMLOutputFactory.newInstance().createXMLStreamWriter(out, "UTF-8");
+                writer.writeStartDocument("UTF-8", "1.0");
+                writer.writeStartElement(SNAPSHOT_TAG);
+                String prefix = UDDIElement.XMLNS_PREFIX.substring(0, UDDIElement.XMLNS_PREFIX.length() - 1);
+                writer.writeNamespace(prefix, UDDIElement.XMLNS);
+                writer.setPrefix(prefix, UDDIElement.XMLNS);
+                writer.writeAttribute("generic", UDDIElement.GENERIC);
+                writer.writeAttribute("created", Instant.now().toString());
+                writer.writeCharacters("\n");
+            }
+            catch (XMLStreamException e)
+            {
+                throw new IOException(e);
+            }
+        }
+
+        public void businessEntity(BusinessEntity entity) throws IOException
+        {
+            write(entity);
+        }
+
+        public void tModel(TModel tModel) throws IOException
+        {
+            write(tModel);
+        }
+
+        private void write(UDDIElement element) throws IOException
+        {
+            try
+            {
+                element.saveToXML(writer);
+                writer.writeCharacters("\n");
+            }
+            catch (XMLStreamException e)
+            {
+                throw new IOException(e);
+            }
+        }
+
+        /**
+         * Ends the document. Not called for a failed crawl, so that the
+         * snapshot is recognizably incomplete.
+         */
+        void finish() throws IOException
+        {
+            try
+            {
+                writer.writeEndElement();
+                writer.writeEndDocument();
+                writer.flush();
+            }
+            catch (XMLStreamException e)
+            {
+                throw new IOException(e);
+            }
+        }
+
+        void close() throws IOException
+        {
+            try
+            {
+                writer.close();
+            }
+            catch (XMLStreamException e)
+            {
+                // The stream is closed below.
+            }
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,629 @@
+/*
+ * The source code contained herein is licensed under the IBM Public License
+ * Version 1.0, which has been approved by the Open Source Initiative.
+ * Copyright (C) 2001, International Business Machines Corporation
+ * All Rights Reserved.
+ *
+ */
+package org.uddi4j.client;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.uddi4j.UDDIElement;
+import org.uddi4j.UDDIException;
+import org.uddi4j.datatype.binding.BindingTemplate;
+import org.uddi4j.datatype.binding.BindingTemplates;
+import org.uddi4j.datatype.business.BusinessEntity;
+import org.uddi4j.datatype.service.BusinessService;
+import org.uddi4j.datatype.service.BusinessServices;
+import org.uddi4j.datatype.tmodel.TModel;
+import org.uddi4j.request.FindBusiness;
+import org.uddi4j.response.BusinessInfo;
+import org.uddi4j.response.BusinessList;
+import org.uddi4j.response.DispositionReport;
+import org.uddi4j.response.RegisteredInfo;
+import org.uddi4j.transport.TransportException;
+import org.uddi4j.util.FindQualifier;
+import org.uddi4j.util.FindQualifiers;
+
+/**
+ * Keeps a local replica of the businesses selected by a find_business
+ * request current, and tells listeners which businessEntity,
+ * businessService and bindingTemplate structures were added, changed or
+ * removed.<P>
+ *
+ * The first call of {@link #sync()} reads all selected businesses with a
+ * {@link RegistryCrawler}. Later calls send the selection once with the
+ * sortByDateDesc qualifier and org.uddi4j.sync.pageSize as maxRows, so
+ * that the businesses changed most recently come first, and read their
+ * details in that order. A business whose content is the same as in the
+ * replica was last changed before the previous sync; once
+ * org.uddi4j.sync.confirmCount businesses in a row are unchanged, the
+ * businesses after them are taken to be unchanged too. The count allows for
+ * businesses saved again without changes. If a whole truncated page
+ * changed, or the registry does not support sortByDateDesc, all businesses
+ * are read again, as they are every org.uddi4j.sync.fullSyncMillis.<P>
+ *
+ * Changes are found by comparing SHA-256 hashes of the XML form of each
+ * business without its services, each service without its bindings, and
+ * each binding. Businesses that no longer match the selection, or were
+ * deleted, are removed when a complete list of the selected businesses is
+ * read: by a full sync, or by a page that is not truncated. With a
+ * {@link PublishingSession}, the businesses of its publisher are also
+ * listed with get_registeredInfo on each sync, so that deleted businesses
+ * of that publisher are removed at once.<P>
+ *
+ * All requests go to the registry, bypassing the response and entity
+ * caches of the proxy. Listeners are called one at a time, from the thread
+ * calling sync or, during a full sync, from the executor of the proxy.
+ * Services and bindings are reported after the business containing them
+ * is added or changed, and before it is removed.
+ */
+public class RegistrySync
+{
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int DEFAULT_CONFIRM_COUNT = 10;
+    public static final long DEFAULT_FULL_SYNC_MILLIS = 24 * 60 * 60 * 1000L;
+
+    /**
+     * Receives the changes found by a sync.
+     */
+    public interface Listener
+    {
+        /**
+         * @param kind   DetailKind.BUSINESS, SERVICE or BINDING.
+         * @param entity The new BusinessEntity, BusinessService or BindingTemplate.
+         */
+        void added(DetailKind kind, Object entity);
+
+        /**
+         * @param kind   DetailKind.BUSINESS, SERVICE or BINDING.
+         * @param entity The changed BusinessEntity, BusinessService or BindingTemplate.
+         *               A changed business holds its current services.
+         */
+        void changed(DetailKind kind, Object entity);
+
+        /**
+         * @param kind   DetailKind.BUSINESS, SERVICE or BINDING.
+         * @param key    Key of the removed entity.
+         */
+        void removed(DetailKind kind, String key);
+    }
+
+    private static final int ADDED = 0;
+    private static final int CHANGED = 1;
+    private static final int REMOVED = 2;
+
+    private static final XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+
+    private final UDDIProxy proxy;
+    private final FindBusiness selection;
+    private final PublishingSession session;
+    private final int pageSize;
+    private final int confirmCount;
+    private final int batchSize;
+    private final long fullSyncMillis;
+
+    private final Vector listeners = new Vector();
+    private final ConcurrentHashMap<String, Replica> replica = new ConcurrentHashMap<String, Replica>();
+    private Set<String> owned = null;
+    private long lastFullSync = 0;
+
+    private final AtomicLong fullSyncs = new AtomicLong();
+    private final AtomicLong syncs = new AtomicLong();
+    private final AtomicLong fetched = new AtomicLong();
+    private final AtomicLong changes = new AtomicLong();
+
+    /**
+     * Construct a sync using the org.uddi4j.sync properties of the proxy.
+     *
+     * @param proxy     Proxy used to read the registry.
+     * @param selection Selects the businesses replicated, for example by
+     *                  categoryBag. Sort qualifiers and maxRows are ignored.
+     * @param session   Session whose publisher's businesses are listed
+     *                  with get_registeredInfo. May be null.
+     */
+    public RegistrySync(UDDIProxy proxy, FindBusiness selection, PublishingSession session)
+    {
+        this.proxy = proxy;
+        this.selection = selection != null ? selection : new FindBusiness();
+        this.session = session;
+        this.pageSize = Math.max(1, proxy.getIntProperty(UDDIProxy.SYNC_PAGE_SIZE_PROPERTY, DEFAULT_PAGE_SIZE));
+        this.confirmCount = Math.max(1, proxy.getIntProperty(UDDIProxy.SYNC_CONFIRM_COUNT_PROPERTY, DEFAULT_CONFIRM_COUNT));
+        this.batchSize = Math.max(1, proxy.getIntProperty(UDDIProxy.CRAWL_BATCH_SIZE_PROPERTY, RegistryCrawler.DEFAULT_BATCH_SIZE));
+        this.fullSyncMillis = proxy.getLongProperty(UDDIProxy.SYNC_FULL_SYNC_MILLIS_PROPERTY, DEFAULT_FULL_SYNC_MILLIS);
+    }
+
+    public void addListener(Listener listener)
+    {
+        listeners.addElement(listener);
+    }
+
+    public void removeListener(Listener listener)
+    {
+        listeners.removeElement(listener);
+    }
+
+    /**
+     * Returns the replicated businessEntity with the given key, or null.
+     * The entity must not be modified.
+     */
+    public BusinessEntity getBusinessEntity(String businessKey)
+    {
+        Replica entry = replica.get(DetailKind.normalize(businessKey));
+        return entry != null ? entry.entity : null;
+    }
+
+    /**
+     * Number of businesses in the replica.
+     */
+    public int size()
+    {
+        return replica.size();
+    }
+
+    /**
+     * Number of syncs, full or incremental, completed.
+     */
+    public long getSyncCount()
+    {
+        return syncs.get();
+    }
+
+    /**
+     * Number of syncs that read all selected businesses.
+     */
+    public long getFullSyncCount()
+    {
+        return fullSyncs.get();
+    }
+
+    /**
+     * Number of businessEntity structures read from the registry.
+     */
+    public long getFetchCount()
+    {
+        return fetched.get();
+    }
+
+    /**
+     * Number of changes passed to the listeners.
+     */
+    public long getChangeCount()
+    {
+        return changes.get();
+    }
+
+    /**
+     * Brings the replica up to date, reading all selected businesses if
+     * needed and otherwise only those changed since the last sync.
+     *
+     * @exception UDDIException
+     * @exception TransportException
+     */
+    public synchronized void sync() throws UDDIException, TransportException
+    {
+        boolean full = lastFullSync == 0 || (fullSyncMillis > 0 && System.currentTimeMillis() - lastFullSync >= fullSyncMillis);
+        if (!full)
+        {
+            try
+            {
+                full = !syncRecent();
+            }
+            catch (UDDIException e)
+            {
+                if (!DispositionReport.E_unsupported.equals(RetryPolicy.getErrCode(e)))
+                {
+                    throw e;
+                }
+                full = true;
+            }
+        }
+        if (full)
+        {
+            fullSync();
+        }
+        syncOwned();
+        syncs.incrementAndGet();
+    }
+
+    /**
+     * Reads all selected businesses, removing those no longer selected.
+     *
+     * @exception UDDIException
+     * @exception TransportException
+     */
+    public synchronized void fullSync() throws UDDIException, TransportException
+    {
+        long start = System.currentTimeMillis();
+        final Set<String> seen = ConcurrentHashMap.newKeySet();
+        RegistryCrawler crawler = new RegistryCrawler(proxy);
+        crawler.setReadReferencedTModels(false);
+        crawler.crawl(selection, null, new RegistryCrawler.Listener()
+        {
+            public void businessEntity(BusinessEntity entity) throws IOException
+            {
+                fetched.incrementAndGet();
+                seen.add(DetailKind.normalize(entity.getBusinessKey()));
+                apply(entity);
+            }
+
+            public void tModel(TModel tModel)
+            {
+            }
+        });
+        if (crawler.isComplete())
+        {
+            removeUnless(seen);
+        }
+        lastFullSync = start;
+        fullSyncs.incrementAndGet();
+    }
+
+    /**
+     * Reads the businesses changed most recently, until enough unchanged
+     * ones are found. Returns false if the page did not reach them.
+     */
+    private boolean syncRecent() throws UDDIException, TransportException
+    {
+        BusinessList list = (BusinessList) proxy.sendUncached(recentQuery(), true, BusinessList.class);
+        Vector infos = list.getBusinessInfos() != null ? list.getBusinessInfos().getBusinessInfoVector() : null;
+        infos = infos != null ? infos : new Vector();
+
+        int unchanged = 0;
+        for (int i = 0; i < infos.size() && unchanged < confirmCount; i += batchSize)
+        {
+            Vector keys = new Vector();
+            for (int j = i; j < Math.min(infos.size(), i + batchSize); j++)
+            {
+                keys.addElement(((BusinessInfo) infos.elementAt(j)).getBusinessKey());
+            }
+            Vector entities = new Vector();
+            fetch(keys, entities);
+            for (int j = 0; j < entities.size() && unchanged < confirmCount; j++)
+            {
+                try
+                {
+                    unchanged = apply((BusinessEntity) entities.elementAt(j)) ? 0 : unchanged + 1;
+                }
+                catch (IOException e)
+                {
+                    throw new TransportException(e);
+                }
+            }
+        }
+
+        if (!list.getTruncatedBoolean())
+        {
+            // The page lists every selected business.
+            Set<String> listed = new HashSet<String>();
+            for (int i = 0; i < infos.size(); i++)
+            {
+                listed.add(DetailKind.normalize(((BusinessInfo) infos.elementAt(i)).getBusinessKey()));
+            }
+            removeUnless(listed);
+            return true;
+        }
+        return unchanged >= confirmCount;
+    }
+
+    /**
+     * Reads the businesses for some keys, dropping from the replica those
+     * the registry no longer knows.
+     */
+    private void fetch(Vector keys, Vector entities) throws UDDIException, TransportException
+    {
+        UDDIElement detail;
+        try
+        {
+            detail = DetailKind.BUSINESS.fetchUncached(proxy, keys);
+        }
+        catch (UDDIException e)
+        {
+            String errCode = RetryPolicy.getErrCode(e);
+            if (!DispositionReport.E_invalidKeyPassed.equals(errCode) && !DispositionReport.E_keyRetired.equals(errCode))
+            {
+                throw e;
+            }
+            if (keys.size() == 1)
+            {
+                remove(DetailKind.normalize((String) keys.elementAt(0)));
+                return;
+            }
+            int half = keys.size() / 2;
+            fetch(new Vector(keys.subList(0, half)), entities);
+            fetch(new Vector(keys.subList(half, keys.size())), entities);
+            return;
+        }
+        Vector returned = DetailKind.BUSINESS.getEntities(detail);
+        for (int i = 0; returned != null && i < returned.size(); i++)
+        {
+            fetched.incrementAndGet();
+            entities.addElement(returned.elementAt(i));
+        }
+    }
+
+    /**
+     * Removes the businesses of the session's publisher that
+     * get_registeredInfo no longer lists.
+     */
+    private void syncOwned() throws UDDIException, TransportException
+    {
+        if (session == null)
+        {
+            return;
+        }
+        RegisteredInfo info = (RegisteredInfo) session.execute(new PublishingSession.Call()
+        {
+            public Object call(String authInfo) throws UDDIException, TransportException
+            {
+                return proxy.get_registeredInfo(authInfo);
+            }
+        });
+        Vector infos = info.getBusinessInfos() != null ? info.getBusinessInfos().getBusinessInfoVector() : null;
+        Set<String> current = new HashSet<String>();
+        for (int i = 0; infos != null && i < infos.size(); i++)
+        {
+            current.add(DetailKind.normalize(((BusinessInfo) infos.elementAt(i)).getBusinessKey()));
+        }
+        if (owned != null)
+        {
+            for (Iterator<String> it = owned.iterator(); it.hasNext();)
+            {
+                String key = it.next();
+                if (!current.contains(key))
+                {
+                    remove(key);
+                }
+            }
+        }
+        owned = current;
+    }
+
+    private FindBusiness recentQuery()
+    {
+        FindBusiness query = new FindBusiness();
+        query.setNameVector(selection.getNameVector());
+        query.setIdentifierBag(selection.getIdentifierBag());
+        query.setCategoryBag(selection.getCategoryBag());
+        query.setTModelBag(selection.getTModelBag());
+        query.setDiscoveryURLs(selection.getDiscoveryURLs());
+        FindQualifiers qualifiers = new FindQualifiers();
+        FindQualifiers given = selection.getFindQualifiers();
+        for (int i = 0; given != null && given.getFindQualifierVector() != null && i < given.size(); i++)
+        {
+            String qualifier = given.get(i).getText();
+            if (!qualifier.startsWith("sortBy"))
+            {
+                qualifiers.add(given.get(i));
+            }
+        }
+        qualifiers.add(new FindQualifier(FindQualifier.sortByDateDesc));
+        query.setFindQualifiers(qualifiers);
+        query.setMaxRows(pageSize);
+        return query;
+    }
+
+    /**
+     * Stores a business read from the registry, reporting what changed.
+     * Returns false if nothing did.
+     */
+    private boolean apply(BusinessEntity entity) throws IOException
+    {
+        Replica now = new Replica(entity);
+        String key = DetailKind.normalize(entity.getBusinessKey());
+        Replica old = replica.get(key);
+        if (old != null && old.hash == now.hash && old.services.equals(now.services) && old.bindings.equals(now.bindings))
+        {
+            return false;
+        }
+        replica.put(key, now);
+        synchronized (listeners)
+        {
+            if (old == null || old.hash != now.hash)
+            {
+                fire(old == null ? ADDED : CHANGED, DetailKind.BUSINESS, entity);
+            }
+            report(DetailKind.SERVICE, old != null ? old.services : null, now.services);
+            report(DetailKind.BINDING, old != null ? old.bindings : null, now.bindings);
+            if (old != null)
+            {
+                reportRemoved(DetailKind.BINDING, old.bindings, now.bindings);
+                reportRemoved(DetailKind.SERVICE, old.services, now.services);
+            }
+        }
+        return true;
+    }
+
+    private void remove(String key)
+    {
+        Replica old = replica.remove(key);
+        if (old == null)
+        {
+            return;
+        }
+        synchronized (listeners)
+        {
+            reportRemoved(DetailKind.BINDING, old.bindings, null);
+            reportRemoved(DetailKind.SERVICE, old.services, null);
+            fire(REMOVED, DetailKind.BUSINESS, old.entity.getBusinessKey());
+        }
+    }
+
+    private void removeUnless(Set<String> keys)
+    {
+        for (Iterator<String> it = replica.keySet().iterator(); it.hasNext();)
+        {
+            String key = it.next();
+            if (!keys.contains(key))
+            {
+                remove(key);
+            }
+        }
+    }
+
+    private void report(DetailKind kind, Map<String, Part> old, Map<String, Part> now)
+    {
+        for (Iterator<Map.Entry<String, Part>> it = now.entrySet().iterator(); it.hasNext();)
+        {
+            Map.Entry<String, Part> entry = it.next();
+            Part before = old != null ? old.get(entry.getKey()) : null;
+            if (before == null)
+            {
+                fire(ADDED, kind, entry.getValue().entity);
+            }
+            else if (before.hash != entry.getValue().hash)
+            {
+                fire(CHANGED, kind, entry.getValue().entity);
+            }
+        }
+    }
+
+    private void reportRemoved(DetailKind kind, Map<String, Part> old, Map<String, Part> now)
+    {
+        for (Iterator<Map.Entry<String, Part>> it = old.entrySet().iterator(); it.hasNext();)
+        {
+            Map.Entry<String, Part> entry = it.next();
+            if (now == null || !now.containsKey(entry.getKey()))
+            {
+                fire(REMOVED, kind, kind.getKey(entry.getValue().entity));
+            }
+        }
+    }
+
+    /**
+     * Calls the listeners with an entity, or with a key for REMOVED.
+     */
+    private void fire(int change, DetailKind kind, Object arg)
+    {
+        changes.incrementAndGet();
+        for (int i = 0; i < listeners.size(); i++)
+        {
+            Listener listener = (Listener) listeners.elementAt(i);
+            if (change == ADDED)
+            {
+                listener.added(kind, arg);
+            }
+            else if (change == CHANGED)
+            {
+                listener.changed(kind, arg);
+            }
+            else
+            {
+                listener.removed(kind, (String) arg);
+            }
+        }
+    }
+
+    /**
+     * Returns the first 64 bits of the SHA-256 hash of the XML form of an element.
+     */
+    static long hash(UDDIElement element) throws IOException
+    {
+        try
+        {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            XMLStreamWriter writer = outputFactory.createXMLStreamWriter(new DigestOutputStream(OutputStream.nullOutputStream(), digest), "UTF-8");
+            element.saveToXML(writer);
+            writer.close();
+            return ByteBuffer.wrap(digest.digest()).getLong();
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new IOException(e);
+        }
+        catch (XMLStreamException e)
+        {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * A replicated business with the hashes of its parts.
+     */
+    private static class Replica
+    {
+        final BusinessEntity entity;
+        final long hash;
+        final Map<String, Part> services = new LinkedHashMap<String, Part>();
+        final Map<String, Part> bindings = new LinkedHashMap<String, Part>();
+
+        Replica(BusinessEntity entity) throws IOException
+        {
+            this.entity = entity;
+            BusinessServices children = entity.getBusinessServices();
+            entity.setBusinessServices(null);
+            try
+            {
+                hash = hash(entity);
+            }
+            finally
+            {
+                entity.setBusinessServices(children);
+            }
+            Vector list = children != null ? children.getBusinessServiceVector() : null;
+            for (int i = 0; list != null && i < list.size(); i++)
+            {
+                BusinessService service = (BusinessService) list.elementAt(i);
+                BindingTemplates templates = service.getBindingTemplates();
+                service.setBindingTemplates(null);
+                try
+                {
+                    services.put(DetailKind.normalize(service.getServiceKey()), new Part(service, hash(service)));
+                }
+                finally
+                {
+                    service.setBindingTemplates(templates);
+                }
+                Vector bindingList = templates != null ? templates.getBindingTemplateVector() : null;
+                for (int j = 0; bindingList != null && j < bindingList.size(); j++)
+                {
+                    BindingTemplate binding = (BindingTemplate) bindingList.elementAt(j);
+                    bindings.put(DetailKind.normalize(binding.getBindingKey()), new Part(binding, hash(binding)));
+                }
+            }
+        }
+    }
+
+    /**
+     * A service or binding of a replicated business and its hash.
+     */
+    private static class Part
+    {
+        final Object entity;
+        final long hash;
+
+        Part(Object entity, long hash)
+        {
+            this.entity = entity;
+            this.hash = hash;
+        }
+
+        public boolean equals(Object o)
+        {
+            return o instanceof Part && ((Part) o).hash == hash;
+        }
+
+        public int hashCode()
+        {
+            return (int) hash;
+        }
+    }
+}
@@ -0,0 +1,298 @@
+/*
+ * The source code contained herein is licensed under the IBM Public License
+ * Version 1.0, which has been approved by the Open Source Initiative.
+ * Copyright (C) 2001, International Business Machines Corporation
+ * All Rights Reserved.
+ *
+ */
+package org.uddi4j.client;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.uddi4j.UDDIException;
+import org.uddi4j.response.DispositionReport;
+import org.uddi4j.response.RelatedBusinessInfo;
+import org.uddi4j.response.RelatedBusinessesList;
+import org.uddi4j.transport.TransportException;
+import org.uddi4j.util.KeyedReference;
+
+/**
+ * Walks the graph of business relationships formed by publisher
+ * assertions, breadth first from one business up to a given number of
+ * hops.<P>
+ *
+ * Each business reached is listed once with find_relatedBusinesses. The
+ * businesses at one distance from the start are listed in parallel on the
+ * executor of the proxy, at most org.uddi4j.related.parallelism at a time;
+ * the businesses they relate to that were not reached before form the next
+ * level. Only relationships matching an optional keyedReference, such as
+ * a parent-child relationship of uddi-org:relationships, are followed; the
+ * registry applies this filter.<P>
+ *
+ * Every relationship found is passed to a {@link Listener} as an edge from
+ * the listed business to a relatedBusinessInfo, whose sharedRelationships
+ * tell the direction and type of the relationship. A relationship between
+ * two listed businesses is passed once from each side. Businesses deleted
+ * during the walk are skipped; any other failure ends the walk.<P>
+ *
+ * A RelatedBusinessWalker runs one walk at a time.
+ */
+public class RelatedBusinessWalker
+{
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    /**
+     * Receives the edges found. Calls are made one at a time, from the
+     * threads listing the businesses.
+     */
+    public interface Listener
+    {
+        /**
+         * Called for each business related to a listed business.
+         *
+         * @param businessKey Key of the listed business.
+         * @param related     A business related to it and the relationships between them.
+         * @param depth       Number of hops from the start business to the related
+         *                    business along the walk: 1 for businesses related to
+         *                    the start business.
+         */
+        void related(String businessKey, RelatedBusinessInfo related, int depth);
+    }
+
+    private final UDDIProxy proxy;
+    private final int parallelism;
+    private final Semaphore outstanding;
+
+    private final Object listenerLock = new Object();
+    private final Set<String> visited = ConcurrentHashMap.newKeySet();
+    private final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+    private final AtomicLong requests = new AtomicLong();
+    private volatile boolean complete = true;
+
+    /**
+     * Construct a walker using the org.uddi4j.related properties of the proxy.
+     *
+     * @param proxy Proxy used to list the relationships.
+     */
+    public RelatedBusinessWalker(UDDIProxy proxy)
+    {
+        this.proxy = proxy;
+        this.parallelism = Math.max(1, proxy.getIntProperty(UDDIProxy.RELATED_PARALLELISM_PROPERTY, DEFAULT_PARALLELISM));
+        this.outstanding = new Semaphore(parallelism);
+    }
+
+    /**
+     * Number of find_relatedBusinesses requests sent by the last walk.
+     */
+    public long getRequestCount()
+    {
+        return requests.get();
+    }
+
+    /**
+     * Number of businesses reached by the last walk, including the start business.
+     */
+    public int getVisitedCount()
+    {
+        return visited.size();
+    }
+
+    /**
+     * Tells whether the last walk saw all relationships. False if the
+     * registry truncated the list of relationships of a business.
+     */
+    public boolean isComplete()
+    {
+        return complete;
+    }
+
+    /**
+     * Walks the relationships from a business, passing the edges found to
+     * a listener. Returns once all edges have been passed.
+     *
+     * @param businessKey  Key of the start business.
+     * @param depth        Maximum number of hops from the start business.
+     * @param relationship Only relationships matching this keyedReference are
+     *                     followed. May be null to follow all relationships.
+     * @param listener     Receives the edges.
+     * @exception UDDIException
+     * @exception TransportException
+     */
+    public synchronized void walk(String businessKey, int depth, KeyedReference relationship, Listener listener)
+            throws UDDIException, TransportException
+    {
+        visited.clear();
+        failure.set(null);
+        requests.set(0);
+        complete = true;
+
+        visited.add(DetailKind.normalize(businessKey));
+        Vector level = new Vector();
+        level.addElement(businessKey);
+        try
+        {
+            for (int hop = 1; hop <= depth && !level.isEmpty() && failure.get() == null; hop++)
+            {
+                Vector next = new Vector();
+                for (int i = 0; i < level.size() && failure.get() == null; i++)
+                {
+                    dispatch((String) level.elementAt(i), hop, relationship, listener, next);
+                }
+                awaitIdle();
+                level = next;
+            }
+        }
+        finally
+        {
+            awaitIdle();
+        }
+
+        Exception e = failure.get();
+        if (e instanceof UDDIException)
+        {
+            throw (UDDIException) e;
+        }
+        if (e instanceof TransportException)
+        {
+            throw (TransportException) e;
+        }
+        if (e instanceof RuntimeException)
+        {
+            throw (RuntimeException) e;
+        }
+    }
+
+    /**
+     * Walks the relationships from a business and returns them as
+     * adjacency lists.
+     *
+     * @param businessKey  Key of the start business.
+     * @param depth        Maximum number of hops from the start business.
+     * @param relationship Only relationships matching this keyedReference are
+     *                     followed. May be null to follow all relationships.
+     * @return Map from the key of each listed business with relationships to
+     *         a Vector of the RelatedBusinessInfos of the businesses related
+     *         to it, in the order the businesses were listed.
+     * @exception UDDIException
+     * @exception TransportException
+     */
+    public Map<String, Vector> walk(String businessKey, int depth, KeyedReference relationship) throws UDDIException, TransportException
+    {
+        final Map<String, Vector> graph = new LinkedHashMap<String, Vector>();
+        walk(businessKey, depth, relationship, new Listener()
+        {
+            public void related(String from, RelatedBusinessInfo related, int hop)
+            {
+                Vector edges = graph.get(from);
+                if (edges == null)
+                {
+                    edges = new Vector();
+                    graph.put(from, edges);
+                }
+                edges.addElement(related);
+            }
+        });
+        return graph;
+    }
+
+    private void dispatch(final String businessKey, final int hop, final KeyedReference relationship, final Listener listener, final Vector next)
+            throws TransportException
+    {
+        try
+        {
+            outstanding.acquire();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new TransportException(e);
+        }
+        try
+        {
+            proxy.getExecutor().execute(new Runnable()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        expand(businessKey, hop, relationship, listener, next);
+                    }
+                    catch (Exception e)
+                    {
+                        failure.compareAndSet(null, e);
+                    }
+                    finally
+                    {
+                        outstanding.release();
+                    }
+                }
+            });
+        }
+        catch (RuntimeException e)
+        {
+            outstanding.release();
+            throw e;
+        }
+    }
+
+    private void awaitIdle() throws TransportException
+    {
+        try
+        {
+            outstanding.acquire(parallelism);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new TransportException(e);
+        }
+        outstanding.release(parallelism);
+    }
+
+    /**
+     * Lists the relationships of one business, passing them on and adding
+     * the businesses not reached before to the next level.
+     */
+    private void expand(String businessKey, int hop, KeyedReference relationship, Listener listener, Vector next)
+            throws UDDIException, TransportException
+    {
+        RelatedBusinessesList list;
+        try
+        {
+            requests.incrementAndGet();
+            list = proxy.find_relatedBusinesses(businessKey, relationship, null, 0);
+        }
+        catch (UDDIException e)
+        {
+            if (DispositionReport.E_invalidKeyPassed.equals(RetryPolicy.getErrCode(e)))
+            {
+                return;
+            }
+            throw e;
+        }
+        if (list.getTruncatedBoolean())
+        {
+            complete = false;
+        }
+        Vector infos = list.getRelatedBusinessInfos() != null ? list.getRelatedBusinessInfos().getRelatedBusinessInfoVector() : null;
+        for (int i = 0; infos != null && i < infos.size(); i++)
+        {
+            RelatedBusinessInfo info = (RelatedBusinessInfo) infos.elementAt(i);
+            synchronized (listenerLock)
+            {
+                listener.related(businessKey, info, hop);
+            }
+            if (visited.add(DetailKind.normalize(info.getBusinessKey())))
+            {
+                next.addElement(info.getBusinessKey());
+            }
+        }
+    }
+}
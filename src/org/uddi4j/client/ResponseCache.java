@@ -0,0 +1,684 @@
+/*
+ * The source code contained herein is licensed under the IBM Public License
+ * Version 1.0, which has been approved by the Open Source Initiative.
+ * Copyright (C) 2001, International Business Machines Corporation
+ * All Rights Reserved.
+ *
+ */
+package org.uddi4j.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.uddi4j.DocumentBuilderPool;
+import org.uddi4j.UDDIElement;
+import org.uddi4j.UDDIException;
+import org.uddi4j.transport.TransportException;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+/**
+ * A size bounded cache of inquiry responses, used by UDDIProxy when the
+ * org.uddi4j.cache.maxEntries or org.uddi4j.cache.maxBytes property is set.<P>
+ *
+ * The responses of find_business, find_service, find_binding, find_tModel,
+ * find_relatedBusinesses, get_businessDetail, get_serviceDetail,
+ * get_bindingDetail and get_tModelDetail are cached. The key of a response
+ * is a canonical form of its request: every element and attribute of the
+ * request, with attributes in name order and the contents of findQualifiers,
+ * categoryBag, identifierBag, tModelBag and discoveryURLs sorted, since
+ * their order does not change the result. Names and keys keep their order.<P>
+ *
+ * Responses are stored in serialized form and read back into new objects
+ * on every hit, so callers may modify what they get. The size of the
+ * serialized form is the weight counted against org.uddi4j.cache.maxBytes.
+ * A response expires after the time to live of its operation. Any save_,
+ * delete_, add_ or set_ request sent through the same UDDIProxy empties the
+ * cache, so that a proxy reads its own writes.<P>
+ *
+ * When the cache is full, entries are evicted by one of these policies:
+ * <DL>
+ * <DT>lru
+ * <DD>Evicts the least recently used entry. This is the default.
+ * <DT>tinyLfu
+ * <DD>New entries go to a small LRU window. An entry leaving the window
+ * replaces the least recently used entry of the main area only if it has
+ * been requested more often recently, as estimated by a count-min sketch
+ * that is halved periodically. This keeps one-off requests, such as a
+ * scan over many keys, from flushing popular entries.
+ * </DL>
+ */
+public class ResponseCache
+{
+    public static final String LRU = "lru";
+    public static final String TINY_LFU = "tinyLfu";
+    public static final long DEFAULT_TTL_MILLIS = 60000;
+
+    /** Operations whose responses are cached. */
+    static final String[] OPERATIONS = { "find_business", "find_service", "find_binding", "find_tModel", "find_relatedBusinesses",
+            "get_businessDetail", "get_serviceDetail", "get_bindingDetail", "get_tModelDetail" };
+
+    /** Request elements whose children are sorted in the key. */
+    private static final String[] UNORDERED = { "findQualifiers", "categoryBag", "identifierBag", "tModelBag", "discoveryURLs" };
+
+    /** Bytes added to the weight of each entry for the entry itself. */
+    private static final int ENTRY_OVERHEAD = 64;
+
+    private static final XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+
+    /**
+     * Element each thread saves requests into to compute their keys. It is
+     * emptied after each key, so that no Document is built per request.
+     */
+    private static final ThreadLocal<Element> scratch = new ThreadLocal<Element>();
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final Hashtable ttls = new Hashtable();
+    private final String eviction;
+
+    // Guarded by this. The window is only used by tinyLfu.
+    private final LinkedHashMap<String, Entry> window = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+    private final LinkedHashMap<String, Entry> main = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+    private final int windowEntries;
+    private final long windowBytes;
+    private long windowWeight = 0;
+    private long mainWeight = 0;
+    private long generation = 0;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Construct a cache.
+     *
+     * @param maxEntries Maximum number of responses, or 0 for no limit.
+     * @param maxBytes   Maximum total size of the serialized responses, or 0 for no limit.
+     * @param ttlMillis  Time to live of responses of operations without their own.
+     * @param ttls       Time to live of single operations, as operation=millis
+     *                   pairs separated by commas, or null. 0 means not cached.
+     * @param eviction   lru, tinyLfu or null for lru.
+     * @exception IllegalArgumentException
+     *                   If the eviction policy is unknown.
+     */
+    ResponseCache(int maxEntries, long maxBytes, long ttlMillis, String ttls, String eviction)
+    {
+        this.maxEntries = Math.max(0, maxEntries);
+        this.maxBytes = Math.max(0, maxBytes);
+        for (int i = 0; i < OPERATIONS.length; i++)
+        {
+            this.ttls.put(OPERATIONS[i], Long.valueOf(Math.max(0, ttlMillis)));
+        }
+        if (ttls != null)
+        {
+            String[] pairs = ttls.split(",");
+            for (int i = 0; i < pairs.length; i++)
+            {
+                int eq = pairs[i].indexOf('=');
+                if (eq > 0 && this.ttls.containsKey(pairs[i].substring(0, eq).trim()))
+                {
+                    try
+                    {
+                        this.ttls.put(pairs[i].substring(0, eq).trim(), Long.valueOf(Math.max(0, Long.parseLong(pairs[i].substring(eq + 1).trim()))));
+                    }
+                    catch (NumberFormatException e)
+                    {
+                        // Keep the default for this operation.
+                    }
+                }
+            }
+        }
+        if (eviction == null || eviction.trim().length() == 0 || LRU.equalsIgnoreCase(eviction.trim()))
+        {
+            this.eviction = LRU;
+            sketch = null;
+            windowEntries = 0;
+            windowBytes = 0;
+        }
+        else if (TINY_LFU.equalsIgnoreCase(eviction.trim()))
+        {
+            this.eviction = TINY_LFU;
+            // Size the sketch for the expected number of entries; guess it from the byte limit if there is no entry limit.
+            long expected = this.maxEntries > 0 ? this.maxEntries : this.maxBytes / 2048;
+            sketch = new FrequencySketch((int) Math.max(64, Math.min(expected, 1 << 20)));
+            windowEntries = this.maxEntries > 0 ? Math.max(1, this.maxEntries / 100) : 0;
+            windowBytes = this.maxBytes > 0 ? Math.max(1, this.maxBytes / 100) : 0;
+        }
+        else
+        {
+            throw new IllegalArgumentException("Unknown cache eviction policy " + eviction);
+        }
+    }
+
+    public String getEviction()
+    {
+        return eviction;
+    }
+
+    /**
+     * Time to live of the responses of an operation, or 0 if they are not cached.
+     *
+     * @param operation Operation name, for example find_business.
+     */
+    public long getTtlMillis(String operation)
+    {
+        Long ttl = (Long) ttls.get(operation);
+        return ttl == null ? 0 : ttl.longValue();
+    }
+
+    /**
+     * Number of requests answered from the cache.
+     */
+    public long getHitCount()
+    {
+        return hits.get();
+    }
+
+    /**
+     * Number of cacheable requests that were sent to the registry.
+     */
+    public long getMissCount()
+    {
+        return misses.get();
+    }
+
+    /**
+     * Number of responses removed to make room for others.
+     */
+    public long getEvictionCount()
+    {
+        return evictions.get();
+    }
+
+    /**
+     * Number of responses in the cache, including expired responses not
+     * removed yet.
+     */
+    public synchronized int getSize()
+    {
+        return window.size() + main.size();
+    }
+
+    /**
+     * Total weight of the responses in the cache, in bytes.
+     */
+    public synchronized long getWeight()
+    {
+        return windowWeight + mainWeight;
+    }
+
+    /**
+     * Removes all responses.
+     */
+    public synchronized void clear()
+    {
+        window.clear();
+        main.clear();
+        windowWeight = 0;
+        mainWeight = 0;
+        generation++;
+    }
+
+    /**
+     * Returns a number that changes whenever the cache is emptied. A
+     * response is only stored if the number has not changed since its
+     * request was sent, so that a response read before a change to the
+     * registry is not cached after it.
+     */
+    synchronized long getGeneration()
+    {
+        return generation;
+    }
+
+    /**
+     * Returns the cache key of a request, or null if its response is not cached.
+     */
+    String getKey(UDDIElement request)
+    {
+        String operation = InquiryHedger.getOperationName(request);
+        if (getTtlMillis(operation) <= 0)
+        {
+            return null;
+        }
+        Element base = scratch.get();
+        if (base == null)
+        {
+            try
+            {
+                Document doc = DocumentBuilderPool.getInstance().newDocument();
+                base = doc.createElementNS(UDDIElement.XMLNS, "parent");
+                doc.appendChild(base);
+            }
+            catch (Exception e)
+            {
+                return null;
+            }
+            scratch.set(base);
+        }
+        try
+        {
+            request.saveToXML(base);
+            StringBuffer key = new StringBuffer(256).append(operation).append(' ');
+            for (Node node = base.getFirstChild(); node != null; node = node.getNextSibling())
+            {
+                if (node.getNodeType() == Node.ELEMENT_NODE)
+                {
+                    canonical((Element) node, key);
+                }
+            }
+            return key.toString();
+        }
+        finally
+        {
+            while (base.getFirstChild() != null)
+            {
+                base.removeChild(base.getFirstChild());
+            }
+        }
+    }
+
+    /**
+     * Returns a new copy of the cached response for a key, or null if there
+     * is no response or it has expired.
+     *
+     * @param key    Key returned by {@link #getKey(UDDIElement)}.
+     * @param type   Class of the response object.
+     */
+    UDDIElement get(String key, Class type)
+    {
+        Entry entry;
+        synchronized (this)
+        {
+            if (sketch != null)
+            {
+                sketch.increment(key);
+            }
+            entry = window.get(key);
+            if (entry == null)
+            {
+                entry = main.get(key);
+            }
+            if (entry != null && System.nanoTime() - entry.expires >= 0)
+            {
+                remove(entry);
+                entry = null;
+            }
+        }
+        if (entry != null)
+        {
+            try
+            {
+                UDDIElement result = (UDDIElement) new StAXBinder(type).read(new ByteArrayInputStream(entry.value));
+                hits.incrementAndGet();
+                return result;
+            }
+            catch (UDDIException e)
+            {
+                invalidate(entry);
+            }
+            catch (TransportException e)
+            {
+                invalidate(entry);
+            }
+            catch (ClassCastException e)
+            {
+                invalidate(entry);
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Stores a response.
+     *
+     * @param key        Key returned by {@link #getKey(UDDIElement)}.
+     * @param response   Response of the request.
+     * @param generation Value of {@link #getGeneration()} before the request was sent.
+     */
+    void put(String key, UDDIElement response, long generation)
+    {
+        byte[] value;
+        try
+        {
+            value = serialize(response);
+        }
+        catch (XMLStreamException e)
+        {
+            return;
+        }
+        long ttlNanos = getTtlMillis(key.substring(0, key.indexOf(' '))) * 1000000L;
+        Entry entry = new Entry(key, value, System.nanoTime() + ttlNanos);
+        synchronized (this)
+        {
+            if (generation != this.generation)
+            {
+                return;
+            }
+            Entry old = window.get(key);
+            if (old == null)
+            {
+                old = main.get(key);
+            }
+            if (old != null)
+            {
+                remove(old);
+            }
+            if (sketch == null)
+            {
+                admit(entry);
+            }
+            else
+            {
+                entry.inWindow = true;
+                window.put(key, entry);
+                windowWeight += entry.weight;
+                while (!window.isEmpty() && ((windowEntries > 0 && window.size() > windowEntries) || (windowBytes > 0 && windowWeight > windowBytes)))
+                {
+                    Entry candidate = window.values().iterator().next();
+                    remove(candidate);
+                    candidate.inWindow = false;
+                    admit(candidate);
+                }
+            }
+        }
+    }
+
+    /**
+     * Called for every publish request sent through the proxy. Requests
+     * that change the registry empty the cache.
+     *
+     * @param operation Operation name of the publish request.
+     */
+    void published(String operation)
+    {
+        if (operation.startsWith("save_") || operation.startsWith("delete_") || operation.startsWith("add_") || operation.startsWith("set_"))
+        {
+            clear();
+        }
+    }
+
+    /**
+     * Adds an entry to the main area, evicting entries as needed. With
+     * tinyLfu an entry requested less often than the entries it would
+     * replace is dropped instead.
+     */
+    private void admit(Entry candidate)
+    {
+        long capacityBytes = maxBytes > 0 ? Math.max(1, maxBytes - windowBytes) : 0;
+        int capacityEntries = maxEntries > 0 ? Math.max(1, maxEntries - windowEntries) : 0;
+        if (capacityBytes > 0 && candidate.weight > capacityBytes)
+        {
+            evictions.incrementAndGet();
+            return;
+        }
+        long now = System.nanoTime();
+        Iterator<Entry> eldest = main.values().iterator();
+        while ((capacityEntries > 0 && main.size() + 1 > capacityEntries) || (capacityBytes > 0 && mainWeight + candidate.weight > capacityBytes))
+        {
+            Entry victim = eldest.next();
+            boolean expired = now - victim.expires >= 0;
+            if (!expired && sketch != null && sketch.frequency(candidate.key) <= sketch.frequency(victim.key))
+            {
+                evictions.incrementAndGet();
+                return;
+            }
+            eldest.remove();
+            mainWeight -= victim.weight;
+            if (!expired)
+            {
+                evictions.incrementAndGet();
+            }
+        }
+        main.put(candidate.key, candidate);
+        mainWeight += candidate.weight;
+    }
+
+    private void remove(Entry entry)
+    {
+        if (entry.inWindow)
+        {
+            window.remove(entry.key);
+            windowWeight -= entry.weight;
+        }
+        else
+        {
+            main.remove(entry.key);
+            mainWeight -= entry.weight;
+        }
+    }
+
+    private synchronized void invalidate(Entry entry)
+    {
+        Map<String, Entry> area = entry.inWindow ? window : main;
+        if (area.get(entry.key) == entry)
+        {
+            remove(entry);
+        }
+    }
+
+    /**
+     * Serializes a response into a SOAP envelope StAXBinder can read back.
+     */
+    static byte[] serialize(UDDIElement response) throws XMLStreamException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+        XMLStreamWriter writer = outputFactory.createXMLStreamWriter(out, "UTF-8");
+        writer.writeStartDocument("UTF-8", "1.0");
+        writer.writeStartElement("soapenv", "Envelope", UDDIElement.SOAPNS);
+        writer.writeNamespace("soapenv", UDDIElement.SOAPNS);
+        writer.writeStartElement("soapenv", "Body", UDDIElement.SOAPNS);
+        response.saveToXML(writer);
+        writer.writeEndElement();
+        writer.writeEndElement();
+        writer.writeEndDocument();
+        writer.close();
+        return out.toByteArray();
+    }
+
+    /**
+     * Appends the canonical form of a request element: its name, its
+     * attributes in name order, its text and the canonical forms of its
+     * children, sorted for the elements listed in UNORDERED. Attribute
+     * values and text are escaped and kept as they are, so that different
+     * requests never have the same form.
+     */
+    private static void canonical(Element el, StringBuffer result)
+    {
+        String name = el.getLocalName() != null ? el.getLocalName() : el.getNodeName();
+        result.append('<').append(name);
+        NamedNodeMap attributes = el.getAttributes();
+        String[] names = new String[attributes.getLength()];
+        for (int i = 0; i < names.length; i++)
+        {
+            names[i] = ((Attr) attributes.item(i)).getName();
+        }
+        Arrays.sort(names);
+        for (int i = 0; i < names.length; i++)
+        {
+            if (!names[i].startsWith("xmlns"))
+            {
+                result.append(' ').append(names[i]).append("=\"");
+                escape(el.getAttribute(names[i]), result);
+                result.append('"');
+            }
+        }
+        result.append('>');
+
+        if (Arrays.asList(UNORDERED).contains(name))
+        {
+            int count = 0;
+            for (Node node = el.getFirstChild(); node != null; node = node.getNextSibling())
+            {
+                if (node.getNodeType() == Node.ELEMENT_NODE)
+                {
+                    count++;
+                }
+            }
+            String[] children = new String[count];
+            count = 0;
+            for (Node node = el.getFirstChild(); node != null; node = node.getNextSibling())
+            {
+                if (node.getNodeType() == Node.ELEMENT_NODE)
+                {
+                    StringBuffer child = new StringBuffer(64);
+                    canonical((Element) node, child);
+                    children[count++] = child.toString();
+                }
+                else if (node.getNodeType() == Node.TEXT_NODE || node.getNodeType() == Node.CDATA_SECTION_NODE)
+                {
+                    escape(node.getNodeValue(), result);
+                }
+            }
+            Arrays.sort(children);
+            for (int i = 0; i < children.length; i++)
+            {
+                result.append(children[i]);
+            }
+        }
+        else
+        {
+            for (Node node = el.getFirstChild(); node != null; node = node.getNextSibling())
+            {
+                if (node.getNodeType() == Node.ELEMENT_NODE)
+                {
+                    canonical((Element) node, result);
+                }
+                else if (node.getNodeType() == Node.TEXT_NODE || node.getNodeType() == Node.CDATA_SECTION_NODE)
+                {
+                    escape(node.getNodeValue(), result);
+                }
+            }
+        }
+        result.append("</").append(name).append('>');
+    }
+
+    /**
+     * Appends a value with the characters that delimit the canonical form
+     * escaped.
+     */
+    private static void escape(String value, StringBuffer result)
+    {
+        for (int i = 0; i < value.length(); i++)
+        {
+            char c = value.charAt(i);
+            switch (c)
+            {
+                case '&':
+                    result.append("&amp;");
+                    break;
+                case '<':
+                    result.append("&lt;");
+                    break;
+                case '"':
+                    result.append("&quot;");
+                    break;
+                default:
+                    result.append(c);
+            }
+        }
+    }
+
+    private static class Entry
+    {
+        final String key;
+        final byte[] value;
+        final long expires;
+        final int weight;
+        boolean inWindow = false;
+
+        Entry(String key, byte[] value, long expires)
+        {
+            this.key = key;
+            this.value = value;
+            this.expires = expires;
+            this.weight = ENTRY_OVERHEAD + 2 * key.length() + value.length;
+        }
+    }
+
+    /**
+     * Count-min sketch of how often keys were requested recently. Counters
+     * saturate at 15 and are halved after a number of increments
+     * proportional to the size of the sketch, so that old popularity fades.
+     */
+    private static class FrequencySketch
+    {
+        private static final long[] SEEDS = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+
+        private final int[] table;
+        private final int mask;
+        private final int sampleSize;
+        private int additions = 0;
+
+        FrequencySketch(int capacity)
+        {
+            int size = Integer.highestOneBit(capacity - 1) << 1;
+            table = new int[size];
+            mask = size - 1;
+            sampleSize = 10 * capacity;
+        }
+
+        void increment(String key)
+        {
+            int hash = spread(key.hashCode());
+            boolean added = false;
+            for (int i = 0; i < SEEDS.length; i++)
+            {
+                int index = indexOf(hash, i);
+                if (table[index] < 15)
+                {
+                    table[index]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize)
+            {
+                for (int i = 0; i < table.length; i++)
+                {
+                    table[i] >>>= 1;
+                }
+                additions /= 2;
+            }
+        }
+
+        int frequency(String key)
+        {
+            int hash = spread(key.hashCode());
+            int result = Integer.MAX_VALUE;
+            for (int i = 0; i < SEEDS.length; i++)
+            {
+                result = Math.min(result, table[indexOf(hash, i)]);
+            }
+            return result;
+        }
+
+        private int indexOf(int hash, int i)
+        {
+            long h = (hash + SEEDS[i]) * SEEDS[i];
+            h += h >>> 32;
+            return (int) h & mask;
+        }
+
+        private static int spread(int x)
+        {
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            return (x >>> 16) ^ x;
+        }
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ * The source code contained herein is licensed under the IBM Public License
+ * Version 1.0, which has been approved by the Open Source Initiative.
+ * Copyright (C) 2001, International Business Machines Corporation
+ * All Rights Reserved.
+ *
+ */
+package org.uddi4j.client;
+
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.uddi4j.UDDIElement;
+import org.uddi4j.UDDIException;
+import org.uddi4j.response.DispositionReport;
+import org.uddi4j.response.ErrInfo;
+import org.uddi4j.response.Result;
+import org.uddi4j.transport.Deadline;
+import org.uddi4j.transport.TransportException;
+import org.w3c.dom.Element;
+
+/**
+ * Decides which failed requests UDDIProxy sends again, and how long it
+ * waits before doing so.<P>
+ *
+ * A request is retried if it failed with one of the configured error
+ * codes, by default E_busy, E_requestTimeout, E_fatalError and transport
+ * errors (reported as {@link #TRANSPORT_ERROR}). The wait before the n-th
+ * retry is a random time between zero and the initial backoff times 2^(n-1),
+ * limited to the maximum backoff. Only inquiry requests are retried unless
+ * retries of publish requests are enabled, because a publish request that
+ * failed in transport may already have been carried out.<P>
+ *
+ * Retries are limited by a budget: every request adds the budget fraction
+ * to a balance, and every retry takes one from it. During an outage the
+ * balance runs out and failures are reported directly, instead of every
+ * caller multiplying the load on the registry.
+ *
+ * @see UDDIProxy#getRetryPolicy()
+ */
+public class RetryPolicy
+{
+    /** Error code under which transport errors are retried and counted. */
+    public static final String TRANSPORT_ERROR = "transportError";
+
+    static final int DEFAULT_MAX_RETRIES = 0;
+    static final long DEFAULT_INITIAL_BACKOFF_MILLIS = 100;
+    static final long DEFAULT_MAX_BACKOFF_MILLIS = 5000;
+    static final double DEFAULT_BUDGET_PERCENT = 10;
+    static final String DEFAULT_ERR_CODES = DispositionReport.E_busy + "," + DispositionReport.E_requestTimeout + ","
+            + DispositionReport.E_fatalError + "," + TRANSPORT_ERROR;
+
+    private static final double MAX_BALANCE = 10;
+
+    private final int maxRetries;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final double budget;
+    private final boolean retryPublish;
+    private final Hashtable errCodes = new Hashtable();
+    private final ConcurrentHashMap<String, AtomicLong> retries = new ConcurrentHashMap<String, AtomicLong>();
+    private final AtomicLong refused = new AtomicLong();
+
+    // Guarded by this.
+    private double balance = MAX_BALANCE;
+
+    /**
+     * Construct a retry policy.
+     *
+     * @param maxRetries           Number of times a request is sent again at most.
+     * @param initialBackoffMillis Upper bound of the wait before the first retry.
+     * @param maxBackoffMillis     Upper bound of the wait before any retry.
+     * @param budgetPercent        Percentage of the requests that may be retried.
+     * @param errCodes             Error codes to retry, separated by commas or white space.
+     * @param retryPublish         Whether publish requests are retried too.
+     */
+    RetryPolicy(int maxRetries, long initialBackoffMillis, long maxBackoffMillis, double budgetPercent, String errCodes,
+        boolean retryPublish)
+    {
+        this.maxRetries = Math.max(0, maxRetries);
+        this.initialBackoffNanos = Math.max(0, initialBackoffMillis) * 1000000L;
+        this.maxBackoffNanos = Math.max(initialBackoffNanos, Math.max(0, maxBackoffMillis) * 1000000L);
+        this.budget = Math.max(0, budgetPercent / 100);
+        this.retryPublish = retryPublish;
+        String[] codes = (errCodes != null ? errCodes : DEFAULT_ERR_CODES).trim().split("[,\\s]+");
+        for (int i = 0; i < codes.length; i++)
+        {
+            if (codes[i].length() > 0)
+            {
+                this.errCodes.put(codes[i], codes[i]);
+            }
+        }
+    }
+
+    /**
+     * Number of times a request is sent again at most.
+     */
+    public int getMaxRetries()
+    {
+        return maxRetries;
+    }
+
+    /**
+     * Tests whether requests failing with the given error code are retried.
+     *
+     * @param errCode Error code, for example E_busy, or {@link #TRANSPORT_ERROR}.
+     */
+    public boolean isRetryable(String errCode)
+    {
+        return errCode != null && errCodes.containsKey(errCode);
+    }
+
+    /**
+     * Number of retries made for the given error code.
+     *
+     * @param errCode Error code, for example E_busy, or {@link #TRANSPORT_ERROR}.
+     */
+    public long getRetryCount(String errCode)
+    {
+        AtomicLong count = retries.get(errCode);
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * Returns the number of retries made for each error code.
+     *
+     * @return Hashtable from error code to a Long count.
+     */
+    public Hashtable getRetryCounts()
+    {
+        Hashtable result = new Hashtable();
+        for (Iterator i = retries.entrySet().iterator(); i.hasNext();)
+        {
+            Map.Entry entry = (Map.Entry) i.next();
+            result.put(entry.getKey(), Long.valueOf(((AtomicLong) entry.getValue()).get()));
+        }
+        return result;
+    }
+
+    /**
+     * Number of retries not made because the retry budget was used up.
+     */
+    public long getRefusedCount()
+    {
+        return refused.get();
+    }
+
+    /**
+     * Tests whether requests to the inquiry or publish URL are retried.
+     */
+    boolean appliesTo(boolean inquiry)
+    {
+        return maxRetries > 0 && (inquiry || retryPublish);
+    }
+
+    /**
+     * Records a request, adding to the retry budget.
+     */
+    synchronized void started()
+    {
+        balance = Math.min(MAX_BALANCE, balance + budget);
+    }
+
+    /**
+     * Decides whether a failed request is sent again, and if so takes the
+     * retry from the budget and chooses the time to wait before it. A
+     * request is not retried if the wait would take it past the deadline
+     * of the call.
+     *
+     * @param errCode Error code of the failure, or null if it has none.
+     * @param retry   Number of retries made for the request so far.
+     * @return Nanoseconds to wait before the retry, or -1 to not retry.
+     */
+    long retryDelay(String errCode, int retry)
+    {
+        if (retry >= maxRetries || !isRetryable(errCode))
+        {
+            return -1;
+        }
+        long delay = backoffNanos(retry + 1);
+        Deadline deadline = Deadline.current();
+        if (deadline != null && deadline.remainingNanos() <= delay)
+        {
+            return -1;
+        }
+        synchronized (this)
+        {
+            if (balance < 1)
+            {
+                refused.incrementAndGet();
+                return -1;
+            }
+            balance -= 1;
+        }
+        AtomicLong count = retries.get(errCode);
+        if (count == null)
+        {
+            AtomicLong created = new AtomicLong();
+            count = retries.putIfAbsent(errCode, created);
+            if (count == null)
+            {
+                count = created;
+            }
+        }
+        count.incrementAndGet();
+        return delay;
+    }
+
+    /**
+     * Chooses the wait before a retry: a random time up to the initial
+     * backoff times 2^(retry-1), limited to the maximum backoff.
+     *
+     * @param retry  Number of the retry, starting at 1.
+     */
+    private long backoffNanos(int retry)
+    {
+        long ceiling = initialBackoffNanos;
+        for (int i = 1; i < retry && ceiling < maxBackoffNanos; i++)
+        {
+            ceiling *= 2;
+        }
+        ceiling = Math.min(ceiling, maxBackoffNanos);
+        return ceiling <= 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    /**
+     * Waits before a retry.
+     *
+     * @param nanos  Time to wait, as returned by retryDelay.
+     * @exception TransportException
+     *                   If the thread is interrupted.
+     */
+    static void pause(long nanos) throws TransportException
+    {
+        if (nanos <= 0)
+        {
+            return;
+        }
+        try
+        {
+            Thread.sleep(nanos / 1000000L, (int) (nanos % 1000000L));
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new TransportException(e);
+        }
+    }
+
+    /**
+     * Returns the error code of a failed request.
+     *
+     * @return The errCode of the disposition report, {@link #TRANSPORT_ERROR}
+     *         for a transport error, or null.
+     */
+    static String getErrCode(Exception e)
+    {
+        if (e instanceof TransportException)
+        {
+            return TRANSPORT_ERROR;
+        }
+        if (e instanceof UDDIException)
+        {
+            DispositionReport report = ((UDDIException) e).getDispositionReport();
+            if (report != null && report.getResultVector().size() > 0)
+            {
+                ErrInfo info = ((Result) report.getResultVector().elementAt(0)).getErrInfo();
+                return info != null ? info.getErrCode() : null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the error code of a response returned as a DOM tree.
+     *
+     * @return The errCode if the response is a SOAP fault, otherwise null.
+     */
+    static String getErrCode(Element response)
+    {
+        if (response != null && UDDIElement.SOAPNS.equals(response.getNamespaceURI()) && "Fault".equals(response.getLocalName()))
+        {
+            return getErrCode(new UDDIException(response, true));
+        }
+        return null;
+    }
+}
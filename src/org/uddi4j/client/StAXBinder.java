@@ -0,0 +1,1306 @@
+/*
+ * The source code contained herein is licensed under the IBM Public License
+ * Version 1.0, which has been approved by the Open Source Initiative.
+ * Copyright (C) 2001, International Business Machines Corporation
+ * All Rights Reserved.
+ *
+ */
+package org.uddi4j.client;
+
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Hashtable;
+import java.util.Vector;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.uddi4j.DocumentBuilderPool;
+import org.uddi4j.UDDIElement;
+import org.uddi4j.UDDIException;
+import org.uddi4j.datatype.Description;
+import org.uddi4j.datatype.Name;
+import org.uddi4j.datatype.OverviewDoc;
+import org.uddi4j.datatype.OverviewURL;
+import org.uddi4j.datatype.binding.AccessPoint;
+import org.uddi4j.datatype.binding.BindingTemplate;
+import org.uddi4j.datatype.binding.BindingTemplates;
+import org.uddi4j.datatype.binding.HostingRedirector;
+import org.uddi4j.datatype.binding.InstanceDetails;
+import org.uddi4j.datatype.binding.InstanceParms;
+import org.uddi4j.datatype.binding.TModelInstanceDetails;
+import org.uddi4j.datatype.binding.TModelInstanceInfo;
+import org.uddi4j.datatype.business.Address;
+import org.uddi4j.datatype.business.AddressLine;
+import org.uddi4j.datatype.business.BusinessEntity;
+import org.uddi4j.datatype.business.Contact;
+import org.uddi4j.datatype.business.Contacts;
+import org.uddi4j.datatype.business.Email;
+import org.uddi4j.datatype.business.PersonName;
+import org.uddi4j.datatype.business.Phone;
+import org.uddi4j.datatype.service.BusinessService;
+import org.uddi4j.datatype.service.BusinessServices;
+import org.uddi4j.datatype.tmodel.TModel;
+import org.uddi4j.response.BindingDetail;
+import org.uddi4j.response.BusinessDetail;
+import org.uddi4j.response.BusinessInfo;
+import org.uddi4j.response.BusinessInfos;
+import org.uddi4j.response.BusinessList;
+import org.uddi4j.response.RelatedBusinessInfo;
+import org.uddi4j.response.RelatedBusinessInfos;
+import org.uddi4j.response.RelatedBusinessesList;
+import org.uddi4j.response.ServiceDetail;
+import org.uddi4j.response.ServiceInfo;
+import org.uddi4j.response.ServiceInfos;
+import org.uddi4j.response.ServiceList;
+import org.uddi4j.response.SharedRelationships;
+import org.uddi4j.response.TModelDetail;
+import org.uddi4j.response.TModelInfo;
+import org.uddi4j.response.TModelInfos;
+import org.uddi4j.response.TModelList;
+import org.uddi4j.transport.StreamingTransport;
+import org.uddi4j.transport.TransportException;
+import org.uddi4j.util.BusinessKey;
+import org.uddi4j.util.CategoryBag;
+import org.uddi4j.util.DiscoveryURL;
+import org.uddi4j.util.DiscoveryURLs;
+import org.uddi4j.util.IdentifierBag;
+import org.uddi4j.util.KeyedReference;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Builds UDDI response objects directly from a SOAP response stream using
+ * a StAX pull parser, without building a DOM tree of the response first.<P>
+ *
+ * The inquiry responses (businessList, serviceList, tModelList,
+ * relatedBusinessesList, businessDetail, serviceDetail, bindingDetail and
+ * tModelDetail) and everything they contain are read field by field, giving
+ * the same objects the DOM constructors of those classes would. Other
+ * response types, and SOAP faults, are read into a DOM tree covering just
+ * that element and passed to the usual DOM constructor. Unlike
+ * UDDIElement.getText, text in CDATA sections is kept.<P>
+ *
+ * UDDIProxy uses this class for transports that implement
+ * StreamingTransport. One instance binds one response type and may be
+ * shared between threads.
+ */
+public class StAXBinder implements StreamingTransport.ResponseReader
+{
+    private static final XMLInputFactory factory = newFactory();
+
+    // DOM constructors of the response types read through a DOM tree.
+    private static final Hashtable constructors = new Hashtable();
+
+    private final Class type;
+
+    /**
+     * Construct a binder for one response type.
+     *
+     * @param type   Class of the response object, for example BusinessList.class.
+     */
+    public StAXBinder(Class type)
+    {
+        this.type = type;
+    }
+
+    /**
+     * Reads a SOAP envelope and returns the response object built from the
+     * first element of the body.
+     *
+     * @param in     Stream positioned at the start of the SOAP envelope.
+     * @return The response object, an instance of the type given to the constructor.
+     * @exception UDDIException Thrown if the body contains a SOAP fault.
+     * @exception TransportException Thrown if the stream is not a well formed SOAP envelope.
+     */
+    public Object read(InputStream in) throws UDDIException, TransportException
+    {
+        XMLStreamReader reader = null;
+        try
+        {
+            reader = factory.createXMLStreamReader(in);
+            if (!toBodyContent(reader))
+            {
+                throw new TransportException("No SOAP body content in response");
+            }
+            if (UDDIElement.SOAPNS.equals(reader.getNamespaceURI()) && "Fault".equals(reader.getLocalName()))
+            {
+                throw new UDDIException(readElement(reader), true);
+            }
+            return bind(type, reader);
+        }
+        catch (XMLStreamException e)
+        {
+            throw new TransportException(e);
+        }
+        finally
+        {
+            if (reader != null)
+            {
+                try
+                {
+                    reader.close();
+                }
+                catch (XMLStreamException e)
+                {
+                    // Nothing more to read.
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds a response object of the given type from the element the reader
+     * is positioned at. On return the reader is positioned at the end tag of
+     * that element.
+     *
+     * @param type   Class of the response object.
+     * @param r      Reader positioned at a start tag.
+     * @return The response object.
+     * @exception UDDIException
+     * @exception XMLStreamException
+     */
+    public static UDDIElement bind(Class type, XMLStreamReader r) throws UDDIException, XMLStreamException
+    {
+        if (type == BusinessList.class)
+        {
+            return readBusinessList(r);
+        }
+        if (type == ServiceList.class)
+        {
+            return readServiceList(r);
+        }
+        if (type == TModelList.class)
+        {
+            return readTModelList(r);
+        }
+        if (type == RelatedBusinessesList.class)
+        {
+            return readRelatedBusinessesList(r);
+        }
+        if (type == BusinessDetail.class)
+        {
+            return readBusinessDetail(r);
+        }
+        if (type == ServiceDetail.class)
+        {
+            return readServiceDetail(r);
+        }
+        if (type == BindingDetail.class)
+        {
+            return readBindingDetail(r);
+        }
+        if (type == TModelDetail.class)
+        {
+            return readTModelDetail(r);
+        }
+        return newInstance(type, readElement(r));
+    }
+
+    /**
+     * Builds a response object of the given type from a DOM tree, using the
+     * DOM constructor of the class. Used when the transport does not support
+     * streaming.
+     *
+     * @param type   Class of the response object.
+     * @param el     Element containing the response.
+     * @return The response object.
+     * @exception UDDIException
+     */
+    public static UDDIElement newInstance(Class type, Element el) throws UDDIException
+    {
+        try
+        {
+            Constructor constructor = (Constructor) constructors.get(type);
+            if (constructor == null)
+            {
+                constructor = type.getConstructor(new Class[] { Element.class });
+                constructors.put(type, constructor);
+            }
+            return (UDDIElement) constructor.newInstance(new Object[] { el });
+        }
+        catch (InvocationTargetException e)
+        {
+            Throwable target = e.getTargetException();
+            if (target instanceof UDDIException)
+            {
+                throw (UDDIException) target;
+            }
+            if (target instanceof RuntimeException)
+            {
+                throw (RuntimeException) target;
+            }
+            throw new IllegalArgumentException(target.toString());
+        }
+        catch (Exception e)
+        {
+            throw new IllegalArgumentException("Cannot construct " + type.getName() + " from a DOM tree: " + e);
+        }
+    }
+
+    // Responses
+
+    static BusinessList readBusinessList(XMLStreamReader r) throws XMLStreamException
+    {
+        BusinessList list = new BusinessList();
+        list.setOperator(attr(r, "operator"));
+        list.setTruncated(attr(r, "truncated"));
+        while (nextChild(r))
+        {
+            if (list.getBusinessInfos() == null && is(r, BusinessInfos.UDDI_TAG))
+            {
+                list.setBusinessInfos(readBusinessInfos(r));
+            }
+            else
+            {
+                skip(r);
+            }
+        }
+        return list;
+    }
+
+    static ServiceList readServiceList(XMLStreamReader r) throws XMLStreamException
+    {
+        ServiceList list = new ServiceList();
+        list.setOperator(attr(r, "operator"));
+        list.setTruncated(attr(r, "truncated"));
+        while (nextChild(r))
+        {
+            if (list.getServiceInfos() == null && is(r, ServiceInfos.UDDI_TAG))
+            {
+                list.setServiceInfos(readServiceInfos(r));
+            }
+            else
+            {
+                skip(r);
+            }
+        }
+        return list;
+    }
+
+    static TModelList readTModelList(XMLStreamReader r) throws XMLStreamException
+    {
+        TModelList list = new TModelList();
+        list.setOperator(attr(r, "operator"));
+        list.setTruncated(attr(r, "truncated"));
+        while (nextChild(r))
+        {
+            if (list.getTModelInfos() == null && is(r, TModelInfos.UDDI_TAG))
+            {
+                list.setTModelInfos(readTModelInfos(r));
+            }
+            else
+            {
+                skip(r);
+            }
+        }
+        return list;
+    }
+
+    static RelatedBusinessesList readRelatedBusinessesList(XMLStreamReader r) throws XMLStreamException
+    {
+        RelatedBusinessesList list = new RelatedBusinessesList();
+        list.setOperator(attr(r, "operator"));
+        list.setTruncated(attr(r, "truncated"));
+        boolean hasKey = false;
+        while (nextChild(r))
+        {
+            if (list.getRelatedBusinessInfos() == null && is(r, RelatedBusinessInfos.UDDI_TAG))
+            {
+                list.setRelatedBusinessInfos(readRelatedBusinessInfos(r));
+            }
+            else if (!hasKey && is(r, BusinessKey.UDDI_TAG))
+            {
+                list.setBusinessKey(text(r));
+                hasKey = true;
+            }
+            else
+            {
+                skip(r);
+            }
+        }
+        return list;
+    }
+
+    static BusinessDetail readBusinessDetail(XMLStreamReader r) throws XMLStreamException
+    {
+        BusinessDetail detail = new BusinessDetail();
+        detail.setOperator(attr(r, "operator"));
+        detail.setTruncated(attr(r, "truncated"));
+        Vector entities = new Vector();
+        while (nextChild(r))
+        {
+            if (is(r, BusinessEntity.UDDI_TAG))
+            {
+                entities.addElement(readBusinessEntity(r));
+            }
+            else
+            {
+                skip(r);
+            }
+        }
+        detail.setBusinessEntityVector(entities);
+        return detail;
+    }
+
+    static ServiceDetail readServiceDetail(XMLStreamReader r) throws XMLStreamException
+    {
+        ServiceDetail detail = new ServiceDetail();
+        detail.setOperator(attr(r, "operator"));
+        detail.setTruncated(attr(r, "truncated"));
+        Vector services = new Vector();
+        while (nextChild(r))
+        {
+            if (is(r, BusinessService.UDDI_TAG))
+            {
+                services.addElement(readBusinessService(r));
+            }
+            else
+            {
+                skip(r);
+            }
+        }
+        detail.setBusinessServiceVector(services);
+        return detail;
+    }
+
+    static BindingDetail readBindingDetail(XMLStreamReader r) throws XMLStreamException
+    {
+        BindingDetail detail = new BindingDetail();
+        detail.setOperator(attr(r, "operator"));
+        detail.setTruncated(attr(r, "truncated"));
+        Vector templates = new Vector();
+        while (nextChild(r))
+        {
+            if (is(r, BindingTemplate.UDDI_TAG))
+            {
+                templates.addElement(readBindingTemplate(r));
+            }
+            else
+            {
+                skip(r);
+            }
+        }
+        detail.setBindingTemplateVector(templates);
+        return detail;
+    }
+
+    static TModelDetail readTModelDetail(XMLStreamReader r) throws XMLStreamException
+    {
+        TModelDetail detail = new TModelDetail();
+        detail.setOperator(attr(r, "operator"));
+        detail.setTruncated(attr(r, "truncated"));
+        Vector tModels = new Vector();
+        while (nextChild(r))
+        {
+            if (is(r, TModel.UDDI_TAG))
+            {
+                tModels.addElement(readTModel(r));
+            }
+            else
+            {
+                skip(r);
+            }
+        }
+        detail.setTModelVector(tModels);
+        return detail;
+    }
+
+    // Short forms returned by the find_xx messages
+
+    static BusinessInfos readBusinessInfos(XMLStreamReader r) throws XMLStreamException
+    {
+        BusinessInfos infos = new BusinessInfos();
+        Vector v = new Vector();
+        while (nextChild(r))
+        {
+            if (is(r, BusinessInfo.UDDI_TAG))
+            {
+                v.addElement(readBusinessInfo(r));
+            }
+            else
+            {
+                skip(r);
+            }
+        }
+        infos.setBusinessInfoVector(v);
+        return infos;
+    }
+
+    static BusinessInfo readBusinessInfo(XMLStreamReader r) throws XMLStreamException
+    {
+        BusinessInfo info = new BusinessInfo();
+        info.setBusinessKey(attr(r, "businessKey"));
+        Vector names = new Vector();
+        Vector descriptions = new Vector();
+        while (nextChild(r))
+        {
+            if (is(r, Name.UDDI_TAG))
+            {
+                names.addElement(readName(r));
+            }
+            else if (is(r, Description.UDDI_TAG))
+            {
+                descriptions.addElement(readDescription(r));
+            }
+            else if (info.getServiceInfos() == null && is(r, ServiceInfos.UDDI_TAG))
+            {
+                info.setServiceInfos(readServiceInfos(r));
+            }
+            else
+            {
+                skip(r);
+            }
+        }
+        info.setNameVector(names);
+        info.setDescriptionVector(descriptions);
+        return info;
+    }
+
+    static ServiceInfos readServiceInfos(XMLStreamReader r) throws XMLStreamException
+    {
+        ServiceInfos infos = new ServiceInfos();
+        Vector v = new Vector();
+        while (nextChild(r))
+        {
+            if (is(r, ServiceInfo.UDDI_TAG))
+            {
+                v.addElement(readServiceInfo(r));
+            }
+            else
+            {
+                skip(r);
+            }
+        }
+        infos.setServiceInfoVector(v);
+        return infos;
+    }
+
+    static ServiceInfo readServiceInfo(XMLStreamReader r) throws XMLStreamException
+    {
+        ServiceInfo info = new ServiceInfo();
+        info.setServiceKey(attr(r, "serviceKey"));
+        info.setBusinessKey(attr(r, "businessKey"));
+        Vector names = new Vector();
+        while (nextChild(r))
+        {
+            if (is(r, Name.UDDI_TAG))
+            {
+                names.addElement(readName(r));
+            }
+            else
+            {
+                skip(r);
+            }
+        }
+        info.setNameVector(names);
+        return info;
+    }
+
+    static TModelInfos readTModelInfos(XMLStreamReader r) throws XMLStreamException
+    {
+        TModelInfos infos = new TModelInfos();
+        Vector v = new Vector();
+        while (nextChild(r))
+        {
+            if (is(r, TModelInfo.UDDI_TAG))
+            {
+                v.addElement(readTModelInfo(r));
+            }
+            else
+            {
+                skip(r);
+            }
+        }
+        infos.setTModelInfoVector(v);
+        return infos;
+    }
+
+    static TModelInfo readTModelInfo(XMLStreamReader r) throws XMLStreamException
+    {
+        TModelInfo info = new TModelInfo();
+        info.setTModelKey(attr(r, "tModelKey"));
+        while (nextChild(r))
+        {
+            if (info.getName() == null && is(r, Name.UDDI_TAG))
+            {
+                info.setName(readName(r));
+            }
+            else
+            {
+                skip(r);
+            }
+        }
+        return info;
+    }
+
+    static RelatedBusinessInfos readRelatedBusinessInfos(XMLStreamReader r) throws XMLStreamException
+    {
+        RelatedBusinessInfos infos = new RelatedBusinessInfos();
+        Vector v = new Vector();
+        while (nextChild(r))
+        {
+            if (is(r, RelatedBusinessInfo.UDDI_TAG))
+            {
+                v.addElement(readRelatedBusinessInfo(r));
+            }
+            else
+            {
+                skip(r);
+            }
+        }
+        infos.setRelatedBusinessInfoVector(v);
+        return infos;
+    }
+
+    static RelatedBusinessInfo readRelatedBusinessInfo(XMLStreamReader r) throws XMLStreamException
+    {
+        RelatedBusinessInfo info = new RelatedBusinessInfo();
+        Vector names = new Vector();
+        Vector descriptions = new Vector();
+        Vector shared = new Vector();
+        boolean hasKey = false;
+        while (nextChild(r))
+        {
+            if (!hasKey && is(r, BusinessKey.UDDI_TAG))
+            {
+                info.setBusinessKey(text(r));
+                hasKey = true;
+            }
+            else if (is(r, Name.UDDI_TAG))
+            {
+                names.addElement(readName(r));
+            }
+            else if (is(r, Description.UDDI_TAG))
+            {
+                descriptions.addElement(readDescription(r));
+            }
+            else if (is(r, SharedRelationships.UDDI_TAG))
+            {
+                shared.addElement(readSharedRelationships(r));
+            }
+            else
+            {
+                skip(r);
+            }
+        }
+        info.setNameVector(names);
+        info.setDescriptionVector(descriptions);
+        info.setSharedRelationshipsVector(shared);
+        return info;
+    }
+
+    static SharedRelationships readSharedRelationships(XMLStreamReader r) throws XMLStreamException
+    {
+        SharedRelationships shared = new SharedRelationships();
+        shared.setDirection(attr(r, "direction"));
+        shared.setKeyedReferenceVector(readKeyedReferences(r));
+        return shared;
+    }
+
+    // Entities
+
+    static BusinessEntity readBusinessEntity(XMLStreamReader r) throws XMLStreamException
+    {
+        BusinessEntity entity = new BusinessEntity();
+        entity.setBusinessKey(attr(r, "businessKey"));
+        entity.setOperator(optionalAttr(r, "operator"));
+        entity.setAuthorizedName(optionalAttr(r, "authorizedName"));
+        Vector names = new Vector();
+        Vector descriptions = new Vector();
+        while (nextChild(r))
+        {
+            if (is(r, Name.UDDI_TAG))
+            {
+                names.addElement(readName(r));
+            }
+            else if (is(r, Description.UDDI_TAG))
+            {
+                descriptions.addElement(readDescription(r));
+            }
+            else if (entity.getDiscoveryURLs() == null && is(r, DiscoveryURLs.UDDI_TAG))
+            {
+                entity.setDiscoveryURLs(readDiscoveryURLs(r));
+            }
+            else if (entity.getContacts() == null && is(r, Contacts.UDDI_TAG))
+            {
+                entity.setContacts(readContacts(r));
+            }
+            else if (entity.getBusinessServices() == null && is(r, BusinessServices.UDDI_TAG))
+            {
+                entity.setBusinessServices(readBusinessServices(r));
+            }
+            else if (entity.getIdentifierBag() == null && is(r, IdentifierBag.UDDI_TAG))
+            {
+                IdentifierBag bag = new IdentifierBag();
+                bag.setKeyedReferenceVector(readKeyedReferences(r));
+                entity.setIdentifierBag(bag);
+            }
+            else if (entity.getCategoryBag() == null && is(r, CategoryBag.UDDI_TAG))
+            {
+                CategoryBag bag = new CategoryBag();
+                bag.setKeyedReferenceVector(readKeyedReferences(r));
+                entity.setCategoryBag(bag);
+            }
+            else
+            {
+                skip(r);
+            }
+        }
+        entity.setNameVector(names);
+        entity.setDescriptionVector(descriptions);
+        return entity;
+    }
+
+    static DiscoveryURLs readDiscoveryURLs(XMLStreamReader r) throws XMLStreamException
+    {
+        DiscoveryURLs urls = new DiscoveryURLs();
+        Vector v = new Vector();
+        while (nextChild(r))
+        {
+            if (is(r, DiscoveryURL.UDDI_TAG))
+            {
+                DiscoveryURL url = new DiscoveryURL();
+                url.setUseType(attr(r, "useType"));
+                url.setText(text(r));
+                v.addElement(url);
+            }
+            else
+            {
+                skip(r);
+            }
+        }
+        urls.setDiscoveryURLVector(v);
+        return urls;
+    }
+
+    static Contacts readContacts(XMLStreamReader r) throws XMLStreamException
+    {
+        Contacts contacts = new Contacts();
+        Vector v = new Vector();
+        while (nextChild(r))
+        {
+            if (is(r, Contact.UDDI_TAG))
+            {
+                v.addElement(readContact(r));
+            }
+            else
+            {
+                skip(r);
+            }
+        }
+        contacts.setContactVector(v);
+        return contacts;
+    }
+
+    static Contact readContact(XMLStreamReader r) throws XMLStreamException
+    {
+        Contact contact = new Contact();
+        contact.setUseType(optionalAttr(r, "useType"));
+        Vector descriptions = new Vector();
+        Vector phones = new Vector();
+        Vector emails = new Vector();
+        Vector addresses = new Vector();
+        while (nextChild(r))
+        {
+            if (contact.getPersonName() == null && is(r, PersonName.UDDI_TAG))
+            {
+                PersonName name = new PersonName();
+                name.setText(text(r));
+                contact.setPersonName(name);
+            }
+            else if (is(r, Description.UDDI_TAG))
+            {
+                descriptions.addElement(readDescription(r));
+            }
+            else if (is(r, Phone.UDDI_TAG))
+            {
+                Phone phone = new Phone();
+                phone.setUseType(optionalAttr(r, "useType"));
+                phone.setText(text(r));
+                phones.addElement(phone);
+            }
+            else if (is(r, Email.UDDI_TAG))
+            {
+                Email email = new Email();
+                email.setUseType(optionalAttr(r, "useType"));
+                email.setText(text(r));
+                emails.addElement(email);
+            }
+            else if (is(r, Address.UDDI_TAG))
+            {
+                addresses.addElement(readAddress(r));
+            }
+            else
+            {
+                skip(r);
+            }
+        }
+        contact.setDescriptionVector(descriptions);
+        contact.setPhoneVector(phones);
+        contact.setEmailVector(emails);
+        contact.setAddressVector(addresses);
+        return contact;
+    }
+
+    static Address readAddress(XMLStreamReader r) throws XMLStreamException
+    {
+        Address address = new Address();
+        address.setUseType(optionalAttr(r, "useType"));
+        address.setSortCode(optionalAttr(r, "sortCode"));
+        address.setTModelKey(optionalAttr(r, "tModelKey"));
+        Vector lines = new Vector();
+        while (nextChild(r))
+        {
+            if (is(r, AddressLine.UDDI_TAG))
+            {
+                AddressLine line = new AddressLine();
+                line.setKeyName(optionalAttr(r, "keyName"));
+                line.setKeyValue(optionalAttr(r, "keyValue"));
+                line.setText(text(r));
+                lines.addElement(line);
+            }
+            else
+            {
+                skip(r);
+            }
+        }
+        address.setAddressLineVector(lines);
+        return address;
+    }
+
+    static BusinessServices readBusinessServices(XMLStreamReader r) throws XMLStreamException
+    {
+        BusinessServices services = new BusinessServices();
+        Vector v = new Vector();
+        while (nextChild(r))
+        {
+            if (is(r, BusinessService.UDDI_TAG))
+            {
+                v.addElement(readBusinessService(r));
+            }
+            else
+            {
+                skip(r);
+            }
+        }
+        services.setBusinessServiceVector(v);
+        return services;
+    }
+
+    static BusinessService readBusinessService(XMLStreamReader r) throws XMLStreamException
+    {
+        BusinessService service = new BusinessService();
+        service.setServiceKey(attr(r, "serviceKey"));
+        service.setBusinessKey(optionalAttr(r, "businessKey"));
+        Vector names = new Vector();
+        Vector descriptions = new Vector();
+        while (nextChild(r))
+        {
+            if (is(r, Name.UDDI_TAG))
+            {
+                names.addElement(readName(r));
+            }
+            else if (is(r, Description.UDDI_TAG))
+            {
+                descriptions.addElement(readDescription(r));
+            }
+            else if (service.getBindingTemplates() == null && is(r, BindingTemplates.UDDI_TAG))
+            {
+                service.setBindingTemplates(readBindingTemplates(r));
+            }
+            else if (service.getCategoryBag() == null && is(r, CategoryBag.UDDI_TAG))
+            {
+                CategoryBag bag = new CategoryBag();
+                bag.setKeyedReferenceVector(readKeyedReferences(r));
+                service.setCategoryBag(bag);
+            }
+            else
+            {
+                skip(r);
+            }
+        }
+        service.setNameVector(names);
+        service.setDescriptionVector(descriptions);
+        return service;
+    }
+
+    static BindingTemplates readBindingTemplates(XMLStreamReader r) throws XMLStreamException
+    {
+        BindingTemplates templates = new BindingTemplates();
+        Vector v = new Vector();
+        while (nextChild(r))
+        {
+            if (is(r, BindingTemplate.UDDI_TAG))
+            {
+                v.addElement(readBindingTemplate(r));
+            }
+            else
+            {
+                skip(r);
+            }
+        }
+        templates.setBindingTemplateVector(v);
+        return templates;
+    }
+
+    static BindingTemplate readBindingTemplate(XMLStreamReader r) throws XMLStreamException
+    {
+        BindingTemplate template = new BindingTemplate();
+        template.setBindingKey(attr(r, "bindingKey"));
+        template.setServiceKey(optionalAttr(r, "serviceKey"));
+        Vector descriptions = new Vector();
+        while (nextChild(r))
+        {
+            if (is(r, Description.UDDI_TAG))
+            {
+                descriptions.addElement(readDescription(r));
+            }
+            else if (template.getAccessPoint() == null && is(r, AccessPoint.UDDI_TAG))
+            {
+                AccessPoint accessPoint = new AccessPoint();
+                accessPoint.setURLType(attr(r, "URLType"));
+                accessPoint.setText(text(r));
+                template.setAccessPoint(accessPoint);
+            }
+            else if (template.getHostingRedirector() == null && is(r, HostingRedirector.UDDI_TAG))
+            {
+                HostingRedirector redirector = new HostingRedirector();
+                redirector.setBindingKey(attr(r, "bindingKey"));
+                skip(r);
+                template.setHostingRedirector(redirector);
+            }
+            else if (template.getTModelInstanceDetails() == null && is(r, TModelInstanceDetails.UDDI_TAG))
+            {
+                template.setTModelInstanceDetails(readTModelInstanceDetails(r));
+            }
+            else
+            {
+                skip(r);
+            }
+        }
+        template.setDescriptionVector(descriptions);
+        return template;
+    }
+
+    static TModelInstanceDetails readTModelInstanceDetails(XMLStreamReader r) throws XMLStreamException
+    {
+        TModelInstanceDetails details = new TModelInstanceDetails();
+        Vector v = new Vector();
+        while (nextChild(r))
+        {
+            if (is(r, TModelInstanceInfo.UDDI_TAG))
+            {
+                v.addElement(readTModelInstanceInfo(r));
+            }
+            else
+            {
+                skip(r);
+            }
+        }
+        details.setTModelInstanceInfoVector(v);
+        return details;
+    }
+
+    static TModelInstanceInfo readTModelInstanceInfo(XMLStreamReader r) throws XMLStreamException
+    {
+        TModelInstanceInfo info = new TModelInstanceInfo();
+        info.setTModelKey(attr(r, "tModelKey"));
+        Vector descriptions = new Vector();
+        while (nextChild(r))
+        {
+            if (is(r, Description.UDDI_TAG))
+            {
+                descriptions.addElement(readDescription(r));
+            }
+            else if (info.getInstanceDetails() == null && is(r, InstanceDetails.UDDI_TAG))
+            {
+                info.setInstanceDetails(readInstanceDetails(r));
+            }
+            else
+            {
+                skip(r);
+            }
+        }
+        info.setDescriptionVector(descriptions);
+        return info;
+    }
+
+    static InstanceDetails readInstanceDetails(XMLStreamReader r) throws XMLStreamException
+    {
+        InstanceDetails details = new InstanceDetails();
+        Vector descriptions = new Vector();
+        while (nextChild(r))
+        {
+            if (is(r, Description.UDDI_TAG))
+            {
+                descriptions.addElement(readDescription(r));
+            }
+            else if (details.getOverviewDoc() == null && is(r, OverviewDoc.UDDI_TAG))
+            {
+                details.setOverviewDoc(readOverviewDoc(r));
+            }
+            else if (details.getInstanceParms() == null && is(r, InstanceParms.UDDI_TAG))
+            {
+                InstanceParms parms = new InstanceParms();
+                parms.setText(text(r));
+                details.setInstanceParms(parms);
+            }
+            else
+            {
+                skip(r);
+            }
+        }
+        details.setDescriptionVector(descriptions);
+        return details;
+    }
+
+    static TModel readTModel(XMLStreamReader r) throws XMLStreamException
+    {
+        TModel tModel = new TModel();
+        tModel.setTModelKey(attr(r, "tModelKey"));
+        tModel.setOperator(optionalAttr(r, "operator"));
+        tModel.setAuthorizedName(optionalAttr(r, "authorizedName"));
+        Vector descriptions = new Vector();
+        while (nextChild(r))
+        {
+            if (tModel.getName() == null && is(r, Name.UDDI_TAG))
+            {
+                Name name = readName(r);
+                // xml:lang for Name should not be present in TModel
+                name.setLang(null);
+                tModel.setName(name);
+            }
+            else if (is(r, Description.UDDI_TAG))
+            {
+                descriptions.addElement(readDescription(r));
+            }
+            else if (tModel.getOverviewDoc() == null && is(r, OverviewDoc.UDDI_TAG))
+            {
+                tModel.setOverviewDoc(readOverviewDoc(r));
+            }
+            else if (tModel.getIdentifierBag() == null && is(r, IdentifierBag.UDDI_TAG))
+            {
+                IdentifierBag bag = new IdentifierBag();
+                bag.setKeyedReferenceVector(readKeyedReferences(r));
+                tModel.setIdentifierBag(bag);
+            }
+            else if (tModel.getCategoryBag() == null && is(r, CategoryBag.UDDI_TAG))
+            {
+                CategoryBag bag = new CategoryBag();
+                bag.setKeyedReferenceVector(readKeyedReferences(r));
+                tModel.setCategoryBag(bag);
+            }
+            else
+            {
+                skip(r);
+            }
+        }
+        tModel.setDescriptionVector(descriptions);
+        return tModel;
+    }
+
+    static OverviewDoc readOverviewDoc(XMLStreamReader r) throws XMLStreamException
+    {
+        OverviewDoc doc = new OverviewDoc();
+        Vector descriptions = new Vector();
+        while (nextChild(r))
+        {
+            if (is(r, Description.UDDI_TAG))
+            {
+                descriptions.addElement(readDescription(r));
+            }
+            else if (doc.getOverviewURL() == null && is(r, OverviewURL.UDDI_TAG))
+            {
+                OverviewURL url = new OverviewURL();
+                url.setText(text(r));
+                doc.setOverviewURL(url);
+            }
+            else
+            {
+                skip(r);
+            }
+        }
+        doc.setDescriptionVector(descriptions);
+        return doc;
+    }
+
+    // Leaf elements
+
+    /**
+     * Reads the keyedReference children of a categoryBag, identifierBag or
+     * sharedRelationships element.
+     */
+    static Vector readKeyedReferences(XMLStreamReader r) throws XMLStreamException
+    {
+        Vector v = new Vector();
+        while (nextChild(r))
+        {
+            if (is(r, KeyedReference.UDDI_TAG))
+            {
+                KeyedReference ref = new KeyedReference();
+                ref.setTModelKey(attr(r, "tModelKey"));
+                ref.setKeyName(optionalAttr(r, "keyName"));
+                ref.setKeyValue(optionalAttr(r, "keyValue"));
+                skip(r);
+                v.addElement(ref);
+            }
+            else
+            {
+                skip(r);
+            }
+        }
+        return v;
+    }
+
+    static Name readName(XMLStreamReader r) throws XMLStreamException
+    {
+        Name name = new Name();
+        name.setLang(lang(r));
+        name.setText(text(r));
+        return name;
+    }
+
+    static Description readDescription(XMLStreamReader r) throws XMLStreamException
+    {
+        Description description = new Description();
+        description.setLang(lang(r));
+        description.setText(text(r));
+        return description;
+    }
+
+    // Reader helpers
+
+    /**
+     * Moves from a start tag, or from the end tag of a previous child, to
+     * the next child element. Returns false when the end tag of the
+     * enclosing element is reached instead.
+     */
+    static boolean nextChild(XMLStreamReader r) throws XMLStreamException
+    {
+        while (r.hasNext())
+        {
+            int event = r.next();
+            if (event == XMLStreamConstants.START_ELEMENT)
+            {
+                return true;
+            }
+            if (event == XMLStreamConstants.END_ELEMENT)
+            {
+                return false;
+            }
+        }
+        throw new XMLStreamException("Unexpected end of document");
+    }
+
+    /**
+     * Skips the element the reader is positioned at, leaving the reader at its end tag.
+     */
+    static void skip(XMLStreamReader r) throws XMLStreamException
+    {
+        int depth = 1;
+        while (depth > 0)
+        {
+            int event = r.next();
+            if (event == XMLStreamConstants.START_ELEMENT)
+            {
+                depth++;
+            }
+            else if (event == XMLStreamConstants.END_ELEMENT)
+            {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * Returns the trimmed text directly contained in the current element,
+     * leaving the reader at its end tag. Text of child elements is ignored,
+     * as UDDIElement.getText does.
+     */
+    static String text(XMLStreamReader r) throws XMLStreamException
+    {
+        String text = null;
+        StringBuffer buffer = null;
+        int depth = 1;
+        while (depth > 0)
+        {
+            int event = r.next();
+            if (event == XMLStreamConstants.START_ELEMENT)
+            {
+                depth++;
+            }
+            else if (event == XMLStreamConstants.END_ELEMENT)
+            {
+                depth--;
+            }
+            else if (depth == 1 && (event == XMLStreamConstants.CHARACTERS
+                                    || event == XMLStreamConstants.CDATA
+                                    || event == XMLStreamConstants.SPACE))
+            {
+                if (text == null)
+                {
+                    text = r.getText();
+                }
+                else
+                {
+                    if (buffer == null)
+                    {
+                        buffer = new StringBuffer(text);
+                    }
+                    buffer.append(r.getText());
+                }
+            }
+        }
+        if (buffer != null)
+        {
+            text = buffer.toString();
+        }
+        return text == null ? "" : text.trim();
+    }
+
+    /**
+     * Tests whether the current start tag is the UDDI element with the given name.
+     */
+    static boolean is(XMLStreamReader r, String tag)
+    {
+        return tag.equals(r.getLocalName()) && UDDIElement.XMLNS.equals(r.getNamespaceURI());
+    }
+
+    /**
+     * Returns an attribute value, or an empty string if the attribute is
+     * absent, as Element.getAttribute does.
+     */
+    static String attr(XMLStreamReader r, String name)
+    {
+        String value = r.getAttributeValue(null, name);
+        return value == null ? "" : value;
+    }
+
+    /**
+     * Returns an attribute value, or null if the attribute is absent.
+     */
+    static String optionalAttr(XMLStreamReader r, String name)
+    {
+        return r.getAttributeValue(null, name);
+    }
+
+    /**
+     * Returns the xml:lang attribute, or an empty string if it is absent.
+     */
+    static String lang(XMLStreamReader r)
+    {
+        String value = r.getAttributeValue(XMLConstants.XML_NS_URI, "lang");
+        return value == null ? "" : value;
+    }
+
+    /**
+     * Moves the reader to the first element inside the SOAP body.
+     */
+    static boolean toBodyContent(XMLStreamReader r) throws XMLStreamException
+    {
+        while (r.hasNext())
+        {
+            if (r.next() == XMLStreamConstants.START_ELEMENT && "Body".equals(r.getLocalName()))
+            {
+                return nextChild(r);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads the element the reader is positioned at into a DOM tree, leaving
+     * the reader at its end tag.
+     */
+    static Element readElement(XMLStreamReader r) throws XMLStreamException
+    {
+        Document doc;
+        try
+        {
+            doc = DocumentBuilderPool.getInstance().newDocument();
+        }
+        catch (Exception e)
+        {
+            throw new XMLStreamException(e);
+        }
+        Element root = newElement(doc, r);
+        Element current = root;
+        while (current != null)
+        {
+            int event = r.next();
+            switch (event)
+            {
+                case XMLStreamConstants.START_ELEMENT:
+                    Element child = newElement(doc, r);
+                    current.appendChild(child);
+                    current = child;
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    current = current == root ? null : (Element) current.getParentNode();
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.SPACE:
+                    current.appendChild(doc.createTextNode(r.getText()));
+                    break;
+                case XMLStreamConstants.CDATA:
+                    current.appendChild(doc.createCDATASection(r.getText()));
+                    break;
+                default:
+                    break;
+            }
+        }
+        doc.appendChild(root);
+        return root;
+    }
+
+    private static Element newElement(Document doc, XMLStreamReader r)
+    {
+        String prefix = r.getPrefix();
+        String qname = prefix == null || prefix.length() == 0 ? r.getLocalName() : prefix + ":" + r.getLocalName();
+        Element el = doc.createElementNS(emptyToNull(r.getNamespaceURI()), qname);
+        for (int i = 0; i < r.getNamespaceCount(); i++)
+        {
+            String nsPrefix = r.getNamespacePrefix(i);
+            el.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI,
+                              nsPrefix == null || nsPrefix.length() == 0 ? "xmlns" : "xmlns:" + nsPrefix,
+                              r.getNamespaceURI(i));
+        }
+        for (int i = 0; i < r.getAttributeCount(); i++)
+        {
+            String attrPrefix = r.getAttributePrefix(i);
+            String attrName = attrPrefix == null || attrPrefix.length() == 0
+                ? r.getAttributeLocalName(i) : attrPrefix + ":" + r.getAttributeLocalName(i);
+            el.setAttributeNS(emptyToNull(r.getAttributeNamespace(i)), attrName, r.getAttributeValue(i));
+        }
+        return el;
+    }
+
+    private static String emptyToNull(String s)
+    {
+        return s == null || s.length() == 0 ? null : s;
+    }
+
+    /**
+     * Creates a reader configured as the one reading responses.
+     */
+    static XMLStreamReader createReader(InputStream in) throws XMLStreamException
+    {
+        return factory.createXMLStreamReader(in);
+    }
+
+    private static XMLInputFactory newFactory()
+    {
+        XMLInputFactory f = XMLInputFactory.newInstance();
+        f.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+        f.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+        // SOAP messages must not contain a DTD.
+        f.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        f.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        return f;
+    }
+}
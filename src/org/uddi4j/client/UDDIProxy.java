@@ -8,13 +8,22 @@
  */
 package org.uddi4j.client;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Arrays;
+import java.util.Hashtable;
 import java.util.Properties;
 import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
 
 import org.uddi4j.UDDIElement;
 import org.uddi4j.UDDIException;
@@ -34,13 +43,9 @@ import org.uddi4j.request.FindService;
 import org.uddi4j.request.FindTModel;
 import org.uddi4j.request.GetAssertionStatusReport;
 import org.uddi4j.request.GetAuthToken;
-import org.uddi4j.request.GetBindingDetail;
-import org.uddi4j.request.GetBusinessDetail;
 import org.uddi4j.request.GetBusinessDetailExt;
 import org.uddi4j.request.GetPublisherAssertions;
 import org.uddi4j.request.GetRegisteredInfo;
-import org.uddi4j.request.GetServiceDetail;
-import org.uddi4j.request.GetTModelDetail;
 import org.uddi4j.request.SaveBinding;
 import org.uddi4j.request.SaveBusiness;
 import org.uddi4j.request.SaveService;
@@ -52,6 +57,7 @@ import org.uddi4j.response.AuthToken;
 import org.uddi4j.response.BindingDetail;
 import org.uddi4j.response.BusinessDetail;
 import org.uddi4j.response.BusinessDetailExt;
+import org.uddi4j.response.BusinessInfo;
 import org.uddi4j.response.BusinessList;
 import org.uddi4j.response.CompletionStatus;
 import org.uddi4j.response.DispositionReport;
@@ -59,9 +65,16 @@ import org.uddi4j.response.PublisherAssertions;
 import org.uddi4j.response.RegisteredInfo;
 import org.uddi4j.response.RelatedBusinessesList;
 import org.uddi4j.response.ServiceDetail;
+import org.uddi4j.response.ServiceInfo;
 import org.uddi4j.response.ServiceList;
 import org.uddi4j.response.TModelDetail;
+import org.uddi4j.response.TModelInfo;
 import org.uddi4j.response.TModelList;
+import org.uddi4j.transport.AsyncTransport;
+import org.uddi4j.transport.BlockingTransportAdapter;
+import org.uddi4j.transport.Deadline;
+import org.uddi4j.transport.StreamingTransport;
+import org.uddi4j.transport.Transport;
 import org.uddi4j.transport.TransportException;
 import org.uddi4j.transport.TransportFactory;
 import org.uddi4j.util.AuthInfo;
@@ -99,6 +112,21 @@ public class UDDIProxy
     TransportFactory transportFactory = null;
     Properties config = null;
     private Properties cachedUddi4jPropertiesFile;
+    private Executor executor = null;
+    private BlockingTransportAdapter asyncAdapter = null;
+    private static ExecutorService defaultExecutor = null;
+    private Hashtable coalescers = new Hashtable();
+    private long coalesceWindowMillis = 0;
+    private int coalesceMaxBatchSize = 50;
+    private volatile InquiryEndpointPool inquiryEndpoints = null;
+    private volatile InquiryHedger inquiryHedger = null;
+    private volatile RetryPolicy retryPolicy = null;
+    private volatile ResponseCache responseCache = null;
+    private volatile EntityCache entityCache = null;
+    private volatile NegativeKeyCache negativeKeys = null;
+    private volatile KeyChunker keyChunker = null;
+    private long deadlineMillis = 0;
+    private final ThreadLocal<Long> callDeadline = new ThreadLocal<Long>();
 
     public static final String INQUIRY_URL_PROPERTY = "org.uddi4j.inquiryURL";
     public static final String PUBLISH_URL_PROPERTY = "org.uddi4j.publishURL";
@@ -109,12 +137,86 @@ public class UDDIProxy
     public static final String HTTP_PROXY_PORT_PROPERTY = "http.proxyPort";
     public static final String HTTP_PROXY_USERNAME_PROPERTY = "http.proxyUserName";
     public static final String HTTP_PROXY_PASSWORD_PROPERTY = "http.proxyPassword";
+    public static final String HTTP_MAX_CONNECTIONS_PROPERTY = "org.uddi4j.http.maxConnectionsPerURL";
+    public static final String HTTP_VERSION_PROPERTY = "org.uddi4j.http.version";
+    public static final String HTTP_CONNECT_TIMEOUT_PROPERTY = "org.uddi4j.http.connectTimeoutMillis";
+    public static final String HTTP_READ_TIMEOUT_PROPERTY = "org.uddi4j.http.readTimeoutMillis";
+    public static final String DEADLINE_PROPERTY = "org.uddi4j.deadlineMillis";
+    public static final String AXIS_DOM_PASSTHROUGH_PROPERTY = "org.uddi4j.axis.domPassThrough";
+    public static final String COALESCE_WINDOW_PROPERTY = "org.uddi4j.coalesce.windowMillis";
+    public static final String COALESCE_MAX_BATCH_PROPERTY = "org.uddi4j.coalesce.maxBatchSize";
+    public static final String INMEMORY_REGISTRY_NAME_PROPERTY = "org.uddi4j.inMemory.registryName";
+    public static final String INMEMORY_LATENCY_PROPERTY = "org.uddi4j.inMemory.latencyMillis";
+    public static final String INQUIRY_URLS_PROPERTY = "org.uddi4j.inquiryURLs";
+    public static final String INQUIRY_SELECTOR_PROPERTY = "org.uddi4j.inquiry.selector";
+    public static final String INQUIRY_EJECT_FAILURES_PROPERTY = "org.uddi4j.inquiry.ejectAfterFailures";
+    public static final String INQUIRY_EJECT_MILLIS_PROPERTY = "org.uddi4j.inquiry.ejectMillis";
+    public static final String INQUIRY_HEDGE_PERCENTILE_PROPERTY = "org.uddi4j.inquiry.hedgePercentile";
+    public static final String INQUIRY_HEDGE_MIN_DELAY_PROPERTY = "org.uddi4j.inquiry.hedgeMinDelayMillis";
+    public static final String INQUIRY_HEDGE_BUDGET_PROPERTY = "org.uddi4j.inquiry.hedgeBudget";
+    public static final String INQUIRY_HEDGE_BUDGETS_PROPERTY = "org.uddi4j.inquiry.hedgeBudgets";
+    public static final String RETRY_MAX_RETRIES_PROPERTY = "org.uddi4j.retry.maxRetries";
+    public static final String RETRY_INITIAL_BACKOFF_PROPERTY = "org.uddi4j.retry.initialBackoffMillis";
+    public static final String RETRY_MAX_BACKOFF_PROPERTY = "org.uddi4j.retry.maxBackoffMillis";
+    public static final String RETRY_BUDGET_PROPERTY = "org.uddi4j.retry.budget";
+    public static final String RETRY_ERR_CODES_PROPERTY = "org.uddi4j.retry.errCodes";
+    public static final String RETRY_PUBLISH_PROPERTY = "org.uddi4j.retry.publish";
+    public static final String CIRCUIT_BREAKER_ENABLED_PROPERTY = "org.uddi4j.circuitBreaker.enabled";
+    public static final String CIRCUIT_BREAKER_FAILURE_THRESHOLD_PROPERTY = "org.uddi4j.circuitBreaker.failureThreshold";
+    public static final String CIRCUIT_BREAKER_ERROR_RATE_PROPERTY = "org.uddi4j.circuitBreaker.errorRate";
+    public static final String CIRCUIT_BREAKER_WINDOW_SIZE_PROPERTY = "org.uddi4j.circuitBreaker.windowSize";
+    public static final String CIRCUIT_BREAKER_OPEN_MILLIS_PROPERTY = "org.uddi4j.circuitBreaker.openMillis";
+    public static final String CIRCUIT_BREAKER_HALF_OPEN_TRIALS_PROPERTY = "org.uddi4j.circuitBreaker.halfOpenTrials";
+    public static final String CACHE_MAX_ENTRIES_PROPERTY = "org.uddi4j.cache.maxEntries";
+    public static final String CACHE_MAX_BYTES_PROPERTY = "org.uddi4j.cache.maxBytes";
+    public static final String CACHE_TTL_PROPERTY = "org.uddi4j.cache.ttlMillis";
+    public static final String CACHE_TTLS_PROPERTY = "org.uddi4j.cache.ttls";
+    public static final String CACHE_EVICTION_PROPERTY = "org.uddi4j.cache.eviction";
+    public static final String ENTITY_CACHE_MAX_ENTRIES_PROPERTY = "org.uddi4j.entityCache.maxEntries";
+    public static final String ENTITY_CACHE_TTL_PROPERTY = "org.uddi4j.entityCache.ttlMillis";
+    public static final String ENTITY_CACHE_SNAPSHOT_FILE_PROPERTY = "org.uddi4j.entityCache.snapshotFile";
+    public static final String ENTITY_CACHE_SNAPSHOT_MAX_AGE_PROPERTY = "org.uddi4j.entityCache.snapshotMaxAgeMillis";
+    public static final String NEGATIVE_CACHE_TTL_PROPERTY = "org.uddi4j.negativeCache.ttlMillis";
+    public static final String NEGATIVE_CACHE_MAX_ENTRIES_PROPERTY = "org.uddi4j.negativeCache.maxEntries";
+    public static final String AUTH_TOKEN_LIFETIME_PROPERTY = "org.uddi4j.auth.tokenLifetimeMillis";
+    public static final String RESOLVER_REFRESH_PROPERTY = "org.uddi4j.resolver.refreshMillis";
+    public static final String RESOLVER_MAX_STALE_PROPERTY = "org.uddi4j.resolver.maxStaleMillis";
+    public static final String RESOLVER_MAX_REDIRECTS_PROPERTY = "org.uddi4j.resolver.maxRedirects";
+    public static final String RESOLVER_MAX_ENTRIES_PROPERTY = "org.uddi4j.resolver.maxEntries";
+    public static final String CHUNK_MAX_KEYS_PROPERTY = "org.uddi4j.chunk.maxKeys";
+    public static final String CHUNK_ADAPTIVE_PROPERTY = "org.uddi4j.chunk.adaptive";
+    public static final String CHUNK_PARALLELISM_PROPERTY = "org.uddi4j.chunk.parallelism";
+    public static final String BULK_BATCH_SIZE_PROPERTY = "org.uddi4j.bulk.batchSize";
+    public static final String BULK_MAX_BATCH_SIZE_PROPERTY = "org.uddi4j.bulk.maxBatchSize";
+    public static final String BULK_WORKERS_PROPERTY = "org.uddi4j.bulk.workers";
+    public static final String FIND_PARTITION_CHARS_PROPERTY = "org.uddi4j.find.partitionChars";
+    public static final String CRAWL_BATCH_SIZE_PROPERTY = "org.uddi4j.crawl.batchSize";
+    public static final String CRAWL_PARALLELISM_PROPERTY = "org.uddi4j.crawl.parallelism";
+    public static final String SYNC_PAGE_SIZE_PROPERTY = "org.uddi4j.sync.pageSize";
+    public static final String SYNC_CONFIRM_COUNT_PROPERTY = "org.uddi4j.sync.confirmCount";
+    public static final String SYNC_FULL_SYNC_MILLIS_PROPERTY = "org.uddi4j.sync.fullSyncMillis";
+    public static final String RELATED_PARALLELISM_PROPERTY = "org.uddi4j.related.parallelism";
     //The transport class name property is also a field of the TransportFactory but we include it here for completeness.
     public final static String TRANSPORT_CLASSNAME_PROPERTY = TransportFactory.PROPERTY_NAME;
 
     private static final String[] propertyNames = { INQUIRY_URL_PROPERTY, PUBLISH_URL_PROPERTY, LOGGING_PROPERTY, HTTP_BASIC_AUTH_USERNAME_PROPERTY,
             HTTP_BASIC_AUTH_PASSWORD_PROPERTY, HTTP_PROXY_HOST_PROPERTY, HTTP_PROXY_PORT_PROPERTY, HTTP_PROXY_USERNAME_PROPERTY, HTTP_PROXY_PASSWORD_PROPERTY,
-            TRANSPORT_CLASSNAME_PROPERTY };
+            TRANSPORT_CLASSNAME_PROPERTY, HTTP_MAX_CONNECTIONS_PROPERTY, HTTP_VERSION_PROPERTY,
+            AXIS_DOM_PASSTHROUGH_PROPERTY, COALESCE_WINDOW_PROPERTY, COALESCE_MAX_BATCH_PROPERTY, INMEMORY_REGISTRY_NAME_PROPERTY,
+            INMEMORY_LATENCY_PROPERTY, INQUIRY_URLS_PROPERTY, INQUIRY_SELECTOR_PROPERTY, INQUIRY_EJECT_FAILURES_PROPERTY,
+            INQUIRY_EJECT_MILLIS_PROPERTY, INQUIRY_HEDGE_PERCENTILE_PROPERTY, INQUIRY_HEDGE_MIN_DELAY_PROPERTY,
+            INQUIRY_HEDGE_BUDGET_PROPERTY, INQUIRY_HEDGE_BUDGETS_PROPERTY, RETRY_MAX_RETRIES_PROPERTY, RETRY_INITIAL_BACKOFF_PROPERTY,
+            RETRY_MAX_BACKOFF_PROPERTY, RETRY_BUDGET_PROPERTY, RETRY_ERR_CODES_PROPERTY, RETRY_PUBLISH_PROPERTY,
+            CIRCUIT_BREAKER_ENABLED_PROPERTY, CIRCUIT_BREAKER_FAILURE_THRESHOLD_PROPERTY, CIRCUIT_BREAKER_ERROR_RATE_PROPERTY,
+            CIRCUIT_BREAKER_WINDOW_SIZE_PROPERTY, CIRCUIT_BREAKER_OPEN_MILLIS_PROPERTY, CIRCUIT_BREAKER_HALF_OPEN_TRIALS_PROPERTY,
+            HTTP_CONNECT_TIMEOUT_PROPERTY, HTTP_READ_TIMEOUT_PROPERTY, DEADLINE_PROPERTY, CACHE_MAX_ENTRIES_PROPERTY, CACHE_MAX_BYTES_PROPERTY,
+            CACHE_TTL_PROPERTY, CACHE_TTLS_PROPERTY, CACHE_EVICTION_PROPERTY, ENTITY_CACHE_MAX_ENTRIES_PROPERTY, ENTITY_CACHE_TTL_PROPERTY,
+            NEGATIVE_CACHE_TTL_PROPERTY, NEGATIVE_CACHE_MAX_ENTRIES_PROPERTY, AUTH_TOKEN_LIFETIME_PROPERTY,
+            RESOLVER_REFRESH_PROPERTY, RESOLVER_MAX_STALE_PROPERTY, RESOLVER_MAX_REDIRECTS_PROPERTY, ENTITY_CACHE_SNAPSHOT_FILE_PROPERTY,
+            ENTITY_CACHE_SNAPSHOT_MAX_AGE_PROPERTY, CHUNK_MAX_KEYS_PROPERTY, CHUNK_ADAPTIVE_PROPERTY, CHUNK_PARALLELISM_PROPERTY,
+            BULK_BATCH_SIZE_PROPERTY, BULK_MAX_BATCH_SIZE_PROPERTY, BULK_WORKERS_PROPERTY, FIND_PARTITION_CHARS_PROPERTY,
+            CRAWL_BATCH_SIZE_PROPERTY, CRAWL_PARALLELISM_PROPERTY, SYNC_PAGE_SIZE_PROPERTY, SYNC_CONFIRM_COUNT_PROPERTY,
+            SYNC_FULL_SYNC_MILLIS_PROPERTY, RELATED_PARALLELISM_PROPERTY, RESOLVER_MAX_ENTRIES_PROPERTY };
 
     /**
      * Default constructor.
@@ -179,15 +281,203 @@ public class UDDIProxy
      *               <DD>Specifies the name of the SOAP transport support class.
      *               Options include, org.uddi4j.transport.ApacheSOAPTransport,
      *               org.uddi4j.transport.ApacheAxisTransport,
-     *               org.uddi4j.transport.HPSOAPTransport.
+     *               org.uddi4j.transport.HPSOAPTransport,
+     *               org.uddi4j.transport.JDKHttpTransport,
+     *               org.uddi4j.transport.InMemoryRegistryTransport.
      *               <DT>org.uddi4j.inquiryURL
      *               <DD>The URL to be used by UDDIProxy for inquiry requests.
      *               setInquiryURL method overrides.
+     *               <DT>org.uddi4j.inquiryURLs
+     *               <DD>Several inquiry URLs, separated by commas or white space.
+     *               If set, inquiry requests are spread over these URLs and
+     *               org.uddi4j.inquiryURL is not used. setInquiryURLs method overrides.
+     *               <DT>org.uddi4j.inquiry.selector
+     *               <DD>How the URL for an inquiry request is chosen: roundRobin
+     *               (the default), leastOutstanding, ewma or the name of a subclass
+     *               of {@link EndpointSelector}.
+     *               <DT>org.uddi4j.inquiry.ejectAfterFailures
+     *               <DD>Number of consecutive transport errors or E_busy faults
+     *               after which an inquiry URL is not used for a while. Defaults
+     *               to 3; 0 turns ejection off.
+     *               <DT>org.uddi4j.inquiry.ejectMillis
+     *               <DD>Time an inquiry URL is not used after it is ejected. Grows
+     *               with each ejection that is not followed by a success. Defaults
+     *               to 30000.
+     *               <DT>org.uddi4j.inquiry.hedgePercentile
+     *               <DD>Enables hedged inquiry requests: if a request has not been
+     *               answered after this percentile of the recent response times of
+     *               its operation, for example 95, a second copy is sent to another
+     *               inquiry URL and the first answer is used. Has no effect unless
+     *               several inquiry URLs are configured. Not set by default.
+     *               <DT>org.uddi4j.inquiry.hedgeMinDelayMillis
+     *               <DD>Lower bound of the time after which a request is hedged.
+     *               Defaults to 5.
+     *               <DT>org.uddi4j.inquiry.hedgeBudget
+     *               <DD>Percentage of the requests of an operation that may be
+     *               hedged. Defaults to 5.
+     *               <DT>org.uddi4j.inquiry.hedgeBudgets
+     *               <DD>Budgets of single operations, as operation=percentage pairs
+     *               separated by commas, for example find_binding=10,get_tModelDetail=0.
+     *               <DT>org.uddi4j.retry.maxRetries
+     *               <DD>Number of times a request failing with a retryable error is
+     *               sent again. Defaults to 0, which turns retries off.
+     *               <DT>org.uddi4j.retry.initialBackoffMillis
+     *               <DD>Upper bound of the random wait before the first retry. The
+     *               bound doubles with each further retry. Defaults to 100.
+     *               <DT>org.uddi4j.retry.maxBackoffMillis
+     *               <DD>Upper bound of the wait before any retry. Defaults to 5000.
+     *               <DT>org.uddi4j.retry.budget
+     *               <DD>Percentage of the requests that may be retried. Defaults to 10.
+     *               <DT>org.uddi4j.retry.errCodes
+     *               <DD>Error codes that are retried, separated by commas. transportError
+     *               stands for transport errors. Defaults to
+     *               E_busy,E_requestTimeout,E_fatalError,transportError.
+     *               <DT>org.uddi4j.retry.publish
+     *               <DD>true to retry publish requests too. Defaults to false, as
+     *               only inquiry requests are safe to send twice.
+     *               <DT>org.uddi4j.http.connectTimeoutMillis
+     *               <DD>Time allowed to open a connection to the registry. Not
+     *               supported by the Apache SOAP and HP SOAP transports. The Apache
+     *               Axis transport uses the read timeout for both if it is set. Not
+     *               set by default, which means no timeout.
+     *               <DT>org.uddi4j.http.readTimeoutMillis
+     *               <DD>Time allowed for the registry to answer. Not supported by
+     *               the HP SOAP transport. Not set by default, which means no timeout.
+     *               <DT>org.uddi4j.deadlineMillis
+     *               <DD>Time each call may take in total, including retries and
+     *               hedged copies. The transports limit their timeouts to the time
+     *               left. setCallDeadline method overrides. Not set by default.
+     *               <DT>org.uddi4j.circuitBreaker.enabled
+     *               <DD>true to wrap the transport in a circuit breaker per URL, shared
+     *               by all UDDIProxy instances in the JVM. See
+     *               {@link org.uddi4j.transport.CircuitBreakerTransport} for its settings
+     *               org.uddi4j.circuitBreaker.failureThreshold, errorRate, windowSize,
+     *               openMillis and halfOpenTrials. Defaults to false.
+     *               <DT>org.uddi4j.cache.maxEntries
+     *               <DD>Enables the inquiry response cache, holding at most this
+     *               many responses. See {@link ResponseCache}. Not set by default.
+     *               <DT>org.uddi4j.cache.maxBytes
+     *               <DD>Enables the inquiry response cache, holding responses of at
+     *               most this total size in bytes. Not set by default.
+     *               <DT>org.uddi4j.cache.ttlMillis
+     *               <DD>Time a cached response is used for. Defaults to 60000.
+     *               <DT>org.uddi4j.cache.ttls
+     *               <DD>Times of single operations, as operation=millis pairs
+     *               separated by commas, for example find_business=5000,get_tModelDetail=600000.
+     *               0 turns caching off for the operation.
+     *               <DT>org.uddi4j.cache.eviction
+     *               <DD>lru (the default) or tinyLfu, the policy choosing the
+     *               response removed when the cache is full.
+     *               <DT>org.uddi4j.entityCache.maxEntries
+     *               <DD>Enables the cache of businessEntity, businessService,
+     *               bindingTemplate and tModel structures by key, holding at most
+     *               this many. See {@link EntityCache}. Not set by default.
+     *               <DT>org.uddi4j.entityCache.ttlMillis
+     *               <DD>Time a cached entity is used for. Defaults to 60000.
+     *               <DT>org.uddi4j.entityCache.snapshotFile
+     *               <DD>Snapshot file the entity cache is filled from when the proxy
+     *               is configured, written with {@link EntityCache#saveSnapshot}.
+     *               Entities loaded this way are fetched again in the background
+     *               when first used. Not set by default.
+     *               <DT>org.uddi4j.entityCache.snapshotMaxAgeMillis
+     *               <DD>Entities in the snapshot fetched longer ago than this are
+     *               not loaded. Defaults to 86400000 (one day).
+     *               <DT>org.uddi4j.negativeCache.ttlMillis
+     *               <DD>Enables remembering keys get_xxDetail calls found invalid or
+     *               retired, for this many milliseconds, and splitting multi key
+     *               get_xxDetail requests so that bad keys do not fail the good ones.
+     *               See {@link NegativeKeyCache}. Not set by default.
+     *               <DT>org.uddi4j.negativeCache.maxEntries
+     *               <DD>Maximum number of keys remembered. Defaults to 10000.
+     *               <DT>org.uddi4j.auth.tokenLifetimeMillis
+     *               <DD>Time after which the registry expires an authentication
+     *               token. A {@link PublishingSession} obtains a new token before
+     *               then. Not set by default, in which case a session only obtains
+     *               a new token when the registry rejects the current one.
+     *               <DT>org.uddi4j.resolver.refreshMillis
+     *               <DD>Age after which an {@link EndpointResolver} looks a cached
+     *               accessPoint up again in the background. Defaults to 60000.
+     *               <DT>org.uddi4j.resolver.maxStaleMillis
+     *               <DD>Time past the refresh age for which a cached accessPoint is
+     *               still returned while it is being looked up again. Defaults to
+     *               0, meaning no limit.
+     *               <DT>org.uddi4j.resolver.maxRedirects
+     *               <DD>Maximum number of hostingRedirector references followed
+     *               when resolving one accessPoint. Defaults to 5.
+     *               <DT>org.uddi4j.resolver.maxEntries
+     *               <DD>Maximum number of accessPoints an EndpointResolver caches.
+     *               Defaults to 10000.
+     *               <DT>org.uddi4j.chunk.maxKeys
+     *               <DD>Maximum number of keys sent in one get_xxDetail or delete_xx
+     *               request; calls with more keys are split into several requests.
+     *               See {@link KeyChunker}. Not set by default.
+     *               <DT>org.uddi4j.chunk.adaptive
+     *               <DD>Set this property to true to split get_xxDetail and delete_xx
+     *               requests the registry rejects with E_tooManyOptions or
+     *               E_messageTooLarge, and send fewer keys per request afterwards.
+     *               Defaults to false.
+     *               <DT>org.uddi4j.chunk.parallelism
+     *               <DD>Number of requests of a split call sent at once. Defaults to 1.
+     *               <DT>org.uddi4j.bulk.batchSize
+     *               <DD>Number of entities a {@link BulkPublisher} initially saves per
+     *               request. Defaults to 20.
+     *               <DT>org.uddi4j.bulk.maxBatchSize
+     *               <DD>Number of entities per request the batch size of a
+     *               BulkPublisher grows to at most. Defaults to 200.
+     *               <DT>org.uddi4j.bulk.workers
+     *               <DD>Number of requests a BulkPublisher sends at once. Defaults to 4.
+     *               <DT>org.uddi4j.find.partitionChars
+     *               <DD>Characters a {@link FindIterator} extends names with when it
+     *               partitions a truncated find result. Defaults to lower case
+     *               letters, digits and common punctuation.
+     *               <DT>org.uddi4j.crawl.batchSize
+     *               <DD>Number of keys a {@link RegistryCrawler} reads per
+     *               get_businessDetail or get_tModelDetail request. Defaults to 20.
+     *               <DT>org.uddi4j.crawl.parallelism
+     *               <DD>Number of requests a RegistryCrawler sends at once. Defaults to 4.
+     *               <DT>org.uddi4j.sync.pageSize
+     *               <DD>maxRows of the find_business request a {@link RegistrySync}
+     *               sends to find recently changed businesses. Defaults to 100.
+     *               <DT>org.uddi4j.sync.confirmCount
+     *               <DD>Number of unchanged businesses in a row after which a
+     *               RegistrySync takes the older businesses to be unchanged.
+     *               Defaults to 10.
+     *               <DT>org.uddi4j.sync.fullSyncMillis
+     *               <DD>Milliseconds after which a RegistrySync reads all selected
+     *               businesses again, or 0 to do so only when needed. Defaults
+     *               to one day.
+     *               <DT>org.uddi4j.related.parallelism
+     *               <DD>Number of find_relatedBusinesses requests a
+     *               {@link RelatedBusinessWalker} sends at once. Defaults to 4.
      *               <DT>org.uddi4j.publishURL
      *               <DD>The URL to be used by UDDIProxy for publish requests.
      *               setPublishURL methods override.
      *               <DT>org.uddi4j.logEnabled
      *               <DD>Set this property to true to enable logging to System.err. 
+     *               <DT>org.uddi4j.http.maxConnectionsPerURL
+     *               <DD>Maximum number of concurrent requests per URL made by
+     *               org.uddi4j.transport.JDKHttpTransport.
+     *               <DT>org.uddi4j.http.version
+     *               <DD>HTTP_1_1 or HTTP_2, the HTTP version used by
+     *               org.uddi4j.transport.JDKHttpTransport.
+     *               <DT>org.uddi4j.axis.domPassThrough
+     *               <DD>Set this property to true to have
+     *               org.uddi4j.transport.ApacheAxisTransport pass DOM trees to and
+     *               from Axis without serializing them to strings.
+     *               <DT>org.uddi4j.coalesce.windowMillis
+     *               <DD>If greater than zero, concurrent single key get_businessDetail,
+     *               get_serviceDetail, get_bindingDetail and get_tModelDetail calls
+     *               made within this many milliseconds of each other are merged
+     *               into one multi key request.
+     *               <DT>org.uddi4j.coalesce.maxBatchSize
+     *               <DD>Maximum number of keys in a merged request. Defaults to 50.
+     *               <DT>org.uddi4j.inMemory.registryName
+     *               <DD>Name of the registry used by
+     *               org.uddi4j.transport.InMemoryRegistryTransport. Proxies using
+     *               the same name share one registry.
+     *               <DT>org.uddi4j.inMemory.latencyMillis
+     *               <DD>Delay added to every request by
+     *               org.uddi4j.transport.InMemoryRegistryTransport.
      *               </DL>
      * @exception java.net.MalformedURLException In case the publish or
      *            inquiry URLs are malformed.
@@ -304,8 +594,85 @@ public class UDDIProxy
             }
         }
 
+        //Spread inquiry requests over several URLs if a list of them is configured.
+        inquiryEndpoints = newInquiryEndpoints();
+
+        //Hedge slow inquiry requests if a percentile is configured.
+        double percentile = getDoubleProperty(INQUIRY_HEDGE_PERCENTILE_PROPERTY, 0);
+        if (percentile > 0)
+        {
+            inquiryHedger = new InquiryHedger(percentile, getLongProperty(INQUIRY_HEDGE_MIN_DELAY_PROPERTY, InquiryHedger.DEFAULT_MIN_DELAY_MILLIS),
+                    getDoubleProperty(INQUIRY_HEDGE_BUDGET_PROPERTY, InquiryHedger.DEFAULT_BUDGET_PERCENT), config.getProperty(INQUIRY_HEDGE_BUDGETS_PROPERTY));
+        }
+        else
+        {
+            inquiryHedger = null;
+        }
+
+        //Bound every call by a deadline if one is configured.
+        deadlineMillis = getLongProperty(DEADLINE_PROPERTY, 0);
+
+        //Retry busy and transient failures if retries are configured.
+        int maxRetries = getIntProperty(RETRY_MAX_RETRIES_PROPERTY, RetryPolicy.DEFAULT_MAX_RETRIES);
+        if (maxRetries > 0)
+        {
+            retryPolicy = new RetryPolicy(maxRetries, getLongProperty(RETRY_INITIAL_BACKOFF_PROPERTY, RetryPolicy.DEFAULT_INITIAL_BACKOFF_MILLIS),
+                    getLongProperty(RETRY_MAX_BACKOFF_PROPERTY, RetryPolicy.DEFAULT_MAX_BACKOFF_MILLIS),
+                    getDoubleProperty(RETRY_BUDGET_PROPERTY, RetryPolicy.DEFAULT_BUDGET_PERCENT), config.getProperty(RETRY_ERR_CODES_PROPERTY),
+                    Boolean.valueOf(config.getProperty(RETRY_PUBLISH_PROPERTY)).booleanValue());
+        }
+        else
+        {
+            retryPolicy = null;
+        }
+
+        //Cache inquiry responses if a size is configured.
+        int cacheEntries = getIntProperty(CACHE_MAX_ENTRIES_PROPERTY, 0);
+        long cacheBytes = getLongProperty(CACHE_MAX_BYTES_PROPERTY, 0);
+        if (cacheEntries > 0 || cacheBytes > 0)
+        {
+            responseCache = new ResponseCache(cacheEntries, cacheBytes, getLongProperty(CACHE_TTL_PROPERTY, ResponseCache.DEFAULT_TTL_MILLIS),
+                    config.getProperty(CACHE_TTLS_PROPERTY), config.getProperty(CACHE_EVICTION_PROPERTY));
+        }
+        else
+        {
+            responseCache = null;
+        }
+
+        //Cache entities by key if a size is configured.
+        int entityCacheEntries = getIntProperty(ENTITY_CACHE_MAX_ENTRIES_PROPERTY, 0);
+        entityCache = entityCacheEntries > 0 ? new EntityCache(entityCacheEntries, getLongProperty(ENTITY_CACHE_TTL_PROPERTY, EntityCache.DEFAULT_TTL_MILLIS)) : null;
+        String snapshot = config.getProperty(ENTITY_CACHE_SNAPSHOT_FILE_PROPERTY);
+        if (entityCache != null && snapshot != null && new File(snapshot).isFile())
+        {
+            try
+            {
+                entityCache.loadSnapshot(new File(snapshot), getLongProperty(ENTITY_CACHE_SNAPSHOT_MAX_AGE_PROPERTY, EntityCache.DEFAULT_SNAPSHOT_MAX_AGE_MILLIS));
+            }
+            catch (IOException e)
+            {
+                //Start with an empty cache, but say so whether or not logging is enabled:
+                //a configured snapshot that is never used would otherwise go unnoticed.
+                System.err.println("Ignoring entity snapshot that could not be loaded: " + e);
+            }
+        }
+
+        //Remember invalid and retired keys if a time is configured.
+        long negativeTtl = getLongProperty(NEGATIVE_CACHE_TTL_PROPERTY, 0);
+        negativeKeys = negativeTtl > 0 ? new NegativeKeyCache(negativeTtl, getIntProperty(NEGATIVE_CACHE_MAX_ENTRIES_PROPERTY, NegativeKeyCache.DEFAULT_MAX_ENTRIES)) : null;
+
+        //Split multi key requests if a size or adaptive splitting is configured.
+        int chunkKeys = getIntProperty(CHUNK_MAX_KEYS_PROPERTY, 0);
+        boolean chunkAdaptive = Boolean.valueOf(config.getProperty(CHUNK_ADAPTIVE_PROPERTY)).booleanValue();
+        keyChunker = chunkKeys > 0 || chunkAdaptive
+                ? new KeyChunker(this, chunkKeys, getIntProperty(CHUNK_PARALLELISM_PROPERTY, KeyChunker.DEFAULT_PARALLELISM), chunkAdaptive)
+                : null;
+
         //Finally create the transport factory instance based on the config properties we have built up. 
         transportFactory = TransportFactory.newInstance(config);
+        coalesceWindowMillis = getLongProperty(COALESCE_WINDOW_PROPERTY, 0);
+        coalesceMaxBatchSize = getIntProperty(COALESCE_MAX_BATCH_PROPERTY, 50);
+        coalescers = new Hashtable();
 
         if (logEnabled())
         {
@@ -357,6 +724,57 @@ public class UDDIProxy
         return Boolean.valueOf(config.getProperty(LOGGING_PROPERTY)).booleanValue();
     }
 
+    /**
+     * Returns an integer configuration property, or the default value if the
+     * property is not set or is not a valid integer.
+     */
+    int getIntProperty(String name, int defaultValue)
+    {
+        try
+        {
+            return Integer.parseInt(config.getProperty(name).trim());
+        }
+        catch (Exception e)
+        {
+            //prop is null, empty or not an int.
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Returns a long configuration property, or the default value if the
+     * property is not set or is not a valid long.
+     */
+    long getLongProperty(String name, long defaultValue)
+    {
+        try
+        {
+            return Long.parseLong(config.getProperty(name).trim());
+        }
+        catch (Exception e)
+        {
+            //prop is null, empty or not a long.
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Returns a double configuration property, or the default value if the
+     * property is not set or is not a valid number.
+     */
+    double getDoubleProperty(String name, double defaultValue)
+    {
+        try
+        {
+            return Double.parseDouble(config.getProperty(name).trim());
+        }
+        catch (Exception e)
+        {
+            //prop is null, empty or not a number.
+            return defaultValue;
+        }
+    }
+
     /**
      * Get the configuration properties currently in use
      * @return The configuration properties
@@ -366,6 +784,63 @@ public class UDDIProxy
         return config;
     }
 
+    /**
+     * Get the executor used to run work in the background, such as blocking
+     * transport sends made through {@link #sendAsync(UDDIElement, boolean)}.
+     * Unless set, a shared executor is used. On JVMs that support virtual
+     * threads it starts a virtual thread per task, otherwise it is a cached
+     * pool of daemon threads.
+     *
+     * @return Executor
+     */
+    public synchronized Executor getExecutor()
+    {
+        if (executor == null)
+        {
+            return getDefaultExecutor();
+        }
+        return executor;
+    }
+
+    /**
+     * Set the executor used to run work in the background.
+     *
+     * @param executor Executor to use, or null to use the shared default executor.
+     */
+    public synchronized void setExecutor(Executor executor)
+    {
+        this.executor = executor;
+        asyncAdapter = null;
+    }
+
+    /**
+     * Returns the shared default executor, creating it on first use.
+     */
+    static synchronized Executor getDefaultExecutor()
+    {
+        if (defaultExecutor == null)
+        {
+            try
+            {
+                // Virtual threads are only available on newer JVMs, so look the factory method up reflectively.
+                defaultExecutor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            }
+            catch (Exception e)
+            {
+                defaultExecutor = Executors.newCachedThreadPool(new ThreadFactory()
+                {
+                    public Thread newThread(Runnable r)
+                    {
+                        Thread thread = new Thread(r, "UDDI4J worker");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+            }
+        }
+        return defaultExecutor;
+    }
+
     /**
      * Set the URL to be used for inquiry requests.
      *
@@ -400,6 +875,168 @@ public class UDDIProxy
 
     }
 
+    /**
+     * Set the URLs inquiry requests are spread over. Each inquiry request
+     * goes to one of them, chosen by the selector configured with the
+     * org.uddi4j.inquiry.selector property. While a list of URLs is set the
+     * single inquiry URL is not used. Publish requests are not affected.
+     *
+     * @param urls Inquiry URLs separated by commas or white space, or null to
+     *             go back to sending inquiry requests to the inquiry URL.
+     * @exception java.net.MalformedURLException In case one of the URLs is
+     * malformed.
+     */
+    public void setInquiryURLs(String urls) throws java.net.MalformedURLException
+    {
+        if (urls == null || urls.trim().length() == 0)
+        {
+            config.remove(INQUIRY_URLS_PROPERTY);
+        }
+        else
+        {
+            config.setProperty(INQUIRY_URLS_PROPERTY, urls);
+        }
+        inquiryEndpoints = newInquiryEndpoints();
+        //refresh the transport factory
+        transportFactory = TransportFactory.newInstance(config);
+    }
+
+    /**
+     * Get the endpoints inquiry requests are spread over, with their
+     * statistics.
+     *
+     * @return The endpoints, or an empty array if inquiry requests are sent
+     *         to the single inquiry URL.
+     */
+    public InquiryEndpoint[] getInquiryEndpoints()
+    {
+        InquiryEndpointPool pool = inquiryEndpoints;
+        return pool == null ? new InquiryEndpoint[0] : pool.getEndpoints();
+    }
+
+    /**
+     * Get the hedging counters of the inquiry operations sent so far.
+     *
+     * @return One entry per operation, or an empty array if hedging is not
+     *         enabled.
+     */
+    public HedgeStatistics[] getHedgeStatistics()
+    {
+        InquiryHedger hedger = inquiryHedger;
+        return hedger == null ? new HedgeStatistics[0] : hedger.getStatistics();
+    }
+
+    /**
+     * Set a deadline for each call the current thread makes through this
+     * proxy, overriding the org.uddi4j.deadlineMillis property until
+     * {@link #clearCallDeadline()} is called. Each call, including its
+     * retries and hedged copies, must complete within the given time from
+     * when it is made, or fails with a TransportException. The transports
+     * limit their connect and read timeouts to the time left, so that I/O
+     * still in progress is aborted when the deadline passes.<P>
+     *
+     * For example:
+     * <PRE>
+     *   proxy.setCallDeadline(500);
+     *   try
+     *   {
+     *       proxy.find_binding(...);
+     *   }
+     *   finally
+     *   {
+     *       proxy.clearCallDeadline();
+     *   }
+     * </PRE>
+     *
+     * @param millis Time each call may take, in milliseconds, or 0 for no deadline.
+     */
+    public void setCallDeadline(long millis)
+    {
+        callDeadline.set(Long.valueOf(Math.max(0, millis)));
+    }
+
+    /**
+     * Remove the deadline set for the current thread with
+     * {@link #setCallDeadline(long)}, so that the org.uddi4j.deadlineMillis
+     * property applies again.
+     */
+    public void clearCallDeadline()
+    {
+        callDeadline.remove();
+    }
+
+    /**
+     * Get the policy used to retry failed requests, with its counters.
+     *
+     * @return The retry policy, or null if retries are turned off.
+     */
+    public RetryPolicy getRetryPolicy()
+    {
+        return retryPolicy;
+    }
+
+    /**
+     * Get the inquiry response cache, with its counters.
+     *
+     * @return The cache, or null if caching is not enabled.
+     */
+    public ResponseCache getResponseCache()
+    {
+        return responseCache;
+    }
+
+    /**
+     * Get the splitter of multi key requests, with its counters.
+     *
+     * @return The splitter, or null if splitting is not enabled.
+     */
+    public KeyChunker getKeyChunker()
+    {
+        return keyChunker;
+    }
+
+    /**
+     * Get the cache of entities by key, with its counters.
+     *
+     * @return The cache, or null if caching is not enabled.
+     */
+    public EntityCache getEntityCache()
+    {
+        return entityCache;
+    }
+
+    /**
+     * Get the cache of invalid and retired keys, with its counters.
+     *
+     * @return The cache, or null if it is not enabled.
+     */
+    public NegativeKeyCache getNegativeKeyCache()
+    {
+        return negativeKeys;
+    }
+
+    /**
+     * Builds the inquiry endpoints from the configuration, or returns null
+     * if no list of inquiry URLs is configured.
+     */
+    private InquiryEndpointPool newInquiryEndpoints() throws MalformedURLException
+    {
+        String urls = config.getProperty(INQUIRY_URLS_PROPERTY);
+        if (urls == null || urls.trim().length() == 0)
+        {
+            return null;
+        }
+        String[] names = urls.trim().split("[,\\s]+");
+        URL[] result = new URL[names.length];
+        for (int i = 0; i < names.length; i++)
+        {
+            result[i] = new URL(names[i]);
+        }
+        return new InquiryEndpointPool(result, EndpointSelector.newInstance(config.getProperty(INQUIRY_SELECTOR_PROPERTY)),
+                getIntProperty(INQUIRY_EJECT_FAILURES_PROPERTY, InquiryEndpointPool.DEFAULT_EJECT_AFTER_FAILURES),
+                getLongProperty(INQUIRY_EJECT_MILLIS_PROPERTY, InquiryEndpointPool.DEFAULT_EJECT_MILLIS));
+    }
+
     /**
      * Set the URL to be used for publish requests. If
      * HTTPS is specified as the procotol, it must be added
@@ -483,7 +1120,7 @@ public class UDDIProxy
         request.setTModelBag(tModelBag);
         if (maxRows > 0)
             request.setMaxRows(maxRows);
-        return new BindingDetail(send(request, true));
+        return (BindingDetail) send(request, true, BindingDetail.class);
     }
 
     /**
@@ -673,7 +1310,32 @@ public class UDDIProxy
         request.setFindQualifiers(findQualifiers);
         if (maxRows > 0)
             request.setMaxRows(maxRows);
-        return new BusinessList(send(request, true));
+        return (BusinessList) send(request, true, BusinessList.class);
+    }
+
+    /**
+     * Iterates over all businesses a find_business request finds, sending
+     * further requests partitioned by name where the result is truncated.
+     * See {@link FindIterator}.
+     *
+     * @param request The find_business request.
+     * @return An iterator of BusinessInfo objects.
+     */
+    public FindIterator<BusinessInfo> iterateBusinesses(FindBusiness request)
+    {
+        return new FindIterator<BusinessInfo>(this, request, BusinessList.class);
+    }
+
+    /**
+     * Streams all businesses a find_business request finds.
+     * See {@link #iterateBusinesses(FindBusiness)}.
+     *
+     * @param request The find_business request.
+     * @return A lazy Stream of BusinessInfo objects.
+     */
+    public Stream<BusinessInfo> streamBusinesses(FindBusiness request)
+    {
+        return iterateBusinesses(request).stream();
     }
 
     /**
@@ -710,7 +1372,7 @@ public class UDDIProxy
         request.setBusinessKey(businessKey);
         request.setKeyedReference(keyedReference);
         request.setFindQualifiers(findQualifiers);
-        return new RelatedBusinessesList(send(request, true));
+        return (RelatedBusinessesList) send(request, true, RelatedBusinessesList.class);
 
     }
 
@@ -747,7 +1409,7 @@ public class UDDIProxy
         request.setFindQualifiers(findQualifiers);
         if (maxRows > 0)
             request.setMaxRows(maxRows);
-        return new RelatedBusinessesList(send(request, true));
+        return (RelatedBusinessesList) send(request, true, RelatedBusinessesList.class);
 
     }
 
@@ -883,7 +1545,32 @@ public class UDDIProxy
         request.setFindQualifiers(findQualifiers);
         if (maxRows > 0)
             request.setMaxRows(maxRows);
-        return new ServiceList(send(request, true));
+        return (ServiceList) send(request, true, ServiceList.class);
+    }
+
+    /**
+     * Iterates over all services a find_service request finds, sending
+     * further requests partitioned by name where the result is truncated.
+     * See {@link FindIterator}.
+     *
+     * @param request The find_service request.
+     * @return An iterator of ServiceInfo objects.
+     */
+    public FindIterator<ServiceInfo> iterateServices(FindService request)
+    {
+        return new FindIterator<ServiceInfo>(this, request, ServiceList.class);
+    }
+
+    /**
+     * Streams all services a find_service request finds.
+     * See {@link #iterateServices(FindService)}.
+     *
+     * @param request The find_service request.
+     * @return A lazy Stream of ServiceInfo objects.
+     */
+    public Stream<ServiceInfo> streamServices(FindService request)
+    {
+        return iterateServices(request).stream();
     }
 
     /**
@@ -1001,7 +1688,32 @@ public class UDDIProxy
         request.setFindQualifiers(findQualifiers);
         if (maxRows > 0)
             request.setMaxRows(maxRows);
-        return new TModelList(send(request, true));
+        return (TModelList) send(request, true, TModelList.class);
+    }
+
+    /**
+     * Iterates over all tModels a find_tModel request finds, sending
+     * further requests partitioned by name where the result is truncated.
+     * See {@link FindIterator}.
+     *
+     * @param request The find_tModel request.
+     * @return An iterator of TModelInfo objects.
+     */
+    public FindIterator<TModelInfo> iterateTModels(FindTModel request)
+    {
+        return new FindIterator<TModelInfo>(this, request, TModelList.class);
+    }
+
+    /**
+     * Streams all tModels a find_tModel request finds.
+     * See {@link #iterateTModels(FindTModel)}.
+     *
+     * @param request The find_tModel request.
+     * @return A lazy Stream of TModelInfo objects.
+     */
+    public Stream<TModelInfo> streamTModels(FindTModel request)
+    {
+        return iterateTModels(request).stream();
     }
 
     /**
@@ -1017,11 +1729,7 @@ public class UDDIProxy
      */
     public BindingDetail get_bindingDetail(String bindingKey) throws UDDIException, TransportException
     {
-        GetBindingDetail request = new GetBindingDetail();
-        Vector keys = new Vector();
-        keys.addElement(bindingKey);
-        request.setBindingKeyStrings(keys);
-        return new BindingDetail(send(request, true));
+        return (BindingDetail) getDetail(DetailKind.BINDING, bindingKey);
     }
 
     /**
@@ -1039,9 +1747,7 @@ public class UDDIProxy
      */
     public BindingDetail get_bindingDetail(Vector bindingKeyStrings) throws UDDIException, TransportException
     {
-        GetBindingDetail request = new GetBindingDetail();
-        request.setBindingKeyStrings(bindingKeyStrings);
-        return new BindingDetail(send(request, true));
+        return (BindingDetail) getDetails(DetailKind.BINDING, bindingKeyStrings);
     }
 
     /**
@@ -1060,11 +1766,7 @@ public class UDDIProxy
      */
     public BusinessDetail get_businessDetail(String businessKey) throws UDDIException, TransportException
     {
-        GetBusinessDetail request = new GetBusinessDetail();
-        Vector keys = new Vector();
-        keys.addElement(businessKey);
-        request.setBusinessKeyStrings(keys);
-        return new BusinessDetail(send(request, true));
+        return (BusinessDetail) getDetail(DetailKind.BUSINESS, businessKey);
     }
 
     /**
@@ -1083,9 +1785,7 @@ public class UDDIProxy
      */
     public BusinessDetail get_businessDetail(Vector businessKeyStrings) throws UDDIException, TransportException
     {
-        GetBusinessDetail request = new GetBusinessDetail();
-        request.setBusinessKeyStrings(businessKeyStrings);
-        return new BusinessDetail(send(request, true));
+        return (BusinessDetail) getDetails(DetailKind.BUSINESS, businessKeyStrings);
     }
 
     /**
@@ -1155,11 +1855,7 @@ public class UDDIProxy
      */
     public ServiceDetail get_serviceDetail(String serviceKey) throws UDDIException, TransportException
     {
-        GetServiceDetail request = new GetServiceDetail();
-        Vector keys = new Vector();
-        keys.addElement(serviceKey);
-        request.setServiceKeyStrings(keys);
-        return new ServiceDetail(send(request, true));
+        return (ServiceDetail) getDetail(DetailKind.SERVICE, serviceKey);
     }
 
     /**
@@ -1178,9 +1874,7 @@ public class UDDIProxy
      */
     public ServiceDetail get_serviceDetail(Vector serviceKeyStrings) throws UDDIException, TransportException
     {
-        GetServiceDetail request = new GetServiceDetail();
-        request.setServiceKeyStrings(serviceKeyStrings);
-        return new ServiceDetail(send(request, true));
+        return (ServiceDetail) getDetails(DetailKind.SERVICE, serviceKeyStrings);
     }
 
     /**
@@ -1199,11 +1893,7 @@ public class UDDIProxy
      */
     public TModelDetail get_tModelDetail(String tModelKey) throws UDDIException, TransportException
     {
-        GetTModelDetail request = new GetTModelDetail();
-        Vector keys = new Vector();
-        keys.addElement(tModelKey);
-        request.setTModelKeyStrings(keys);
-        return new TModelDetail(send(request, true));
+        return (TModelDetail) getDetail(DetailKind.TMODEL, tModelKey);
     }
 
     /**
@@ -1223,37 +1913,315 @@ public class UDDIProxy
      */
     public TModelDetail get_tModelDetail(Vector tModelKeyStrings) throws UDDIException, TransportException
     {
-        GetTModelDetail request = new GetTModelDetail();
-        request.setTModelKeyStrings(tModelKeyStrings);
-        return new TModelDetail(send(request, true));
+        return (TModelDetail) getDetails(DetailKind.TMODEL, tModelKeyStrings);
     }
 
     /**
-     * The add_publisherAssertions message is used to add relationship assertions to the
-     * existing set of assertions.
-     *
-     * @param authInfo     Contains an authentication token. Authentication tokens are obtained
-     *                     using the get_authToken method.
-     * @param publisherAssertion    Contains a relationship assertion.
-     * @return    This function returns a  DispositionReport with a single success indicator.
-     * @exception UDDIException
-     * @exception TransportException
+     * Looks up a single entity, merging the lookup with concurrent ones
+     * if request coalescing is enabled.
      */
-    public DispositionReport add_publisherAssertions(String authInfo, PublisherAssertion publisherAssertion) throws UDDIException, TransportException
+    UDDIElement getDetail(DetailKind kind, String key) throws UDDIException, TransportException
     {
-        Vector pubVector = new Vector();
-        pubVector.addElement(publisherAssertion);
-        return add_publisherAssertions(authInfo, pubVector);
+        NegativeKeyCache negative = negativeKeys;
+        if (negative == null)
+        {
+            return getCachedDetail(kind, key);
+        }
+        UDDIException known = negative.get(kind, key);
+        if (known != null)
+        {
+            throw known;
+        }
+        try
+        {
+            return getCachedDetail(kind, key);
+        }
+        catch (UDDIException e)
+        {
+            if (NegativeKeyCache.isNegative(e))
+            {
+                negative.put(kind, key, e);
+            }
+            throw e;
+        }
+    }
+
+    private UDDIElement getCachedDetail(DetailKind kind, String key) throws UDDIException, TransportException
+    {
+        EntityCache cache = entityCache;
+        if (cache == null)
+        {
+            return fetchDetail(kind, key);
+        }
+        UDDIElement result = cache.get(kind, key);
+        if (result == null)
+        {
+            long generation = cache.getGeneration();
+            result = fetchDetail(kind, key);
+            cache.put(kind, result, generation);
+        }
+        else if (cache.claimRevalidation(kind, key))
+        {
+            Vector keys = new Vector();
+            keys.addElement(key);
+            revalidate(cache, kind, keys);
+        }
+        return result;
     }
 
     /**
-     * The add_publisherAssertions message is used to add relationship assertions to the
-     * existing set of assertions.
+     * Fetches entities loaded from a snapshot again in the background, with
+     * one request.
      *
-     * @param authInfo     Contains an authentication token. Authentication tokens are obtained
-     *                     using the get_authToken method.
-     * @param publisherAssertion    Vector of publisherAssertion object. Each publisherAssertion
-     *                              contains a relationship assertion.
+     * @param keys   Keys of entities for which {@link EntityCache#claimRevalidation} returned true.
+     */
+    private void revalidate(final EntityCache cache, final DetailKind kind, final Vector keys)
+    {
+        getExecutor().execute(new Runnable()
+        {
+            public void run()
+            {
+                refetch(cache, kind, keys);
+            }
+        });
+    }
+
+    /**
+     * Fetches entities into the entity cache, splitting the request if it
+     * fails because of a bad key and removing bad keys from the cache.
+     */
+    private void refetch(EntityCache cache, DetailKind kind, Vector keys)
+    {
+        long generation = cache.getGeneration();
+        try
+        {
+            cache.put(kind, keys.size() == 1 ? fetchDetail(kind, (String) keys.elementAt(0)) : fetchChunked(kind, keys), generation);
+        }
+        catch (UDDIException e)
+        {
+            if (!NegativeKeyCache.isNegative(e))
+            {
+                return;
+            }
+            if (keys.size() == 1)
+            {
+                cache.remove(kind, (String) keys.elementAt(0));
+                return;
+            }
+            int half = keys.size() / 2;
+            refetch(cache, kind, new Vector(keys.subList(0, half)));
+            refetch(cache, kind, new Vector(keys.subList(half, keys.size())));
+        }
+        catch (Exception e)
+        {
+            // Keep the loaded entities until they expire.
+        }
+    }
+
+    private UDDIElement fetchDetail(DetailKind kind, String key) throws UDDIException, TransportException
+    {
+        DetailRequestCoalescer coalescer = getCoalescer(kind);
+        if (coalescer != null)
+        {
+            return coalescer.get(key);
+        }
+        Vector keys = new Vector();
+        keys.addElement(key);
+        return kind.fetch(this, keys);
+    }
+
+    /**
+     * Looks up several entities, taking those in the entity cache from
+     * there and requesting only the others from the registry. If invalid
+     * and retired keys are remembered, known bad keys are not requested,
+     * and a request failing because of bad keys is split until they are
+     * found; the call then only fails if none of the keys are good.
+     */
+    UDDIElement getDetails(DetailKind kind, Vector keys) throws UDDIException, TransportException
+    {
+        EntityCache cache = entityCache;
+        NegativeKeyCache negative = negativeKeys;
+        if ((cache == null && negative == null) || keys == null)
+        {
+            return fetchChunked(kind, keys);
+        }
+        Object[] entities = new Object[keys.size()];
+        String operator = null;
+        UDDIException failure = null;
+        Vector missing = new Vector();
+        Vector loaded = new Vector();
+        for (int i = 0; i < entities.length; i++)
+        {
+            String key = (String) keys.elementAt(i);
+            UDDIException known = negative != null ? negative.get(kind, key) : null;
+            UDDIElement cached = known == null && cache != null ? cache.get(kind, key) : null;
+            if (known != null)
+            {
+                failure = failure != null ? failure : known;
+            }
+            else if (cached != null)
+            {
+                entities[i] = kind.getEntities(cached).elementAt(0);
+                operator = kind.getOperator(cached);
+                if (cache.claimRevalidation(kind, key))
+                {
+                    loaded.addElement(key);
+                }
+            }
+            else if (!missing.contains(key))
+            {
+                missing.addElement(key);
+            }
+        }
+        if (!loaded.isEmpty())
+        {
+            revalidate(cache, kind, loaded);
+        }
+        if (!missing.isEmpty())
+        {
+            long generation = cache != null ? cache.getGeneration() : 0;
+            Vector details = new Vector();
+            UDDIException rejected = fetchDetails(kind, missing, details);
+            if (failure == null && rejected == null && details.size() == 1 && missing.size() == keys.size())
+            {
+                if (cache != null)
+                {
+                    cache.put(kind, (UDDIElement) details.elementAt(0), generation);
+                }
+                return (UDDIElement) details.elementAt(0);
+            }
+            failure = failure != null ? failure : rejected;
+            Hashtable byKey = new Hashtable();
+            for (int d = 0; d < details.size(); d++)
+            {
+                UDDIElement fetched = (UDDIElement) details.elementAt(d);
+                if (cache != null)
+                {
+                    cache.put(kind, fetched, generation);
+                }
+                Vector returned = kind.getEntities(fetched);
+                for (int i = 0; returned != null && i < returned.size(); i++)
+                {
+                    byKey.put(DetailKind.normalize(kind.getKey(returned.elementAt(i))), returned.elementAt(i));
+                }
+                operator = kind.getOperator(fetched);
+            }
+            for (int i = 0; i < entities.length; i++)
+            {
+                if (entities[i] == null)
+                {
+                    entities[i] = byKey.get(DetailKind.normalize((String) keys.elementAt(i)));
+                }
+            }
+        }
+        //Keep the order of the keys, as the registry does.
+        Vector result = new Vector(entities.length);
+        for (int i = 0; i < entities.length; i++)
+        {
+            if (entities[i] != null)
+            {
+                result.addElement(entities[i]);
+            }
+        }
+        if (result.isEmpty() && failure != null)
+        {
+            throw failure;
+        }
+        return kind.newDetail(operator, result);
+    }
+
+    /**
+     * Requests the entities for some keys. If invalid and retired keys are
+     * remembered and the request fails because of such a key, the keys are
+     * split in halves that are requested separately, down to single keys,
+     * which are then remembered.
+     *
+     * @param details Vector the details returned by the registry are added to.
+     * @return The fault of the first bad key, or null if all keys are good.
+     */
+    private UDDIException fetchDetails(DetailKind kind, Vector keys, Vector details) throws UDDIException, TransportException
+    {
+        try
+        {
+            details.addElement(fetchChunked(kind, keys));
+            return null;
+        }
+        catch (UDDIException e)
+        {
+            NegativeKeyCache negative = negativeKeys;
+            if (negative == null || !NegativeKeyCache.isNegative(e))
+            {
+                throw e;
+            }
+            if (keys.size() == 1)
+            {
+                negative.put(kind, (String) keys.elementAt(0), e);
+                return e;
+            }
+            int half = keys.size() / 2;
+            UDDIException first = fetchDetails(kind, new Vector(keys.subList(0, half)), details);
+            UDDIException second = fetchDetails(kind, new Vector(keys.subList(half, keys.size())), details);
+            return first != null ? first : second;
+        }
+    }
+
+    /**
+     * Requests the entities for some keys, in several requests if
+     * splitting is enabled.
+     */
+    private UDDIElement fetchChunked(DetailKind kind, Vector keys) throws UDDIException, TransportException
+    {
+        KeyChunker chunker = keyChunker;
+        return chunker != null && keys != null ? chunker.get(kind, keys) : kind.fetch(this, keys);
+    }
+
+    /**
+     * Returns the coalescer for the given kind, or null if coalescing is disabled.
+     */
+    DetailRequestCoalescer getCoalescer(DetailKind kind)
+    {
+        if (coalesceWindowMillis <= 0)
+        {
+            return null;
+        }
+        synchronized (coalescers)
+        {
+            DetailRequestCoalescer coalescer = (DetailRequestCoalescer) coalescers.get(kind);
+            if (coalescer == null)
+            {
+                coalescer = new DetailRequestCoalescer(this, kind, coalesceWindowMillis, coalesceMaxBatchSize);
+                coalescers.put(kind, coalescer);
+            }
+            return coalescer;
+        }
+    }
+
+    /**
+     * The add_publisherAssertions message is used to add relationship assertions to the
+     * existing set of assertions.
+     *
+     * @param authInfo     Contains an authentication token. Authentication tokens are obtained
+     *                     using the get_authToken method.
+     * @param publisherAssertion    Contains a relationship assertion.
+     * @return    This function returns a  DispositionReport with a single success indicator.
+     * @exception UDDIException
+     * @exception TransportException
+     */
+    public DispositionReport add_publisherAssertions(String authInfo, PublisherAssertion publisherAssertion) throws UDDIException, TransportException
+    {
+        Vector pubVector = new Vector();
+        pubVector.addElement(publisherAssertion);
+        return add_publisherAssertions(authInfo, pubVector);
+    }
+
+    /**
+     * The add_publisherAssertions message is used to add relationship assertions to the
+     * existing set of assertions.
+     *
+     * @param authInfo     Contains an authentication token. Authentication tokens are obtained
+     *                     using the get_authToken method.
+     * @param publisherAssertion    Vector of publisherAssertion object. Each publisherAssertion
+     *                              contains a relationship assertion.
      * @return   This function returns a  DispositionReport with a single success indicator.
      * @exception UDDIException
      * @exception TransportException
@@ -1368,6 +2336,11 @@ public class UDDIProxy
      */
     public DispositionReport delete_binding(String authInfo, Vector bindingKeyStrings) throws UDDIException, TransportException
     {
+        KeyChunker chunker = keyChunker;
+        if (chunker != null && bindingKeyStrings != null)
+        {
+            return chunker.delete(DetailKind.BINDING, authInfo, bindingKeyStrings);
+        }
         DeleteBinding request = new DeleteBinding();
         request.setAuthInfo(authInfo);
         request.setBindingKeyStrings(bindingKeyStrings);
@@ -1414,6 +2387,11 @@ public class UDDIProxy
      */
     public DispositionReport delete_business(String authInfo, Vector businessKeyStrings) throws UDDIException, TransportException
     {
+        KeyChunker chunker = keyChunker;
+        if (chunker != null && businessKeyStrings != null)
+        {
+            return chunker.delete(DetailKind.BUSINESS, authInfo, businessKeyStrings);
+        }
         DeleteBusiness request = new DeleteBusiness();
         request.setAuthInfo(authInfo);
         request.setBusinessKeyStrings(businessKeyStrings);
@@ -1459,6 +2437,11 @@ public class UDDIProxy
      */
     public DispositionReport delete_service(String authInfo, Vector serviceKeyStrings) throws UDDIException, TransportException
     {
+        KeyChunker chunker = keyChunker;
+        if (chunker != null && serviceKeyStrings != null)
+        {
+            return chunker.delete(DetailKind.SERVICE, authInfo, serviceKeyStrings);
+        }
         DeleteService request = new DeleteService();
         request.setAuthInfo(authInfo);
         request.setServiceKeyStrings(serviceKeyStrings);
@@ -1504,6 +2487,11 @@ public class UDDIProxy
      */
     public DispositionReport delete_tModel(String authInfo, Vector tModelKeyStrings) throws UDDIException, TransportException
     {
+        KeyChunker chunker = keyChunker;
+        if (chunker != null && tModelKeyStrings != null)
+        {
+            return chunker.delete(DetailKind.TMODEL, authInfo, tModelKeyStrings);
+        }
         DeleteTModel request = new DeleteTModel();
         request.setAuthInfo(authInfo);
         request.setTModelKeyStrings(tModelKeyStrings);
@@ -1626,6 +2614,81 @@ public class UDDIProxy
         return new AuthToken(send(request, false));
     }
 
+    /**
+     * Creates a publishing session that obtains an authentication token
+     * with the given credentials when first needed, shares it between
+     * threads and replaces it when it expires.
+     *
+     * @param userid User ID passed to get_authToken.
+     * @param cred   Credentials passed to get_authToken.
+     * @return PublishingSession
+     */
+    public PublishingSession newPublishingSession(String userid, String cred)
+    {
+        return new PublishingSession(this, userid, cred);
+    }
+
+    /**
+     * Creates a publisher that saves entities of one kind in batches,
+     * several batches at a time.
+     *
+     * @param session  Session providing the authentication token.
+     * @param kind     Kind of the entities published.
+     * @param listener Receives the outcome of each entity.
+     * @return BulkPublisher
+     */
+    public BulkPublisher newBulkPublisher(PublishingSession session, DetailKind kind, BulkPublisher.Listener listener)
+    {
+        return new BulkPublisher(this, session, kind, listener);
+    }
+
+    /**
+     * Creates a crawler that reads entities of the registry through this
+     * proxy, for example into a snapshot file.
+     *
+     * @return RegistryCrawler
+     */
+    public RegistryCrawler newRegistryCrawler()
+    {
+        return new RegistryCrawler(this);
+    }
+
+    /**
+     * Creates a sync that keeps a replica of the selected businesses
+     * current through this proxy.
+     *
+     * @param selection Selects the businesses replicated; null for all.
+     * @param session   Session whose publisher's businesses are listed with
+     *                  get_registeredInfo to find deleted ones. May be null.
+     * @return RegistrySync
+     */
+    public RegistrySync newRegistrySync(FindBusiness selection, PublishingSession session)
+    {
+        return new RegistrySync(this, selection, session);
+    }
+
+    /**
+     * Creates a walker that follows the relationships between businesses
+     * through this proxy.
+     *
+     * @return RelatedBusinessWalker
+     */
+    public RelatedBusinessWalker newRelatedBusinessWalker()
+    {
+        return new RelatedBusinessWalker(this);
+    }
+
+    /**
+     * Creates a resolver that looks up and caches the accessPoints of
+     * bindingTemplates through this proxy.
+     *
+     * @return EndpointResolver
+     */
+    public EndpointResolver newEndpointResolver()
+    {
+        return new EndpointResolver(this);
+    }
+
     /**
      * The get_registeredInfo message is used to get an abbreviated list
      * of all businessEntity keys and tModel keys that are controlled by
@@ -1928,46 +2991,350 @@ public class UDDIProxy
      * @return An element representing a XML DOM tree containing the UDDI response.
      * @exception TransportException
      */
-    public Element send(UDDIElement el, boolean inquiry) throws TransportException
+    public Element send(final UDDIElement el, boolean inquiry) throws TransportException
     {
+        final Transport transport = transportFactory.getTransport();
+        return (Element) sendElement(el, inquiry, new InquiryAttempt.Call()
+        {
+            public Object send(URL url) throws TransportException
+            {
+                return transport.send(el, url);
+            }
+        });
+    }
 
-        Element result = null;
-
-        if (inquiry)
+    /**
+     * Sends a UDDIElement to either the inquiry or publish URL and builds a
+     * response object of the given type from the reply. If the transport
+     * implements StreamingTransport the response is read directly from the
+     * stream by {@link StAXBinder}; otherwise the DOM constructor of the
+     * response class is used. Inquiry responses are taken from the response
+     * cache if it is enabled and holds them.
+     *
+     * @param el
+     * @param inquiry
+     * @param type   Class of the response object, for example BusinessList.class.
+     * @return The response object.
+     * @exception UDDIException
+     * @exception TransportException
+     */
+    public UDDIElement send(final UDDIElement el, boolean inquiry, final Class type) throws UDDIException, TransportException
+    {
+        ResponseCache cache = responseCache;
+        String key = cache != null && inquiry ? cache.getKey(el) : null;
+        if (key == null)
         {
-            result = transportFactory.getTransport().send(el, inquiryURL);
+            return sendUncached(el, inquiry, type);
         }
-        else
+        UDDIElement result = cache.get(key, type);
+        if (result == null)
         {
-            result = transportFactory.getTransport().send(el, publishURL);
+            long generation = cache.getGeneration();
+            result = sendUncached(el, inquiry, type);
+            cache.put(key, result, generation);
         }
         return result;
     }
 
     /**
-     * Sends an XML DOM tree indentified by the given element to either the
-     * inquiry or publish URL. Can be used to send an manually constructed
-     * message to the UDDI registry.
+     * Sends a request as send(UDDIElement, boolean, Class) does, but never
+     * takes the response from the response cache nor stores it there. Used
+     * where a response must reflect the current content of the registry.
+     */
+    UDDIElement sendUncached(final UDDIElement el, boolean inquiry, final Class type) throws UDDIException, TransportException
+    {
+        Transport transport = transportFactory.getTransport();
+        if (!(transport instanceof StreamingTransport))
+        {
+            return StAXBinder.newInstance(type, send(el, inquiry));
+        }
+        final StreamingTransport streaming = (StreamingTransport) transport;
+        return (UDDIElement) sendRequest(el, inquiry, new InquiryAttempt.Call()
+        {
+            public Object send(URL url) throws UDDIException, TransportException
+            {
+                return streaming.send(el, url, new StAXBinder(type));
+            }
+        });
+    }
+
+    /**
+     * Sends a request whose response is a DOM tree, so that faults are
+     * returned rather than thrown.
+     */
+    private Object sendElement(Object request, boolean inquiry, InquiryAttempt.Call call) throws TransportException
+    {
+        try
+        {
+            return sendRequest(request, inquiry, call);
+        }
+        catch (UDDIException e)
+        {
+            //DOM transports return faults as elements, so this does not happen.
+            throw new TransportException(e);
+        }
+    }
+
+    /**
+     * Sends a request, retrying it as the retry policy allows.
+     */
+    private Object sendRequest(Object request, boolean inquiry, InquiryAttempt.Call call) throws UDDIException, TransportException
+    {
+        Deadline deadline = newDeadline();
+        if (deadline == null)
+        {
+            return sendRetrying(request, inquiry, call);
+        }
+        //The transports limit their timeouts to the time left.
+        Deadline previous = Deadline.setCurrent(deadline);
+        try
+        {
+            return sendRetrying(request, inquiry, call);
+        }
+        finally
+        {
+            Deadline.setCurrent(previous);
+        }
+    }
+
+    /**
+     * Returns the deadline for a call made now: the earliest of the deadline
+     * already set for the thread, the per call deadline of this thread and
+     * the configured deadline. Returns null if there is none.
+     */
+    Deadline newDeadline()
+    {
+        Long override = callDeadline.get();
+        long millis = override != null ? override.longValue() : deadlineMillis;
+        return Deadline.earliest(Deadline.current(), millis > 0 ? Deadline.after(millis) : null);
+    }
+
+    /**
+     * Sends a request, retrying it as the retry policy allows.
+     */
+    private Object sendRetrying(Object request, boolean inquiry, InquiryAttempt.Call call) throws UDDIException, TransportException
+    {
+        RetryPolicy retry = retryPolicy;
+        if (retry == null || !retry.appliesTo(inquiry))
+        {
+            return sendOnce(request, inquiry, call);
+        }
+        retry.started();
+        for (int retries = 0;; retries++)
+        {
+            Object result;
+            long delay;
+            try
+            {
+                result = sendOnce(request, inquiry, call);
+            }
+            catch (UDDIException e)
+            {
+                if ((delay = retry.retryDelay(RetryPolicy.getErrCode(e), retries)) < 0)
+                {
+                    throw e;
+                }
+                RetryPolicy.pause(delay);
+                continue;
+            }
+            catch (TransportException e)
+            {
+                if ((delay = retry.retryDelay(RetryPolicy.getErrCode(e), retries)) < 0)
+                {
+                    throw e;
+                }
+                RetryPolicy.pause(delay);
+                continue;
+            }
+            if (result instanceof Element && (delay = retry.retryDelay(RetryPolicy.getErrCode((Element) result), retries)) >= 0)
+            {
+                RetryPolicy.pause(delay);
+                continue;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Sends a request once: publish requests to the publish URL, inquiry
+     * requests to the inquiry endpoints if several are configured, and
+     * hedged if hedging is enabled.
+     */
+    private Object sendOnce(Object request, boolean inquiry, InquiryAttempt.Call call) throws UDDIException, TransportException
+    {
+        if (!inquiry)
+        {
+            if (responseCache == null && entityCache == null && negativeKeys == null)
+            {
+                return call.send(publishURL);
+            }
+            Object result = null;
+            try
+            {
+                result = call.send(publishURL);
+                return result;
+            }
+            finally
+            {
+                //Even a failed request may have changed the registry.
+                published(request, result);
+            }
+        }
+        InquiryEndpointPool pool = inquiryEndpoints;
+        InquiryHedger hedger = inquiryHedger;
+        if (hedger != null)
+        {
+            return hedger.send(request, call, pool, inquiryURL, getExecutor());
+        }
+        return new InquiryAttempt(call, pool, inquiryURL, null).run();
+    }
+
+    /**
+     * Brings the caches up to date after a publish request.
+     *
+     * @param request  The request, a UDDIElement or a DOM tree.
+     * @param response The response, or null if the request failed.
+     */
+    private void published(Object request, Object response)
+    {
+        ResponseCache responses = responseCache;
+        if (responses != null)
+        {
+            responses.published(InquiryHedger.getOperationName(request));
+        }
+        EntityCache entities = entityCache;
+        if (entities != null)
+        {
+            entities.published(request, response);
+        }
+        NegativeKeyCache negative = negativeKeys;
+        if (negative != null && InquiryHedger.getOperationName(request).startsWith("save_"))
+        {
+            negative.clear();
+        }
+    }
+
+    /**
+     * Sends a UDDIElement to either the inquiry or publish URL without blocking.
+     * Transports that implement AsyncTransport are used directly; other
+     * transports are run on the executor returned by {@link #getExecutor()}.
+     * The request is sent once: unlike the blocking path it is not retried,
+     * hedged, answered from the caches, coalesced or split into chunks.
      *
      * @param el
      * @param inquiry
-     * @return An element representing a XML DOM tree containing the UDDI response.
-     * @exception TransportException
+     * @return A future for the element representing a XML DOM tree containing the
+     *         UDDI response. The future completes exceptionally with a TransportException
+     *         if a problem occurs during transmission.
      */
-    public Element send(Element el, boolean inquiry) throws TransportException
+    public CompletableFuture<Element> sendAsync(UDDIElement el, boolean inquiry)
     {
+        AsyncTransport transport;
+        try
+        {
+            transport = getAsyncTransport();
+        }
+        catch (TransportException e)
+        {
+            CompletableFuture<Element> future = new CompletableFuture<Element>();
+            future.completeExceptionally(e);
+            return future;
+        }
+        Deadline deadline = newDeadline();
+        if (deadline == null)
+        {
+            return sendAsync(transport, el, inquiry);
+        }
+        //The transport picks the deadline up when the request is started.
+        Deadline previous = Deadline.setCurrent(deadline);
+        try
+        {
+            return sendAsync(transport, el, inquiry);
+        }
+        finally
+        {
+            Deadline.setCurrent(previous);
+        }
+    }
 
-        Element result = null;
+    private CompletableFuture<Element> sendAsync(AsyncTransport transport, UDDIElement el, boolean inquiry)
+    {
+        if (!inquiry && (responseCache != null || entityCache != null || negativeKeys != null))
+        {
+            final UDDIElement request = el;
+            CompletableFuture<Element> future = transport.sendAsync(el, publishURL);
+            future.whenComplete(new BiConsumer<Element, Throwable>()
+            {
+                public void accept(Element result, Throwable failure)
+                {
+                    published(request, result);
+                }
+            });
+            return future;
+        }
+        final InquiryEndpointPool pool = inquiryEndpoints;
+        if (!inquiry || pool == null)
+        {
+            return transport.sendAsync(el, inquiry ? inquiryURL : publishURL);
+        }
+        final InquiryEndpoint endpoint = pool.acquire();
+        final long start = System.nanoTime();
+        CompletableFuture<Element> future = transport.sendAsync(el, endpoint.getURL());
+        future.whenComplete(new BiConsumer<Element, Throwable>()
+        {
+            public void accept(Element result, Throwable failure)
+            {
+                if (failure != null)
+                {
+                    pool.completed(endpoint, start, failure);
+                }
+                else
+                {
+                    pool.completed(endpoint, start, result);
+                }
+            }
+        });
+        return future;
+    }
 
-        if (inquiry)
+    /**
+     * Returns the transport as an AsyncTransport, adapting blocking transports
+     * to run on the executor.
+     */
+    synchronized AsyncTransport getAsyncTransport() throws TransportException
+    {
+        Transport transport = transportFactory.getTransport();
+        if (transport instanceof AsyncTransport)
         {
-            result = transportFactory.getTransport().send(el, inquiryURL);
+            return (AsyncTransport) transport;
         }
-        else
+        if (asyncAdapter == null || asyncAdapter.getTransport() != transport)
         {
-            result = transportFactory.getTransport().send(el, publishURL);
+            asyncAdapter = new BlockingTransportAdapter(transport, getExecutor());
         }
-        return result;
+        return asyncAdapter;
+    }
+
+    /**
+     * Sends an XML DOM tree indentified by the given element to either the
+     * inquiry or publish URL. Can be used to send an manually constructed
+     * message to the UDDI registry.
+     *
+     * @param el
+     * @param inquiry
+     * @return An element representing a XML DOM tree containing the UDDI response.
+     * @exception TransportException
+     */
+    public Element send(final Element el, boolean inquiry) throws TransportException
+    {
+        final Transport transport = transportFactory.getTransport();
+        return (Element) sendElement(el, inquiry, new InquiryAttempt.Call()
+        {
+            public Object send(URL url) throws TransportException
+            {
+                return transport.send(el, url);
+            }
+        });
     }
 
 }
\ No newline at end of file
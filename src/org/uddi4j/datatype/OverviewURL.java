@@ -8,6 +8,9 @@
 
 package org.uddi4j.datatype;
 
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
 import org.uddi4j.UDDIElement;
 import org.uddi4j.UDDIException;
 import org.w3c.dom.Element;
@@ -105,6 +108,20 @@ public class OverviewURL extends UDDIElement
 		parent.appendChild(base);
 	}
 
+	/**
+	 * Save an object to a stream writer. Writes the same XML as
+	 * saveToXML(Element) without building a DOM tree.
+	 *
+	 * @param writer Object will be written as the next element of the writer.
+	 * @exception XMLStreamException
+	 */
+	public void saveToXML(XMLStreamWriter writer) throws XMLStreamException
+	{
+		writeStartElement(writer, UDDI_TAG);
+		writeText(writer, text);
+		writer.writeEndElement();
+	}
+
 	public boolean equals(Object object)
 	{
 		boolean result = false;
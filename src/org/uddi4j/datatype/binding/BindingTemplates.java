@@ -10,6 +10,9 @@ package org.uddi4j.datatype.binding;
 
 import java.util.Vector;
 
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
 import org.uddi4j.UDDIElement;
 import org.uddi4j.UDDIException;
 import org.w3c.dom.Element;
@@ -145,4 +148,21 @@ public class BindingTemplates extends UDDIElement {
       }
       parent.appendChild(base);
    }
+
+   /**
+    * Save an object to a stream writer. Writes the same XML as
+    * saveToXML(Element) without building a DOM tree.
+    *
+    * @param writer Object will be written as the next element of the writer.
+    * @exception XMLStreamException
+    */
+   public void saveToXML(XMLStreamWriter writer) throws XMLStreamException {
+      writeStartElement(writer, UDDI_TAG);
+      if (bindingTemplate != null) {
+         for (int i = 0; i < bindingTemplate.size(); i++) {
+            ((BindingTemplate) (bindingTemplate.elementAt(i))).saveToXML(writer);
+         }
+      }
+      writer.writeEndElement();
+   }
 }
@@ -11,6 +11,9 @@ package org.uddi4j.datatype.business;
 
 import java.util.Vector;
 
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
 import org.uddi4j.UDDIElement;
 import org.uddi4j.UDDIException;
 import org.w3c.dom.Element;
@@ -209,4 +212,27 @@ public class Address extends UDDIElement
 		}
 		parent.appendChild(base);
 	}
+
+	/**
+	 * Save an object to a stream writer. Writes the same XML as
+	 * saveToXML(Element) without building a DOM tree.
+	 *
+	 * @param writer Object will be written as the next element of the writer.
+	 * @exception XMLStreamException
+	 */
+	public void saveToXML(XMLStreamWriter writer) throws XMLStreamException
+	{
+		writeStartElement(writer, UDDI_TAG);
+		writeAttribute(writer, "useType", useType);
+		writeAttribute(writer, "sortCode", sortCode);
+		writeAttribute(writer, "tModelKey", tModelKey);
+		if (addressLine != null)
+		{
+			for (int i = 0; i < addressLine.size(); i++)
+			{
+				((AddressLine) (addressLine.elementAt(i))).saveToXML(writer);
+			}
+		}
+		writer.writeEndElement();
+	}
 }
@@ -11,6 +11,9 @@ package org.uddi4j.datatype.business;
 
 import java.util.Vector;
 
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
 import org.uddi4j.UDDIElement;
 import org.uddi4j.UDDIException;
 import org.uddi4j.datatype.Description;
@@ -424,4 +427,44 @@ public class BusinessEntity extends UDDIElement {
       }
       parent.appendChild(base);
    }
+
+   /**
+    * Save an object to a stream writer. Writes the same XML as
+    * saveToXML(Element) without building a DOM tree.
+    *
+    * @param writer Object will be written as the next element of the writer.
+    * @exception XMLStreamException
+    */
+   public void saveToXML(XMLStreamWriter writer) throws XMLStreamException {
+      writeStartElement(writer, UDDI_TAG);
+      writeAttribute(writer, "businessKey", businessKey);
+      writeAttribute(writer, "operator", operator);
+      writeAttribute(writer, "authorizedName", authorizedName);
+      if (discoveryURLs != null) {
+         discoveryURLs.saveToXML(writer);
+      }
+      if (nameVector != null) {
+         for (int i = 0; i < nameVector.size(); i++) {
+            ((Name) (nameVector.elementAt(i))).saveToXML(writer);
+         }
+      }
+      if (description != null) {
+         for (int i = 0; i < description.size(); i++) {
+            ((Description) (description.elementAt(i))).saveToXML(writer);
+         }
+      }
+      if (contacts != null) {
+         contacts.saveToXML(writer);
+      }
+      if (businessServices != null) {
+         businessServices.saveToXML(writer);
+      }
+      if (identifierBag != null) {
+         identifierBag.saveToXML(writer);
+      }
+      if (categoryBag != null) {
+         categoryBag.saveToXML(writer);
+      }
+      writer.writeEndElement();
+   }
 }
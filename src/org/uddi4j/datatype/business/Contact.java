@@ -10,6 +10,9 @@ package org.uddi4j.datatype.business;
 
 import java.util.Vector;
 
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
 import org.uddi4j.UDDIElement;
 import org.uddi4j.UDDIException;
 import org.uddi4j.datatype.Description;
@@ -283,4 +286,40 @@ public class Contact extends UDDIElement {
       }
       parent.appendChild(base);
    }
+
+   /**
+    * Save an object to a stream writer. Writes the same XML as
+    * saveToXML(Element) without building a DOM tree.
+    *
+    * @param writer Object will be written as the next element of the writer.
+    * @exception XMLStreamException
+    */
+   public void saveToXML(XMLStreamWriter writer) throws XMLStreamException {
+      writeStartElement(writer, UDDI_TAG);
+      writeAttribute(writer, "useType", useType);
+      if (description != null) {
+         for (int i = 0; i < description.size(); i++) {
+            ((Description) (description.elementAt(i))).saveToXML(writer);
+         }
+      }
+      if (personName != null) {
+         personName.saveToXML(writer);
+      }
+      if (phone != null) {
+         for (int i = 0; i < phone.size(); i++) {
+            ((Phone) (phone.elementAt(i))).saveToXML(writer);
+         }
+      }
+      if (email != null) {
+         for (int i = 0; i < email.size(); i++) {
+            ((Email) (email.elementAt(i))).saveToXML(writer);
+         }
+      }
+      if (address != null) {
+         for (int i = 0; i < address.size(); i++) {
+            ((Address) (address.elementAt(i))).saveToXML(writer);
+         }
+      }
+      writer.writeEndElement();
+   }
 }
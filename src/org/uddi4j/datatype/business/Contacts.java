@@ -10,6 +10,9 @@ package org.uddi4j.datatype.business;
 
 import java.util.Vector;
 
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
 import org.uddi4j.UDDIElement;
 import org.uddi4j.UDDIException;
 import org.w3c.dom.Element;
@@ -146,4 +149,21 @@ public class Contacts extends UDDIElement {
       }
       parent.appendChild(base);
    }
+
+   /**
+    * Save an object to a stream writer. Writes the same XML as
+    * saveToXML(Element) without building a DOM tree.
+    *
+    * @param writer Object will be written as the next element of the writer.
+    * @exception XMLStreamException
+    */
+   public void saveToXML(XMLStreamWriter writer) throws XMLStreamException {
+      writeStartElement(writer, UDDI_TAG);
+      if (contact != null) {
+         for (int i = 0; i < contact.size(); i++) {
+            ((Contact) (contact.elementAt(i))).saveToXML(writer);
+         }
+      }
+      writer.writeEndElement();
+   }
 }
@@ -11,6 +11,9 @@ package org.uddi4j.datatype.service;
 
 import java.util.Vector;
 
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
 import org.uddi4j.UDDIElement;
 import org.uddi4j.UDDIException;
 import org.uddi4j.datatype.Description;
@@ -347,4 +350,34 @@ public class BusinessService extends UDDIElement {
       }
       parent.appendChild(base);
    }
+
+   /**
+    * Save an object to a stream writer. Writes the same XML as
+    * saveToXML(Element) without building a DOM tree.
+    *
+    * @param writer Object will be written as the next element of the writer.
+    * @exception XMLStreamException
+    */
+   public void saveToXML(XMLStreamWriter writer) throws XMLStreamException {
+      writeStartElement(writer, UDDI_TAG);
+      writeAttribute(writer, "serviceKey", serviceKey);
+      writeAttribute(writer, "businessKey", businessKey);
+      if (nameVector != null) {
+         for (int i = 0; i < nameVector.size(); i++) {
+            ((Name) (nameVector.elementAt(i))).saveToXML(writer);
+         }
+      }
+      if (description != null) {
+         for (int i = 0; i < description.size(); i++) {
+            ((Description) (description.elementAt(i))).saveToXML(writer);
+         }
+      }
+      if (bindingTemplates != null) {
+         bindingTemplates.saveToXML(writer);
+      }
+      if (categoryBag != null) {
+         categoryBag.saveToXML(writer);
+      }
+      writer.writeEndElement();
+   }
 }
@@ -0,0 +1,2065 @@
+/*
+ * The source code contained herein is licensed under the IBM Public License
+ * Version 1.0, which has been approved by the Open Source Initiative.
+ * Copyright (C) 2001, International Business Machines Corporation
+ * All Rights Reserved.
+ *
+ */
+package org.uddi4j.registry;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.UUID;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.uddi4j.DocumentBuilderPool;
+import org.uddi4j.UDDIElement;
+import org.uddi4j.UDDIException;
+import org.uddi4j.datatype.Name;
+import org.uddi4j.datatype.assertion.PublisherAssertion;
+import org.uddi4j.datatype.binding.BindingTemplate;
+import org.uddi4j.datatype.binding.BindingTemplates;
+import org.uddi4j.datatype.binding.TModelInstanceDetails;
+import org.uddi4j.datatype.binding.TModelInstanceInfo;
+import org.uddi4j.datatype.business.BusinessEntity;
+import org.uddi4j.datatype.service.BusinessService;
+import org.uddi4j.datatype.service.BusinessServices;
+import org.uddi4j.datatype.tmodel.TModel;
+import org.uddi4j.request.AddPublisherAssertions;
+import org.uddi4j.request.DeleteBinding;
+import org.uddi4j.request.DeleteBusiness;
+import org.uddi4j.request.DeletePublisherAssertions;
+import org.uddi4j.request.DeleteService;
+import org.uddi4j.request.DeleteTModel;
+import org.uddi4j.request.DiscardAuthToken;
+import org.uddi4j.request.FindBinding;
+import org.uddi4j.request.FindBusiness;
+import org.uddi4j.request.FindRelatedBusinesses;
+import org.uddi4j.request.FindService;
+import org.uddi4j.request.FindTModel;
+import org.uddi4j.request.GetAssertionStatusReport;
+import org.uddi4j.request.GetAuthToken;
+import org.uddi4j.request.GetBindingDetail;
+import org.uddi4j.request.GetBusinessDetail;
+import org.uddi4j.request.GetBusinessDetailExt;
+import org.uddi4j.request.GetPublisherAssertions;
+import org.uddi4j.request.GetRegisteredInfo;
+import org.uddi4j.request.GetServiceDetail;
+import org.uddi4j.request.GetTModelDetail;
+import org.uddi4j.request.SaveBinding;
+import org.uddi4j.request.SaveBusiness;
+import org.uddi4j.request.SaveService;
+import org.uddi4j.request.SaveTModel;
+import org.uddi4j.request.SetPublisherAssertions;
+import org.uddi4j.request.ValidateValues;
+import org.uddi4j.response.AssertionStatusItem;
+import org.uddi4j.response.AssertionStatusReport;
+import org.uddi4j.response.AuthToken;
+import org.uddi4j.response.BindingDetail;
+import org.uddi4j.response.BusinessDetail;
+import org.uddi4j.response.BusinessDetailExt;
+import org.uddi4j.response.BusinessEntityExt;
+import org.uddi4j.response.BusinessInfo;
+import org.uddi4j.response.BusinessInfos;
+import org.uddi4j.response.BusinessList;
+import org.uddi4j.response.CompletionStatus;
+import org.uddi4j.response.DispositionReport;
+import org.uddi4j.response.ErrInfo;
+import org.uddi4j.response.KeysOwned;
+import org.uddi4j.response.PublisherAssertions;
+import org.uddi4j.response.RegisteredInfo;
+import org.uddi4j.response.RelatedBusinessInfo;
+import org.uddi4j.response.RelatedBusinessInfos;
+import org.uddi4j.response.RelatedBusinessesList;
+import org.uddi4j.response.Result;
+import org.uddi4j.response.ServiceDetail;
+import org.uddi4j.response.ServiceInfo;
+import org.uddi4j.response.ServiceInfos;
+import org.uddi4j.response.ServiceList;
+import org.uddi4j.response.SharedRelationships;
+import org.uddi4j.response.TModelDetail;
+import org.uddi4j.response.TModelInfo;
+import org.uddi4j.response.TModelInfos;
+import org.uddi4j.response.TModelList;
+import org.uddi4j.util.CategoryBag;
+import org.uddi4j.util.DiscoveryURL;
+import org.uddi4j.util.DiscoveryURLs;
+import org.uddi4j.util.FindQualifier;
+import org.uddi4j.util.FindQualifiers;
+import org.uddi4j.util.IdentifierBag;
+import org.uddi4j.util.KeyedReference;
+import org.uddi4j.util.TModelBag;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * A UDDI version 2 registry held in memory.<P>
+ *
+ * Implements the inquiry and publish messages sent by UDDIProxy: the find_xx,
+ * get_xxDetail, save_xx and delete_xx messages, authentication, publisher
+ * assertions, get_registeredInfo and validate_values. Errors are reported
+ * the way an operator site reports them, as a UDDIException holding a SOAP
+ * fault with a dispositionReport.<P>
+ *
+ * Keys are generated deterministically from the registry name and a counter,
+ * so the same sequence of requests against a new registry always produces
+ * the same keys. Find results are sorted by name, or by the order in which
+ * entities were last saved, so they do not depend on hashing either.<P>
+ *
+ * Authentication is open by default: get_authToken accepts any user ID and
+ * the user becomes the publisher of whatever it saves. Once a publisher has
+ * been added with {@link #addPublisher(String, String)}, only registered
+ * publishers with the right credentials get a token.<P>
+ *
+ * Entities are stored as the objects built from the save requests and are
+ * never modified afterwards; responses are assembled from them. Requests
+ * and responses should therefore not be shared with the caller. The
+ * {@link org.uddi4j.transport.InMemoryRegistryTransport} takes care of this
+ * by parsing every request from, and serializing every response to, XML.<P>
+ *
+ * The registry is safe for use by multiple threads. Inquiries run in
+ * parallel; publish messages are applied one at a time.
+ */
+public class InMemoryRegistry
+{
+    public static final String DEFAULT_NAME = "uddi4j-inmemory";
+
+    public static final int E_SUCCESS = 0;
+    public static final int E_UNSUPPORTED = 10050;
+    public static final int E_AUTH_TOKEN_REQUIRED = 10120;
+    public static final int E_USER_MISMATCH = 10140;
+    public static final int E_UNKNOWN_USER = 10150;
+    public static final int E_INVALID_KEY_PASSED = 10210;
+    public static final int E_BUSY = 10400;
+    public static final int E_FATAL_ERROR = 10500;
+    public static final int E_INVALID_VALUE = 20200;
+    public static final int E_ASSERTION_NOT_FOUND = 30000;
+    public static final int E_INVALID_COMPLETION_STATUS = 30100;
+
+    /** Key of the uddi-org:general_keywords tModel, whose keyedReferences also match on keyName. */
+    public static final String GENERAL_KEYWORDS_TMODEL_KEY = "uuid:A035A07C-F362-44dd-8F95-E2B134BF43B4";
+
+    private static final ConcurrentHashMap<String, InMemoryRegistry> registries = new ConcurrentHashMap<String, InMemoryRegistry>();
+
+    // DOM constructors of the request classes, by element name.
+    private static final Hashtable requestTypes = new Hashtable();
+
+    static
+    {
+        Class[] types = { FindBusiness.class, FindService.class, FindBinding.class, FindTModel.class, FindRelatedBusinesses.class,
+                GetBusinessDetail.class, GetBusinessDetailExt.class, GetServiceDetail.class, GetBindingDetail.class, GetTModelDetail.class,
+                ValidateValues.class, GetAuthToken.class, DiscardAuthToken.class, GetRegisteredInfo.class, SaveBusiness.class,
+                SaveService.class, SaveBinding.class, SaveTModel.class, DeleteBusiness.class, DeleteService.class, DeleteBinding.class,
+                DeleteTModel.class, AddPublisherAssertions.class, DeletePublisherAssertions.class, SetPublisherAssertions.class,
+                GetPublisherAssertions.class, GetAssertionStatusReport.class };
+        for (int i = 0; i < types.length; i++)
+        {
+            try
+            {
+                requestTypes.put(types[i].getField("UDDI_TAG").get(null), types[i].getConstructor(new Class[] { Element.class }));
+            }
+            catch (Exception e)
+            {
+                throw new IllegalStateException(e.toString());
+            }
+        }
+    }
+
+    private final String operator;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // All of the following are guarded by lock. Maps are keyed by normalized key.
+    private final LinkedHashMap<String, Record> businesses = new LinkedHashMap<String, Record>();
+    private final LinkedHashMap<String, Record> services = new LinkedHashMap<String, Record>();
+    private final LinkedHashMap<String, Record> bindings = new LinkedHashMap<String, Record>();
+    private final LinkedHashMap<String, Record> tModels = new LinkedHashMap<String, Record>();
+    private final Vector assertions = new Vector();
+    private final Hashtable publishers = new Hashtable();
+    private final Hashtable tokens = new Hashtable();
+    private long keySequence = 0;
+    private long saveSequence = 0;
+
+    /**
+     * Construct an empty registry.
+     *
+     * @param operator Operator name returned in responses. Also seeds the generated keys.
+     */
+    public InMemoryRegistry(String operator)
+    {
+        this.operator = operator;
+    }
+
+    /**
+     * Returns the registry with the given name, creating it if needed.
+     * All transports configured with the same name share one registry.
+     *
+     * @param name   Registry name, also used as operator name.
+     * @return InMemoryRegistry
+     */
+    public static InMemoryRegistry getRegistry(String name)
+    {
+        InMemoryRegistry registry = registries.get(name);
+        if (registry == null)
+        {
+            registries.putIfAbsent(name, new InMemoryRegistry(name));
+            registry = registries.get(name);
+        }
+        return registry;
+    }
+
+    /**
+     * Returns the operator name of this registry.
+     */
+    public String getOperator()
+    {
+        return operator;
+    }
+
+    /**
+     * Registers a publisher. Once at least one publisher is registered,
+     * get_authToken only accepts registered publishers.
+     *
+     * @param userID Publisher user ID.
+     * @param cred   Publisher credentials.
+     */
+    public void addPublisher(String userID, String cred)
+    {
+        publishers.put(userID, cred == null ? "" : cred);
+    }
+
+    /**
+     * Removes all entities, assertions and authentication tokens.
+     * Registered publishers are kept.
+     */
+    public void clear()
+    {
+        lock.writeLock().lock();
+        try
+        {
+            businesses.clear();
+            services.clear();
+            bindings.clear();
+            tModels.clear();
+            assertions.removeAllElements();
+            tokens.clear();
+            keySequence = 0;
+            saveSequence = 0;
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Builds the request object for a request message.
+     *
+     * @param el     Request element, for example find_business.
+     * @return The request object.
+     * @exception UDDIException
+     *                   E_unsupported if the message is not a UDDI version 2
+     *                   inquiry or publish message.
+     */
+    public UDDIElement parseRequest(Element el) throws UDDIException
+    {
+        Constructor constructor = UDDIElement.XMLNS.equals(el.getNamespaceURI()) ? (Constructor) requestTypes.get(el.getLocalName()) : null;
+        if (constructor == null)
+        {
+            throw fault(E_UNSUPPORTED, "E_unsupported", "Unsupported message " + el.getNodeName());
+        }
+        try
+        {
+            return (UDDIElement) constructor.newInstance(new Object[] { el });
+        }
+        catch (InvocationTargetException e)
+        {
+            Throwable target = e.getTargetException();
+            if (target instanceof UDDIException)
+            {
+                throw (UDDIException) target;
+            }
+            if (target instanceof RuntimeException)
+            {
+                throw (RuntimeException) target;
+            }
+            throw new IllegalArgumentException(target.toString());
+        }
+        catch (Exception e)
+        {
+            throw new IllegalArgumentException("Cannot construct " + constructor.getDeclaringClass().getName() + " from a DOM tree: " + e);
+        }
+    }
+
+    /**
+     * Processes a request.
+     *
+     * @param request One of the request objects of package org.uddi4j.request.
+     * @return The response object, as returned by the corresponding UDDIProxy method.
+     * @exception UDDIException
+     *                   Holds the dispositionReport if the request fails.
+     */
+    public UDDIElement invoke(UDDIElement request) throws UDDIException
+    {
+        if (isPublish(request))
+        {
+            lock.writeLock().lock();
+            try
+            {
+                return publish(request);
+            }
+            finally
+            {
+                lock.writeLock().unlock();
+            }
+        }
+        lock.readLock().lock();
+        try
+        {
+            return inquire(request);
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static boolean isPublish(UDDIElement request)
+    {
+        return request instanceof SaveBusiness || request instanceof SaveService || request instanceof SaveBinding
+                || request instanceof SaveTModel || request instanceof DeleteBusiness || request instanceof DeleteService
+                || request instanceof DeleteBinding || request instanceof DeleteTModel || request instanceof AddPublisherAssertions
+                || request instanceof DeletePublisherAssertions || request instanceof SetPublisherAssertions
+                || request instanceof GetAuthToken;
+    }
+
+    private UDDIElement inquire(UDDIElement request) throws UDDIException
+    {
+        if (request instanceof FindBusiness)
+        {
+            return findBusiness((FindBusiness) request);
+        }
+        if (request instanceof FindService)
+        {
+            return findService((FindService) request);
+        }
+        if (request instanceof FindBinding)
+        {
+            return findBinding((FindBinding) request);
+        }
+        if (request instanceof FindTModel)
+        {
+            return findTModel((FindTModel) request);
+        }
+        if (request instanceof FindRelatedBusinesses)
+        {
+            return findRelatedBusinesses((FindRelatedBusinesses) request);
+        }
+        if (request instanceof GetBusinessDetail)
+        {
+            BusinessDetail detail = new BusinessDetail(operator);
+            detail.setBusinessEntityVector(getBusinesses(((GetBusinessDetail) request).getBusinessKeyStrings()));
+            return detail;
+        }
+        if (request instanceof GetBusinessDetailExt)
+        {
+            Vector entities = getBusinesses(((GetBusinessDetailExt) request).getBusinessKeyStrings());
+            Vector extensions = new Vector();
+            for (int i = 0; i < entities.size(); i++)
+            {
+                extensions.addElement(new BusinessEntityExt((BusinessEntity) entities.elementAt(i)));
+            }
+            return new BusinessDetailExt(operator, extensions);
+        }
+        if (request instanceof GetServiceDetail)
+        {
+            Vector keys = ((GetServiceDetail) request).getServiceKeyStrings();
+            Vector result = new Vector();
+            for (int i = 0; i < keys.size(); i++)
+            {
+                result.addElement(assembleService(lookup(services, (String) keys.elementAt(i), "serviceKey")));
+            }
+            ServiceDetail detail = new ServiceDetail(operator);
+            detail.setBusinessServiceVector(result);
+            return detail;
+        }
+        if (request instanceof GetBindingDetail)
+        {
+            Vector keys = ((GetBindingDetail) request).getBindingKeyStrings();
+            Vector result = new Vector();
+            for (int i = 0; i < keys.size(); i++)
+            {
+                result.addElement(lookup(bindings, (String) keys.elementAt(i), "bindingKey").entity);
+            }
+            BindingDetail detail = new BindingDetail(operator);
+            detail.setBindingTemplateVector(result);
+            return detail;
+        }
+        if (request instanceof GetTModelDetail)
+        {
+            // Deleted tModels are hidden from find_tModel only.
+            Vector keys = ((GetTModelDetail) request).getTModelKeyStrings();
+            Vector result = new Vector();
+            for (int i = 0; i < keys.size(); i++)
+            {
+                result.addElement(lookup(tModels, (String) keys.elementAt(i), "tModelKey").entity);
+            }
+            return new TModelDetail(operator, result);
+        }
+        if (request instanceof ValidateValues)
+        {
+            return success();
+        }
+        if (request instanceof DiscardAuthToken)
+        {
+            String authInfo = ((DiscardAuthToken) request).getAuthInfoString();
+            authenticate(authInfo);
+            tokens.remove(authInfo);
+            return success();
+        }
+        if (request instanceof GetRegisteredInfo)
+        {
+            return getRegisteredInfo(authenticate(((GetRegisteredInfo) request).getAuthInfoString()));
+        }
+        if (request instanceof GetPublisherAssertions)
+        {
+            String user = authenticate(((GetPublisherAssertions) request).getAuthInfoString());
+            return newPublisherAssertions(user, getPublisherAssertions(user));
+        }
+        if (request instanceof GetAssertionStatusReport)
+        {
+            GetAssertionStatusReport report = (GetAssertionStatusReport) request;
+            return getAssertionStatusReport(authenticate(report.getAuthInfoString()), report.getCompletionStatusString());
+        }
+        throw fault(E_UNSUPPORTED, "E_unsupported", "Unsupported message " + request.getClass().getName());
+    }
+
+    private UDDIElement publish(UDDIElement request) throws UDDIException
+    {
+        if (request instanceof GetAuthToken)
+        {
+            return getAuthToken((GetAuthToken) request);
+        }
+        if (request instanceof SaveBusiness)
+        {
+            SaveBusiness save = (SaveBusiness) request;
+            return saveBusiness(authenticate(save.getAuthInfoString()), save.getBusinessEntityVector());
+        }
+        if (request instanceof SaveService)
+        {
+            SaveService save = (SaveService) request;
+            return saveService(authenticate(save.getAuthInfoString()), save.getBusinessServiceVector());
+        }
+        if (request instanceof SaveBinding)
+        {
+            SaveBinding save = (SaveBinding) request;
+            return saveBinding(authenticate(save.getAuthInfoString()), save.getBindingTemplateVector());
+        }
+        if (request instanceof SaveTModel)
+        {
+            SaveTModel save = (SaveTModel) request;
+            return saveTModel(authenticate(save.getAuthInfoString()), save.getTModelVector());
+        }
+        if (request instanceof DeleteBusiness)
+        {
+            DeleteBusiness delete = (DeleteBusiness) request;
+            String user = authenticate(delete.getAuthInfoString());
+            Vector records = lookupOwned(businesses, delete.getBusinessKeyStrings(), "businessKey", user);
+            for (int i = 0; i < records.size(); i++)
+            {
+                removeBusiness((Record) records.elementAt(i));
+            }
+            return success();
+        }
+        if (request instanceof DeleteService)
+        {
+            DeleteService delete = (DeleteService) request;
+            String user = authenticate(delete.getAuthInfoString());
+            Vector records = lookupOwned(services, delete.getServiceKeyStrings(), "serviceKey", user);
+            for (int i = 0; i < records.size(); i++)
+            {
+                Record record = (Record) records.elementAt(i);
+                removeService(record);
+                touch(businesses.get(record.parent));
+            }
+            return success();
+        }
+        if (request instanceof DeleteBinding)
+        {
+            DeleteBinding delete = (DeleteBinding) request;
+            String user = authenticate(delete.getAuthInfoString());
+            Vector records = lookupOwned(bindings, delete.getBindingKeyStrings(), "bindingKey", user);
+            for (int i = 0; i < records.size(); i++)
+            {
+                Record record = (Record) records.elementAt(i);
+                removeBinding(record);
+                touch(services.get(record.parent));
+            }
+            return success();
+        }
+        if (request instanceof DeleteTModel)
+        {
+            DeleteTModel delete = (DeleteTModel) request;
+            String user = authenticate(delete.getAuthInfoString());
+            Vector records = lookupOwned(tModels, delete.getTModelKeyStrings(), "tModelKey", user);
+            for (int i = 0; i < records.size(); i++)
+            {
+                // A deleted tModel can still be retrieved by key, as references to it may remain.
+                ((Record) records.elementAt(i)).hidden = true;
+            }
+            return success();
+        }
+        if (request instanceof AddPublisherAssertions)
+        {
+            AddPublisherAssertions add = (AddPublisherAssertions) request;
+            String user = authenticate(add.getAuthInfoString());
+            Vector added = checkAssertions(user, add.getPublisherAssertionVector());
+            for (int i = 0; i < added.size(); i++)
+            {
+                assertAs(user, (PublisherAssertion) added.elementAt(i));
+            }
+            return success();
+        }
+        if (request instanceof DeletePublisherAssertions)
+        {
+            DeletePublisherAssertions delete = (DeletePublisherAssertions) request;
+            return deletePublisherAssertions(authenticate(delete.getAuthInfoString()), delete.getPublisherAssertionVector());
+        }
+        if (request instanceof SetPublisherAssertions)
+        {
+            SetPublisherAssertions set = (SetPublisherAssertions) request;
+            String user = authenticate(set.getAuthInfoString());
+            Vector added = checkAssertions(user, set.getPublisherAssertionVector());
+            for (int i = 0; i < assertions.size(); i++)
+            {
+                retract(user, (AssertionRecord) assertions.elementAt(i));
+            }
+            pruneAssertions();
+            for (int i = 0; i < added.size(); i++)
+            {
+                assertAs(user, (PublisherAssertion) added.elementAt(i));
+            }
+            return newPublisherAssertions(user, getPublisherAssertions(user));
+        }
+        throw fault(E_UNSUPPORTED, "E_unsupported", "Unsupported message " + request.getClass().getName());
+    }
+
+    // ---------------------------------------------------------------
+    // Authentication
+    // ---------------------------------------------------------------
+
+    private UDDIElement getAuthToken(GetAuthToken request) throws UDDIException
+    {
+        String user = request.getUserID();
+        if (user == null || user.length() == 0)
+        {
+            throw fault(E_UNKNOWN_USER, "E_unknownUser", "No user ID given.");
+        }
+        if (!publishers.isEmpty())
+        {
+            String cred = (String) publishers.get(user);
+            if (cred == null || !cred.equals(request.getCred() == null ? "" : request.getCred()))
+            {
+                throw fault(E_UNKNOWN_USER, "E_unknownUser", "Unknown user ID or wrong credentials for " + user);
+            }
+        }
+        String authInfo = "authToken:" + newUUID("authToken");
+        tokens.put(authInfo, user);
+        return new AuthToken(operator, authInfo);
+    }
+
+    private String authenticate(String authInfo) throws UDDIException
+    {
+        String user = authInfo == null ? null : (String) tokens.get(authInfo);
+        if (user == null)
+        {
+            throw fault(E_AUTH_TOKEN_REQUIRED, "E_authTokenRequired", "Missing or invalid authentication token.");
+        }
+        return user;
+    }
+
+    // ---------------------------------------------------------------
+    // Save and delete
+    // ---------------------------------------------------------------
+
+    private UDDIElement saveBusiness(String user, Vector entities) throws UDDIException
+    {
+        entities = entities == null ? new Vector() : entities;
+        // Validate every key before changing anything, so that a failed save leaves the registry as it was.
+        for (int i = 0; i < entities.size(); i++)
+        {
+            BusinessEntity entity = (BusinessEntity) entities.elementAt(i);
+            checkName(entity.getNameVector());
+            lookupOwned(businesses, entity.getBusinessKey(), "businessKey", user, true);
+            Vector children = getServices(entity);
+            for (int j = 0; j < children.size(); j++)
+            {
+                checkService(user, (BusinessService) children.elementAt(j), false);
+            }
+        }
+
+        Vector result = new Vector();
+        for (int i = 0; i < entities.size(); i++)
+        {
+            BusinessEntity entity = (BusinessEntity) entities.elementAt(i);
+            Record record = lookupOwned(businesses, entity.getBusinessKey(), "businessKey", user, true);
+            if (record == null)
+            {
+                record = new Record(user, null);
+                entity.setBusinessKey(newUUID("business"));
+                businesses.put(normalize(entity.getBusinessKey()), record);
+            }
+            else
+            {
+                entity.setBusinessKey(((BusinessEntity) record.entity).getBusinessKey());
+            }
+            entity.setOperator(operator);
+            entity.setAuthorizedName(user);
+
+            Vector children = getServices(entity);
+            entity.setBusinessServices(null);
+            record.entity = entity;
+            record.modified = ++saveSequence;
+            replaceServices(user, record, children);
+            result.addElement(assembleBusiness(record));
+        }
+        BusinessDetail detail = new BusinessDetail(operator);
+        detail.setBusinessEntityVector(result);
+        return detail;
+    }
+
+    private UDDIElement saveService(String user, Vector entities) throws UDDIException
+    {
+        entities = entities == null ? new Vector() : entities;
+        for (int i = 0; i < entities.size(); i++)
+        {
+            checkService(user, (BusinessService) entities.elementAt(i), true);
+        }
+        Vector result = new Vector();
+        for (int i = 0; i < entities.size(); i++)
+        {
+            BusinessService service = (BusinessService) entities.elementAt(i);
+            Record parent = lookup(businesses, service.getBusinessKey(), "businessKey");
+            result.addElement(assembleService(storeService(user, parent, service)));
+            parent.modified = ++saveSequence;
+        }
+        ServiceDetail detail = new ServiceDetail(operator);
+        detail.setBusinessServiceVector(result);
+        return detail;
+    }
+
+    private UDDIElement saveBinding(String user, Vector entities) throws UDDIException
+    {
+        entities = entities == null ? new Vector() : entities;
+        for (int i = 0; i < entities.size(); i++)
+        {
+            checkBinding(user, (BindingTemplate) entities.elementAt(i), true);
+        }
+        Vector result = new Vector();
+        for (int i = 0; i < entities.size(); i++)
+        {
+            BindingTemplate binding = (BindingTemplate) entities.elementAt(i);
+            Record parent = lookup(services, binding.getServiceKey(), "serviceKey");
+            result.addElement(storeBinding(user, parent, binding).entity);
+            touch(parent);
+        }
+        BindingDetail detail = new BindingDetail(operator);
+        detail.setBindingTemplateVector(result);
+        return detail;
+    }
+
+    private UDDIElement saveTModel(String user, Vector entities) throws UDDIException
+    {
+        entities = entities == null ? new Vector() : entities;
+        for (int i = 0; i < entities.size(); i++)
+        {
+            TModel tModel = (TModel) entities.elementAt(i);
+            if (tModel.getName() == null || isEmpty(tModel.getNameString()))
+            {
+                throw fault(E_INVALID_VALUE, "E_invalidValue", "A tModel must have a name.");
+            }
+            lookupOwned(tModels, tModel.getTModelKey(), "tModelKey", user, true);
+        }
+        Vector result = new Vector();
+        for (int i = 0; i < entities.size(); i++)
+        {
+            TModel tModel = (TModel) entities.elementAt(i);
+            Record record = lookupOwned(tModels, tModel.getTModelKey(), "tModelKey", user, true);
+            if (record == null)
+            {
+                record = new Record(user, null);
+                tModel.setTModelKey("uuid:" + newUUID("tModel"));
+                tModels.put(normalize(tModel.getTModelKey()), record);
+            }
+            else
+            {
+                tModel.setTModelKey(((TModel) record.entity).getTModelKey());
+            }
+            tModel.setOperator(operator);
+            tModel.setAuthorizedName(user);
+            record.entity = tModel;
+            record.hidden = false;
+            record.modified = ++saveSequence;
+            result.addElement(tModel);
+        }
+        return new TModelDetail(operator, result);
+    }
+
+    /**
+     * Checks a service to be saved, on its own or as part of a business.
+     */
+    private void checkService(String user, BusinessService service, boolean standalone) throws UDDIException
+    {
+        checkName(service.getNameVector());
+        if (standalone)
+        {
+            lookupOwned(businesses, service.getBusinessKey(), "businessKey", user, false);
+        }
+        lookupOwned(services, service.getServiceKey(), "serviceKey", user, true);
+        Vector children = getBindings(service);
+        for (int i = 0; i < children.size(); i++)
+        {
+            checkBinding(user, (BindingTemplate) children.elementAt(i), false);
+        }
+    }
+
+    /**
+     * Checks a binding to be saved, on its own or as part of a service.
+     */
+    private void checkBinding(String user, BindingTemplate binding, boolean standalone) throws UDDIException
+    {
+        if (standalone)
+        {
+            lookupOwned(services, binding.getServiceKey(), "serviceKey", user, false);
+        }
+        lookupOwned(bindings, binding.getBindingKey(), "bindingKey", user, true);
+        if (binding.getAccessPoint() == null && binding.getHostingRedirector() == null)
+        {
+            throw fault(E_INVALID_VALUE, "E_invalidValue", "A bindingTemplate needs an accessPoint or a hostingRedirector.");
+        }
+    }
+
+    private void checkName(Vector names) throws UDDIException
+    {
+        if (names == null || names.size() == 0 || isEmpty(((Name) names.elementAt(0)).getText()))
+        {
+            throw fault(E_INVALID_VALUE, "E_invalidValue", "A name is required.");
+        }
+    }
+
+    /**
+     * Makes the given services the services of a business. Services the
+     * business had before and that are not in the list are deleted.
+     */
+    private void replaceServices(String user, Record business, Vector children)
+    {
+        Vector kept = new Vector();
+        for (int i = 0; i < children.size(); i++)
+        {
+            kept.addElement(storeService(user, business, (BusinessService) children.elementAt(i)));
+        }
+        Vector old = (Vector) business.children.clone();
+        for (int i = 0; i < old.size(); i++)
+        {
+            Record service = services.get(old.elementAt(i));
+            if (service != null && !kept.contains(service))
+            {
+                removeService(service);
+            }
+        }
+    }
+
+    private Record storeService(String user, Record business, BusinessService service)
+    {
+        String businessKey = ((BusinessEntity) business.entity).getBusinessKey();
+        Record record = isEmpty(service.getServiceKey()) ? null : services.get(normalize(service.getServiceKey()));
+        if (record == null)
+        {
+            record = new Record(user, null);
+            service.setServiceKey(newUUID("service"));
+            services.put(normalize(service.getServiceKey()), record);
+        }
+        else
+        {
+            service.setServiceKey(((BusinessService) record.entity).getServiceKey());
+            if (record.parent != null && !record.parent.equals(normalize(businessKey)))
+            {
+                // The service moves to another business of the same publisher.
+                Record previous = businesses.get(record.parent);
+                if (previous != null)
+                {
+                    previous.children.removeElement(normalize(service.getServiceKey()));
+                }
+            }
+        }
+        service.setBusinessKey(businessKey);
+        record.parent = normalize(businessKey);
+        if (!business.children.contains(normalize(service.getServiceKey())))
+        {
+            business.children.addElement(normalize(service.getServiceKey()));
+        }
+
+        Vector children = getBindings(service);
+        service.setBindingTemplates(null);
+        record.entity = service;
+        record.modified = ++saveSequence;
+
+        Vector kept = new Vector();
+        for (int i = 0; i < children.size(); i++)
+        {
+            kept.addElement(storeBinding(user, record, (BindingTemplate) children.elementAt(i)));
+        }
+        Vector old = (Vector) record.children.clone();
+        for (int i = 0; i < old.size(); i++)
+        {
+            Record binding = bindings.get(old.elementAt(i));
+            if (binding != null && !kept.contains(binding))
+            {
+                removeBinding(binding);
+            }
+        }
+        return record;
+    }
+
+    private Record storeBinding(String user, Record service, BindingTemplate binding)
+    {
+        String serviceKey = ((BusinessService) service.entity).getServiceKey();
+        Record record = isEmpty(binding.getBindingKey()) ? null : bindings.get(normalize(binding.getBindingKey()));
+        if (record == null)
+        {
+            record = new Record(user, null);
+            binding.setBindingKey(newUUID("binding"));
+            bindings.put(normalize(binding.getBindingKey()), record);
+        }
+        else
+        {
+            binding.setBindingKey(((BindingTemplate) record.entity).getBindingKey());
+            if (record.parent != null && !record.parent.equals(normalize(serviceKey)))
+            {
+                Record previous = services.get(record.parent);
+                if (previous != null)
+                {
+                    previous.children.removeElement(normalize(binding.getBindingKey()));
+                }
+            }
+        }
+        binding.setServiceKey(serviceKey);
+        record.parent = normalize(serviceKey);
+        if (!service.children.contains(normalize(binding.getBindingKey())))
+        {
+            service.children.addElement(normalize(binding.getBindingKey()));
+        }
+        record.entity = binding;
+        record.modified = ++saveSequence;
+        return record;
+    }
+
+    private void removeBusiness(Record record)
+    {
+        Vector children = (Vector) record.children.clone();
+        for (int i = 0; i < children.size(); i++)
+        {
+            Record service = services.get(children.elementAt(i));
+            if (service != null)
+            {
+                removeService(service);
+            }
+        }
+        String key = normalize(((BusinessEntity) record.entity).getBusinessKey());
+        businesses.remove(key);
+        for (Iterator it = assertions.iterator(); it.hasNext();)
+        {
+            AssertionRecord assertion = (AssertionRecord) it.next();
+            if (assertion.fromKey.equals(key) || assertion.toKey.equals(key))
+            {
+                it.remove();
+            }
+        }
+    }
+
+    private void removeService(Record record)
+    {
+        Vector children = (Vector) record.children.clone();
+        for (int i = 0; i < children.size(); i++)
+        {
+            Record binding = bindings.get(children.elementAt(i));
+            if (binding != null)
+            {
+                removeBinding(binding);
+            }
+        }
+        String key = normalize(((BusinessService) record.entity).getServiceKey());
+        services.remove(key);
+        Record parent = businesses.get(record.parent);
+        if (parent != null)
+        {
+            parent.children.removeElement(key);
+        }
+    }
+
+    /**
+     * Marks a business or service, and the business containing a service,
+     * as modified, so that sorting by date reflects changes to children.
+     */
+    private void touch(Record record)
+    {
+        if (record == null)
+        {
+            return;
+        }
+        record.modified = ++saveSequence;
+        if (record.entity instanceof BusinessService)
+        {
+            Record business = businesses.get(record.parent);
+            if (business != null)
+            {
+                business.modified = record.modified;
+            }
+        }
+    }
+
+    private void removeBinding(Record record)
+    {
+        String key = normalize(((BindingTemplate) record.entity).getBindingKey());
+        bindings.remove(key);
+        Record parent = services.get(record.parent);
+        if (parent != null)
+        {
+            parent.children.removeElement(key);
+        }
+    }
+
+    // ---------------------------------------------------------------
+    // Publisher assertions
+    // ---------------------------------------------------------------
+
+    /**
+     * Checks that the publisher may make the given assertions: both
+     * businesses exist and the publisher owns at least one of them.
+     */
+    private Vector checkAssertions(String user, Vector list) throws UDDIException
+    {
+        list = list == null ? new Vector() : list;
+        for (int i = 0; i < list.size(); i++)
+        {
+            PublisherAssertion assertion = (PublisherAssertion) list.elementAt(i);
+            if (assertion.getKeyedReference() == null)
+            {
+                throw fault(E_INVALID_VALUE, "E_invalidValue", "A publisherAssertion needs a keyedReference.");
+            }
+            Record from = lookup(businesses, assertion.getFromKeyString(), "businessKey");
+            Record to = lookup(businesses, assertion.getToKeyString(), "businessKey");
+            if (!from.owner.equals(user) && !to.owner.equals(user))
+            {
+                throw fault(E_USER_MISMATCH, "E_userMismatch", "Neither business of the assertion is owned by " + user);
+            }
+        }
+        return list;
+    }
+
+    private void assertAs(String user, PublisherAssertion assertion)
+    {
+        AssertionRecord record = findAssertion(assertion);
+        if (record == null)
+        {
+            record = new AssertionRecord(normalize(assertion.getFromKeyString()), normalize(assertion.getToKeyString()),
+                    copy(assertion.getKeyedReference()));
+            assertions.addElement(record);
+        }
+        if (businesses.get(record.fromKey).owner.equals(user))
+        {
+            record.fromAsserted = true;
+        }
+        if (businesses.get(record.toKey).owner.equals(user))
+        {
+            record.toAsserted = true;
+        }
+    }
+
+    /**
+     * Withdraws the publisher's side of an assertion.
+     *
+     * @return true if the publisher had asserted it.
+     */
+    private boolean retract(String user, AssertionRecord record)
+    {
+        boolean found = false;
+        if (record.fromAsserted && businesses.get(record.fromKey).owner.equals(user))
+        {
+            record.fromAsserted = false;
+            found = true;
+        }
+        if (record.toAsserted && businesses.get(record.toKey).owner.equals(user))
+        {
+            record.toAsserted = false;
+            found = true;
+        }
+        return found;
+    }
+
+    private void pruneAssertions()
+    {
+        for (Iterator it = assertions.iterator(); it.hasNext();)
+        {
+            AssertionRecord record = (AssertionRecord) it.next();
+            if (!record.fromAsserted && !record.toAsserted)
+            {
+                it.remove();
+            }
+        }
+    }
+
+    private UDDIElement deletePublisherAssertions(String user, Vector list) throws UDDIException
+    {
+        list = list == null ? new Vector() : list;
+        for (int i = 0; i < list.size(); i++)
+        {
+            AssertionRecord record = findAssertion((PublisherAssertion) list.elementAt(i));
+            if (record == null || !isAssertedBy(user, record))
+            {
+                throw fault(E_ASSERTION_NOT_FOUND, "E_assertionNotFound", "No matching publisherAssertion made by " + user);
+            }
+        }
+        for (int i = 0; i < list.size(); i++)
+        {
+            retract(user, findAssertion((PublisherAssertion) list.elementAt(i)));
+        }
+        pruneAssertions();
+        return success();
+    }
+
+    private AssertionRecord findAssertion(PublisherAssertion assertion)
+    {
+        String fromKey = normalize(assertion.getFromKeyString());
+        String toKey = normalize(assertion.getToKeyString());
+        for (int i = 0; i < assertions.size(); i++)
+        {
+            AssertionRecord record = (AssertionRecord) assertions.elementAt(i);
+            if (record.fromKey.equals(fromKey) && record.toKey.equals(toKey) && sameReference(record.keyedReference, assertion.getKeyedReference()))
+            {
+                return record;
+            }
+        }
+        return null;
+    }
+
+    private boolean isAssertedBy(String user, AssertionRecord record)
+    {
+        return (record.fromAsserted && businesses.get(record.fromKey).owner.equals(user))
+                || (record.toAsserted && businesses.get(record.toKey).owner.equals(user));
+    }
+
+    private Vector getPublisherAssertions(String user)
+    {
+        Vector result = new Vector();
+        for (int i = 0; i < assertions.size(); i++)
+        {
+            AssertionRecord record = (AssertionRecord) assertions.elementAt(i);
+            if (isAssertedBy(user, record))
+            {
+                result.addElement(newAssertion(record));
+            }
+        }
+        return result;
+    }
+
+    private PublisherAssertions newPublisherAssertions(String user, Vector list)
+    {
+        PublisherAssertions result = new PublisherAssertions();
+        result.setOperator(operator);
+        result.setAuthorizedName(user);
+        result.setPublisherAssertionVector(list);
+        return result;
+    }
+
+    private PublisherAssertion newAssertion(AssertionRecord record)
+    {
+        return new PublisherAssertion(businessKey(record.fromKey), businessKey(record.toKey), record.keyedReference);
+    }
+
+    private UDDIElement getAssertionStatusReport(String user, String status) throws UDDIException
+    {
+        if (!isEmpty(status) && !CompletionStatus.COMPLETE.equals(status) && !CompletionStatus.TOKEY_INCOMPLETE.equals(status)
+                && !CompletionStatus.FROMKEY_INCOMPLETE.equals(status))
+        {
+            throw fault(E_INVALID_COMPLETION_STATUS, "E_invalidCompletionStatus", "Unknown completion status " + status);
+        }
+        Vector items = new Vector();
+        for (int i = 0; i < assertions.size(); i++)
+        {
+            AssertionRecord record = (AssertionRecord) assertions.elementAt(i);
+            boolean ownsFrom = businesses.get(record.fromKey).owner.equals(user);
+            boolean ownsTo = businesses.get(record.toKey).owner.equals(user);
+            String recordStatus = record.getStatus();
+            if (!(ownsFrom || ownsTo) || (!isEmpty(status) && !status.equals(recordStatus)))
+            {
+                continue;
+            }
+            AssertionStatusItem item = new AssertionStatusItem();
+            item.setFromKeyString(businessKey(record.fromKey));
+            item.setToKeyString(businessKey(record.toKey));
+            item.setKeyedReference(record.keyedReference);
+            KeysOwned keysOwned = new KeysOwned();
+            if (ownsFrom)
+            {
+                keysOwned.setFromKeyString(businessKey(record.fromKey));
+            }
+            if (ownsTo)
+            {
+                keysOwned.setToKeyString(businessKey(record.toKey));
+            }
+            item.setKeysOwned(keysOwned);
+            item.setCompletionStatus(new CompletionStatus(recordStatus));
+            items.addElement(item);
+        }
+        AssertionStatusReport report = new AssertionStatusReport();
+        report.setOperator(operator);
+        report.setAssertionStatusItemVector(items);
+        return report;
+    }
+
+    // ---------------------------------------------------------------
+    // Inquiry
+    // ---------------------------------------------------------------
+
+    private Vector getBusinesses(Vector keys) throws UDDIException
+    {
+        Vector result = new Vector();
+        for (int i = 0; keys != null && i < keys.size(); i++)
+        {
+            result.addElement(assembleBusiness(lookup(businesses, (String) keys.elementAt(i), "businessKey")));
+        }
+        return result;
+    }
+
+    private UDDIElement getRegisteredInfo(String user)
+    {
+        BusinessInfos businessInfos = new BusinessInfos();
+        for (Iterator it = businesses.values().iterator(); it.hasNext();)
+        {
+            Record record = (Record) it.next();
+            if (record.owner.equals(user))
+            {
+                businessInfos.add(newBusinessInfo(record));
+            }
+        }
+        TModelInfos tModelInfos = new TModelInfos();
+        for (Iterator it = tModels.values().iterator(); it.hasNext();)
+        {
+            Record record = (Record) it.next();
+            if (record.owner.equals(user) && !record.hidden)
+            {
+                tModelInfos.add(newTModelInfo(record));
+            }
+        }
+        RegisteredInfo info = new RegisteredInfo();
+        info.setOperator(operator);
+        info.setBusinessInfos(businessInfos);
+        info.setTModelInfos(tModelInfos);
+        return info;
+    }
+
+    private UDDIElement findBusiness(FindBusiness request) throws UDDIException
+    {
+        Qualifiers qualifiers = new Qualifiers(request.getFindQualifiers());
+        Vector found = new Vector();
+        for (Iterator it = businesses.values().iterator(); it.hasNext();)
+        {
+            Record record = (Record) it.next();
+            BusinessEntity entity = (BusinessEntity) record.entity;
+            if (matchesNames(entity.getNameVector(), request.getNameVector(), qualifiers)
+                    && matchesAny(identifiers(entity.getIdentifierBag()), identifiers(request.getIdentifierBag()))
+                    && matchesCategories(businessCategories(record, qualifiers), request.getCategoryBag(), qualifiers)
+                    && matchesDiscoveryURLs(entity.getDiscoveryURLs(), request.getDiscoveryURLs())
+                    && matchesBusinessTModels(record, request.getTModelBag(), qualifiers))
+            {
+                found.addElement(record);
+            }
+        }
+        int maxRows = maxRows(request.getMaxRows());
+        sort(found, qualifiers);
+        BusinessInfos infos = new BusinessInfos();
+        for (int i = 0; i < found.size() && i < maxRows; i++)
+        {
+            infos.add(newBusinessInfo((Record) found.elementAt(i)));
+        }
+        BusinessList list = new BusinessList();
+        list.setOperator(operator);
+        list.setTruncated(found.size() > maxRows);
+        list.setBusinessInfos(infos);
+        return list;
+    }
+
+    private UDDIElement findService(FindService request) throws UDDIException
+    {
+        Qualifiers qualifiers = new Qualifiers(request.getFindQualifiers());
+        Vector candidates;
+        if (!isEmpty(request.getBusinessKey()))
+        {
+            candidates = records(services, lookup(businesses, request.getBusinessKey(), "businessKey").children);
+        }
+        else
+        {
+            candidates = new Vector(services.values());
+        }
+        Vector found = new Vector();
+        for (int i = 0; i < candidates.size(); i++)
+        {
+            Record record = (Record) candidates.elementAt(i);
+            BusinessService service = (BusinessService) record.entity;
+            if (matchesNames(service.getNameVector(), request.getNameVector(), qualifiers)
+                    && matchesCategories(keyedReferences(service.getCategoryBag()), request.getCategoryBag(), qualifiers)
+                    && matchesServiceTModels(record, request.getTModelBag(), qualifiers))
+            {
+                found.addElement(record);
+            }
+        }
+        int maxRows = maxRows(request.getMaxRows());
+        sort(found, qualifiers);
+        ServiceInfos infos = new ServiceInfos();
+        for (int i = 0; i < found.size() && i < maxRows; i++)
+        {
+            infos.add(newServiceInfo((Record) found.elementAt(i)));
+        }
+        ServiceList list = new ServiceList();
+        list.setOperator(operator);
+        list.setTruncated(found.size() > maxRows);
+        list.setServiceInfos(infos);
+        return list;
+    }
+
+    private UDDIElement findBinding(FindBinding request) throws UDDIException
+    {
+        Qualifiers qualifiers = new Qualifiers(request.getFindQualifiers());
+        Vector candidates = records(bindings, lookup(services, request.getServiceKey(), "serviceKey").children);
+        Vector found = new Vector();
+        for (int i = 0; i < candidates.size(); i++)
+        {
+            Record record = (Record) candidates.elementAt(i);
+            if (matchesTModels(tModelKeys((BindingTemplate) record.entity), request.getTModelBag(), qualifiers))
+            {
+                found.addElement(record.entity);
+            }
+        }
+        int maxRows = maxRows(request.getMaxRows());
+        if (qualifiers.has(FindQualifier.sortByDateDesc))
+        {
+            Collections.reverse(found);
+        }
+        BindingDetail detail = new BindingDetail(operator);
+        detail.setTruncated(found.size() > maxRows);
+        if (found.size() > maxRows)
+        {
+            found.setSize(maxRows);
+        }
+        detail.setBindingTemplateVector(found);
+        return detail;
+    }
+
+    private UDDIElement findTModel(FindTModel request) throws UDDIException
+    {
+        Qualifiers qualifiers = new Qualifiers(request.getFindQualifiers());
+        Vector names = new Vector();
+        if (request.getName() != null)
+        {
+            names.addElement(request.getName());
+        }
+        Vector found = new Vector();
+        for (Iterator it = tModels.values().iterator(); it.hasNext();)
+        {
+            Record record = (Record) it.next();
+            TModel tModel = (TModel) record.entity;
+            Vector tModelNames = new Vector();
+            tModelNames.addElement(tModel.getName());
+            if (!record.hidden && matchesNames(tModelNames, names, qualifiers)
+                    && matchesAny(identifiers(tModel.getIdentifierBag()), identifiers(request.getIdentifierBag()))
+                    && matchesCategories(keyedReferences(tModel.getCategoryBag()), request.getCategoryBag(), qualifiers))
+            {
+                found.addElement(record);
+            }
+        }
+        int maxRows = maxRows(request.getMaxRows());
+        sort(found, qualifiers);
+        TModelInfos infos = new TModelInfos();
+        for (int i = 0; i < found.size() && i < maxRows; i++)
+        {
+            infos.add(newTModelInfo((Record) found.elementAt(i)));
+        }
+        TModelList list = new TModelList();
+        list.setOperator(operator);
+        list.setTruncated(found.size() > maxRows);
+        list.setTModelInfos(infos);
+        return list;
+    }
+
+    private UDDIElement findRelatedBusinesses(FindRelatedBusinesses request) throws UDDIException
+    {
+        Qualifiers qualifiers = new Qualifiers(request.getFindQualifiers());
+        Record business = lookup(businesses, request.getBusinessKey(), "businessKey");
+        String key = normalize(((BusinessEntity) business.entity).getBusinessKey());
+        KeyedReference filter = request.getKeyedReference();
+
+        // Related business key -> SharedRelationships, one per direction.
+        LinkedHashMap<String, SharedRelationships[]> related = new LinkedHashMap<String, SharedRelationships[]>();
+        for (int i = 0; i < assertions.size(); i++)
+        {
+            AssertionRecord record = (AssertionRecord) assertions.elementAt(i);
+            if (!record.isComplete() || (filter != null && !sameReference(record.keyedReference, filter)))
+            {
+                continue;
+            }
+            String other;
+            int direction;
+            if (record.fromKey.equals(key))
+            {
+                other = record.toKey;
+                direction = 0;
+            }
+            else if (record.toKey.equals(key))
+            {
+                other = record.fromKey;
+                direction = 1;
+            }
+            else
+            {
+                continue;
+            }
+            SharedRelationships[] shared = related.get(other);
+            if (shared == null)
+            {
+                shared = new SharedRelationships[2];
+                related.put(other, shared);
+            }
+            if (shared[direction] == null)
+            {
+                shared[direction] = new SharedRelationships();
+                shared[direction].setDirection(direction == 0 ? SharedRelationships.DIRECTION_TOKEY : SharedRelationships.DIRECTION_FROMKEY);
+            }
+            shared[direction].getKeyedReferenceVector().addElement(record.keyedReference);
+        }
+
+        Vector found = new Vector();
+        for (Iterator it = related.keySet().iterator(); it.hasNext();)
+        {
+            found.addElement(businesses.get(it.next()));
+        }
+        int maxRows = maxRows(request.getMaxRows());
+        sort(found, qualifiers);
+        RelatedBusinessInfos infos = new RelatedBusinessInfos();
+        for (int i = 0; i < found.size() && i < maxRows; i++)
+        {
+            Record record = (Record) found.elementAt(i);
+            BusinessEntity entity = (BusinessEntity) record.entity;
+            SharedRelationships[] shared = related.get(normalize(entity.getBusinessKey()));
+            Vector relationships = new Vector();
+            for (int j = 0; j < shared.length; j++)
+            {
+                if (shared[j] != null)
+                {
+                    relationships.addElement(shared[j]);
+                }
+            }
+            RelatedBusinessInfo info = new RelatedBusinessInfo(entity.getBusinessKey(), entity.getNameVector(), relationships);
+            info.setDescriptionVector(entity.getDescriptionVector());
+            infos.add(info);
+        }
+        RelatedBusinessesList list = new RelatedBusinessesList(operator, ((BusinessEntity) business.entity).getBusinessKey(), infos);
+        list.setTruncated(found.size() > maxRows);
+        return list;
+    }
+
+    // ---------------------------------------------------------------
+    // Matching
+    // ---------------------------------------------------------------
+
+    /**
+     * Matches if no names are given, or if any of the given names matches
+     * any name of the entity. Names match on a leftmost, case insensitive
+     * basis unless the exactNameMatch or caseSensitiveMatch qualifiers are
+     * given. A % in the given name matches any sequence of characters.
+     */
+    private static boolean matchesNames(Vector names, Vector patterns, Qualifiers qualifiers)
+    {
+        if (patterns == null || patterns.size() == 0)
+        {
+            return true;
+        }
+        boolean exact = qualifiers.has(FindQualifier.exactNameMatch);
+        boolean caseSensitive = qualifiers.has(FindQualifier.caseSensitiveMatch);
+        for (int i = 0; i < patterns.size(); i++)
+        {
+            Name pattern = (Name) patterns.elementAt(i);
+            if (pattern == null || pattern.getText() == null)
+            {
+                continue;
+            }
+            for (int j = 0; names != null && j < names.size(); j++)
+            {
+                Name name = (Name) names.elementAt(j);
+                if (name != null && name.getText() != null && matchesLang(name.getLang(), pattern.getLang())
+                        && matchesName(name.getText(), pattern.getText(), exact, caseSensitive))
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean matchesLang(String lang, String pattern)
+    {
+        return isEmpty(pattern) || (lang != null && lang.toLowerCase().startsWith(pattern.toLowerCase()));
+    }
+
+    static boolean matchesName(String name, String pattern, boolean exact, boolean caseSensitive)
+    {
+        if (!caseSensitive)
+        {
+            name = name.toLowerCase();
+            pattern = pattern.toLowerCase();
+        }
+        if (pattern.indexOf('%') < 0)
+        {
+            return exact ? name.equals(pattern) : name.startsWith(pattern);
+        }
+        String[] parts = pattern.split("%", -1);
+        if (!name.startsWith(parts[0]))
+        {
+            return false;
+        }
+        int position = parts[0].length();
+        for (int i = 1; i < parts.length - 1; i++)
+        {
+            int found = name.indexOf(parts[i], position);
+            if (found < 0)
+            {
+                return false;
+            }
+            position = found + parts[i].length();
+        }
+        String last = parts[parts.length - 1];
+        if (exact || last.length() > 0)
+        {
+            return name.length() - last.length() >= position && name.endsWith(last);
+        }
+        return true;
+    }
+
+    /**
+     * Matches if no references are given, or if any of them matches a
+     * reference of the entity. Used for identifierBags.
+     */
+    private static boolean matchesAny(Vector references, Vector given)
+    {
+        if (given == null || given.size() == 0)
+        {
+            return true;
+        }
+        for (int i = 0; i < given.size(); i++)
+        {
+            if (contains(references, (KeyedReference) given.elementAt(i)))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Matches if every given category is a category of the entity, or
+     * any of them with the orAllKeys qualifier. With orLikeKeys, categories
+     * of the same tModel are alternatives and the tModels are combined
+     * with and.
+     */
+    private static boolean matchesCategories(Vector references, CategoryBag bag, Qualifiers qualifiers)
+    {
+        Vector given = keyedReferences(bag);
+        if (given.size() == 0)
+        {
+            return true;
+        }
+        if (qualifiers.has(FindQualifier.orAllKeys))
+        {
+            return matchesAny(references, given);
+        }
+        if (qualifiers.has(FindQualifier.orLikeKeys))
+        {
+            LinkedHashMap<String, Boolean> groups = new LinkedHashMap<String, Boolean>();
+            for (int i = 0; i < given.size(); i++)
+            {
+                KeyedReference reference = (KeyedReference) given.elementAt(i);
+                String group = normalize(reference.getTModelKey());
+                Boolean matched = groups.get(group);
+                groups.put(group, Boolean.valueOf((matched != null && matched.booleanValue()) || contains(references, reference)));
+            }
+            return !groups.containsValue(Boolean.FALSE);
+        }
+        for (int i = 0; i < given.size(); i++)
+        {
+            if (!contains(references, (KeyedReference) given.elementAt(i)))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean contains(Vector references, KeyedReference given)
+    {
+        for (int i = 0; references != null && i < references.size(); i++)
+        {
+            KeyedReference reference = (KeyedReference) references.elementAt(i);
+            if (normalize(reference.getTModelKey()).equals(normalize(given.getTModelKey()))
+                    && value(reference.getKeyValue()).equals(value(given.getKeyValue()))
+                    && (!GENERAL_KEYWORDS_TMODEL_KEY.equalsIgnoreCase(value(given.getTModelKey()))
+                            || value(reference.getKeyName()).equals(value(given.getKeyName()))))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean sameReference(KeyedReference a, KeyedReference b)
+    {
+        return normalize(a.getTModelKey()).equals(normalize(b.getTModelKey())) && value(a.getKeyName()).equals(value(b.getKeyName()))
+                && value(a.getKeyValue()).equals(value(b.getKeyValue()));
+    }
+
+    /**
+     * Categories a business is found by. With combineCategoryBags these
+     * include the categories of its services.
+     */
+    private Vector businessCategories(Record record, Qualifiers qualifiers)
+    {
+        Vector result = new Vector(keyedReferences(((BusinessEntity) record.entity).getCategoryBag()));
+        if (qualifiers.has(FindQualifier.combineCategoryBags) || qualifiers.has(FindQualifier.serviceSubset))
+        {
+            if (qualifiers.has(FindQualifier.serviceSubset))
+            {
+                result.removeAllElements();
+            }
+            Vector children = records(services, record.children);
+            for (int i = 0; i < children.size(); i++)
+            {
+                result.addAll(keyedReferences(((BusinessService) ((Record) children.elementAt(i)).entity).getCategoryBag()));
+            }
+        }
+        return result;
+    }
+
+    private static boolean matchesDiscoveryURLs(DiscoveryURLs urls, DiscoveryURLs given)
+    {
+        if (given == null || given.size() == 0)
+        {
+            return true;
+        }
+        for (int i = 0; i < given.size(); i++)
+        {
+            DiscoveryURL wanted = given.get(i);
+            for (int j = 0; urls != null && j < urls.size(); j++)
+            {
+                DiscoveryURL url = urls.get(j);
+                if (value(url.getText()).equals(value(wanted.getText()))
+                        && (isEmpty(wanted.getUseType()) || value(url.getUseType()).equals(wanted.getUseType())))
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean matchesBusinessTModels(Record record, TModelBag bag, Qualifiers qualifiers)
+    {
+        if (bag == null || bag.size() == 0)
+        {
+            return true;
+        }
+        Vector services = records(this.services, record.children);
+        for (int i = 0; i < services.size(); i++)
+        {
+            if (matchesServiceTModels((Record) services.elementAt(i), bag, qualifiers))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean matchesServiceTModels(Record record, TModelBag bag, Qualifiers qualifiers)
+    {
+        if (bag == null || bag.size() == 0)
+        {
+            return true;
+        }
+        Vector children = records(bindings, record.children);
+        for (int i = 0; i < children.size(); i++)
+        {
+            if (matchesTModels(tModelKeys((BindingTemplate) ((Record) children.elementAt(i)).entity), bag, qualifiers))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Matches if the binding refers to every tModel of the bag, or to any
+     * of them with the orAllKeys qualifier.
+     */
+    private static boolean matchesTModels(Vector keys, TModelBag bag, Qualifiers qualifiers)
+    {
+        if (bag == null || bag.size() == 0)
+        {
+            return true;
+        }
+        boolean any = qualifiers.has(FindQualifier.orAllKeys);
+        Vector given = bag.getTModelKeyStrings();
+        for (int i = 0; i < given.size(); i++)
+        {
+            boolean found = keys.contains(normalize((String) given.elementAt(i)));
+            if (found && any)
+            {
+                return true;
+            }
+            if (!found && !any)
+            {
+                return false;
+            }
+        }
+        return !any;
+    }
+
+    private static Vector tModelKeys(BindingTemplate binding)
+    {
+        Vector result = new Vector();
+        TModelInstanceDetails details = binding.getTModelInstanceDetails();
+        for (int i = 0; details != null && i < details.size(); i++)
+        {
+            TModelInstanceInfo info = details.get(i);
+            result.addElement(normalize(info.getTModelKey()));
+        }
+        return result;
+    }
+
+    private static Vector identifiers(IdentifierBag bag)
+    {
+        return bag == null || bag.getKeyedReferenceVector() == null ? new Vector() : bag.getKeyedReferenceVector();
+    }
+
+    private static Vector keyedReferences(CategoryBag bag)
+    {
+        return bag == null || bag.getKeyedReferenceVector() == null ? new Vector() : bag.getKeyedReferenceVector();
+    }
+
+    /**
+     * Sorts find results by name, ascending unless sortByNameDesc is given,
+     * or by the order in which they were saved with sortByDateAsc or
+     * sortByDateDesc. Saving or deleting a service or binding counts as
+     * saving the business containing it. Names that are equal keep the
+     * order of saving.
+     */
+    private static void sort(Vector records, Qualifiers qualifiers)
+    {
+        final boolean byDate = qualifiers.has(FindQualifier.sortByDateAsc) || qualifiers.has(FindQualifier.sortByDateDesc);
+        final boolean descending = byDate ? qualifiers.has(FindQualifier.sortByDateDesc) : qualifiers.has(FindQualifier.sortByNameDesc);
+        Collections.sort(records, new Comparator()
+        {
+            public int compare(Object o1, Object o2)
+            {
+                Record r1 = (Record) o1;
+                Record r2 = (Record) o2;
+                int result = 0;
+                if (!byDate)
+                {
+                    result = r1.getName().compareToIgnoreCase(r2.getName());
+                }
+                if (result == 0)
+                {
+                    result = r1.modified < r2.modified ? -1 : (r1.modified == r2.modified ? 0 : 1);
+                }
+                return descending ? -result : result;
+            }
+        });
+    }
+
+    private int maxRows(String maxRows) throws UDDIException
+    {
+        if (isEmpty(maxRows))
+        {
+            return Integer.MAX_VALUE;
+        }
+        try
+        {
+            int result = Integer.parseInt(maxRows.trim());
+            if (result >= 0)
+            {
+                return result;
+            }
+        }
+        catch (NumberFormatException e)
+        {
+            // Reported below.
+        }
+        throw fault(E_INVALID_VALUE, "E_invalidValue", "Invalid maxRows " + maxRows);
+    }
+
+    // ---------------------------------------------------------------
+    // Building responses
+    // ---------------------------------------------------------------
+
+    private BusinessEntity assembleBusiness(Record record)
+    {
+        BusinessEntity stored = (BusinessEntity) record.entity;
+        BusinessEntity result = new BusinessEntity();
+        result.setBusinessKey(stored.getBusinessKey());
+        result.setOperator(stored.getOperator());
+        result.setAuthorizedName(stored.getAuthorizedName());
+        result.setDiscoveryURLs(stored.getDiscoveryURLs());
+        result.setNameVector(stored.getNameVector());
+        result.setDescriptionVector(stored.getDescriptionVector());
+        result.setContacts(stored.getContacts());
+        result.setIdentifierBag(stored.getIdentifierBag());
+        result.setCategoryBag(stored.getCategoryBag());
+        if (record.children.size() > 0)
+        {
+            BusinessServices services = new BusinessServices();
+            Vector children = records(this.services, record.children);
+            for (int i = 0; i < children.size(); i++)
+            {
+                services.add(assembleService((Record) children.elementAt(i)));
+            }
+            result.setBusinessServices(services);
+        }
+        return result;
+    }
+
+    private BusinessService assembleService(Record record)
+    {
+        BusinessService stored = (BusinessService) record.entity;
+        BusinessService result = new BusinessService();
+        result.setServiceKey(stored.getServiceKey());
+        result.setBusinessKey(stored.getBusinessKey());
+        result.setNameVector(stored.getNameVector());
+        result.setDescriptionVector(stored.getDescriptionVector());
+        result.setCategoryBag(stored.getCategoryBag());
+        BindingTemplates templates = new BindingTemplates();
+        Vector children = records(bindings, record.children);
+        for (int i = 0; i < children.size(); i++)
+        {
+            templates.add((BindingTemplate) ((Record) children.elementAt(i)).entity);
+        }
+        result.setBindingTemplates(templates);
+        return result;
+    }
+
+    private BusinessInfo newBusinessInfo(Record record)
+    {
+        BusinessEntity entity = (BusinessEntity) record.entity;
+        BusinessInfo info = new BusinessInfo();
+        info.setBusinessKey(entity.getBusinessKey());
+        info.setNameVector(entity.getNameVector());
+        info.setDescriptionVector(entity.getDescriptionVector());
+        ServiceInfos serviceInfos = new ServiceInfos();
+        Vector children = records(services, record.children);
+        for (int i = 0; i < children.size(); i++)
+        {
+            serviceInfos.add(newServiceInfo((Record) children.elementAt(i)));
+        }
+        info.setServiceInfos(serviceInfos);
+        return info;
+    }
+
+    private static ServiceInfo newServiceInfo(Record record)
+    {
+        BusinessService service = (BusinessService) record.entity;
+        ServiceInfo info = new ServiceInfo();
+        info.setServiceKey(service.getServiceKey());
+        info.setBusinessKey(service.getBusinessKey());
+        info.setNameVector(service.getNameVector());
+        return info;
+    }
+
+    private static TModelInfo newTModelInfo(Record record)
+    {
+        TModel tModel = (TModel) record.entity;
+        TModelInfo info = new TModelInfo();
+        info.setTModelKey(tModel.getTModelKey());
+        info.setName(new Name(tModel.getNameString()));
+        return info;
+    }
+
+    private DispositionReport success()
+    {
+        return newDispositionReport(E_SUCCESS, "E_success", "");
+    }
+
+    private DispositionReport newDispositionReport(int errno, String errCode, String text)
+    {
+        Result result = new Result(String.valueOf(errno));
+        result.setErrInfo(new ErrInfo(text, errCode));
+        Vector results = new Vector();
+        results.addElement(result);
+        DispositionReport report = new DispositionReport();
+        report.setGeneric(UDDIElement.GENERIC);
+        report.setOperator(operator);
+        report.setResultVector(results);
+        return report;
+    }
+
+    /**
+     * Builds the exception for an error, holding the SOAP fault that an
+     * operator site would return.
+     *
+     * @param errno   Error number, one of the E_ constants.
+     * @param errCode Error code, for example E_invalidKeyPassed.
+     * @param text    Description of the error.
+     * @return UDDIException
+     */
+    public UDDIException fault(int errno, String errCode, String text)
+    {
+        Document doc;
+        try
+        {
+            doc = DocumentBuilderPool.getInstance().newDocument();
+        }
+        catch (Exception e)
+        {
+            throw new IllegalStateException(e.toString());
+        }
+        Element fault = doc.createElementNS(UDDIElement.SOAPNS, "SOAP-ENV:Fault");
+        doc.appendChild(fault);
+        Element faultCode = doc.createElementNS(null, "faultcode");
+        faultCode.appendChild(doc.createTextNode(errno == E_FATAL_ERROR || errno == E_BUSY ? "SOAP-ENV:Server" : "SOAP-ENV:Client"));
+        fault.appendChild(faultCode);
+        Element faultString = doc.createElementNS(null, "faultstring");
+        faultString.appendChild(doc.createTextNode(errno == E_FATAL_ERROR || errno == E_BUSY ? "Server Error" : "Client Error"));
+        fault.appendChild(faultString);
+        Element detail = doc.createElementNS(null, "detail");
+        fault.appendChild(detail);
+        newDispositionReport(errno, errCode, text).saveToXML(detail);
+        return new UDDIException(fault, true);
+    }
+
+    // ---------------------------------------------------------------
+    // Keys
+    // ---------------------------------------------------------------
+
+    /**
+     * Returns a new key. Keys are name based UUIDs of the operator name,
+     * the kind of entity and a counter, in upper case.
+     */
+    private String newUUID(String kind)
+    {
+        String seed = operator + "/" + kind + "/" + (++keySequence);
+        return UUID.nameUUIDFromBytes(seed.getBytes(StandardCharsets.UTF_8)).toString().toUpperCase();
+    }
+
+    /**
+     * Finds an existing entity by key.
+     *
+     * @exception UDDIException E_invalidKeyPassed if there is none.
+     */
+    private Record lookup(LinkedHashMap<String, Record> map, String key, String keyType) throws UDDIException
+    {
+        Record record = isEmpty(key) ? null : map.get(normalize(key));
+        if (record == null)
+        {
+            throw fault(E_INVALID_KEY_PASSED, "E_invalidKeyPassed", "Unknown " + keyType + " " + key);
+        }
+        return record;
+    }
+
+    /**
+     * Finds an existing entity by key and checks that the user owns it.
+     *
+     * @param optional If true, an empty key is allowed and returns null.
+     * @exception UDDIException E_invalidKeyPassed or E_userMismatch.
+     */
+    private Record lookupOwned(LinkedHashMap<String, Record> map, String key, String keyType, String user, boolean optional)
+            throws UDDIException
+    {
+        if (optional && isEmpty(key))
+        {
+            return null;
+        }
+        Record record = lookup(map, key, keyType);
+        if (!record.owner.equals(user))
+        {
+            throw fault(E_USER_MISMATCH, "E_userMismatch", keyType + " " + key + " is not owned by " + user);
+        }
+        return record;
+    }
+
+    private Vector lookupOwned(LinkedHashMap<String, Record> map, Vector keys, String keyType, String user) throws UDDIException
+    {
+        Vector result = new Vector();
+        for (int i = 0; keys != null && i < keys.size(); i++)
+        {
+            Record record = lookupOwned(map, (String) keys.elementAt(i), keyType, user, false);
+            if (!result.contains(record))
+            {
+                result.addElement(record);
+            }
+        }
+        return result;
+    }
+
+    private static Vector records(LinkedHashMap<String, Record> map, Vector keys)
+    {
+        Vector result = new Vector();
+        for (int i = 0; i < keys.size(); i++)
+        {
+            Object record = map.get(keys.elementAt(i));
+            if (record != null)
+            {
+                result.addElement(record);
+            }
+        }
+        return result;
+    }
+
+    private String businessKey(String normalized)
+    {
+        return ((BusinessEntity) businesses.get(normalized).entity).getBusinessKey();
+    }
+
+    private static Vector getServices(BusinessEntity entity)
+    {
+        BusinessServices children = entity.getBusinessServices();
+        return children == null || children.getBusinessServiceVector() == null ? new Vector() : children.getBusinessServiceVector();
+    }
+
+    private static Vector getBindings(BusinessService service)
+    {
+        BindingTemplates children = service.getBindingTemplates();
+        return children == null || children.getBindingTemplateVector() == null ? new Vector() : children.getBindingTemplateVector();
+    }
+
+    private static KeyedReference copy(KeyedReference reference)
+    {
+        return new KeyedReference(reference.getKeyName(), reference.getKeyValue(), reference.getTModelKey());
+    }
+
+    /**
+     * Returns a form of the key suitable for comparing keys.
+     * UDDI keys are not case sensitive.
+     */
+    private static String normalize(String key)
+    {
+        return key == null ? "" : key.trim().toUpperCase();
+    }
+
+    private static String value(String s)
+    {
+        return s == null ? "" : s;
+    }
+
+    private static boolean isEmpty(String s)
+    {
+        return s == null || s.trim().length() == 0;
+    }
+
+    /**
+     * A stored entity with its publisher and the keys of its children.
+     */
+    static class Record
+    {
+        UDDIElement entity;
+        final String owner;
+        // Normalized key of the parent business or service.
+        String parent;
+        // Normalized keys of the services of a business or the bindings of a service, in order.
+        final Vector children = new Vector();
+        // Position in the order in which entities were saved.
+        long modified;
+        // Set for deleted tModels.
+        boolean hidden;
+
+        Record(String owner, UDDIElement entity)
+        {
+            this.owner = owner;
+            this.entity = entity;
+        }
+
+        String getName()
+        {
+            if (entity instanceof BusinessEntity)
+            {
+                return value(((BusinessEntity) entity).getDefaultNameString());
+            }
+            if (entity instanceof BusinessService)
+            {
+                return value(((BusinessService) entity).getDefaultNameString());
+            }
+            if (entity instanceof TModel)
+            {
+                return value(((TModel) entity).getNameString());
+            }
+            return "";
+        }
+    }
+
+    /**
+     * A relationship between two businesses and which of their publishers
+     * have asserted it.
+     */
+    static class AssertionRecord
+    {
+        final String fromKey;
+        final String toKey;
+        final KeyedReference keyedReference;
+        boolean fromAsserted;
+        boolean toAsserted;
+
+        AssertionRecord(String fromKey, String toKey, KeyedReference keyedReference)
+        {
+            this.fromKey = fromKey;
+            this.toKey = toKey;
+            this.keyedReference = keyedReference;
+        }
+
+        boolean isComplete()
+        {
+            return fromAsserted && toAsserted;
+        }
+
+        String getStatus()
+        {
+            if (isComplete())
+            {
+                return CompletionStatus.COMPLETE;
+            }
+            return fromAsserted ? CompletionStatus.TOKEY_INCOMPLETE : CompletionStatus.FROMKEY_INCOMPLETE;
+        }
+    }
+
+    /**
+     * The findQualifiers of a find request.
+     */
+    static class Qualifiers
+    {
+        private final Vector names = new Vector();
+
+        Qualifiers(FindQualifiers qualifiers)
+        {
+            for (int i = 0; qualifiers != null && i < qualifiers.size(); i++)
+            {
+                names.addElement(qualifiers.get(i).getText());
+            }
+        }
+
+        boolean has(String qualifier)
+        {
+            return names.contains(qualifier);
+        }
+    }
+}
@@ -78,6 +78,7 @@ public class GetAssertionStatusReport extends UDDIElement {
        if (nl.getLength() > 0) {
           authInfo = new AuthInfo((Element)nl.item(0));
        }
+       nl = getChildElementsByTagName(base, CompletionStatus.UDDI_TAG);
        if (nl.getLength() > 0) {
           completionStatus = new CompletionStatus((Element)nl.item(0));
        }
@@ -10,6 +10,9 @@ package org.uddi4j.request;
 
 import java.util.Vector;
 
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
 import org.uddi4j.UDDIElement;
 import org.uddi4j.UDDIException;
 import org.uddi4j.datatype.tmodel.TModel;
@@ -204,4 +207,30 @@ public class SaveTModel extends UDDIElement {
       }
       parent.appendChild(base);
    }
+
+   /**
+    * Save an object to a stream writer. Writes the same XML as
+    * saveToXML(Element) without building a DOM tree.
+    *
+    * @param writer Object will be written as the next element of the writer.
+    * @exception XMLStreamException
+    */
+   public void saveToXML(XMLStreamWriter writer) throws XMLStreamException {
+      writeStartElement(writer, UDDI_TAG);
+      writer.writeAttribute("generic", UDDIElement.GENERIC);
+      if (authInfo != null) {
+         authInfo.saveToXML(writer);
+      }
+      if (tModel != null) {
+         for (int i = 0; i < tModel.size(); i++) {
+            ((TModel) (tModel.elementAt(i))).saveToXML(writer);
+         }
+      }
+      if (uploadRegister != null) {
+         for (int i = 0; i < uploadRegister.size(); i++) {
+            ((UploadRegister) (uploadRegister.elementAt(i))).saveToXML(writer);
+         }
+      }
+      writer.writeEndElement();
+   }
 }
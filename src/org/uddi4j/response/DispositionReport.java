@@ -260,6 +260,9 @@ public class DispositionReport extends UDDIElement {
 			fault = true;
 			exception = new UDDIException(el, true);
 			NodeList nl = exception.getDetailElement().getElementsByTagName(UDDI_TAG);
+			if( nl.getLength()==0 ) {	// Handle possible DOM level 2 response
+				nl = exception.getDetailElement().getElementsByTagNameNS(UDDIElement.XMLNS, UDDI_TAG);
+			}
 			if( nl.getLength()>0 ) {
 				base = (Element)nl.item(0);
 			}
@@ -282,6 +285,9 @@ public class DispositionReport extends UDDIElement {
 
 			// Process embedded elements
 			nl = el.getElementsByTagName("result");
+			if( nl.getLength()==0 ) {	// Handle possible DOM level 2 response
+				nl = el.getElementsByTagNameNS(UDDIElement.XMLNS, Result.UDDI_TAG);
+			}
 			for( int i = 0; i<nl.getLength(); i++ ) {
 				results.add( new Result( (Element)nl.item(i) ) );
 			}
@@ -593,7 +599,9 @@ public class DispositionReport extends UDDIElement {
 	 * @param el     Root element for this object
 	 */
 	public boolean isValidElement(Element el) {
-		return el.getNodeName().equals(UDDI_TAG);
+		// Handle possible DOM level 2 response with a namespace prefix
+		return el.getNodeName().equals(UDDI_TAG)
+			|| (UDDIElement.XMLNS.equals(el.getNamespaceURI()) && UDDI_TAG.equals(el.getLocalName()));
 	}
 
 	public void saveToXML(Element parent) {
@@ -92,7 +92,7 @@ public class ServiceInfo extends UDDIElement {
       NodeList nl = null;
       nl = getChildElementsByTagName(base, Name.UDDI_TAG);
       for (int i=0; i<nl.getLength(); i++) {
-         nameVector.addElement(new Name((Element)nl.item(0)));
+         nameVector.addElement(new Name((Element)nl.item(i)));
       }
    }
 
@@ -13,8 +13,6 @@ import java.io.IOException;
 import java.net.URL;
 import java.util.Properties;
 import java.util.Vector;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 
 import org.apache.axis.AxisFault;
@@ -22,6 +20,7 @@ import org.apache.axis.Message;
 import org.apache.axis.client.Call;
 import org.apache.axis.client.Service;
 import org.apache.axis.message.SOAPBodyElement;
+import org.uddi4j.DocumentBuilderPool;
 import org.uddi4j.client.UDDIProxy;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -34,6 +33,12 @@ import org.xml.sax.SAXException;
  * Note: Axis does not support proxies on a per connection basis 
  * </b><p>
  * Axis uses the JVM property support.  
+ * <p>
+ * By default the request is serialized to a string and re-parsed by Axis, and
+ * the response body is serialized to a string and re-parsed into a new DOM
+ * tree. Setting the org.uddi4j.axis.domPassThrough property to true hands the
+ * namespace aware (DOM level 2) request element straight to Axis and takes
+ * the response body from Axis as a DOM element, without the string round trip.
  *
  * @author David Melgar (dmelgar@us.ibm.com)
  * @author Ozzy (ozzy@hursley.ibm.com)
@@ -53,6 +58,7 @@ public class ApacheAxisTransport extends TransportBase {
 
         Element base = null;
         boolean debug = logEnabled();
+        boolean passThrough = false;
         Call call = null;
 
         try {
@@ -60,6 +66,7 @@ public class ApacheAxisTransport extends TransportBase {
             call = (Call) service.createCall();
             
             Properties config = getConfiguration();
+            passThrough = Boolean.valueOf(config.getProperty(UDDIProxy.AXIS_DOM_PASSTHROUGH_PROPERTY)).booleanValue();
             String username = config.getProperty(UDDIProxy.HTTP_BASIC_AUTH_USERNAME_PROPERTY);
             String password = config.getProperty(UDDIProxy.HTTP_BASIC_AUTH_PASSWORD_PROPERTY);
             if (username != null)
@@ -72,22 +79,33 @@ public class ApacheAxisTransport extends TransportBase {
             }
 
             call.setTargetEndpointAddress(url);
+            // Axis uses one timeout for connecting and for reading.
+            int timeout = getTimeoutProperty(UDDIProxy.HTTP_READ_TIMEOUT_PROPERTY);
+            if (timeout == 0) {
+                timeout = getTimeoutProperty(UDDIProxy.HTTP_CONNECT_TIMEOUT_PROPERTY);
+            }
+            timeout = Deadline.timeoutMillis(timeout);
+            if (timeout > 0) {
+                call.setTimeout(Integer.valueOf(timeout));
+            }
             //call.setProperty(HTTPConstants.MC_HTTP_SOAPACTION, "");
 
             Vector result = null;
 
-            // Rebuild the body. This convoluted process lets Axis handle the level 1 DOM tree
-            // from UDDI4J. When UDDI4J moves to a level 2 DOM tree, the more obvious method
-            // can be tried.
-            String str = null;
-
-            str = org.apache.axis.utils.XMLUtils.ElementToString(el);
-            SOAPBodyElement body =
-                new SOAPBodyElement(
-                    new java.io.ByteArrayInputStream(str.getBytes("UTF8")));
-
-            // if DOM level 2 use this more obvious approach
-            // SOAPBodyElement body = new SOAPBodyElement(el);
+            SOAPBodyElement body = null;
+            if (passThrough) {
+                // UDDI4J builds a level 2 DOM tree, so Axis can take it directly.
+                body = new SOAPBodyElement(el);
+            } else {
+                // Rebuild the body. This convoluted process lets Axis handle the level 1 DOM tree
+                // from UDDI4J.
+                String str = null;
+
+                str = org.apache.axis.utils.XMLUtils.ElementToString(el);
+                body =
+                    new SOAPBodyElement(
+                        new java.io.ByteArrayInputStream(str.getBytes("UTF8")));
+            }
 
             Object[] params = new Object[] { body };
 
@@ -97,11 +115,11 @@ public class ApacheAxisTransport extends TransportBase {
 
             result = (Vector) call.invoke(params);
 
-            base = stringToElement(((SOAPBodyElement) result.elementAt(0)).toString());
+            base = bodyToElement((SOAPBodyElement) result.elementAt(0), passThrough);
         } catch (AxisFault fault) {
             try {
                 Message m = call.getResponseMessage();
-                base = stringToElement(m.getSOAPEnvelope().getFirstBody().toString());
+                base = bodyToElement(m.getSOAPEnvelope().getFirstBody(), passThrough);
             } catch (Exception e) {
                 throw new TransportException(e);
             }
@@ -117,11 +135,22 @@ public class ApacheAxisTransport extends TransportBase {
         return base;
     }
 
+    /**
+     * Converts a SOAP body element from Axis into a DOM element.
+     *
+     * @param body         Body element returned by Axis
+     * @param passThrough  If true, bind the body without serializing it to a string.
+     * @return Element
+     */
+    Element bodyToElement(SOAPBodyElement body, boolean passThrough) throws Exception {
+        if (!passThrough) {
+            return stringToElement(body.toString());
+        }
+        return body.getAsDOM();
+    }
+
     public Element stringToElement(String s) throws ParserConfigurationException, IOException, SAXException {
-        DocumentBuilderFactory docBuilderFactory = DocumentBuilderFactory.newInstance();
-        docBuilderFactory.setNamespaceAware(true);
-        DocumentBuilder docBuilder = docBuilderFactory.newDocumentBuilder();
-        Document doc = docBuilder.parse(new ByteArrayInputStream(s.getBytes("UTF8")));
+        Document doc = DocumentBuilderPool.getInstance().parse(new ByteArrayInputStream(s.getBytes("UTF8")));
         return doc.getDocumentElement();
      }
 
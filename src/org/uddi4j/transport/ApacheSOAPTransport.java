@@ -67,6 +67,8 @@ public class ApacheSOAPTransport extends TransportBase {
                 Message soapMessage = new Message();
 
                 soapMessage.setSOAPTransport(connection);
+                // Apache SOAP has a socket read timeout only, no connect timeout.
+                connection.setTimeout(Deadline.timeoutMillis(getTimeoutProperty(UDDIProxy.HTTP_READ_TIMEOUT_PROPERTY)));
 
                 Element base = null;
 
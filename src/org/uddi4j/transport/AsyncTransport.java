@@ -0,0 +1,46 @@
+/*
+ * The source code contained herein is licensed under the IBM Public License
+ * Version 1.0, which has been approved by the Open Source Initiative.
+ * Copyright (C) 2001, International Business Machines Corporation
+ * All Rights Reserved.
+ *
+ */
+
+package org.uddi4j.transport;
+
+import java.net.URL;
+import java.util.concurrent.CompletableFuture;
+
+import org.uddi4j.UDDIElement;
+import org.w3c.dom.Element;
+
+/**
+ * Interface for a SOAP transport that can send messages without blocking
+ * the calling thread.
+ * <p>
+ * The returned future completes with the element representing the UDDI
+ * response, or completes exceptionally with a TransportException if a
+ * problem occurs during transmission.
+ * <p>
+ * Transports that only support blocking sends can be used asynchronously
+ * through {@link BlockingTransportAdapter}.
+ */
+public interface AsyncTransport extends Transport {
+	/**
+	 * Sends a UDDIElement to URL without blocking.
+	 *
+	 * @param el     UDDIElement to send
+	 * @param url    Destination URL
+	 * @return A future for the element representing a XML DOM tree containing the UDDI response.
+	 */
+	public CompletableFuture<Element> sendAsync(UDDIElement el, URL url);
+
+	/**
+	 * Sends a DOM Element to URL without blocking.
+	 *
+	 * @param el     Element to send
+	 * @param url    Destination URL
+	 * @return A future for the element representing a XML DOM tree containing the UDDI response.
+	 */
+	public CompletableFuture<Element> sendAsync(Element el, URL url);
+}
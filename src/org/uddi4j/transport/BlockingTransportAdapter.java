@@ -0,0 +1,84 @@
+/*
+ * The source code contained herein is licensed under the IBM Public License
+ * Version 1.0, which has been approved by the Open Source Initiative.
+ * Copyright (C) 2001, International Business Machines Corporation
+ * All Rights Reserved.
+ *
+ */
+
+package org.uddi4j.transport;
+
+import java.net.URL;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import org.uddi4j.UDDIElement;
+import org.w3c.dom.Element;
+
+/**
+ * Adapts a blocking Transport to the AsyncTransport interface by running
+ * each send on an Executor. The current {@link Deadline} of the calling
+ * thread is passed on to the thread performing the send.
+ */
+public class BlockingTransportAdapter implements AsyncTransport {
+
+	private final Transport transport;
+	private final Executor executor;
+
+	/**
+	 * Construct an adapter.
+	 *
+	 * @param transport Blocking transport that performs the sends.
+	 * @param executor  Executor on which the blocking sends are run.
+	 */
+	public BlockingTransportAdapter(Transport transport, Executor executor) {
+		this.transport = transport;
+		this.executor = executor;
+	}
+
+	/**
+	 * Returns the wrapped blocking transport.
+	 *
+	 * @return Transport
+	 */
+	public Transport getTransport() {
+		return transport;
+	}
+
+	public Element send(UDDIElement el, URL url) throws TransportException {
+		return transport.send(el, url);
+	}
+
+	public Element send(Element el, URL url) throws TransportException {
+		return transport.send(el, url);
+	}
+
+	public CompletableFuture<Element> sendAsync(final UDDIElement el, final URL url) {
+		final Deadline deadline = Deadline.current();
+		return CompletableFuture.supplyAsync(() -> {
+			Deadline previous = Deadline.setCurrent(deadline);
+			try {
+				return transport.send(el, url);
+			} catch (TransportException e) {
+				throw new CompletionException(e);
+			} finally {
+				Deadline.setCurrent(previous);
+			}
+		}, executor);
+	}
+
+	public CompletableFuture<Element> sendAsync(final Element el, final URL url) {
+		final Deadline deadline = Deadline.current();
+		return CompletableFuture.supplyAsync(() -> {
+			Deadline previous = Deadline.setCurrent(deadline);
+			try {
+				return transport.send(el, url);
+			} catch (TransportException e) {
+				throw new CompletionException(e);
+			} finally {
+				Deadline.setCurrent(previous);
+			}
+		}, executor);
+	}
+}
@@ -0,0 +1,295 @@
+/*
+ * The source code contained herein is licensed under the IBM Public License
+ * Version 1.0, which has been approved by the Open Source Initiative.
+ * Copyright (C) 2001, International Business Machines Corporation
+ * All Rights Reserved.
+ *
+ */
+
+package org.uddi4j.transport;
+
+import java.net.URL;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Circuit breaker for one registry URL.
+ * <p>
+ * The breaker is closed while the URL answers. It opens when the last
+ * failureThreshold requests in a row failed with a TransportException, or
+ * when at least errorRate percent of the last windowSize requests did.
+ * While open, requests fail at once instead of waiting for a hung node to
+ * time out. After openMillis the breaker becomes half-open and lets up to
+ * halfOpenTrials requests through at a time; it closes once that many
+ * have succeeded, and opens again on the first failure.
+ * <p>
+ * There is one breaker per URL and settings in the JVM, shared by all
+ * transports and UDDIProxy instances sending to that URL with the same
+ * settings. Instances configured differently get breakers of their own,
+ * so each keeps the settings it was configured with.
+ *
+ * @see CircuitBreakerTransport
+ */
+public class CircuitBreaker {
+
+    public static final String CLOSED = "closed";
+    public static final String OPEN = "open";
+    public static final String HALF_OPEN = "halfOpen";
+
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    public static final int DEFAULT_ERROR_RATE = 50;
+    public static final int DEFAULT_WINDOW_SIZE = 20;
+    public static final long DEFAULT_OPEN_MILLIS = 30000;
+    public static final int DEFAULT_HALF_OPEN_TRIALS = 1;
+
+    // Keyed by URL and settings, see getInstance.
+    private static final ConcurrentHashMap<String, CircuitBreaker> breakers = new ConcurrentHashMap<String, CircuitBreaker>();
+
+    private final String url;
+    private final int failureThreshold;
+    private final int errorRate;
+    private final boolean[] window;
+    private final long openNanos;
+    private final int halfOpenTrials;
+
+    // Guarded by this.
+    private String state = CLOSED;
+    private int next = 0;
+    private int count = 0;
+    private int failuresInWindow = 0;
+    private int consecutiveFailures = 0;
+    private long openUntil = 0;
+    private int trialsRunning = 0;
+    private int trialsSucceeded = 0;
+    private long rejected = 0;
+    private long trips = 0;
+
+    private CircuitBreaker(String url, int failureThreshold, int errorRate, int windowSize, long openMillis, int halfOpenTrials) {
+        this.url = url;
+        this.failureThreshold = Math.max(0, failureThreshold);
+        this.errorRate = Math.max(0, Math.min(100, errorRate));
+        this.window = new boolean[Math.max(1, windowSize)];
+        this.openNanos = Math.max(0, openMillis) * 1000000L;
+        this.halfOpenTrials = Math.max(1, halfOpenTrials);
+    }
+
+    /**
+     * Returns the breaker for a URL and settings, creating it if there is
+     * none yet.
+     *
+     * @param url              Registry URL
+     * @param failureThreshold Consecutive failures that open the breaker, or 0 to ignore them
+     * @param errorRate        Failure percentage in the window that opens the breaker, or 0 to ignore it
+     * @param windowSize       Number of recent requests the failure percentage is taken over
+     * @param openMillis       Time the breaker stays open before trial requests are let through
+     * @param halfOpenTrials   Number of trial requests that must succeed to close the breaker
+     * @return CircuitBreaker
+     */
+    public static CircuitBreaker getInstance(URL url, int failureThreshold, int errorRate, int windowSize, long openMillis,
+            int halfOpenTrials) {
+        String key = url.toExternalForm() + " " + failureThreshold + "," + errorRate + "," + windowSize + "," + openMillis + ","
+            + halfOpenTrials;
+        CircuitBreaker breaker = breakers.get(key);
+        if (breaker == null) {
+            CircuitBreaker created = new CircuitBreaker(url.toExternalForm(), failureThreshold, errorRate, windowSize, openMillis,
+                halfOpenTrials);
+            breaker = breakers.putIfAbsent(key, created);
+            if (breaker == null) {
+                breaker = created;
+            }
+        }
+        return breaker;
+    }
+
+    /**
+     * Returns a breaker for a URL, or null if no request has been sent to
+     * it through a circuit breaker. If the URL is used with several
+     * settings, this is one of its breakers; see {@link #getInstances(URL)}.
+     *
+     * @param url    Registry URL
+     * @return CircuitBreaker
+     */
+    public static CircuitBreaker getInstance(URL url) {
+        CircuitBreaker[] found = getInstances(url);
+        return found.length > 0 ? found[0] : null;
+    }
+
+    /**
+     * Returns the breakers for a URL, one for each settings it is used with.
+     *
+     * @param url    Registry URL
+     * @return CircuitBreaker[]
+     */
+    public static CircuitBreaker[] getInstances(URL url) {
+        String key = url.toExternalForm();
+        Vector found = new Vector();
+        for (Iterator i = breakers.values().iterator(); i.hasNext();) {
+            CircuitBreaker breaker = (CircuitBreaker) i.next();
+            if (breaker.url.equals(key)) {
+                found.addElement(breaker);
+            }
+        }
+        CircuitBreaker[] result = new CircuitBreaker[found.size()];
+        found.copyInto(result);
+        return result;
+    }
+
+    /**
+     * Returns all breakers in the JVM.
+     *
+     * @return CircuitBreaker[]
+     */
+    public static CircuitBreaker[] getInstances() {
+        Collection values = breakers.values();
+        return (CircuitBreaker[]) values.toArray(new CircuitBreaker[values.size()]);
+    }
+
+    public String getURL() {
+        return url;
+    }
+
+    /**
+     * Returns the state: {@link #CLOSED}, {@link #OPEN} or {@link #HALF_OPEN}.
+     *
+     * @return String
+     */
+    public synchronized String getState() {
+        if (state == OPEN && System.nanoTime() - openUntil >= 0) {
+            return HALF_OPEN;
+        }
+        return state;
+    }
+
+    /**
+     * Number of requests failed at once because the breaker was open.
+     */
+    public synchronized long getRejectedCount() {
+        return rejected;
+    }
+
+    /**
+     * Number of times the breaker opened.
+     */
+    public synchronized long getTripCount() {
+        return trips;
+    }
+
+    /**
+     * Closes the breaker and forgets the recorded requests.
+     */
+    public synchronized void reset() {
+        state = CLOSED;
+        clearWindow();
+        trialsRunning = 0;
+    }
+
+    /**
+     * Asks to send a request.
+     *
+     * @return true if the request is a half-open trial, false if it is an ordinary request.
+     * @exception TransportException
+     *                   Thrown if the breaker is open
+     */
+    synchronized boolean acquire() throws TransportException {
+        if (state == CLOSED) {
+            return false;
+        }
+        if (state == OPEN && System.nanoTime() - openUntil >= 0) {
+            state = HALF_OPEN;
+            trialsRunning = 0;
+            trialsSucceeded = 0;
+        }
+        if (state == HALF_OPEN && trialsRunning + trialsSucceeded < halfOpenTrials) {
+            trialsRunning++;
+            return true;
+        }
+        rejected++;
+        throw new TransportException("Circuit breaker open for " + url);
+    }
+
+    /**
+     * Records a request that reached the registry.
+     *
+     * @param trial  Value returned by acquire
+     */
+    synchronized void succeeded(boolean trial) {
+        if (trial) {
+            trialsRunning--;
+            if (state == HALF_OPEN && ++trialsSucceeded >= halfOpenTrials) {
+                state = CLOSED;
+                clearWindow();
+            }
+        } else if (state == CLOSED) {
+            record(false);
+        }
+    }
+
+    /**
+     * Records a request that failed with a TransportException.
+     *
+     * @param trial  Value returned by acquire
+     */
+    synchronized void failed(boolean trial) {
+        if (trial) {
+            trialsRunning--;
+            if (state == HALF_OPEN) {
+                open();
+            }
+        } else if (state == CLOSED) {
+            record(true);
+            if ((failureThreshold > 0 && consecutiveFailures >= failureThreshold)
+                    || (errorRate > 0 && count == window.length && failuresInWindow * 100 >= errorRate * count)) {
+                open();
+            }
+        }
+    }
+
+    /**
+     * Records a request whose outcome says nothing about the registry, for
+     * example one that was cancelled.
+     *
+     * @param trial  Value returned by acquire
+     */
+    synchronized void ignored(boolean trial) {
+        if (trial) {
+            trialsRunning--;
+        }
+    }
+
+    private void record(boolean failure) {
+        if (count == window.length) {
+            if (window[next]) {
+                failuresInWindow--;
+            }
+        } else {
+            count++;
+        }
+        window[next] = failure;
+        next = (next + 1) % window.length;
+        if (failure) {
+            failuresInWindow++;
+            consecutiveFailures++;
+        } else {
+            consecutiveFailures = 0;
+        }
+    }
+
+    private void open() {
+        state = OPEN;
+        openUntil = System.nanoTime() + openNanos;
+        trips++;
+    }
+
+    private void clearWindow() {
+        next = 0;
+        count = 0;
+        failuresInWindow = 0;
+        consecutiveFailures = 0;
+    }
+
+    public String toString() {
+        return url + " " + getState();
+    }
+}
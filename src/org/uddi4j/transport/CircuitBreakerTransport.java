@@ -0,0 +1,289 @@
+/*
+ * The source code contained herein is licensed under the IBM Public License
+ * Version 1.0, which has been approved by the Open Source Initiative.
+ * Copyright (C) 2001, International Business Machines Corporation
+ * All Rights Reserved.
+ *
+ */
+
+package org.uddi4j.transport;
+
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.nio.channels.ClosedByInterruptException;
+import java.util.Properties;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.uddi4j.UDDIElement;
+import org.uddi4j.UDDIException;
+import org.uddi4j.client.UDDIProxy;
+import org.w3c.dom.Element;
+
+/**
+ * Wraps a Transport with a {@link CircuitBreaker} per destination URL, so
+ * that requests to a registry node that keeps failing fail at once instead
+ * of tying up a thread until the socket times out.
+ * <p>
+ * TransportFactory wraps the configured transport in a CircuitBreakerTransport
+ * when org.uddi4j.circuitBreaker.enabled is true. The wrapper implements
+ * StreamingTransport and AsyncTransport exactly when the wrapped transport
+ * does. Only TransportExceptions count as failures; a SOAP fault is an
+ * answer from a working registry. A request that was interrupted or
+ * cancelled, for example because a hedged request was answered first,
+ * counts as neither.
+ * <p>
+ * The following properties are used in addition to the standard UDDI4J
+ * properties:
+ * <UL>
+ * <LI>org.uddi4j.circuitBreaker.failureThreshold = consecutive failures that
+ * open the breaker, 0 to not use this rule. Defaults to 5.</LI>
+ * <LI>org.uddi4j.circuitBreaker.errorRate = percentage of failures among the
+ * last windowSize requests that opens the breaker, 0 to not use this rule.
+ * Defaults to 50.</LI>
+ * <LI>org.uddi4j.circuitBreaker.windowSize = number of requests the error rate
+ * is taken over. Defaults to 20.</LI>
+ * <LI>org.uddi4j.circuitBreaker.openMillis = time the breaker stays open before
+ * trial requests are let through. Defaults to 30000.</LI>
+ * <LI>org.uddi4j.circuitBreaker.halfOpenTrials = number of trial requests that
+ * must succeed to close the breaker. Defaults to 1.</LI>
+ * </UL>
+ */
+public class CircuitBreakerTransport implements Transport {
+
+	// Outcomes of a request, as reported to the breaker.
+	private static final int SUCCEEDED = 0;
+	private static final int FAILED = 1;
+	private static final int IGNORED = 2;
+
+	private final Transport transport;
+	private final int failureThreshold;
+	private final int errorRate;
+	private final int windowSize;
+	private final long openMillis;
+	private final int halfOpenTrials;
+
+	/**
+	 * Construct a wrapper. Use {@link #wrap(Transport, Properties)} to get a
+	 * wrapper that also implements the optional interfaces of the transport.
+	 *
+	 * @param transport Transport that performs the sends.
+	 * @param config    Configuration with the circuit breaker settings, or null for the defaults.
+	 */
+	public CircuitBreakerTransport(Transport transport, Properties config) {
+		this.transport = transport;
+		this.failureThreshold = getInt(config, UDDIProxy.CIRCUIT_BREAKER_FAILURE_THRESHOLD_PROPERTY, CircuitBreaker.DEFAULT_FAILURE_THRESHOLD);
+		this.errorRate = getInt(config, UDDIProxy.CIRCUIT_BREAKER_ERROR_RATE_PROPERTY, CircuitBreaker.DEFAULT_ERROR_RATE);
+		this.windowSize = getInt(config, UDDIProxy.CIRCUIT_BREAKER_WINDOW_SIZE_PROPERTY, CircuitBreaker.DEFAULT_WINDOW_SIZE);
+		this.openMillis = getLong(config, UDDIProxy.CIRCUIT_BREAKER_OPEN_MILLIS_PROPERTY, CircuitBreaker.DEFAULT_OPEN_MILLIS);
+		this.halfOpenTrials = getInt(config, UDDIProxy.CIRCUIT_BREAKER_HALF_OPEN_TRIALS_PROPERTY, CircuitBreaker.DEFAULT_HALF_OPEN_TRIALS);
+	}
+
+	/**
+	 * Wraps a transport, keeping its StreamingTransport and AsyncTransport
+	 * capabilities.
+	 *
+	 * @param transport Transport that performs the sends.
+	 * @param config    Configuration with the circuit breaker settings, or null for the defaults.
+	 * @return The wrapper.
+	 */
+	public static CircuitBreakerTransport wrap(Transport transport, Properties config) {
+		boolean streaming = transport instanceof StreamingTransport;
+		boolean async = transport instanceof AsyncTransport;
+		if (streaming && async) {
+			return new StreamingAsync(transport, config);
+		} else if (streaming) {
+			return new Streaming(transport, config);
+		} else if (async) {
+			return new Async(transport, config);
+		}
+		return new CircuitBreakerTransport(transport, config);
+	}
+
+	/**
+	 * Returns the wrapped transport.
+	 *
+	 * @return Transport
+	 */
+	public Transport getTransport() {
+		return transport;
+	}
+
+	/**
+	 * Returns the breaker for a URL.
+	 *
+	 * @param url    Destination URL
+	 * @return CircuitBreaker
+	 */
+	public CircuitBreaker getBreaker(URL url) {
+		return CircuitBreaker.getInstance(url, failureThreshold, errorRate, windowSize, openMillis, halfOpenTrials);
+	}
+
+	public Element send(UDDIElement el, URL url) throws TransportException {
+		CircuitBreaker breaker = getBreaker(url);
+		boolean trial = breaker.acquire();
+		int outcome = IGNORED;
+		try {
+			Element result = transport.send(el, url);
+			outcome = SUCCEEDED;
+			return result;
+		} catch (TransportException e) {
+			outcome = isCancelled(e) ? IGNORED : FAILED;
+			throw e;
+		} finally {
+			record(breaker, trial, outcome);
+		}
+	}
+
+	public Element send(Element el, URL url) throws TransportException {
+		CircuitBreaker breaker = getBreaker(url);
+		boolean trial = breaker.acquire();
+		int outcome = IGNORED;
+		try {
+			Element result = transport.send(el, url);
+			outcome = SUCCEEDED;
+			return result;
+		} catch (TransportException e) {
+			outcome = isCancelled(e) ? IGNORED : FAILED;
+			throw e;
+		} finally {
+			record(breaker, trial, outcome);
+		}
+	}
+
+	/**
+	 * Implements StreamingTransport for the subclasses that declare it.
+	 */
+	public Object send(UDDIElement el, URL url, StreamingTransport.ResponseReader reader) throws TransportException, UDDIException {
+		CircuitBreaker breaker = getBreaker(url);
+		boolean trial = breaker.acquire();
+		int outcome = IGNORED;
+		try {
+			Object result = ((StreamingTransport) transport).send(el, url, reader);
+			outcome = SUCCEEDED;
+			return result;
+		} catch (UDDIException e) {
+			outcome = SUCCEEDED;
+			throw e;
+		} catch (TransportException e) {
+			outcome = isCancelled(e) ? IGNORED : FAILED;
+			throw e;
+		} finally {
+			record(breaker, trial, outcome);
+		}
+	}
+
+	/**
+	 * Implements AsyncTransport for the subclasses that declare it.
+	 */
+	public CompletableFuture<Element> sendAsync(UDDIElement el, URL url) {
+		CircuitBreaker breaker = getBreaker(url);
+		boolean trial;
+		try {
+			trial = breaker.acquire();
+		} catch (TransportException e) {
+			return failedFuture(e);
+		}
+		return record(((AsyncTransport) transport).sendAsync(el, url), breaker, trial);
+	}
+
+	/**
+	 * Implements AsyncTransport for the subclasses that declare it.
+	 */
+	public CompletableFuture<Element> sendAsync(Element el, URL url) {
+		CircuitBreaker breaker = getBreaker(url);
+		boolean trial;
+		try {
+			trial = breaker.acquire();
+		} catch (TransportException e) {
+			return failedFuture(e);
+		}
+		return record(((AsyncTransport) transport).sendAsync(el, url), breaker, trial);
+	}
+
+	private static CompletableFuture<Element> record(CompletableFuture<Element> future, final CircuitBreaker breaker, final boolean trial) {
+		future.whenComplete((result, failure) -> {
+			Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+			if (cause == null) {
+				breaker.succeeded(trial);
+			} else if (cause instanceof TransportException && !isCancelled(cause)) {
+				breaker.failed(trial);
+			} else {
+				breaker.ignored(trial);
+			}
+		});
+		return future;
+	}
+
+	/**
+	 * Reports the outcome of a request to the breaker. Called from a finally
+	 * block, so that a trial slot is given back whatever was thrown.
+	 */
+	private static void record(CircuitBreaker breaker, boolean trial, int outcome) {
+		if (outcome == SUCCEEDED) {
+			breaker.succeeded(trial);
+		} else if (outcome == FAILED) {
+			breaker.failed(trial);
+		} else {
+			breaker.ignored(trial);
+		}
+	}
+
+	/**
+	 * Tells whether a request failed because it was interrupted or
+	 * cancelled rather than because of the registry node.
+	 */
+	private static boolean isCancelled(Throwable t) {
+		if (Thread.currentThread().isInterrupted()) {
+			return true;
+		}
+		for (int depth = 0; t != null && depth < 10; depth++) {
+			if (t instanceof InterruptedException || t instanceof ClosedByInterruptException || t instanceof CancellationException
+				|| (t instanceof InterruptedIOException && !(t instanceof SocketTimeoutException))) {
+				return true;
+			}
+			Throwable next = t instanceof TransportException ? ((TransportException) t).getException() : t.getCause();
+			t = next == t ? null : next;
+		}
+		return false;
+	}
+
+	private static CompletableFuture<Element> failedFuture(TransportException e) {
+		CompletableFuture<Element> future = new CompletableFuture<Element>();
+		future.completeExceptionally(e);
+		return future;
+	}
+
+	private static int getInt(Properties config, String name, int defaultValue) {
+		return (int) getLong(config, name, defaultValue);
+	}
+
+	private static long getLong(Properties config, String name, long defaultValue) {
+		try {
+			return Long.parseLong(config.getProperty(name).trim());
+		} catch (Exception e) {
+			//prop is null, empty or not a number.
+			return defaultValue;
+		}
+	}
+
+	static class Streaming extends CircuitBreakerTransport implements StreamingTransport {
+		Streaming(Transport transport, Properties config) {
+			super(transport, config);
+		}
+	}
+
+	static class Async extends CircuitBreakerTransport implements AsyncTransport {
+		Async(Transport transport, Properties config) {
+			super(transport, config);
+		}
+	}
+
+	static class StreamingAsync extends CircuitBreakerTransport implements StreamingTransport, AsyncTransport {
+		StreamingAsync(Transport transport, Properties config) {
+			super(transport, config);
+		}
+	}
+}
@@ -0,0 +1,149 @@
+/*
+ * The source code contained herein is licensed under the IBM Public License
+ * Version 1.0, which has been approved by the Open Source Initiative.
+ * Copyright (C) 2001, International Business Machines Corporation
+ * All Rights Reserved.
+ *
+ */
+
+package org.uddi4j.transport;
+
+/**
+ * Point in time by which a UDDI call must have completed.
+ * <p>
+ * UDDIProxy installs the deadline of a call as the current deadline of the
+ * thread sending it, so that transports can limit their connect and read
+ * timeouts to the time that is left. Code that calls a transport directly
+ * can do the same:
+ * <PRE>
+ *   Deadline previous = Deadline.setCurrent(Deadline.after(2000));
+ *   try {
+ *       transport.send(el, url);
+ *   } finally {
+ *       Deadline.setCurrent(previous);
+ *   }
+ * </PRE>
+ */
+public final class Deadline {
+
+    private static final ThreadLocal<Deadline> current = new ThreadLocal<Deadline>();
+
+    private final long nanos;
+
+    private Deadline(long nanos) {
+        this.nanos = nanos;
+    }
+
+    /**
+     * Returns the deadline the given time from now.
+     *
+     * @param millis Milliseconds from now.
+     * @return Deadline
+     */
+    public static Deadline after(long millis) {
+        return new Deadline(System.nanoTime() + Math.max(0, millis) * 1000000L);
+    }
+
+    /**
+     * Returns the deadline of the call the current thread is sending, or null.
+     *
+     * @return Deadline
+     */
+    public static Deadline current() {
+        return current.get();
+    }
+
+    /**
+     * Sets the deadline of the call the current thread is sending.
+     *
+     * @param deadline Deadline, or null for none.
+     * @return The previous deadline, to be restored when the call is done.
+     */
+    public static Deadline setCurrent(Deadline deadline) {
+        Deadline previous = current.get();
+        if (deadline == null) {
+            current.remove();
+        } else {
+            current.set(deadline);
+        }
+        return previous;
+    }
+
+    /**
+     * Returns the earlier of two deadlines, either of which may be null.
+     *
+     * @return Deadline
+     */
+    public static Deadline earliest(Deadline a, Deadline b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        return a.nanos - b.nanos <= 0 ? a : b;
+    }
+
+    /**
+     * Returns the timeout to use for an I/O operation: the configured timeout
+     * limited to the time left before the current deadline.
+     *
+     * @param timeoutMillis Configured timeout, 0 for none.
+     * @return Timeout in milliseconds, at least 1, or 0 for none.
+     * @exception TransportException
+     *                   Thrown if the current deadline has passed
+     */
+    public static int timeoutMillis(int timeoutMillis) throws TransportException {
+        Deadline deadline = current();
+        if (deadline == null) {
+            return Math.max(0, timeoutMillis);
+        }
+        long remaining = deadline.check();
+        if (timeoutMillis > 0 && timeoutMillis < remaining) {
+            return timeoutMillis;
+        }
+        return (int) Math.max(1, Math.min(Integer.MAX_VALUE, remaining));
+    }
+
+    /**
+     * Returns the time left in milliseconds, rounded up.
+     *
+     * @return Milliseconds left; 0 or less if the deadline has passed.
+     */
+    public long remainingMillis() {
+        long remaining = nanos - System.nanoTime();
+        return remaining <= 0 ? 0 : (remaining + 999999L) / 1000000L;
+    }
+
+    /**
+     * Returns the time left in nanoseconds.
+     *
+     * @return Nanoseconds left; 0 or less if the deadline has passed.
+     */
+    public long remainingNanos() {
+        return nanos - System.nanoTime();
+    }
+
+    public boolean isExpired() {
+        return nanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * Returns the time left in milliseconds, or throws an exception if the
+     * deadline has passed.
+     *
+     * @return Milliseconds left, at least 1.
+     * @exception TransportException
+     *                   Thrown if the deadline has passed
+     */
+    public long check() throws TransportException {
+        if (isExpired()) {
+            throw new TransportException("Deadline expired");
+        }
+        return Math.max(1, remainingMillis());
+    }
+
+    public String toString() {
+        return "Deadline in " + remainingMillis() + " ms";
+    }
+}
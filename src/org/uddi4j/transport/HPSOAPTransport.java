@@ -8,6 +8,7 @@
 
 package org.uddi4j.transport;
 
+import org.uddi4j.DocumentBuilderPool;
 import org.uddi4j.UDDIElement;
 import java.net.URL;
 import java.net.MalformedURLException;
@@ -18,8 +19,6 @@ import java.io.File;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
@@ -133,10 +132,9 @@ public class HPSOAPTransport implements Transport {
         Element base = null;
 
         try {
-            DocumentBuilder docBuilder =
-                DocumentBuilderFactory.newInstance().newDocumentBuilder();
+            Document doc = DocumentBuilderPool.getInstance().newDocument();
 
-            base = docBuilder.newDocument().createElement("SOAP:Body");
+            base = doc.createElement("SOAP:Body");
         } catch (Exception e) {
             e.printStackTrace();
             print.println("FATAL error : bailing out");
@@ -164,6 +162,12 @@ public class HPSOAPTransport implements Transport {
         ClientMessage response = null;
         String trace = System.getProperty("org.uddi4j.logEnabled");
 
+        // HP SOAP has no timeouts; at least do not start once the deadline has passed.
+        Deadline deadline = Deadline.current();
+        if (deadline != null) {
+            deadline.check();
+        }
+
         try {
             if (useProxy) {
                 if (url.getProtocol().equalsIgnoreCase("HTTP")) {
@@ -0,0 +1,155 @@
+/*
+ * The source code contained herein is licensed under the IBM Public License
+ * Version 1.0, which has been approved by the Open Source Initiative.
+ * Copyright (C) 2001, International Business Machines Corporation
+ * All Rights Reserved.
+ *
+ */
+
+package org.uddi4j.transport;
+
+import java.io.ByteArrayInputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+
+import org.uddi4j.UDDIElement;
+import org.uddi4j.UDDIException;
+import org.uddi4j.client.UDDIProxy;
+import org.uddi4j.registry.InMemoryRegistry;
+import org.w3c.dom.Element;
+
+/**
+ * Transport that answers requests from an {@link InMemoryRegistry} in the
+ * same JVM instead of sending them over the network.
+ * <p>
+ * Requests and responses still go through the same XML as with a network
+ * transport: the request is converted to a DOM tree and parsed into a
+ * request object, and the response is serialized into a SOAP envelope and
+ * read back by the caller. Client code therefore sees exactly what it would
+ * see from a remote registry, including SOAP faults, and never shares
+ * objects with the registry. The inquiry and publish URLs are not used.
+ * <p>
+ * This makes the transport suitable both as an embedded registry and as
+ * a fast, deterministic stand-in for benchmarks of the client stack.
+ * <p>
+ * The following properties are used in addition to the standard UDDI4J
+ * properties:
+ * <UL>
+ * <LI>org.uddi4j.inMemory.registryName = name of the registry to use. All
+ * transports using the same name share one registry. Defaults to
+ * uddi4j-inmemory.</LI>
+ * <LI>org.uddi4j.inMemory.latencyMillis = time each request is delayed by,
+ * to simulate a network round trip. Defaults to 0.</LI>
+ * </UL>
+ */
+public class InMemoryRegistryTransport extends TransportBase implements StreamingTransport {
+
+    private InMemoryRegistry registry = null;
+    private long latencyMillis = 0;
+
+    /**
+     * Sends a DOM Element to the registry.
+     *
+     * @param el     Element to send
+     * @param url    Not used
+     * @return An element representing a XML DOM tree containing the UDDI response.
+     * @exception TransportException
+     *                   Thrown if the request cannot be processed
+     */
+    public Element send(Element el, URL url) throws TransportException {
+        return JDKHttpTransport.getBodyContent(process(el));
+    }
+
+    /**
+     * Sends a UDDIElement to the registry and passes the response to a reader.
+     *
+     * @param el     UDDIElement to send
+     * @param url    Not used
+     * @param reader Reader for the SOAP envelope of the response
+     * @return The object returned by the reader.
+     * @exception TransportException
+     *                   Thrown if the request cannot be processed
+     * @exception UDDIException
+     *                   Thrown by the reader if the response contains a SOAP fault
+     */
+    public Object send(UDDIElement el, URL url, ResponseReader reader) throws TransportException, UDDIException {
+        return reader.read(new ByteArrayInputStream(process(toElement(el))));
+    }
+
+    /**
+     * Returns the registry requests are sent to.
+     *
+     * @return InMemoryRegistry
+     */
+    public synchronized InMemoryRegistry getRegistry() {
+        if (registry == null) {
+            Properties config = getConfiguration();
+            String name = null;
+            if (config != null) {
+                name = config.getProperty(UDDIProxy.INMEMORY_REGISTRY_NAME_PROPERTY);
+                String latency = config.getProperty(UDDIProxy.INMEMORY_LATENCY_PROPERTY);
+                if (latency != null) {
+                    try {
+                        latencyMillis = Math.max(0, Long.parseLong(latency.trim()));
+                    } catch (NumberFormatException e) {
+                        // Keep the default.
+                    }
+                }
+            }
+            registry = InMemoryRegistry.getRegistry(name != null ? name : InMemoryRegistry.DEFAULT_NAME);
+        }
+        return registry;
+    }
+
+    public boolean logEnabled() {
+        return getConfiguration() != null && super.logEnabled();
+    }
+
+    /**
+     * Processes a request and returns the serialized SOAP envelope of the
+     * response or fault.
+     */
+    byte[] process(Element request) throws TransportException {
+        InMemoryRegistry registry = getRegistry();
+        boolean debug = logEnabled();
+        if (debug) {
+            System.err.println("\nRequest message:\n" + JDKHttpTransport.elementToString(request));
+        }
+        long delay = latencyMillis;
+        Deadline deadline = Deadline.current();
+        if (deadline != null) {
+            delay = Math.min(delay, deadline.check());
+        }
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new TransportException(e);
+            }
+            if (delay < latencyMillis) {
+                throw new TransportException("Deadline expired");
+            }
+        }
+
+        byte[] response;
+        try {
+            response = JDKHttpTransport.toEnvelope(registry.invoke(registry.parseRequest(request)));
+        } catch (UDDIException e) {
+            Element fault = e.getDetailElement() != null ? (Element) e.getDetailElement().getParentNode() : null;
+            if (fault == null) {
+                fault = (Element) registry.fault(InMemoryRegistry.E_FATAL_ERROR, "E_fatalError", String.valueOf(e.getFaultString()))
+                        .getDetailElement().getParentNode();
+            }
+            response = JDKHttpTransport.toEnvelope(fault);
+        } catch (RuntimeException e) {
+            throw new TransportException(e);
+        }
+
+        if (debug) {
+            System.err.println("\nResponse message:\n" + new String(response, StandardCharsets.UTF_8));
+        }
+        return response;
+    }
+}
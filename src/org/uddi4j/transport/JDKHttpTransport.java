@@ -0,0 +1,697 @@
+/*
+ * The source code contained herein is licensed under the IBM Public License
+ * Version 1.0, which has been approved by the Open Source Initiative.
+ * Copyright (C) 2001, International Business Machines Corporation
+ * All Rights Reserved.
+ *
+ */
+
+package org.uddi4j.transport;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.net.Authenticator;
+import java.net.InetSocketAddress;
+import java.net.PasswordAuthentication;
+import java.net.ProxySelector;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Properties;
+import java.util.LinkedList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.uddi4j.DocumentBuilderPool;
+import org.uddi4j.UDDIElement;
+import org.uddi4j.UDDIException;
+import org.uddi4j.client.UDDIProxy;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * Transport implementation based on the HTTP client built into the JDK
+ * (java.net.http, JDK 11 or later). No third party SOAP stack is required.
+ * <p>
+ * A single HttpClient is created per transport instance and reused for every
+ * request, so connections to the inquiry and publish URLs are kept alive and
+ * reused instead of being set up again for each message. The number of
+ * concurrent requests to any one URL is bounded, which in turn bounds the
+ * number of connections the client opens to that URL.
+ * <p>
+ * This transport also implements {@link AsyncTransport}. Asynchronous sends
+ * do not hold a thread while waiting for a connection or for the response.
+ * <p>
+ * It also implements {@link StreamingTransport}, so that responses can be
+ * read straight from the connection without building a DOM tree.
+ * <p>
+ * The following properties are used in addition to the standard UDDI4J
+ * properties (http.basicAuthUserName, http.basicAuthPassword, http.proxyHost,
+ * http.proxyPort, http.proxyUserName, http.proxyPassword):
+ * <UL>
+ * <LI>org.uddi4j.http.maxConnectionsPerURL = maximum number of concurrent
+ * requests (and hence connections) per destination URL. Defaults to 20.</LI>
+ * <LI>org.uddi4j.http.version = HTTP_1_1 or HTTP_2. Defaults to HTTP_1_1.</LI>
+ * <LI>org.uddi4j.http.connectTimeoutMillis = time allowed to open a connection.
+ * Not set by default.</LI>
+ * <LI>org.uddi4j.http.readTimeoutMillis = time allowed until the response
+ * arrives. Not set by default.</LI>
+ * </UL>
+ * The whole exchange, from waiting for a connection to reading the last
+ * byte of the response, is also limited by the current {@link Deadline};
+ * the exchange is aborted when it passes. The read timeout only bounds the
+ * wait for the response headers.
+ */
+public class JDKHttpTransport extends TransportBase implements AsyncTransport, StreamingTransport {
+
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_URL = 20;
+
+    static final String SOAP_ENVELOPE_START =
+        "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+            + "<SOAP-ENV:Envelope xmlns:SOAP-ENV=\"" + UDDIElement.SOAPNS + "\">"
+            + "<SOAP-ENV:Body>";
+    static final String SOAP_ENVELOPE_END = "</SOAP-ENV:Body></SOAP-ENV:Envelope>";
+
+    private static final XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+    private static final TransformerFactory transformerFactory = TransformerFactory.newInstance();
+
+    private static ScheduledExecutorService watchdog = null;
+
+    private HttpClient client = null;
+    private String authorization = null;
+    private int maxConnectionsPerURL = DEFAULT_MAX_CONNECTIONS_PER_URL;
+    private int readTimeoutMillis = 0;
+    private final ConcurrentHashMap<String, ConnectionLimiter> limiters = new ConcurrentHashMap<String, ConnectionLimiter>();
+
+    /**
+     * Sends a DOM Element to URL.
+     *
+     * @param el     Element to send
+     * @param url    Destination URL
+     * @return An element representing a XML DOM tree containing the UDDI response.
+     * @exception TransportException
+     *                   Thrown if a problem occurs during transmission
+     */
+    public Element send(Element el, URL url) throws TransportException {
+        return post(toEnvelope(el), url);
+    }
+
+    /**
+     * Sends a UDDIElement to URL. The message is written straight to the
+     * request body, without building a DOM tree.
+     *
+     * @param el     UDDIElement to send
+     * @param url    Destination URL
+     * @return An element representing a XML DOM tree containing the UDDI response.
+     * @exception TransportException
+     *                   Thrown if a problem occurs during transmission
+     */
+    public Element send(UDDIElement el, URL url) throws TransportException {
+        return post(toEnvelope(el), url);
+    }
+
+    /**
+     * Posts a serialized SOAP envelope and returns the content of the response body.
+     */
+    Element post(byte[] request, URL url) throws TransportException {
+        boolean debug = logEnabled();
+        if (debug) {
+            System.err.println("\nRequest message:\n" + new String(request, StandardCharsets.UTF_8));
+        }
+
+        byte[] response = null;
+        ConnectionLimiter limiter = getLimiter(url);
+        Deadline deadline = Deadline.current();
+        try {
+            limiter.acquire(deadline);
+            try {
+                HttpResponse<byte[]> httpResponse = await(getClient().sendAsync(
+                    newRequest(url, request),
+                    HttpResponse.BodyHandlers.ofByteArray()), deadline);
+                response = checkStatus(httpResponse, url);
+            } finally {
+                limiter.release();
+            }
+        } catch (TransportException e) {
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TransportException(e);
+        } catch (Exception e) {
+            throw new TransportException(e);
+        }
+
+        if (debug) {
+            System.err.println("\nResponse message:\n" + new String(response, StandardCharsets.UTF_8));
+        }
+        return getBodyContent(response);
+    }
+
+    /**
+     * Sends a UDDIElement to URL and passes the response stream to a reader.
+     * The connection permit is held until the reader returns.
+     *
+     * @param el     UDDIElement to send
+     * @param url    Destination URL
+     * @param reader Reader for the SOAP envelope of the response
+     * @return The object returned by the reader.
+     * @exception TransportException
+     *                   Thrown if a problem occurs during transmission
+     * @exception UDDIException
+     *                   Thrown by the reader if the response contains a SOAP fault
+     */
+    public Object send(UDDIElement el, URL url, ResponseReader reader) throws TransportException, UDDIException {
+        boolean debug = logEnabled();
+        byte[] request = toEnvelope(el);
+        if (debug) {
+            System.err.println("\nRequest message:\n" + new String(request, StandardCharsets.UTF_8));
+        }
+
+        ConnectionLimiter limiter = getLimiter(url);
+        Deadline deadline = Deadline.current();
+        InputStream response = null;
+        ScheduledFuture<?> abort = null;
+        try {
+            limiter.acquire(deadline);
+            try {
+                HttpResponse<InputStream> httpResponse = getClient().send(
+                    newRequest(url, request),
+                    HttpResponse.BodyHandlers.ofInputStream());
+                response = httpResponse.body();
+                // The request timeout ends with the headers; closing the
+                // stream at the deadline also bounds reading the body.
+                abort = closeAt(deadline, response);
+                checkStatus(httpResponse, url);
+                if (debug) {
+                    // The whole response is needed for the log, so read it up front.
+                    byte[] bytes = response.readAllBytes();
+                    System.err.println("\nResponse message:\n" + new String(bytes, StandardCharsets.UTF_8));
+                    response.close();
+                    response = new ByteArrayInputStream(bytes);
+                }
+                return reader.read(response);
+            } finally {
+                if (abort != null) {
+                    abort.cancel(false);
+                }
+                if (response != null) {
+                    try {
+                        response.close();
+                    } catch (IOException e) {
+                        // Connection is discarded by the client.
+                    }
+                }
+                limiter.release();
+            }
+        } catch (UDDIException e) {
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TransportException(e);
+        } catch (Exception e) {
+            if (abort != null && deadline.isExpired()) {
+                // The stream was closed under the reader.
+                throw new TransportException("Deadline expired");
+            }
+            throw e instanceof TransportException ? (TransportException) e : new TransportException(e);
+        }
+    }
+
+    /**
+     * Sends a UDDIElement to URL without blocking.
+     *
+     * @param el     UDDIElement to send
+     * @param url    Destination URL
+     * @return A future for the element representing a XML DOM tree containing the UDDI response.
+     */
+    public CompletableFuture<Element> sendAsync(UDDIElement el, URL url) {
+        try {
+            return postAsync(toEnvelope(el), url);
+        } catch (TransportException e) {
+            CompletableFuture<Element> future = new CompletableFuture<Element>();
+            future.completeExceptionally(e);
+            return future;
+        }
+    }
+
+    /**
+     * Sends a DOM Element to URL without blocking.
+     *
+     * @param el     Element to send
+     * @param url    Destination URL
+     * @return A future for the element representing a XML DOM tree containing the UDDI response.
+     */
+    public CompletableFuture<Element> sendAsync(Element el, URL url) {
+        try {
+            return postAsync(toEnvelope(el), url);
+        } catch (TransportException e) {
+            CompletableFuture<Element> future = new CompletableFuture<Element>();
+            future.completeExceptionally(e);
+            return future;
+        }
+    }
+
+    /**
+     * Posts a serialized SOAP envelope without blocking.
+     */
+    CompletableFuture<Element> postAsync(byte[] envelope, final URL url) {
+        final boolean debug = logEnabled();
+        final ConnectionLimiter limiter = getLimiter(url);
+        final Deadline deadline = Deadline.current();
+        final HttpRequest request;
+        try {
+            if (debug) {
+                System.err.println("\nRequest message:\n" + new String(envelope, StandardCharsets.UTF_8));
+            }
+            request = newRequest(url, envelope);
+        } catch (Exception e) {
+            CompletableFuture<Element> future = new CompletableFuture<Element>();
+            future.completeExceptionally(e instanceof TransportException ? e : new TransportException(e));
+            return future;
+        }
+
+        return limiter.acquireAsync(deadline)
+            .thenCompose(v -> {
+                CompletableFuture<HttpResponse<byte[]>> exchange =
+                    getClient().sendAsync(request, HttpResponse.BodyHandlers.ofByteArray());
+                ScheduledFuture<?> abort = deadline == null ? null
+                    : getWatchdog().schedule(() -> exchange.cancel(true),
+                        Math.max(0, deadline.remainingNanos()), TimeUnit.NANOSECONDS);
+                return exchange.whenComplete((r, t) -> {
+                    if (abort != null) {
+                        abort.cancel(false);
+                    }
+                    limiter.release();
+                });
+            })
+            .handle((httpResponse, t) -> {
+                try {
+                    if (t != null) {
+                        Throwable cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+                        if (cause instanceof TransportException) {
+                            throw (TransportException) cause;
+                        }
+                        if (deadline != null && deadline.isExpired()) {
+                            // The exchange was cancelled by the watchdog.
+                            throw new TransportException("Deadline expired");
+                        }
+                        throw cause instanceof Exception
+                            ? new TransportException((Exception) cause)
+                            : new TransportException(cause.toString());
+                    }
+                    byte[] response = checkStatus(httpResponse, url);
+                    if (debug) {
+                        System.err.println("\nResponse message:\n" + new String(response, StandardCharsets.UTF_8));
+                    }
+                    return getBodyContent(response);
+                } catch (TransportException e) {
+                    throw new CompletionException(e);
+                }
+            });
+    }
+
+    /**
+     * Waits for an exchange, cancelling it if the deadline passes first.
+     * Unlike the request timeout, this also bounds reading the body.
+     *
+     * @param deadline Deadline, or null to wait as long as it takes.
+     */
+    static <T> HttpResponse<T> await(CompletableFuture<HttpResponse<T>> exchange, Deadline deadline) throws Exception {
+        try {
+            if (deadline == null) {
+                return exchange.get();
+            }
+            return exchange.get(Math.max(0, deadline.remainingNanos()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            exchange.cancel(true);
+            throw new TransportException("Deadline expired");
+        } catch (InterruptedException e) {
+            exchange.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    /**
+     * Closes a response stream when the deadline passes, which ends any
+     * read blocked on it.
+     *
+     * @param deadline Deadline, or null for none.
+     * @return The scheduled close, to be cancelled once the response is read,
+     *         or null if there is no deadline.
+     */
+    static ScheduledFuture<?> closeAt(Deadline deadline, final InputStream response) {
+        if (deadline == null) {
+            return null;
+        }
+        return getWatchdog().schedule(() -> {
+            try {
+                response.close();
+            } catch (IOException e) {
+                // Connection is discarded by the client.
+            }
+        }, Math.max(0, deadline.remainingNanos()), TimeUnit.NANOSECONDS);
+    }
+
+    private static synchronized ScheduledExecutorService getWatchdog() {
+        if (watchdog == null) {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+                Thread thread = new Thread(r, "UDDI4J deadline watchdog");
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.setRemoveOnCancelPolicy(true);
+            watchdog = executor;
+        }
+        return watchdog;
+    }
+
+    /**
+     * Returns the response body, or throws an exception if the HTTP status
+     * indicates a transport problem. HTTP 500 carries a SOAP fault and is
+     * passed back to the caller like a normal response.
+     */
+    static <T> T checkStatus(HttpResponse<T> httpResponse, URL url) throws TransportException {
+        if (httpResponse.statusCode() != 200 && httpResponse.statusCode() != 500) {
+            throw new TransportException("HTTP status " + httpResponse.statusCode()
+                + " returned from " + url);
+        }
+        return httpResponse.body();
+    }
+
+    /**
+     * Builds the HTTP POST request for a serialized SOAP envelope.
+     */
+    HttpRequest newRequest(URL url, byte[] envelope) throws Exception {
+        // Reads the configuration under the client lock, so that it is set
+        // up and visible to the calling thread.
+        String authorization;
+        int readTimeoutMillis;
+        synchronized (this) {
+            getClient();
+            authorization = this.authorization;
+            readTimeoutMillis = this.readTimeoutMillis;
+        }
+        HttpRequest.Builder builder = HttpRequest.newBuilder(url.toURI())
+            .header("Content-Type", "text/xml; charset=utf-8")
+            .header("SOAPAction", "\"\"")
+            .POST(HttpRequest.BodyPublishers.ofByteArray(envelope));
+        // Aborts the exchange if the registry has not answered in time.
+        int timeout = Deadline.timeoutMillis(readTimeoutMillis);
+        if (timeout > 0) {
+            builder.timeout(Duration.ofMillis(timeout));
+        }
+        if (authorization != null) {
+            builder.header("Authorization", authorization);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Returns the client, creating it from the configuration on first use.
+     */
+    synchronized HttpClient getClient() {
+        if (client == null) {
+            Properties config = getConfiguration();
+            HttpClient.Builder builder = HttpClient.newBuilder()
+                .followRedirects(HttpClient.Redirect.NORMAL);
+
+            if ("HTTP_2".equalsIgnoreCase(config.getProperty(UDDIProxy.HTTP_VERSION_PROPERTY))) {
+                builder.version(HttpClient.Version.HTTP_2);
+            } else {
+                builder.version(HttpClient.Version.HTTP_1_1);
+            }
+
+            String proxyHost = config.getProperty(UDDIProxy.HTTP_PROXY_HOST_PROPERTY);
+            if (proxyHost != null && proxyHost.length() > 0) {
+                int proxyPort = 80;
+                try {
+                    proxyPort = Integer.parseInt(config.getProperty(UDDIProxy.HTTP_PROXY_PORT_PROPERTY));
+                } catch (NumberFormatException e) {
+                    //prop is null, empty or not an int - use the default port.
+                }
+                builder.proxy(ProxySelector.of(new InetSocketAddress(proxyHost, proxyPort)));
+
+                final String proxyUser = config.getProperty(UDDIProxy.HTTP_PROXY_USERNAME_PROPERTY);
+                final String proxyPassword = config.getProperty(UDDIProxy.HTTP_PROXY_PASSWORD_PROPERTY);
+                if (proxyUser != null) {
+                    builder.authenticator(new Authenticator() {
+                        protected PasswordAuthentication getPasswordAuthentication() {
+                            if (getRequestorType() != RequestorType.PROXY) {
+                                return null;
+                            }
+                            return new PasswordAuthentication(proxyUser,
+                                proxyPassword == null ? new char[0] : proxyPassword.toCharArray());
+                        }
+                    });
+                }
+            }
+
+            // Basic authentication is sent preemptively, as the other transports do.
+            String username = config.getProperty(UDDIProxy.HTTP_BASIC_AUTH_USERNAME_PROPERTY);
+            String password = config.getProperty(UDDIProxy.HTTP_BASIC_AUTH_PASSWORD_PROPERTY);
+            if (username != null) {
+                String credentials = username + ":" + (password == null ? "" : password);
+                authorization = "Basic "
+                    + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8));
+            }
+
+            try {
+                int max = Integer.parseInt(config.getProperty(UDDIProxy.HTTP_MAX_CONNECTIONS_PROPERTY));
+                if (max > 0) {
+                    maxConnectionsPerURL = max;
+                }
+            } catch (NumberFormatException e) {
+                //prop is null, empty or not an int - keep the default.
+            }
+
+            int connectTimeout = getTimeoutProperty(UDDIProxy.HTTP_CONNECT_TIMEOUT_PROPERTY);
+            if (connectTimeout > 0) {
+                builder.connectTimeout(Duration.ofMillis(connectTimeout));
+            }
+            readTimeoutMillis = getTimeoutProperty(UDDIProxy.HTTP_READ_TIMEOUT_PROPERTY);
+
+            client = builder.build();
+        }
+        return client;
+    }
+
+    /**
+     * Returns the limiter bounding concurrent requests to the given URL.
+     */
+    ConnectionLimiter getLimiter(URL url) {
+        getClient();
+        String key = url.toString();
+        ConnectionLimiter limiter = limiters.get(key);
+        if (limiter == null) {
+            limiter = new ConnectionLimiter(maxConnectionsPerURL);
+            ConnectionLimiter existing = limiters.putIfAbsent(key, limiter);
+            if (existing != null) {
+                limiter = existing;
+            }
+        }
+        return limiter;
+    }
+
+    /**
+     * Serializes a DOM element into a SOAP envelope.
+     */
+    static byte[] toEnvelope(Element el) throws TransportException {
+        return (SOAP_ENVELOPE_START + elementToString(el) + SOAP_ENVELOPE_END).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Serializes a UDDIElement into a SOAP envelope with an XMLStreamWriter,
+     * so that large publish messages do not need a DOM tree.
+     */
+    static byte[] toEnvelope(UDDIElement el) throws TransportException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+        try {
+            XMLStreamWriter writer = outputFactory.createXMLStreamWriter(out, "UTF-8");
+            writer.writeStartDocument("UTF-8", "1.0");
+            writer.writeStartElement("SOAP-ENV", "Envelope", UDDIElement.SOAPNS);
+            writer.writeNamespace("SOAP-ENV", UDDIElement.SOAPNS);
+            writer.writeStartElement("SOAP-ENV", "Body", UDDIElement.SOAPNS);
+            el.saveToXML(writer);
+            writer.writeEndDocument();
+            writer.close();
+        } catch (XMLStreamException e) {
+            throw new TransportException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Serializes an element, without an XML declaration.
+     */
+    static String elementToString(Element el) throws TransportException {
+        try {
+            Transformer transformer = transformerFactory.newTransformer();
+            transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+            StringWriter writer = new StringWriter();
+            transformer.transform(new DOMSource(el), new StreamResult(writer));
+            return writer.toString();
+        } catch (Exception e) {
+            throw new TransportException(e);
+        }
+    }
+
+    /**
+     * Parses a SOAP envelope and returns the first element within the body.
+     * This is either the UDDI response or a SOAP fault.
+     */
+    static Element getBodyContent(byte[] envelope) throws TransportException {
+        Document doc = null;
+        try {
+            doc = DocumentBuilderPool.getInstance().parse(new ByteArrayInputStream(envelope));
+        } catch (Exception e) {
+            throw new TransportException(e);
+        }
+        for (Node node = doc.getDocumentElement().getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node.getNodeType() == Node.ELEMENT_NODE && "Body".equals(node.getLocalName())) {
+                for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+                    if (child.getNodeType() == Node.ELEMENT_NODE) {
+                        return (Element) child;
+                    }
+                }
+            }
+        }
+        throw new TransportException("No SOAP body content in response");
+    }
+
+    /**
+     * Counting limiter that hands out permits in FIFO order. Unlike a
+     * Semaphore, a permit can be waited for without holding a thread.
+     */
+    static class ConnectionLimiter {
+        private int available;
+        private final LinkedList<CompletableFuture<Void>> waiters = new LinkedList<CompletableFuture<Void>>();
+
+        ConnectionLimiter(int permits) {
+            available = permits;
+        }
+
+        /**
+         * Returns a future that completes when a permit has been granted.
+         */
+        synchronized CompletableFuture<Void> acquireAsync() {
+            if (available > 0) {
+                available--;
+                return CompletableFuture.completedFuture(null);
+            }
+            CompletableFuture<Void> waiter = new CompletableFuture<Void>();
+            waiters.add(waiter);
+            return waiter;
+        }
+
+        /**
+         * Returns a future that completes when a permit has been granted, or
+         * fails with a TransportException if the deadline passes first.
+         *
+         * @param deadline Deadline, or null to wait as long as it takes.
+         */
+        CompletableFuture<Void> acquireAsync(Deadline deadline) {
+            CompletableFuture<Void> waiter = acquireAsync();
+            if (deadline == null || waiter.isDone()) {
+                return waiter;
+            }
+            // A waiter that timed out is skipped by release, so the permit is not lost.
+            return waiter.orTimeout(Math.max(0, deadline.remainingNanos()), TimeUnit.NANOSECONDS)
+                .exceptionally(t -> {
+                    throw new CompletionException(new TransportException("Deadline expired waiting for a connection"));
+                });
+        }
+
+        /**
+         * Blocks until a permit has been granted.
+         */
+        void acquire() throws InterruptedException {
+            CompletableFuture<Void> waiter = acquireAsync();
+            try {
+                waiter.get();
+            } catch (InterruptedException e) {
+                if (!waiter.cancel(false)) {
+                    // The permit was granted while we were being interrupted.
+                    release();
+                }
+                throw e;
+            } catch (ExecutionException e) {
+                // Never completed exceptionally.
+            }
+        }
+
+        /**
+         * Blocks until a permit has been granted or the deadline has passed.
+         *
+         * @param deadline Deadline, or null to wait as long as it takes.
+         */
+        void acquire(Deadline deadline) throws InterruptedException, TransportException {
+            if (deadline == null) {
+                acquire();
+                return;
+            }
+            CompletableFuture<Void> waiter = acquireAsync();
+            try {
+                waiter.get(Math.max(0, deadline.remainingNanos()), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                if (!waiter.cancel(false)) {
+                    release();
+                }
+                throw e;
+            } catch (TimeoutException e) {
+                if (!waiter.cancel(false)) {
+                    // The permit was granted just in time.
+                    return;
+                }
+                throw new TransportException("Deadline expired waiting for a connection");
+            } catch (ExecutionException e) {
+                // Never completed exceptionally.
+            }
+        }
+
+        /**
+         * Returns a permit, handing it to the oldest waiter if there is one.
+         */
+        void release() {
+            while (true) {
+                CompletableFuture<Void> waiter;
+                synchronized (this) {
+                    waiter = waiters.poll();
+                    if (waiter == null) {
+                        available++;
+                        return;
+                    }
+                }
+                // A cancelled waiter does not take the permit, try the next one.
+                if (waiter.complete(null)) {
+                    return;
+                }
+            }
+        }
+    }
+}
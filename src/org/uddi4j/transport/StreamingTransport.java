@@ -0,0 +1,56 @@
+/*
+ * The source code contained herein is licensed under the IBM Public License
+ * Version 1.0, which has been approved by the Open Source Initiative.
+ * Copyright (C) 2001, International Business Machines Corporation
+ * All Rights Reserved.
+ *
+ */
+
+package org.uddi4j.transport;
+
+import java.io.InputStream;
+import java.net.URL;
+
+import org.uddi4j.UDDIElement;
+import org.uddi4j.UDDIException;
+
+/**
+ * Interface for a SOAP transport that can hand the response to the caller
+ * as a stream instead of as a DOM tree.
+ * <p>
+ * Transports opt into streaming by implementing this interface. UDDIProxy
+ * then reads inquiry responses with a pull parser straight from the
+ * stream, without building a DOM tree of the whole response first.
+ */
+public interface StreamingTransport extends Transport {
+	/**
+	 * Sends a UDDIElement to URL and passes the response to a reader.
+	 * The stream is only valid during the call to the reader and is
+	 * closed by the transport afterwards.
+	 *
+	 * @param el     UDDIElement to send
+	 * @param url    Destination URL
+	 * @param reader Reader for the SOAP envelope of the response
+	 * @return The object returned by the reader.
+	 * @exception TransportException
+	 *                   Thrown if a problem occurs during transmission
+	 * @exception UDDIException
+	 *                   Thrown by the reader if the response contains a SOAP fault
+	 */
+	public Object send(UDDIElement el, URL url, ResponseReader reader) throws TransportException, UDDIException;
+
+	/**
+	 * Reads a SOAP response envelope from a stream.
+	 */
+	public interface ResponseReader {
+		/**
+		 * @param in     Stream positioned at the start of the SOAP envelope.
+		 * @return The object built from the response.
+		 * @exception TransportException
+		 *                   Thrown if the stream cannot be read or parsed
+		 * @exception UDDIException
+		 *                   Thrown if the response contains a SOAP fault
+		 */
+		public Object read(InputStream in) throws TransportException, UDDIException;
+	}
+}
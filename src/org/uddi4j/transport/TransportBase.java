@@ -11,9 +11,7 @@ package org.uddi4j.transport;
 import java.net.URL;
 import java.util.Properties;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-
+import org.uddi4j.DocumentBuilderPool;
 import org.uddi4j.UDDIElement;
 import org.uddi4j.client.UDDIProxy;
 import org.w3c.dom.Element;
@@ -44,17 +42,27 @@ abstract public class TransportBase implements Transport {
 	 *                   Thrown if a problem occurs during transmission
 	 */
 	public Element send(UDDIElement el, URL url) throws TransportException {
+		return send(toElement(el), url);
+	}
+
+	/**
+	 * Converts a UDDIElement to the DOM element to be sent.
+	 *
+	 * @param el     UDDIElement to convert
+	 * @return The DOM element representing el.
+	 * @exception TransportException
+	 *                   Thrown if a DOM document cannot be created.
+	 */
+	protected Element toElement(UDDIElement el) throws TransportException {
 		Element base = null;
 		try {
-			DocumentBuilder docBuilder =
-				DocumentBuilderFactory.newInstance().newDocumentBuilder();
-			base = docBuilder.newDocument().createElement("tmp");
+			base = DocumentBuilderPool.getInstance().newDocument().createElement("tmp");
 		} catch (Exception e) {
-			e.printStackTrace();
+			throw new TransportException(e);
 		}
 
 		el.saveToXML(base);
-		return send((Element) base.getFirstChild(), url);
+		return (Element) base.getFirstChild();
 	}
 	
 
@@ -75,4 +83,23 @@ abstract public class TransportBase implements Transport {
 	{
 	    return config;
 	}
+
+	/**
+	 * Returns a timeout from the configuration.
+	 *
+	 * @param name   Property name, for example org.uddi4j.http.readTimeoutMillis
+	 * @return Timeout in milliseconds, or 0 if the property is not set or not a valid number.
+	 */
+	protected int getTimeoutProperty(String name)
+	{
+	    try
+	    {
+	        return Math.max(0, Integer.parseInt(config.getProperty(name).trim()));
+	    }
+	    catch (Exception e)
+	    {
+	        //prop is null, empty or not an int.
+	        return 0;
+	    }
+	}
 }
\ No newline at end of file
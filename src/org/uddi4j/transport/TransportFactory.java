@@ -10,6 +10,8 @@ package org.uddi4j.transport;
 
 import java.util.Properties;
 
+import org.uddi4j.client.UDDIProxy;
+
 /**
  * Factory to dynamically create a Transport implementation.
  * 
@@ -64,6 +66,11 @@ public class TransportFactory {
                //a setConfiguration method.
                ((TransportBase)transport).setConfiguration(config);
            }
+           if (Boolean.valueOf(config.getProperty(UDDIProxy.CIRCUIT_BREAKER_ENABLED_PROPERTY)).booleanValue())
+           {
+               //fail fast on registry nodes that keep failing
+               transport = CircuitBreakerTransport.wrap(transport, config);
+           }
         } catch (Exception e) {
            throw new TransportException(e);
         }
@@ -8,6 +8,9 @@
 
 package org.uddi4j.util;
 
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
 import org.uddi4j.UDDIElement;
 import org.uddi4j.UDDIException;
 import org.w3c.dom.Element;
@@ -153,6 +156,21 @@ public class KeyedReference extends UDDIElement
         parent.appendChild(base);
     }
 
+    /**
+     * Save an object to a stream writer. Writes the same XML as
+     * saveToXML(Element) without building a DOM tree.
+     *
+     * @param writer Object will be written as the next element of the writer.
+     * @exception XMLStreamException
+     */
+    public void saveToXML(XMLStreamWriter writer) throws XMLStreamException {
+        writeStartElement(writer, UDDI_TAG);
+        writeAttribute(writer, "tModelKey", tModelKey);
+        writeAttribute(writer, "keyName", keyName);
+        writeAttribute(writer, "keyValue", keyValue);
+        writer.writeEndElement();
+    }
+
     public boolean equals(Object obj)
     {
         boolean result = false;